@@ -17,8 +17,10 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
 import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -31,11 +33,15 @@ import net.jpountz.lz4.LZ4FrameInputStream;
 import net.jpountz.lz4.LZ4FrameOutputStream;
 import org.batfish.common.BatfishException;
 import org.batfish.common.util.BatfishObjectInputStream;
+import org.batfish.common.util.CompactObjectInputStream;
+import org.batfish.common.util.CompactObjectOutputStream;
 
 public abstract class PluginConsumer implements IPluginConsumer {
 
   /** Supported formats we can deserialize from */
   public enum Format {
+    /** Written by {@link CompactObjectOutputStream} */
+    COMPACT_SERIALIZED,
     JAVA_SERIALIZED,
     LZ4,
     GZIP,
@@ -60,13 +66,26 @@ public abstract class PluginConsumer implements IPluginConsumer {
 
   private static final byte[] GZIP_MAGIC_BYTES = {(byte) 0x1f, (byte) 0x8b};
 
+  private final boolean _compactSerialization;
+
   private ClassLoader _currentClassLoader;
 
   private final boolean _serializeToText;
 
   public PluginConsumer(boolean serializeToText) {
+    this(serializeToText, false);
+  }
+
+  /**
+   * @param serializeToText whether to serialize objects to XML text
+   * @param compactSerialization whether to serialize objects using {@link
+   *     CompactObjectOutputStream} rather than standard Java serialization. Ignored if {@code
+   *     serializeToText} is set.
+   */
+  public PluginConsumer(boolean serializeToText, boolean compactSerialization) {
     _currentClassLoader = Thread.currentThread().getContextClassLoader();
     _serializeToText = serializeToText;
+    _compactSerialization = compactSerialization;
   }
 
   /**
@@ -90,7 +109,9 @@ public abstract class PluginConsumer implements IPluginConsumer {
       InputStream stream, Class<S> outputClass, Format format) throws IOException {
     try {
       ObjectInputStream ois;
-      if (format != Format.JAVA_SERIALIZED) {
+      if (format == Format.COMPACT_SERIALIZED) {
+        ois = new CompactObjectInputStream(stream, _currentClassLoader);
+      } else if (format != Format.JAVA_SERIALIZED) {
         XStream xstream = new XStream(new DomDriver("UTF-8"));
         xstream.setClassLoader(_currentClassLoader);
         ois = xstream.createObjectInputStream(stream);
@@ -157,6 +178,8 @@ public abstract class PluginConsumer implements IPluginConsumer {
     Format format;
     if (Arrays.equals(header, JAVA_SERIALIZED_OBJECT_HEADER)) {
       format = Format.JAVA_SERIALIZED;
+    } else if (Arrays.equals(header, CompactObjectOutputStream.STREAM_MAGIC)) {
+      format = Format.COMPACT_SERIALIZED;
     } else if (Arrays.equals(header, LZ4_MAGIC_BYTES)) {
       format = Format.LZ4;
     } else if (Arrays.equals(Arrays.copyOf(header, GZIP_HEADER_LENGTH_BYTES), GZIP_MAGIC_BYTES)) {
@@ -199,16 +222,41 @@ public abstract class PluginConsumer implements IPluginConsumer {
     }
   }
 
-  /** Serializes the given object to a file with the given output name. */
+  /**
+   * Serializes the given object to a file with the given output name. The object is first written
+   * to a temporary file that is then moved into place, so a concurrent reader never sees a partly
+   * written file.
+   */
   public void serializeObject(Serializable object, Path outputFile) {
+    Path tempFile = null;
     try {
+      tempFile =
+          Files.createTempFile(
+              outputFile.toAbsolutePath().getParent(), outputFile.getFileName().toString(), ".tmp");
       try (Closer closer = Closer.create()) {
-        OutputStream out = closer.register(Files.newOutputStream(outputFile));
+        OutputStream out = closer.register(Files.newOutputStream(tempFile));
         BufferedOutputStream bout = closer.register(new BufferedOutputStream(out));
         serializeToLz4Data(object, bout);
       }
+      try {
+        Files.move(
+            tempFile,
+            outputFile,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
+      }
     } catch (IOException e) {
       throw new BatfishException("Failed to serialize object to output file: " + outputFile, e);
+    } finally {
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+          // the temporary file is left behind, which is harmless
+        }
+      }
     }
   }
 
@@ -236,6 +284,8 @@ public abstract class PluginConsumer implements IPluginConsumer {
       if (_serializeToText) {
         XStream xstream = new XStream(new DomDriver("UTF-8"));
         oos = closer.register(xstream.createObjectOutputStream(los));
+      } else if (_compactSerialization) {
+        oos = closer.register(new CompactObjectOutputStream(los));
       } else {
         oos = closer.register(new ObjectOutputStream(los));
       }
@@ -24,4 +24,13 @@ public class BatfishObjectInputStream extends ObjectInputStream {
       return super.resolveClass(osc);
     }
   }
+
+  /** Resolve a class by name, preferring the class loader provided at construction */
+  protected Class<?> resolveClass(String name) throws ClassNotFoundException {
+    try {
+      return Class.forName(name, false, _loader);
+    } catch (ClassNotFoundException e) {
+      return Class.forName(name, false, BatfishObjectInputStream.class.getClassLoader());
+    }
+  }
 }
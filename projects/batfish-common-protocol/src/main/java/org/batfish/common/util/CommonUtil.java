@@ -1,6 +1,8 @@
 package org.batfish.common.util;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Comparators;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
@@ -44,6 +46,7 @@ import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileTime;
 import java.security.KeyStore;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -63,6 +66,7 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -200,6 +204,34 @@ public class CommonUtil {
 
   private static final int STREAMED_FILE_BUFFER_SIZE = 1024;
 
+  private static final String BGP_SESSION_FLOW_TAG = "neighbor-resolution";
+
+  /** Traces of the flows used to check BGP session reachability, per data plane. */
+  private static final Cache<DataPlane, Map<Flow, Set<FlowTrace>>> BGP_SESSION_TRACES =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  /** A session that {@code _initiator} may open with {@code _listener}. */
+  private static final class BgpSessionCandidate {
+
+    @Nullable private Flow _backwardFlow;
+
+    private final BgpActivePeerConfig _config;
+
+    private final Flow _forwardFlow;
+
+    private final BgpPeerConfigId _initiator;
+
+    private final BgpPeerConfigId _listener;
+
+    private BgpSessionCandidate(
+        BgpPeerConfigId initiator, BgpPeerConfigId listener, BgpActivePeerConfig config) {
+      _config = config;
+      _forwardFlow = Objects.requireNonNull(bgpSessionForwardFlow(initiator, config));
+      _initiator = initiator;
+      _listener = listener;
+    }
+  }
+
   public static String applyPrefix(String prefix, String msg) {
     String[] lines = msg.split("\n", -1);
     StringBuilder sb = new StringBuilder();
@@ -938,95 +970,92 @@ public class CommonUtil {
   }
 
   /**
-   * Check if a bgp peer is reachable to establish a session
-   *
-   * <p><b>Warning:</b> Notion of directionality is important here, we are assuming {@code src} is
-   * initiating the connection according to its local configuration
+   * Returns the flow with which {@code initiator} opens a BGP session to its configured peer
+   * address, or {@code null} if it has no peer address.
    */
-  private static boolean isReachableBgpNeighbor(
-      BgpPeerConfigId initiator,
-      BgpPeerConfigId listener,
-      BgpActivePeerConfig src,
-      @Nullable ITracerouteEngine tracerouteEngine,
-      @Nullable DataPlane dp) {
-
-    Ip srcAddress = src.getLocalIp();
+  @Nullable
+  private static Flow bgpSessionForwardFlow(BgpPeerConfigId initiator, BgpActivePeerConfig src) {
     Ip dstAddress = src.getPeerAddress();
     if (dstAddress == null) {
-      return false;
-    }
-    if (tracerouteEngine == null || dp == null) {
-      throw new BatfishException("Cannot compute neighbor reachability without a dataplane");
+      return null;
     }
+    return new Flow.Builder()
+        .setIpProtocol(IpProtocol.TCP)
+        .setTag(BGP_SESSION_FLOW_TAG)
+        .setIngressNode(initiator.getHostname())
+        .setIngressVrf(initiator.getVrfName())
+        .setSrcIp(src.getLocalIp())
+        .setDstIp(dstAddress)
+        .setSrcPort(NamedPort.EPHEMERAL_LOWEST.number())
+        .setDstPort(NamedPort.BGP.number())
+        .build();
+  }
 
-    /*
-     * Ensure that the session can be established by running traceroute in both directions
-     */
-    Flow.Builder fb = new Flow.Builder();
-    fb.setIpProtocol(IpProtocol.TCP);
-    fb.setTag("neighbor-resolution");
-
-    fb.setIngressNode(initiator.getHostname());
-    fb.setIngressVrf(initiator.getVrfName());
-    fb.setSrcIp(srcAddress);
-    fb.setDstIp(dstAddress);
-    fb.setSrcPort(NamedPort.EPHEMERAL_LOWEST.number());
-    fb.setDstPort(NamedPort.BGP.number());
-    Flow forwardFlow = fb.build();
-
-    // Execute the "initiate connection" traceroute
-    SortedMap<Flow, Set<FlowTrace>> traces =
-        tracerouteEngine.processFlows(dp, ImmutableSet.of(forwardFlow), dp.getFibs(), false);
-
+  /**
+   * Returns the reply to {@code forwardFlow} sent by {@code listener}, or {@code null} if {@code
+   * forwardFlow} does not establish a session with {@code listener}, given its traces.
+   */
+  @Nullable
+  private static Flow bgpSessionBackwardFlow(
+      Flow forwardFlow,
+      Set<FlowTrace> forwardTraces,
+      BgpPeerConfigId listener,
+      BgpActivePeerConfig src) {
     SortedSet<FlowTrace> acceptedFlows =
-        traces
-            .get(forwardFlow)
+        forwardTraces
             .stream()
-            .filter(
-                trace ->
-                    trace.getDisposition() == FlowDisposition.ACCEPTED
-                        && trace.getAcceptingNode() != null
-                        && trace.getAcceptingNode().getHostname().equals(listener.getHostname()))
+            .filter(trace -> isAcceptedBy(trace, listener.getHostname()))
             .collect(ImmutableSortedSet.toImmutableSortedSet(FlowTrace::compareTo));
 
     if (acceptedFlows.isEmpty()) {
-      return false;
+      return null;
     }
     NodeInterfacePair acceptPoint = acceptedFlows.first().getAcceptingNode();
     if (SessionType.isEbgp(BgpSessionProperties.getSessionType(src))
         && !src.getEbgpMultihop()
         && acceptedFlows.first().getHops().size() > 1) {
       // eBGP expects direct connection (single hop) unless explicitly configured multi-hop
-      return false;
+      return null;
     }
 
     if (acceptPoint == null) {
-      return false;
+      return null;
     }
-    String acceptedHostname = acceptPoint.getHostname();
-    // The reply traceroute
-    fb.setIngressNode(acceptedHostname);
-    fb.setIngressVrf(listener.getVrfName());
-    fb.setSrcIp(forwardFlow.getDstIp());
-    fb.setDstIp(forwardFlow.getSrcIp());
-    fb.setSrcPort(forwardFlow.getDstPort());
-    fb.setDstPort(forwardFlow.getSrcPort());
-    Flow backwardFlow = fb.build();
-    traces = tracerouteEngine.processFlows(dp, ImmutableSet.of(backwardFlow), dp.getFibs(), false);
+    return new Flow.Builder()
+        .setIpProtocol(IpProtocol.TCP)
+        .setTag(BGP_SESSION_FLOW_TAG)
+        .setIngressNode(acceptPoint.getHostname())
+        .setIngressVrf(listener.getVrfName())
+        .setSrcIp(forwardFlow.getDstIp())
+        .setDstIp(forwardFlow.getSrcIp())
+        .setSrcPort(forwardFlow.getDstPort())
+        .setDstPort(forwardFlow.getSrcPort())
+        .build();
+  }
 
-    /*
-     * If backward traceroutes fail, do not consider the neighbor reachable
-     */
-    return !traces
-        .get(backwardFlow)
-        .stream()
-        .filter(
-            trace ->
-                trace.getDisposition() == FlowDisposition.ACCEPTED
-                    && trace.getAcceptingNode() != null
-                    && trace.getAcceptingNode().getHostname().equals(initiator.getHostname()))
-        .collect(ImmutableSet.toImmutableSet())
-        .isEmpty();
+  private static boolean isAcceptedBy(FlowTrace trace, String hostname) {
+    return trace.getDisposition() == FlowDisposition.ACCEPTED
+        && trace.getAcceptingNode() != null
+        && trace.getAcceptingNode().getHostname().equals(hostname);
+  }
+
+  /**
+   * Traces {@code flows} in a single batch, reusing traces of flows already traced against {@code
+   * dp}. The FIBs of a data plane do not change once computed, so neither do its traces.
+   */
+  private static Map<Flow, Set<FlowTrace>> traceBgpSessionFlows(
+      Set<Flow> flows, ITracerouteEngine tracerouteEngine, DataPlane dp) {
+    Map<Flow, Set<FlowTrace>> traces =
+        BGP_SESSION_TRACES.asMap().computeIfAbsent(dp, k -> new ConcurrentHashMap<>());
+    Set<Flow> untraced =
+        flows
+            .stream()
+            .filter(flow -> !traces.containsKey(flow))
+            .collect(ImmutableSet.toImmutableSet());
+    if (!untraced.isEmpty()) {
+      traces.putAll(tracerouteEngine.processFlows(dp, untraced, dp.getFibs(), false));
+    }
+    return traces;
   }
 
   /**
@@ -1115,7 +1144,8 @@ public class CommonUtil {
       }
     }
 
-    // Second pass: add edges to the graph. Note, these are directed edges.
+    // Second pass: find candidate sessions. Note, these are directed edges.
+    List<BgpSessionCandidate> sessionCandidates = new ArrayList<>();
     for (BgpPeerConfigId neighborId : graph.nodes()) {
       if (neighborId.isDynamic()) {
         // Passive end of the peering cannot initiate a connection
@@ -1153,30 +1183,59 @@ public class CommonUtil {
           // Short-circuit if there is no way the remote end will accept our connection
           continue;
         }
-        /*
-         * Perform reachability checks.
-         */
-        if (checkReachability) {
-          if (isReachableBgpNeighbor(
-              neighborId, candidateNeighborId, neighbor, tracerouteEngine, dp)) {
-            graph.putEdgeValue(
-                neighborId,
-                candidateNeighborId,
-                BgpSessionProperties.from(
-                    neighbor,
-                    Objects.requireNonNull(
-                        networkConfigurations.getBgpPeerConfig(candidateNeighborId))));
-          }
-        } else {
-          graph.putEdgeValue(
-              neighborId,
-              candidateNeighborId,
-              BgpSessionProperties.from(
-                  neighbor,
-                  Objects.requireNonNull(
-                      networkConfigurations.getBgpPeerConfig(candidateNeighborId))));
-        }
+        sessionCandidates.add(new BgpSessionCandidate(neighborId, candidateNeighborId, neighbor));
+      }
+    }
+
+    /*
+     * Perform reachability checks: ensure that each session can be established by running
+     * traceroute in both directions. All forward flows are traced in one batch, followed by all
+     * backward flows, so the traceroute engine can process them in parallel.
+     */
+    if (checkReachability && !sessionCandidates.isEmpty()) {
+      if (tracerouteEngine == null || dp == null) {
+        throw new BatfishException("Cannot compute neighbor reachability without a dataplane");
+      }
+      Map<Flow, Set<FlowTrace>> forwardTraces =
+          traceBgpSessionFlows(
+              sessionCandidates
+                  .stream()
+                  .map(c -> c._forwardFlow)
+                  .collect(ImmutableSet.toImmutableSet()),
+              tracerouteEngine,
+              dp);
+      for (BgpSessionCandidate c : sessionCandidates) {
+        c._backwardFlow =
+            bgpSessionBackwardFlow(
+                c._forwardFlow, forwardTraces.get(c._forwardFlow), c._listener, c._config);
       }
+      Map<Flow, Set<FlowTrace>> backwardTraces =
+          traceBgpSessionFlows(
+              sessionCandidates
+                  .stream()
+                  .map(c -> c._backwardFlow)
+                  .filter(Objects::nonNull)
+                  .collect(ImmutableSet.toImmutableSet()),
+              tracerouteEngine,
+              dp);
+      // If backward traceroutes fail, do not consider the neighbor reachable
+      sessionCandidates.removeIf(
+          c ->
+              c._backwardFlow == null
+                  || backwardTraces
+                      .get(c._backwardFlow)
+                      .stream()
+                      .noneMatch(trace -> isAcceptedBy(trace, c._initiator.getHostname())));
+    }
+
+    // Third pass: add edges to the graph for the sessions that can be established.
+    for (BgpSessionCandidate c : sessionCandidates) {
+      graph.putEdgeValue(
+          c._initiator,
+          c._listener,
+          BgpSessionProperties.from(
+              c._config,
+              Objects.requireNonNull(networkConfigurations.getBgpPeerConfig(c._listener))));
     }
     return ImmutableValueGraph.copyOf(graph);
   }
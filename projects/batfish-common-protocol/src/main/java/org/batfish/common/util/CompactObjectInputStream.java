@@ -0,0 +1,52 @@
+package org.batfish.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+/**
+ * Reads streams written by {@link CompactObjectOutputStream}. Throws {@link InvalidClassException}
+ * if a class in the stream was written with a different serialVersionUID or field layout than the
+ * local class has.
+ */
+public class CompactObjectInputStream extends BatfishObjectInputStream {
+
+  public CompactObjectInputStream(InputStream in, ClassLoader loader) throws IOException {
+    super(in, loader);
+  }
+
+  @Override
+  protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+    String name = readUTF();
+    long serialVersionUID = readLong();
+    int fieldLayoutHash = readInt();
+    ObjectStreamClass desc = ObjectStreamClass.lookupAny(resolveClass(name));
+    if (desc == null) {
+      throw new StreamCorruptedException("No class descriptor for class " + name);
+    }
+    // The local descriptor stands in for the written one, so it must describe the same layout
+    if (desc.getSerialVersionUID() != serialVersionUID) {
+      throw new InvalidClassException(
+          name,
+          String.format(
+              "stream serialVersionUID %d does not match local serialVersionUID %d",
+              serialVersionUID, desc.getSerialVersionUID()));
+    }
+    if (CompactObjectOutputStream.fieldLayoutHash(desc) != fieldLayoutHash) {
+      throw new InvalidClassException(name, "stream fields do not match local class fields");
+    }
+    return desc;
+  }
+
+  @Override
+  protected void readStreamHeader() throws IOException {
+    byte[] header = new byte[CompactObjectOutputStream.STREAM_MAGIC.length];
+    readFully(header);
+    if (!Arrays.equals(header, CompactObjectOutputStream.STREAM_MAGIC)) {
+      throw new StreamCorruptedException("Invalid compact stream header");
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.batfish.common.util;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.Prefix;
+
+/**
+ * An {@link ObjectOutputStream} that produces a more compact encoding than standard Java
+ * serialization. Streams written by this class must be read with {@link CompactObjectInputStream}.
+ *
+ * <p>Differences from standard Java serialization:
+ *
+ * <ul>
+ *   <li>The stream starts with {@link #STREAM_MAGIC} instead of the Java serialization header.
+ *   <li>Class descriptors are written as the class name, serialVersionUID, and a hash of the
+ *       serializable fields' names and types. The reader uses its local class definitions, and
+ *       rejects the stream if the serialVersionUID or field layout of a local class differs from
+ *       the one written.
+ *   <li>Equal {@link String}s, {@link Ip}s, and {@link Prefix}es are written once per stream and
+ *       back-referenced afterwards, which also makes them shared after deserialization.
+ * </ul>
+ */
+public class CompactObjectOutputStream extends ObjectOutputStream {
+
+  /** Magic bytes at the start of a compact stream, in place of the Java serialization header */
+  public static final byte[] STREAM_MAGIC = {(byte) 0xbf, (byte) 0x5e, (byte) 0x00, (byte) 0x02};
+
+  private final Map<Object, Object> _canonicalValues;
+
+  public CompactObjectOutputStream(OutputStream out) throws IOException {
+    super(out);
+    _canonicalValues = new HashMap<>();
+    enableReplaceObject(true);
+  }
+
+  /**
+   * Returns a hash of the names and types of the serializable fields of the class described by
+   * {@code desc}, which changes whenever a field is added, removed, renamed, or retyped.
+   */
+  static int fieldLayoutHash(ObjectStreamClass desc) {
+    int hash = 1;
+    for (ObjectStreamField field : desc.getFields()) {
+      hash = 31 * hash + field.getName().hashCode();
+      hash = 31 * hash + field.getTypeCode();
+      hash = 31 * hash + Objects.hashCode(field.getTypeString());
+    }
+    return hash;
+  }
+
+  @Override
+  protected Object replaceObject(Object obj) {
+    Class<?> clazz = obj.getClass();
+    if (clazz == String.class || clazz == Ip.class || clazz == Prefix.class) {
+      return _canonicalValues.computeIfAbsent(obj, o -> o);
+    }
+    return obj;
+  }
+
+  @Override
+  protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+    writeUTF(desc.getName());
+    writeLong(desc.getSerialVersionUID());
+    writeInt(fieldLayoutHash(desc));
+  }
+
+  @Override
+  protected void writeStreamHeader() throws IOException {
+    write(STREAM_MAGIC);
+  }
+}
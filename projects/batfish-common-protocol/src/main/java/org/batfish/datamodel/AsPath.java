@@ -51,9 +51,13 @@ public class AsPath implements Serializable, Comparable<AsPath> {
 
   private final List<SortedSet<Long>> _asSets;
 
+  /** Cached hash code, or 0 if not computed yet */
+  private transient int _hashCode;
+
   @JsonCreator
   public AsPath(List<SortedSet<Long>> asSets) {
-    _asSets = copyAsSets(asSets);
+    _asSets =
+        asSets.stream().map(AttributeInterner::intern).collect(ImmutableList.toImmutableList());
   }
 
   @Override
@@ -112,6 +116,29 @@ public class AsPath implements Serializable, Comparable<AsPath> {
     return true;
   }
 
+  /** Appends the characters of {@link #getAsPathString()} to {@code scan}. */
+  void appendTo(RegexLineAutomaton.Scan scan) {
+    boolean first = true;
+    for (Set<Long> asSet : _asSets) {
+      if (!first) {
+        scan.append(' ');
+      }
+      first = false;
+      if (asSet.size() == 1) {
+        scan.append((long) asSet.iterator().next());
+      } else {
+        scan.append('{');
+        Iterator<Long> i = asSet.iterator();
+        scan.append((long) i.next());
+        while (i.hasNext()) {
+          scan.append(',');
+          scan.append((long) i.next());
+        }
+        scan.append('}');
+      }
+    }
+  }
+
   public String getAsPathString() {
     StringBuilder sb = new StringBuilder();
     for (Set<Long> asSet : _asSets) {
@@ -140,7 +167,17 @@ public class AsPath implements Serializable, Comparable<AsPath> {
 
   @Override
   public int hashCode() {
-    return _asSets.hashCode();
+    int hashCode = _hashCode;
+    if (hashCode == 0) {
+      hashCode = _asSets.hashCode();
+      _hashCode = hashCode;
+    }
+    return hashCode;
+  }
+
+  /** Interns the AS sets of deserialized paths. */
+  private Object readResolve() {
+    return new AsPath(_asSets);
   }
 
   public int size() {
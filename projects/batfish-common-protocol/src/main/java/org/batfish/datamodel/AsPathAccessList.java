@@ -5,18 +5,17 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.kjetland.jackson.jsonSchema.annotations.JsonSchemaDescription;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -30,20 +29,53 @@ public final class AsPathAccessList implements Serializable {
 
   private static final long serialVersionUID = 1L;
 
-  private transient Set<AsPath> _deniedCache;
+  /** AS paths and the automata of their lists' regexes. Lists with the same regexes share keys. */
+  private static final class MatchKey {
+
+    private final AsPath _asPath;
+
+    private final RegexLineAutomaton _automaton;
+
+    private MatchKey(RegexLineAutomaton automaton, AsPath asPath) {
+      _asPath = asPath;
+      _automaton = automaton;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof MatchKey)) {
+        return false;
+      }
+      MatchKey other = (MatchKey) o;
+      return _automaton == other._automaton && _asPath.equals(other._asPath);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(_automaton) + _asPath.hashCode();
+    }
+  }
+
+  /** Index of the first line matching each AS path, shared by all lists */
+  private static final Cache<MatchKey, Integer> FIRST_MATCHING_LINES =
+      CacheBuilder.newBuilder().maximumSize(1 << 18).build();
+
+  /** The regexes of the lines, compiled when first needed */
+  private transient Supplier<RegexLineAutomaton> _automaton;
 
   @Nonnull private final List<AsPathAccessListLine> _lines;
 
   private final String _name;
 
-  private transient Set<AsPath> _permittedCache;
-
   @JsonCreator
   public AsPathAccessList(
       @Nullable @JsonProperty(PROP_NAME) String name,
       @Nullable @JsonProperty(PROP_LINES) List<AsPathAccessListLine> lines) {
     _lines = firstNonNull(lines, ImmutableList.of());
     _name = name;
+    initAutomaton();
   }
 
   @Override
@@ -76,39 +108,36 @@ public final class AsPathAccessList implements Serializable {
     return _name;
   }
 
-  private boolean newPermits(AsPath asPath) {
-    boolean accept = false;
-    for (AsPathAccessListLine line : _lines) {
-      String regex = line.getRegex();
-      Pattern p = Pattern.compile(regex);
-      String asPathString = asPath.getAsPathString();
-      Matcher matcher = p.matcher(asPathString);
-      boolean match = matcher.find();
-      if (match) {
-        accept = line.getAction() == LineAction.ACCEPT;
-        break;
-      }
-    }
-    if (accept) {
-      _permittedCache.add(asPath);
-    } else {
-      _deniedCache.add(asPath);
-    }
-    return accept;
+  private void initAutomaton() {
+    _automaton =
+        Suppliers.memoize(
+            () ->
+                RegexLineAutomaton.forRegexes(
+                    _lines
+                        .stream()
+                        .map(AsPathAccessListLine::getRegex)
+                        .collect(ImmutableList.toImmutableList())));
+  }
+
+  /** Index of the first line matching {@code asPath}, or {@link RegexLineAutomaton#NO_MATCH}. */
+  private static int firstMatchingLine(RegexLineAutomaton automaton, AsPath asPath) {
+    RegexLineAutomaton.Scan scan = automaton.scan();
+    asPath.appendTo(scan);
+    return scan.finish();
   }
 
   public boolean permits(AsPath asPath) {
-    if (_deniedCache.contains(asPath)) {
-      return false;
-    } else if (_permittedCache.contains(asPath)) {
-      return true;
-    }
-    return newPermits(asPath);
+    RegexLineAutomaton automaton = _automaton.get();
+    int line =
+        FIRST_MATCHING_LINES
+            .asMap()
+            .computeIfAbsent(
+                new MatchKey(automaton, asPath), key -> firstMatchingLine(automaton, asPath));
+    return line != RegexLineAutomaton.NO_MATCH && _lines.get(line).getAction() == LineAction.ACCEPT;
   }
 
   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
     in.defaultReadObject();
-    _deniedCache = Collections.newSetFromMap(new ConcurrentHashMap<>());
-    _permittedCache = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    initAutomaton();
   }
 }
@@ -0,0 +1,34 @@
+package org.batfish.datamodel;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.Collection;
+import javax.annotation.Nullable;
+
+/**
+ * Weak intern tables for BGP route attributes. Routes with equal AS paths, community sets or
+ * cluster lists share a single instance of each, so the many near-identical copies of a route held
+ * by the RIBs of a network pay for their attributes once, and equal interned attributes are
+ * identical. Instances no longer referenced by any route are garbage collected.
+ */
+final class AttributeInterner {
+
+  private static final Interner<AsPath> AS_PATHS = Interners.newWeakInterner();
+
+  /** AS sets, community sets and cluster lists */
+  private static final Interner<ImmutableSortedSet<Long>> LONG_SETS = Interners.newWeakInterner();
+
+  /** Returns the canonical instance of {@code asPath}, whose AS sets are also interned. */
+  static AsPath intern(AsPath asPath) {
+    return AS_PATHS.intern(asPath);
+  }
+
+  /** Returns the canonical immutable set of {@code longs}, or of no longs if {@code null}. */
+  static ImmutableSortedSet<Long> intern(@Nullable Collection<Long> longs) {
+    return LONG_SETS.intern(
+        longs == null ? ImmutableSortedSet.of() : ImmutableSortedSet.copyOf(longs));
+  }
+
+  private AttributeInterner() {}
+}
@@ -5,9 +5,7 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.common.collect.ImmutableSortedSet;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
@@ -93,6 +91,10 @@ public class BgpRoute extends AbstractRoute {
       return _communities;
     }
 
+    public boolean getDiscard() {
+      return _discard;
+    }
+
     public int getLocalPreference() {
       return _localPreference;
     }
@@ -109,6 +111,18 @@ public class BgpRoute extends AbstractRoute {
       return _protocol;
     }
 
+    public Ip getReceivedFromIp() {
+      return _receivedFromIp;
+    }
+
+    public boolean getReceivedFromRouteReflectorClient() {
+      return _receivedFromRouteReflectorClient;
+    }
+
+    public RoutingProtocol getSrcProtocol() {
+      return _srcProtocol;
+    }
+
     @Override
     protected Builder getThis() {
       return this;
@@ -249,6 +263,9 @@ public class BgpRoute extends AbstractRoute {
 
   private final int _weight;
 
+  /** Cached hash code, or 0 if not computed yet */
+  private transient int _hashCode;
+
   @JsonCreator
   public BgpRoute(
       @JsonProperty(PROP_NETWORK) Prefix network,
@@ -270,11 +287,9 @@ public class BgpRoute extends AbstractRoute {
       @JsonProperty(PROP_WEIGHT) int weight) {
     super(network);
     _admin = admin;
-    _asPath = asPath;
-    _clusterList =
-        clusterList == null ? Collections.emptySortedSet() : ImmutableSortedSet.copyOf(clusterList);
-    _communities =
-        communities == null ? Collections.emptySortedSet() : ImmutableSortedSet.copyOf(communities);
+    _asPath = asPath == null ? null : AttributeInterner.intern(asPath);
+    _clusterList = AttributeInterner.intern(clusterList);
+    _communities = AttributeInterner.intern(communities);
     _discard = discard;
     _localPreference = localPreference;
     _med = med;
@@ -299,13 +314,14 @@ public class BgpRoute extends AbstractRoute {
     if (_admin != other._admin) {
       return false;
     }
-    if (!_asPath.equals(other._asPath)) {
+    // interned attributes are equal only if identical
+    if (_asPath != other._asPath) {
       return false;
     }
-    if (!_clusterList.equals(other._clusterList)) {
+    if (_clusterList != other._clusterList) {
       return false;
     }
-    if (!_communities.equals(other._communities)) {
+    if (_communities != other._communities) {
       return false;
     }
     if (_localPreference != other._localPreference) {
@@ -435,6 +451,15 @@ public class BgpRoute extends AbstractRoute {
 
   @Override
   public int hashCode() {
+    int hashCode = _hashCode;
+    if (hashCode == 0) {
+      hashCode = computeHashCode();
+      _hashCode = hashCode;
+    }
+    return hashCode;
+  }
+
+  private int computeHashCode() {
     return Objects.hash(
         _admin,
         _asPath,
@@ -480,6 +505,36 @@ public class BgpRoute extends AbstractRoute {
         + _weight;
   }
 
+  /**
+   * Interns the attributes of deserialized routes. The replacement keeps the state {@link
+   * AbstractRoute} holds as well, e.g. whether the route is non-routing.
+   */
+  private Object readResolve() {
+    BgpRoute route =
+        new BgpRoute(
+            _network,
+            _nextHopIp,
+            _admin,
+            _asPath,
+            _communities,
+            _discard,
+            _localPreference,
+            _med,
+            _originatorIp,
+            _clusterList,
+            _receivedFromRouteReflectorClient,
+            _originType,
+            _protocol,
+            _receivedFromIp,
+            _srcProtocol,
+            _weight);
+    route.setNextHop(getNextHop());
+    route.setNode(getNode());
+    route.setNonRouting(getNonRouting());
+    route.setVrf(getVrf());
+    return route;
+  }
+
   @Override
   public int routeCompare(@Nonnull AbstractRoute rhs) {
     if (getClass() != rhs.getClass()) {
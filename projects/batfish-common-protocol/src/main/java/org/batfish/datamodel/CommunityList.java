@@ -6,6 +6,8 @@ import static java.util.Objects.requireNonNull;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -16,12 +18,8 @@ import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import org.batfish.common.util.CommonUtil;
 
 @JsonSchemaDescription(
     "Represents a named access-list whose matching criteria is restricted to regexes on community "
@@ -46,9 +44,10 @@ public class CommunityList implements Serializable {
 
   @Nonnull private final String _name;
 
-  private transient LoadingCache<Long, Boolean> _communityCache;
+  /** The regexes of the lines, compiled when first needed */
+  private transient Supplier<RegexLineAutomaton> _automaton;
 
-  private transient LoadingCache<String, Pattern> _patternCache;
+  private transient LoadingCache<Long, Boolean> _communityCache;
 
   @JsonCreator
   private static CommunityList newCommunityList(
@@ -78,24 +77,19 @@ public class CommunityList implements Serializable {
 
   /** Check if any line matches given community */
   private boolean computeIfMatches(long community) {
-    Optional<LineAction> action =
-        _lines
-            .stream()
-            .map(line -> executeLineMatch(community, line))
-            .filter(Objects::nonNull)
-            .findFirst();
+    // match the lines against the string CommonUtil.longToCommunity(community)
+    int line =
+        _automaton
+            .get()
+            .scan()
+            .append(community >> 16)
+            .append(':')
+            .append(community & 0xFFFF)
+            .finish();
 
     // "invert != condition" is a concise way of inverting a boolean
-    return action.isPresent() && _invertMatch != (action.get() == LineAction.ACCEPT);
-  }
-
-  /** Check if line matches community. If yes, return line action, otherwise {@code null}. */
-  @Nullable
-  private LineAction executeLineMatch(long community, CommunityListLine line) {
-    Pattern p = _patternCache.getUnchecked(line.getRegex());
-    String communityStr = CommonUtil.longToCommunity(community);
-    Matcher matcher = p.matcher(communityStr);
-    return matcher.find() ? line.getAction() : null;
+    return line != RegexLineAutomaton.NO_MATCH
+        && _invertMatch != (_lines.get(line).getAction() == LineAction.ACCEPT);
   }
 
   @Override
@@ -124,15 +118,14 @@ public class CommunityList implements Serializable {
                     return computeIfMatches(community);
                   }
                 });
-    _patternCache =
-        CacheBuilder.newBuilder()
-            .build(
-                new CacheLoader<String, Pattern>() {
-                  @Override
-                  public Pattern load(@Nonnull String regex) {
-                    return Pattern.compile(regex);
-                  }
-                });
+    _automaton =
+        Suppliers.memoize(
+            () ->
+                RegexLineAutomaton.forRegexes(
+                    _lines
+                        .stream()
+                        .map(CommunityListLine::getRegex)
+                        .collect(ImmutableList.toImmutableList())));
   }
 
   @JsonPropertyDescription(
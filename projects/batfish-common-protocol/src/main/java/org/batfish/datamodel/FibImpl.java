@@ -2,14 +2,19 @@ package org.batfish.datamodel;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.batfish.common.BatfishException;
 
 public class FibImpl implements Fib {
@@ -23,16 +28,91 @@ public class FibImpl implements Fib {
 
   private final @Nonnull GenericRib<AbstractRoute> _rib;
 
+  /*
+   * Indexes for incremental updates, or null if they have been moved to a newer FIB. They are not
+   * kept when the FIB is serialized.
+   */
+
+  /** For each route, the next-hop IPs looked up in the RIB while resolving it */
+  private transient @Nullable Map<AbstractRoute, Set<Ip>> _lookups;
+
+  /** For each next-hop IP looked up, the routes whose resolution looked it up */
+  private transient @Nullable NavigableMap<Ip, Set<AbstractRoute>> _routesByLookup;
+
+  /** The routes of the FIB by network */
+  private transient @Nullable Map<Prefix, Set<AbstractRoute>> _routesByNetwork;
+
   public FibImpl(@Nonnull GenericRib<AbstractRoute> rib) {
     _rib = rib;
     _nextHopInterfaces = new HashMap<>();
+    _lookups = new HashMap<>();
+    _routesByLookup = new TreeMap<>();
+    _routesByNetwork = new HashMap<>();
     for (AbstractRoute route : rib.getRoutes()) {
-      Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces =
-          collectNextHopInterfaces(_rib, route);
-      _nextHopInterfaces.put(route, nextHopInterfaces);
+      resolve(route);
     }
   }
 
+  private FibImpl(@Nonnull GenericRib<AbstractRoute> rib, @Nonnull FibImpl previous) {
+    _rib = rib;
+    _nextHopInterfaces = new HashMap<>(previous._nextHopInterfaces);
+    _lookups = previous._lookups;
+    _routesByLookup = previous._routesByLookup;
+    _routesByNetwork = previous._routesByNetwork;
+    previous._lookups = null;
+    previous._routesByLookup = null;
+    previous._routesByNetwork = null;
+  }
+
+  /**
+   * Computes the FIB of {@code rib} from the FIB of an earlier state of the same RIB. Only the
+   * routes for {@code changedNetworks}, and the routes whose resolution looked up a next-hop IP in
+   * one of those networks, are resolved again.
+   *
+   * <p>The indexes used for updates move from {@code previous} to the returned FIB, so the next
+   * update should start from the returned FIB. Updating {@code previous} again, or a deserialized
+   * FIB, resolves all routes.
+   *
+   * @param previous The FIB of {@code rib} before the changes
+   * @param rib The RIB whose FIB to compute
+   * @param changedNetworks The networks of all routes added to or removed from {@code rib} since
+   *     {@code previous} was computed
+   */
+  public static FibImpl update(
+      @Nonnull FibImpl previous,
+      @Nonnull GenericRib<AbstractRoute> rib,
+      @Nonnull Collection<Prefix> changedNetworks) {
+    if (previous._lookups == null || previous._rib != rib) {
+      return new FibImpl(rib);
+    }
+    FibImpl fib = new FibImpl(rib, previous);
+    Set<Prefix> networks = ImmutableSet.copyOf(changedNetworks);
+    Set<AbstractRoute> affected = new HashSet<>();
+    Set<AbstractRoute> current = new HashSet<>();
+    for (Prefix network : networks) {
+      affected.addAll(fib._routesByNetwork.getOrDefault(network, ImmutableSet.of()));
+      for (AbstractRoute route :
+          rib.longestPrefixMatch(network.getStartIp(), network.getPrefixLength())) {
+        if (route.getNetwork().equals(network)) {
+          current.add(route);
+        }
+      }
+      // routes whose resolution may now find different longest prefix matches
+      fib._routesByLookup
+          .subMap(network.getStartIp(), true, network.getEndIp(), true)
+          .values()
+          .forEach(affected::addAll);
+    }
+    affected.addAll(current);
+    affected.forEach(fib::forget);
+    for (AbstractRoute route : affected) {
+      if (!networks.contains(route.getNetwork()) || current.contains(route)) {
+        fib.resolve(route);
+      }
+    }
+    return fib;
+  }
+
   /**
    * Attempt to resolve a RIB route down to an interface route.
    *
@@ -44,25 +124,65 @@ public class FibImpl implements Fib {
    */
   public static Map<String, Map<Ip, Set<AbstractRoute>>> collectNextHopInterfaces(
       GenericRib<AbstractRoute> rib, AbstractRoute route) {
+    return collectNextHopInterfaces(rib, route, null);
+  }
+
+  /**
+   * @param lookups If not {@code null}, the next-hop IPs looked up in {@code rib} are added to it.
+   */
+  private static Map<String, Map<Ip, Set<AbstractRoute>>> collectNextHopInterfaces(
+      GenericRib<AbstractRoute> rib, AbstractRoute route, @Nullable Set<Ip> lookups) {
     Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces = new HashMap<>();
     collectNextHopInterfaces(
-        rib, route, Route.UNSET_ROUTE_NEXT_HOP_IP, nextHopInterfaces, new HashSet<>(), 0);
+        rib,
+        route,
+        Route.UNSET_ROUTE_NEXT_HOP_IP,
+        nextHopInterfaces,
+        new HashSet<>(),
+        new ArrayList<>(),
+        lookups,
+        0);
     return ImmutableMap.copyOf(nextHopInterfaces);
   }
 
+  /**
+   * Resolve {@code route}, unless a route for the same network is already on the resolution path.
+   *
+   * @param seenNetworks networks of the routes on the current resolution path. Entries are added on
+   *     the way down and removed on the way back up.
+   * @param buffer scratch space for longest prefix matches, shared by all levels of the recursion.
+   *     Each level only uses the entries it appended, and truncates them before returning.
+   */
   private static void collectNextHopInterfaces(
       GenericRib<AbstractRoute> rib,
       AbstractRoute route,
       Ip mostRecentNextHopIp,
       Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces,
       Set<Prefix> seenNetworks,
+      List<AbstractRoute> buffer,
+      @Nullable Set<Ip> lookups,
       int depth) {
     Prefix network = route.getNetwork();
-    if (seenNetworks.contains(network)) {
+    if (!seenNetworks.add(network)) {
       return;
     }
-    Set<Prefix> newSeenNetworks = new HashSet<>(seenNetworks);
-    newSeenNetworks.add(network);
+    try {
+      resolveNextHopInterfaces(
+          rib, route, mostRecentNextHopIp, nextHopInterfaces, seenNetworks, buffer, lookups, depth);
+    } finally {
+      seenNetworks.remove(network);
+    }
+  }
+
+  private static void resolveNextHopInterfaces(
+      GenericRib<AbstractRoute> rib,
+      AbstractRoute route,
+      Ip mostRecentNextHopIp,
+      Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfaces,
+      Set<Prefix> seenNetworks,
+      List<AbstractRoute> buffer,
+      @Nullable Set<Ip> lookups,
+      int depth) {
     if (depth > MAX_DEPTH) {
       // TODO: Declare this a loop using some warning mechanism
       // https://github.com/batfish/batfish/issues/1469
@@ -81,16 +201,23 @@ public class FibImpl implements Fib {
       return;
     }
     if (!nextHopIp.equals(Route.UNSET_ROUTE_NEXT_HOP_IP)) {
-      Set<AbstractRoute> nextHopLongestPrefixMatchRoutes = rib.longestPrefixMatch(nextHopIp);
-      for (AbstractRoute nextHopLongestPrefixMatchRoute : nextHopLongestPrefixMatchRoutes) {
+      if (lookups != null) {
+        lookups.add(nextHopIp);
+      }
+      int start = buffer.size();
+      int end = start + rib.longestPrefixMatch(nextHopIp, buffer);
+      for (int i = start; i < end; i++) {
         collectNextHopInterfaces(
             rib,
-            nextHopLongestPrefixMatchRoute,
+            buffer.get(i),
             nextHopIp,
             nextHopInterfaces,
-            newSeenNetworks,
+            seenNetworks,
+            buffer,
+            lookups,
             depth + 1);
       }
+      buffer.subList(start, end).clear();
     } else {
       String nextHopInterface = route.getNextHopInterface();
       if (!Route.UNSET_NEXT_HOP_INTERFACE.equals(nextHopInterface)) {
@@ -108,6 +235,38 @@ public class FibImpl implements Fib {
     }
   }
 
+  /** Removes {@code route} from the FIB and its indexes. */
+  private void forget(AbstractRoute route) {
+    _nextHopInterfaces.remove(route);
+    Set<AbstractRoute> networkRoutes = _routesByNetwork.get(route.getNetwork());
+    if (networkRoutes != null && networkRoutes.remove(route) && networkRoutes.isEmpty()) {
+      _routesByNetwork.remove(route.getNetwork());
+    }
+    Set<Ip> lookups = _lookups.remove(route);
+    if (lookups != null) {
+      for (Ip ip : lookups) {
+        Set<AbstractRoute> dependents = _routesByLookup.get(ip);
+        dependents.remove(route);
+        if (dependents.isEmpty()) {
+          _routesByLookup.remove(ip);
+        }
+      }
+    }
+  }
+
+  /** Resolves {@code route} and adds it to the FIB and its indexes. */
+  private void resolve(AbstractRoute route) {
+    Set<Ip> lookups = new HashSet<>();
+    _nextHopInterfaces.put(route, collectNextHopInterfaces(_rib, route, lookups));
+    _routesByNetwork.computeIfAbsent(route.getNetwork(), n -> new HashSet<>()).add(route);
+    if (!lookups.isEmpty()) {
+      _lookups.put(route, ImmutableSet.copyOf(lookups));
+      for (Ip ip : lookups) {
+        _routesByLookup.computeIfAbsent(ip, i -> new HashSet<>()).add(route);
+      }
+    }
+  }
+
   /** Mapping: route -&gt; nextHopInterface -&gt; nextHopIp -&gt; interfaceRoutes */
   @Override
   public @Nonnull Map<AbstractRoute, Map<String, Map<Ip, Set<AbstractRoute>>>>
@@ -1,6 +1,7 @@
 package org.batfish.datamodel;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
@@ -31,6 +32,9 @@ public interface GenericRib<R extends AbstractRoute> extends Serializable {
   /** Return a set of routes this RIB contains. */
   Set<R> getRoutes();
 
+  /** Return the number of routes this RIB contains, without building {@link #getRoutes()}. */
+  int getNumRoutes();
+
   /**
    * Execute the longest prefix match for a given IP address.
    *
@@ -39,6 +43,17 @@ public interface GenericRib<R extends AbstractRoute> extends Serializable {
    */
   Set<R> longestPrefixMatch(Ip address);
 
+  /**
+   * Execute the longest prefix match for a given IP address, adding the matching routes to a
+   * caller-provided buffer instead of allocating a new set. Used on hot paths such as FIB
+   * computation.
+   *
+   * @param address the IP address to match
+   * @param buffer the collection to which matching routes are added
+   * @return the number of routes added to {@code buffer}
+   */
+  int longestPrefixMatch(Ip address, Collection<? super R> buffer);
+
   /**
    * Execute a constrained longest prefix match for a given IP address.
    *
@@ -0,0 +1,744 @@
+package org.batfish.datamodel;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Finds the first of an ordered list of regexes that matches a string, i.e. for which {@link
+ * java.util.regex.Matcher#find()} succeeds, in a single pass over the string.
+ *
+ * <p>The regexes are compiled together into one deterministic automaton over ASCII characters,
+ * whose states record the first regex matched so far. Lists using a construct the automaton does
+ * not support (e.g. back-references or lookaround) are instead matched one regex at a time with
+ * {@link Pattern}s compiled once.
+ */
+final class RegexLineAutomaton {
+
+  /** Returned when no regex matches */
+  static final int NO_MATCH = -1;
+
+  private static final LoadingCache<List<String>, RegexLineAutomaton> AUTOMATA =
+      CacheBuilder.newBuilder().maximumSize(4096).build(CacheLoader.from(RegexLineAutomaton::new));
+
+  private static final int ALPHABET_SIZE = 128;
+
+  private static final int MAX_DFA_STATES = 2048;
+
+  private static final int MAX_NFA_STATES = 8192;
+
+  private static final int MAX_REPETITIONS = 64;
+
+  /** Returns the (shared) automaton for {@code regexes}. */
+  static RegexLineAutomaton forRegexes(List<String> regexes) {
+    return AUTOMATA.getUnchecked(ImmutableList.copyOf(regexes));
+  }
+
+  /** Thrown when a regex cannot be compiled into the automaton */
+  private static final class UnsupportedRegexException extends Exception {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private interface Node {}
+
+  private enum Assertion implements Node {
+    BEGIN,
+    END
+  }
+
+  private static final class CharSet implements Node {
+    private final boolean[] _chars;
+
+    private CharSet(boolean[] chars) {
+      _chars = chars;
+    }
+  }
+
+  private static final class Alternation implements Node {
+    private final List<Node> _nodes;
+
+    private Alternation(List<Node> nodes) {
+      _nodes = nodes;
+    }
+  }
+
+  private static final class Repetition implements Node {
+    /** Maximum number of repetitions, or -1 if unbounded */
+    private final int _max;
+
+    private final int _min;
+
+    private final Node _node;
+
+    private Repetition(Node node, int min, int max) {
+      _max = max;
+      _min = min;
+      _node = node;
+    }
+  }
+
+  private static final class Sequence implements Node {
+    private final List<Node> _nodes;
+
+    private Sequence(List<Node> nodes) {
+      _nodes = nodes;
+    }
+  }
+
+  /**
+   * Whether the automaton can consume {@code c}. Line terminators would change the meaning of $.
+   */
+  private static boolean isSupported(int c) {
+    return c < ALPHABET_SIZE && c != '\n' && c != '\r';
+  }
+
+  private static boolean[] chars(String chars) {
+    boolean[] set = new boolean[ALPHABET_SIZE];
+    for (int i = 0; i < chars.length(); i++) {
+      set[chars.charAt(i)] = true;
+    }
+    return set;
+  }
+
+  private static boolean[] complement(boolean[] chars) {
+    boolean[] set = new boolean[ALPHABET_SIZE];
+    for (int i = 0; i < ALPHABET_SIZE; i++) {
+      set[i] = !chars[i];
+    }
+    return set;
+  }
+
+  private static final boolean[] DIGITS = chars("0123456789");
+
+  private static final boolean[] DOT = complement(chars("\n\r"));
+
+  private static final boolean[] SPACES = chars(" \t\n\u000B\f\r");
+
+  private static final boolean[] WORD_CHARS =
+      chars("abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_0123456789");
+
+  /**
+   * Parses the subset of {@link Pattern} syntax supported by the automaton: literals, escaped
+   * punctuation, {@code .}, simple character classes, {@code \d \s \w} and their complements,
+   * {@code ^}, {@code $}, alternation, capturing and non-capturing groups, and greedy or reluctant
+   * quantifiers. Reluctant quantifiers only affect which substring is matched, not whether one is.
+   */
+  private static final class Parser {
+
+    private int _pos;
+
+    private final String _regex;
+
+    private Parser(String regex) {
+      _regex = regex;
+    }
+
+    private boolean atEnd() {
+      return _pos == _regex.length();
+    }
+
+    private Node parse() throws UnsupportedRegexException {
+      Node node = alternation();
+      if (!atEnd()) {
+        throw new UnsupportedRegexException();
+      }
+      return node;
+    }
+
+    private boolean lookingAt(char c) {
+      return !atEnd() && _regex.charAt(_pos) == c;
+    }
+
+    private char next() throws UnsupportedRegexException {
+      if (atEnd()) {
+        throw new UnsupportedRegexException();
+      }
+      return _regex.charAt(_pos++);
+    }
+
+    private Node alternation() throws UnsupportedRegexException {
+      List<Node> alternatives = new ArrayList<>();
+      alternatives.add(sequence());
+      while (lookingAt('|')) {
+        _pos++;
+        alternatives.add(sequence());
+      }
+      return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Node sequence() throws UnsupportedRegexException {
+      List<Node> nodes = new ArrayList<>();
+      while (!atEnd() && !lookingAt('|') && !lookingAt(')')) {
+        nodes.add(repetition());
+      }
+      return new Sequence(nodes);
+    }
+
+    private Node repetition() throws UnsupportedRegexException {
+      Node atom = atom();
+      if (atEnd()) {
+        return atom;
+      }
+      int min;
+      int max;
+      switch (_regex.charAt(_pos)) {
+        case '*':
+          min = 0;
+          max = -1;
+          break;
+        case '+':
+          min = 1;
+          max = -1;
+          break;
+        case '?':
+          min = 0;
+          max = 1;
+          break;
+        case '{':
+          _pos++;
+          min = number();
+          max = min;
+          if (lookingAt(',')) {
+            _pos++;
+            max = lookingAt('}') ? -1 : number();
+          }
+          if (!lookingAt('}') || (max != -1 && max < min) || Math.max(min, max) > MAX_REPETITIONS) {
+            throw new UnsupportedRegexException();
+          }
+          break;
+        default:
+          return atom;
+      }
+      _pos++;
+      if (lookingAt('?')) {
+        // reluctant
+        _pos++;
+      } else if (lookingAt('+')) {
+        // possessive quantifiers can prevent a match
+        throw new UnsupportedRegexException();
+      }
+      return new Repetition(atom, min, max);
+    }
+
+    private int number() throws UnsupportedRegexException {
+      int start = _pos;
+      while (!atEnd()
+          && _regex.charAt(_pos) >= '0'
+          && _regex.charAt(_pos) <= '9'
+          && _pos - start < 4) {
+        _pos++;
+      }
+      if (_pos == start) {
+        throw new UnsupportedRegexException();
+      }
+      return Integer.parseInt(_regex.substring(start, _pos));
+    }
+
+    private Node atom() throws UnsupportedRegexException {
+      char c = next();
+      switch (c) {
+        case '(':
+          if (lookingAt('?')) {
+            _pos++;
+            if (next() != ':') {
+              throw new UnsupportedRegexException();
+            }
+          }
+          Node group = alternation();
+          if (next() != ')') {
+            throw new UnsupportedRegexException();
+          }
+          return group;
+        case '[':
+          return charClass();
+        case '.':
+          return new CharSet(DOT);
+        case '^':
+          return Assertion.BEGIN;
+        case '$':
+          return Assertion.END;
+        case '\\':
+          {
+            boolean[] predefined = predefinedClass();
+            return new CharSet(predefined != null ? predefined : chars(String.valueOf(escape())));
+          }
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw new UnsupportedRegexException();
+        default:
+          return new CharSet(chars(String.valueOf(literal(c))));
+      }
+    }
+
+    private Node charClass() throws UnsupportedRegexException {
+      boolean negate = false;
+      if (lookingAt('^')) {
+        negate = true;
+        _pos++;
+      }
+      boolean[] set = new boolean[ALPHABET_SIZE];
+      if (lookingAt(']')) {
+        throw new UnsupportedRegexException();
+      }
+      while (true) {
+        char c = next();
+        if (c == ']') {
+          break;
+        } else if (c == '[' || (c == '&' && lookingAt('&'))) {
+          throw new UnsupportedRegexException();
+        }
+        char low;
+        if (c == '\\') {
+          boolean[] predefined = predefinedClass();
+          if (predefined != null) {
+            for (int i = 0; i < ALPHABET_SIZE; i++) {
+              set[i] |= predefined[i];
+            }
+            continue;
+          }
+          low = escape();
+        } else {
+          low = literal(c);
+        }
+        char high = low;
+        if (lookingAt('-') && _pos + 1 < _regex.length() && _regex.charAt(_pos + 1) != ']') {
+          _pos++;
+          char h = next();
+          if (h == '[') {
+            throw new UnsupportedRegexException();
+          } else if (h == '\\') {
+            if (predefinedClass() != null) {
+              throw new UnsupportedRegexException();
+            }
+            high = escape();
+          } else {
+            high = literal(h);
+          }
+          if (high < low) {
+            throw new UnsupportedRegexException();
+          }
+        }
+        for (char i = low; i <= high; i++) {
+          set[i] = true;
+        }
+      }
+      return new CharSet(negate ? complement(set) : set);
+    }
+
+    /** Parses a predefined character class after a backslash, if there is one. */
+    @Nullable
+    private boolean[] predefinedClass() throws UnsupportedRegexException {
+      if (atEnd()) {
+        throw new UnsupportedRegexException();
+      }
+      boolean[] set;
+      switch (_regex.charAt(_pos)) {
+        case 'd':
+          set = DIGITS;
+          break;
+        case 'D':
+          set = complement(DIGITS);
+          break;
+        case 's':
+          set = SPACES;
+          break;
+        case 'S':
+          set = complement(SPACES);
+          break;
+        case 'w':
+          set = WORD_CHARS;
+          break;
+        case 'W':
+          set = complement(WORD_CHARS);
+          break;
+        default:
+          return null;
+      }
+      _pos++;
+      return set;
+    }
+
+    /** Parses an escaped character after a backslash. */
+    private char escape() throws UnsupportedRegexException {
+      char c = next();
+      switch (c) {
+        case 't':
+          return '\t';
+        case 'n':
+          return '\n';
+        case 'r':
+          return '\r';
+        case 'f':
+          return '\f';
+        case 'a':
+          return '\u0007';
+        case 'e':
+          return '\u001B';
+        default:
+          if (Character.isLetterOrDigit(c)) {
+            // back-references, boundaries, hex/octal/unicode escapes, quoting, ...
+            throw new UnsupportedRegexException();
+          }
+          return literal(c);
+      }
+    }
+
+    private static char literal(char c) throws UnsupportedRegexException {
+      if (c >= ALPHABET_SIZE) {
+        throw new UnsupportedRegexException();
+      }
+      return c;
+    }
+  }
+
+  /** Thompson construction of a nondeterministic automaton for all the regexes. */
+  private static final class Nfa {
+
+    /** Targets of the edges taken only at the start of the input */
+    private final List<List<Integer>> _begin = new ArrayList<>();
+
+    /** Label of the character edge of each state, or {@code null} */
+    private final List<boolean[]> _chars = new ArrayList<>();
+
+    private final List<Integer> _charTarget = new ArrayList<>();
+
+    /** Targets of the edges taken only at the end of the input */
+    private final List<List<Integer>> _end = new ArrayList<>();
+
+    private final List<List<Integer>> _epsilon = new ArrayList<>();
+
+    /** Index of the regex matched on reaching each state, or {@link #NO_MATCH} */
+    private final List<Integer> _line = new ArrayList<>();
+
+    private int newState() throws UnsupportedRegexException {
+      if (_line.size() == MAX_NFA_STATES) {
+        throw new UnsupportedRegexException();
+      }
+      _begin.add(new ArrayList<>());
+      _chars.add(null);
+      _charTarget.add(-1);
+      _end.add(new ArrayList<>());
+      _epsilon.add(new ArrayList<>());
+      _line.add(NO_MATCH);
+      return _line.size() - 1;
+    }
+
+    private void epsilon(int from, int to) {
+      _epsilon.get(from).add(to);
+    }
+
+    /** Adds states matching {@code node} from {@code start}, returning the final state. */
+    private int build(Node node, int start) throws UnsupportedRegexException {
+      int end;
+      if (node instanceof CharSet) {
+        end = newState();
+        _chars.set(start, ((CharSet) node)._chars);
+        _charTarget.set(start, end);
+      } else if (node == Assertion.BEGIN) {
+        end = newState();
+        _begin.get(start).add(end);
+      } else if (node == Assertion.END) {
+        end = newState();
+        _end.get(start).add(end);
+      } else if (node instanceof Sequence) {
+        end = start;
+        for (Node element : ((Sequence) node)._nodes) {
+          int elementStart = newState();
+          epsilon(end, elementStart);
+          end = build(element, elementStart);
+        }
+      } else if (node instanceof Alternation) {
+        end = newState();
+        for (Node alternative : ((Alternation) node)._nodes) {
+          int alternativeStart = newState();
+          epsilon(start, alternativeStart);
+          epsilon(build(alternative, alternativeStart), end);
+        }
+      } else {
+        Repetition repetition = (Repetition) node;
+        int current = start;
+        for (int i = 0; i < repetition._min; i++) {
+          int next = newState();
+          epsilon(current, next);
+          current = build(repetition._node, next);
+        }
+        end = newState();
+        if (repetition._max == -1) {
+          int loop = newState();
+          epsilon(current, loop);
+          epsilon(build(repetition._node, loop), loop);
+          epsilon(loop, end);
+        } else {
+          for (int i = repetition._min; i < repetition._max; i++) {
+            int next = newState();
+            epsilon(current, next);
+            epsilon(current, end);
+            current = build(repetition._node, next);
+          }
+          epsilon(current, end);
+        }
+      }
+      return end;
+    }
+
+    private BitSet closure(BitSet states, boolean atBegin, boolean atEnd) {
+      BitSet closure = (BitSet) states.clone();
+      int[] stack = states.stream().toArray();
+      int size = stack.length;
+      while (size > 0) {
+        int state = stack[--size];
+        List<List<Integer>> edgeLists = new ArrayList<>(3);
+        edgeLists.add(_epsilon.get(state));
+        if (atBegin) {
+          edgeLists.add(_begin.get(state));
+        }
+        if (atEnd) {
+          edgeLists.add(_end.get(state));
+        }
+        for (List<Integer> edges : edgeLists) {
+          for (int target : edges) {
+            if (!closure.get(target)) {
+              closure.set(target);
+              if (size == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2 + 1);
+              }
+              stack[size++] = target;
+            }
+          }
+        }
+      }
+      return closure;
+    }
+
+    private int firstLine(BitSet states) {
+      int first = Integer.MAX_VALUE;
+      for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+        int line = _line.get(state);
+        if (line != NO_MATCH) {
+          first = Math.min(first, line);
+        }
+      }
+      return first;
+    }
+  }
+
+  /**
+   * Consumes the characters of a string one at a time, without building the string. Only ASCII
+   * characters other than line terminators may be appended.
+   */
+  final class Scan {
+
+    private int _first;
+
+    private int _state;
+
+    @Nullable private final StringBuilder _text;
+
+    private Scan() {
+      _text = _transitions == null ? new StringBuilder() : null;
+      _first = _transitions == null ? Integer.MAX_VALUE : _firstLine[0];
+    }
+
+    Scan append(char c) {
+      if (_text != null) {
+        _text.append(c);
+        return this;
+      }
+      if (!isSupported(c)) {
+        throw new IllegalArgumentException("Unsupported character: " + (int) c);
+      }
+      _state = _transitions[_state * _classCount + _charClasses[c]];
+      _first = Math.min(_first, _firstLine[_state]);
+      return this;
+    }
+
+    /** Appends the decimal representation of {@code number}, as {@link Long#toString} would. */
+    Scan append(long number) {
+      if (number < 0) {
+        if (number == Long.MIN_VALUE) {
+          String digits = Long.toString(number);
+          for (int i = 0; i < digits.length(); i++) {
+            append(digits.charAt(i));
+          }
+          return this;
+        }
+        append('-');
+        number = -number;
+      }
+      long divisor = 1;
+      while (divisor <= number / 10) {
+        divisor *= 10;
+      }
+      for (; divisor > 0; divisor /= 10) {
+        append((char) ('0' + number / divisor % 10));
+      }
+      return this;
+    }
+
+    /** Returns the index of the first regex matching the characters appended, or NO_MATCH. */
+    int finish() {
+      if (_text != null) {
+        return firstMatchByPatterns(_text);
+      }
+      int first = Math.min(_first, _firstLineAtEnd[_state]);
+      return first == Integer.MAX_VALUE ? NO_MATCH : first;
+    }
+  }
+
+  /** Maps each ASCII character to its class of characters that no edge label distinguishes */
+  @Nullable private final int[] _charClasses;
+
+  private final int _classCount;
+
+  /** For each DFA state, the first regex matched on reaching it */
+  @Nullable private final int[] _firstLine;
+
+  /** For each DFA state, the first regex matched on reaching it at the end of the input */
+  @Nullable private final int[] _firstLineAtEnd;
+
+  private final Supplier<List<Pattern>> _patterns;
+
+  /** DFA transitions, indexed by state * _classCount + character class */
+  @Nullable private final int[] _transitions;
+
+  private RegexLineAutomaton(List<String> regexes) {
+    _patterns =
+        Suppliers.memoize(
+            () -> regexes.stream().map(Pattern::compile).collect(ImmutableList.toImmutableList()));
+    int[] charClasses = null;
+    int classCount = 0;
+    int[] firstLine = null;
+    int[] firstLineAtEnd = null;
+    int[] transitions = null;
+    try {
+      Nfa nfa = new Nfa();
+      int start = nfa.newState();
+      // unanchored search: a regex may start matching at any position
+      nfa._chars.set(start, complement(new boolean[ALPHABET_SIZE]));
+      nfa._charTarget.set(start, start);
+      for (int i = 0; i < regexes.size(); i++) {
+        Node regex = new Parser(regexes.get(i)).parse();
+        int regexStart = nfa.newState();
+        nfa.epsilon(start, regexStart);
+        nfa._line.set(nfa.build(regex, regexStart), i);
+      }
+
+      // partition the alphabet by the edge labels containing each character
+      charClasses = new int[ALPHABET_SIZE];
+      int[] representatives = new int[ALPHABET_SIZE];
+      Map<BitSet, Integer> classIds = new HashMap<>();
+      for (int c = 0; c < ALPHABET_SIZE; c++) {
+        BitSet labels = new BitSet();
+        for (int state = 0; state < nfa._chars.size(); state++) {
+          boolean[] label = nfa._chars.get(state);
+          if (label != null && label[c]) {
+            labels.set(state);
+          }
+        }
+        Integer id = classIds.get(labels);
+        if (id == null) {
+          id = classIds.size();
+          classIds.put(labels, id);
+          representatives[id] = c;
+        }
+        charClasses[c] = id;
+      }
+      classCount = classIds.size();
+
+      // subset construction. The initial state is never merged with a later state, since only it
+      // may take edges for ^.
+      BitSet initial = new BitSet();
+      initial.set(start);
+      List<BitSet> states = new ArrayList<>();
+      states.add(nfa.closure(initial, true, false));
+      Map<BitSet, Integer> stateIds = new HashMap<>();
+      List<int[]> stateTransitions = new ArrayList<>();
+      for (int id = 0; id < states.size(); id++) {
+        BitSet state = states.get(id);
+        int[] targets = new int[classCount];
+        for (int charClass = 0; charClass < classCount; charClass++) {
+          int c = representatives[charClass];
+          BitSet next = new BitSet();
+          for (int s = state.nextSetBit(0); s >= 0; s = state.nextSetBit(s + 1)) {
+            boolean[] label = nfa._chars.get(s);
+            if (label != null && label[c]) {
+              next.set(nfa._charTarget.get(s));
+            }
+          }
+          next = nfa.closure(next, false, false);
+          Integer target = stateIds.get(next);
+          if (target == null) {
+            if (states.size() == MAX_DFA_STATES) {
+              throw new UnsupportedRegexException();
+            }
+            target = states.size();
+            states.add(next);
+            stateIds.put(next, target);
+          }
+          targets[charClass] = target;
+        }
+        stateTransitions.add(targets);
+      }
+      firstLine = new int[states.size()];
+      firstLineAtEnd = new int[states.size()];
+      transitions = new int[states.size() * classCount];
+      for (int id = 0; id < states.size(); id++) {
+        firstLine[id] = nfa.firstLine(states.get(id));
+        firstLineAtEnd[id] = nfa.firstLine(nfa.closure(states.get(id), id == 0, true));
+        System.arraycopy(stateTransitions.get(id), 0, transitions, id * classCount, classCount);
+      }
+    } catch (UnsupportedRegexException e) {
+      transitions = null;
+    }
+    _transitions = transitions;
+    _charClasses = transitions == null ? null : charClasses;
+    _classCount = classCount;
+    _firstLine = transitions == null ? null : firstLine;
+    _firstLineAtEnd = transitions == null ? null : firstLineAtEnd;
+  }
+
+  /** Returns the index of the first regex matching {@code text}, or {@link #NO_MATCH}. */
+  int firstMatch(CharSequence text) {
+    if (_transitions == null || !text.chars().allMatch(RegexLineAutomaton::isSupported)) {
+      return firstMatchByPatterns(text);
+    }
+    Scan scan = scan();
+    for (int i = 0; i < text.length(); i++) {
+      scan.append(text.charAt(i));
+    }
+    return scan.finish();
+  }
+
+  private int firstMatchByPatterns(CharSequence text) {
+    List<Pattern> patterns = _patterns.get();
+    for (int i = 0; i < patterns.size(); i++) {
+      if (patterns.get(i).matcher(text).find()) {
+        return i;
+      }
+    }
+    return NO_MATCH;
+  }
+
+  /** Whether the regexes were compiled into a DFA, rather than matched one at a time. */
+  boolean isDeterministic() {
+    return _transitions != null;
+  }
+
+  /** Starts matching a new string. */
+  Scan scan() {
+    return new Scan();
+  }
+}
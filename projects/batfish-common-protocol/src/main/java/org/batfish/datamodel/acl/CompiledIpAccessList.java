@@ -0,0 +1,721 @@
+package org.batfish.datamodel.acl;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.batfish.datamodel.AclIpSpace;
+import org.batfish.datamodel.AclIpSpaceLine;
+import org.batfish.datamodel.EmptyIpSpace;
+import org.batfish.datamodel.FilterResult;
+import org.batfish.datamodel.Flow;
+import org.batfish.datamodel.HeaderSpace;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpAccessListLine;
+import org.batfish.datamodel.IpIpSpace;
+import org.batfish.datamodel.IpProtocol;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.IpSpaceReference;
+import org.batfish.datamodel.IpWildcard;
+import org.batfish.datamodel.IpWildcardIpSpace;
+import org.batfish.datamodel.IpWildcardSetIpSpace;
+import org.batfish.datamodel.LineAction;
+import org.batfish.datamodel.PrefixIpSpace;
+import org.batfish.datamodel.Protocol;
+import org.batfish.datamodel.State;
+import org.batfish.datamodel.SubRange;
+import org.batfish.datamodel.TcpFlags;
+import org.batfish.datamodel.UniverseIpSpace;
+import org.batfish.datamodel.visitors.GenericIpSpaceVisitor;
+
+/**
+ * An {@link IpAccessList} compiled for filtering many concrete flows. It gives the same results as
+ * {@link IpAccessList#filter}, but avoids most of the cost of interpreting the ACL:
+ *
+ * <ul>
+ *   <li>IP spaces built from IPs, prefixes and prefix-shaped wildcards are flattened into sorted
+ *       address intervals, which are searched by binary search.
+ *   <li>Port, ICMP, fragment offset and packet length ranges are merged into sorted intervals, and
+ *       IP protocols and states into bitmaps.
+ *   <li>Named IP spaces and ACLs are resolved once, and referenced ACLs are compiled inline.
+ *   <li>An index from destination IP to the lines whose destination IPs may contain it lets a flow
+ *       skip the other lines when looking for the first matching line.
+ * </ul>
+ *
+ * Anything without a compiled form is evaluated by the interpreter, so every ACL can be compiled.
+ *
+ * <p>Named structures are resolved when the ACL is compiled, so the compiled form must be discarded
+ * if the ACLs or IP spaces it was compiled with change.
+ */
+public final class CompiledIpAccessList {
+
+  @FunctionalInterface
+  private interface FlowMatcher {
+    boolean matches(Flow flow, @Nullable String srcInterface);
+  }
+
+  @FunctionalInterface
+  private interface IpMatcher {
+    boolean contains(Ip ip);
+  }
+
+  /** Sorted, disjoint, non-adjacent closed intervals of longs */
+  private static final class Intervals implements IpMatcher {
+
+    private final long[] _highs;
+
+    private final long[] _lows;
+
+    private Intervals(RangeSet<Long> ranges) {
+      Set<Range<Long>> parts = ranges.asRanges();
+      long[] lows = new long[parts.size()];
+      long[] highs = new long[parts.size()];
+      int size = 0;
+      for (Range<Long> range : parts) {
+        long low =
+            range.lowerBoundType() == BoundType.CLOSED
+                ? range.lowerEndpoint()
+                : range.lowerEndpoint() + 1;
+        long high =
+            range.upperBoundType() == BoundType.CLOSED
+                ? range.upperEndpoint()
+                : range.upperEndpoint() - 1;
+        if (low <= high) {
+          lows[size] = low;
+          highs[size] = high;
+          size++;
+        }
+      }
+      _lows = Arrays.copyOf(lows, size);
+      _highs = Arrays.copyOf(highs, size);
+    }
+
+    @Override
+    public boolean contains(Ip ip) {
+      return contains(ip.asLong());
+    }
+
+    private boolean contains(long value) {
+      int i = Arrays.binarySearch(_lows, value);
+      if (i >= 0) {
+        return true;
+      }
+      int previous = -i - 2;
+      return previous >= 0 && value <= _highs[previous];
+    }
+  }
+
+  /**
+   * Computes the set of addresses in an IP space as ranges, or {@code null} if the IP space has a
+   * wildcard that is not a prefix or a circular reference.
+   */
+  private static final class IpRanges implements GenericIpSpaceVisitor<RangeSet<Long>> {
+
+    private final Map<String, IpSpace> _namedIpSpaces;
+
+    private final Set<String> _referencesInProgress;
+
+    private IpRanges(Map<String, IpSpace> namedIpSpaces) {
+      _namedIpSpaces = namedIpSpaces;
+      _referencesInProgress = new TreeSet<>();
+    }
+
+    @Nullable
+    private static RangeSet<Long> wildcards(Collection<IpWildcard> wildcards) {
+      RangeSet<Long> ranges = TreeRangeSet.create();
+      for (IpWildcard wildcard : wildcards) {
+        if (!wildcard.isPrefix()) {
+          return null;
+        }
+        ranges.add(
+            Range.closed(
+                wildcard.toPrefix().getStartIp().asLong(),
+                wildcard.toPrefix().getEndIp().asLong()));
+      }
+      return ranges;
+    }
+
+    @Override
+    public RangeSet<Long> castToGenericIpSpaceVisitorReturnType(Object o) {
+      @SuppressWarnings("unchecked")
+      RangeSet<Long> ranges = (RangeSet<Long>) o;
+      return ranges;
+    }
+
+    @Override
+    public RangeSet<Long> visitAclIpSpace(AclIpSpace aclIpSpace) {
+      RangeSet<Long> accepted = TreeRangeSet.create();
+      RangeSet<Long> covered = TreeRangeSet.create();
+      for (AclIpSpaceLine line : aclIpSpace.getLines()) {
+        RangeSet<Long> lineRanges = line.getIpSpace().accept(this);
+        if (lineRanges == null) {
+          return null;
+        }
+        if (line.getAction() == LineAction.ACCEPT) {
+          RangeSet<Long> matched = TreeRangeSet.create(lineRanges);
+          matched.removeAll(covered);
+          accepted.addAll(matched);
+        }
+        covered.addAll(lineRanges);
+      }
+      return accepted;
+    }
+
+    @Override
+    public RangeSet<Long> visitEmptyIpSpace(EmptyIpSpace emptyIpSpace) {
+      return TreeRangeSet.create();
+    }
+
+    @Override
+    public RangeSet<Long> visitIpIpSpace(IpIpSpace ipIpSpace) {
+      RangeSet<Long> ranges = TreeRangeSet.create();
+      ranges.add(Range.singleton(ipIpSpace.getIp().asLong()));
+      return ranges;
+    }
+
+    @Override
+    public RangeSet<Long> visitIpSpaceReference(IpSpaceReference ipSpaceReference) {
+      String name = ipSpaceReference.getName();
+      IpSpace ipSpace = _namedIpSpaces.get(name);
+      if (ipSpace == null) {
+        return TreeRangeSet.create();
+      }
+      if (!_referencesInProgress.add(name)) {
+        return null;
+      }
+      RangeSet<Long> ranges = ipSpace.accept(this);
+      _referencesInProgress.remove(name);
+      return ranges;
+    }
+
+    @Override
+    public RangeSet<Long> visitIpWildcardIpSpace(IpWildcardIpSpace ipWildcardIpSpace) {
+      return wildcards(Collections.singleton(ipWildcardIpSpace.getIpWildcard()));
+    }
+
+    @Override
+    public RangeSet<Long> visitIpWildcardSetIpSpace(IpWildcardSetIpSpace ipWildcardSetIpSpace) {
+      RangeSet<Long> whitelist = wildcards(ipWildcardSetIpSpace.getWhitelist());
+      RangeSet<Long> blacklist = wildcards(ipWildcardSetIpSpace.getBlacklist());
+      if (whitelist == null || blacklist == null) {
+        return null;
+      }
+      whitelist.removeAll(blacklist);
+      return whitelist;
+    }
+
+    @Override
+    public RangeSet<Long> visitPrefixIpSpace(PrefixIpSpace prefixIpSpace) {
+      RangeSet<Long> ranges = TreeRangeSet.create();
+      ranges.add(
+          Range.closed(
+              prefixIpSpace.getPrefix().getStartIp().asLong(),
+              prefixIpSpace.getPrefix().getEndIp().asLong()));
+      return ranges;
+    }
+
+    @Override
+    public RangeSet<Long> visitUniverseIpSpace(UniverseIpSpace universeIpSpace) {
+      RangeSet<Long> ranges = TreeRangeSet.create();
+      ranges.add(Range.closed(Ip.ZERO.asLong(), Ip.MAX.asLong()));
+      return ranges;
+    }
+  }
+
+  private static final class Compiler implements GenericAclLineMatchExprVisitor<FlowMatcher> {
+
+    private final Map<String, IpAccessList> _availableAcls;
+
+    /** ACLs compiled so far, which may still be being compiled */
+    private final Map<IpAccessList, CompiledIpAccessList> _compiled;
+
+    /** ACLs whose lines are being compiled */
+    private final Set<IpAccessList> _inProgress;
+
+    private final Map<String, IpSpace> _namedIpSpaces;
+
+    private Compiler(Map<String, IpAccessList> availableAcls, Map<String, IpSpace> namedIpSpaces) {
+      _availableAcls = availableAcls;
+      _compiled = new IdentityHashMap<>();
+      _inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+      _namedIpSpaces = namedIpSpaces;
+    }
+
+    private CompiledIpAccessList compileAcl(IpAccessList acl) {
+      CompiledIpAccessList compiled = _compiled.get(acl);
+      if (compiled == null) {
+        compiled = new CompiledIpAccessList();
+        _compiled.put(acl, compiled);
+        _inProgress.add(acl);
+        List<IpAccessListLine> lines = acl.getLines();
+        int size = lines.size();
+        compiled._accept = new boolean[size];
+        compiled._lines = new FlowMatcher[size];
+        RangeSet<Long>[] dstIps = newRangeSetArray(size);
+        for (int i = 0; i < size; i++) {
+          IpAccessListLine line = lines.get(i);
+          compiled._accept[i] = line.getAction() == LineAction.ACCEPT;
+          compiled._lines[i] = line.getMatchCondition().accept(this);
+          dstIps[i] = dstIpRanges(line.getMatchCondition());
+        }
+        compiled.indexDstIps(dstIps);
+        _inProgress.remove(acl);
+      }
+      return compiled;
+    }
+
+    /**
+     * The destination IPs that {@code expr} may match, or {@code null} if it may match any
+     * destination IP.
+     */
+    @Nullable
+    private RangeSet<Long> dstIpRanges(AclLineMatchExpr expr) {
+      if (!(expr instanceof MatchHeaderSpace)) {
+        return null;
+      }
+      IpSpace dstIps = ((MatchHeaderSpace) expr).getHeaderspace().getDstIps();
+      return dstIps == null ? null : dstIps.accept(new IpRanges(_namedIpSpaces));
+    }
+
+    private IpMatcher compileIpSpace(IpSpace ipSpace) {
+      RangeSet<Long> ranges = ipSpace.accept(new IpRanges(_namedIpSpaces));
+      if (ranges == null) {
+        return ip -> ipSpace.containsIp(ip, _namedIpSpaces);
+      }
+      return new Intervals(ranges);
+    }
+
+    private FlowMatcher interpret(AclLineMatchExpr expr) {
+      return (flow, srcInterface) ->
+          Evaluator.matches(expr, flow, srcInterface, _availableAcls, _namedIpSpaces);
+    }
+
+    @Override
+    public FlowMatcher visitAndMatchExpr(AndMatchExpr andMatchExpr) {
+      FlowMatcher[] conjuncts =
+          andMatchExpr.getConjuncts().stream().map(this::visit).toArray(FlowMatcher[]::new);
+      return (flow, srcInterface) -> {
+        for (FlowMatcher conjunct : conjuncts) {
+          if (!conjunct.matches(flow, srcInterface)) {
+            return false;
+          }
+        }
+        return true;
+      };
+    }
+
+    @Override
+    public FlowMatcher visitFalseExpr(FalseExpr falseExpr) {
+      return (flow, srcInterface) -> false;
+    }
+
+    @Override
+    public FlowMatcher visitMatchHeaderSpace(MatchHeaderSpace matchHeaderSpace) {
+      return compileHeaderSpace(matchHeaderSpace.getHeaderspace());
+    }
+
+    @Override
+    public FlowMatcher visitMatchSrcInterface(MatchSrcInterface matchSrcInterface) {
+      Set<String> srcInterfaces = matchSrcInterface.getSrcInterfaces();
+      return (flow, srcInterface) -> srcInterfaces.contains(srcInterface);
+    }
+
+    @Override
+    public FlowMatcher visitNotMatchExpr(NotMatchExpr notMatchExpr) {
+      FlowMatcher operand = notMatchExpr.getOperand().accept(this);
+      return (flow, srcInterface) -> !operand.matches(flow, srcInterface);
+    }
+
+    @Override
+    public FlowMatcher visitOriginatingFromDevice(OriginatingFromDevice originatingFromDevice) {
+      return (flow, srcInterface) -> srcInterface == null;
+    }
+
+    @Override
+    public FlowMatcher visitOrMatchExpr(OrMatchExpr orMatchExpr) {
+      FlowMatcher[] disjuncts =
+          orMatchExpr.getDisjuncts().stream().map(this::visit).toArray(FlowMatcher[]::new);
+      return (flow, srcInterface) -> {
+        for (FlowMatcher disjunct : disjuncts) {
+          if (disjunct.matches(flow, srcInterface)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+
+    @Override
+    public FlowMatcher visitPermittedByAcl(PermittedByAcl permittedByAcl) {
+      IpAccessList acl = _availableAcls.get(permittedByAcl.getAclName());
+      if (acl == null || _inProgress.contains(acl)) {
+        // undefined or circular references are left to the interpreter
+        return interpret(permittedByAcl);
+      }
+      CompiledIpAccessList compiled = compileAcl(acl);
+      LineAction defaultAction =
+          permittedByAcl.getDefaultAccept() ? LineAction.ACCEPT : LineAction.REJECT;
+      return (flow, srcInterface) ->
+          compiled.action(flow, srcInterface, defaultAction) == LineAction.ACCEPT;
+    }
+
+    @Override
+    public FlowMatcher visitTrueExpr(TrueExpr trueExpr) {
+      return (flow, srcInterface) -> true;
+    }
+
+    /** Compiles the checks of {@link HeaderSpace#matches}, in the same order. */
+    private FlowMatcher compileHeaderSpace(HeaderSpace headerSpace) {
+      FlowMatcher[] checks =
+          new FlowMatcher[] {
+            ints(headerSpace.getDscps(), Flow::getDscp, false),
+            ints(headerSpace.getNotDscps(), Flow::getDscp, true),
+            ips(headerSpace.getDstIps(), Flow::getDstIp, false),
+            ips(headerSpace.getNotDstIps(), Flow::getDstIp, true),
+            ranges(headerSpace.getDstPorts(), Flow::getDstPort, false),
+            ranges(headerSpace.getNotDstPorts(), Flow::getDstPort, true),
+            protocols(headerSpace.getDstProtocols(), true, false, false),
+            protocols(headerSpace.getNotDstProtocols(), true, false, true),
+            ranges(headerSpace.getFragmentOffsets(), Flow::getFragmentOffset, false),
+            ranges(headerSpace.getNotFragmentOffsets(), Flow::getFragmentOffset, true),
+            ranges(headerSpace.getIcmpCodes(), Flow::getIcmpCode, false),
+            // HeaderSpace#matches checks the negated ICMP fields against the fragment offset
+            ranges(headerSpace.getNotIcmpCodes(), Flow::getFragmentOffset, true),
+            ranges(headerSpace.getIcmpTypes(), Flow::getIcmpType, false),
+            ranges(headerSpace.getNotIcmpTypes(), Flow::getFragmentOffset, true),
+            ipProtocols(headerSpace.getIpProtocols(), false),
+            ipProtocols(headerSpace.getNotIpProtocols(), true),
+            ranges(headerSpace.getPacketLengths(), Flow::getPacketLength, false),
+            ranges(headerSpace.getNotPacketLengths(), Flow::getPacketLength, true),
+            srcOrDstIps(headerSpace.getSrcOrDstIps()),
+            srcOrDstPorts(headerSpace.getSrcOrDstPorts()),
+            protocols(headerSpace.getSrcOrDstProtocols(), true, true, false),
+            ips(headerSpace.getSrcIps(), Flow::getSrcIp, false),
+            ips(headerSpace.getNotSrcIps(), Flow::getSrcIp, true),
+            ranges(headerSpace.getSrcPorts(), Flow::getSrcPort, false),
+            ranges(headerSpace.getNotSrcPorts(), Flow::getSrcPort, true),
+            protocols(headerSpace.getSrcProtocols(), false, true, false),
+            protocols(headerSpace.getNotSrcProtocols(), false, true, true),
+            states(headerSpace.getStates()),
+            tcpFlags(headerSpace.getTcpFlags())
+          };
+      FlowMatcher[] nonTrivial =
+          Arrays.stream(checks).filter(check -> check != null).toArray(FlowMatcher[]::new);
+      return (flow, srcInterface) -> {
+        for (FlowMatcher check : nonTrivial) {
+          if (!check.matches(flow, srcInterface)) {
+            return false;
+          }
+        }
+        return true;
+      };
+    }
+
+    @Nullable
+    private static FlowMatcher ints(
+        Set<Integer> values, ToIntFunction<Flow> field, boolean negate) {
+      if (values.isEmpty()) {
+        return null;
+      }
+      Set<Integer> set = ImmutableSet.copyOf(values);
+      return (flow, srcInterface) -> set.contains(field.applyAsInt(flow)) != negate;
+    }
+
+    @Nullable
+    private FlowMatcher ips(@Nullable IpSpace ipSpace, Function<Flow, Ip> field, boolean negate) {
+      if (ipSpace == null) {
+        return null;
+      }
+      IpMatcher matcher = compileIpSpace(ipSpace);
+      return (flow, srcInterface) -> matcher.contains(field.apply(flow)) != negate;
+    }
+
+    @Nullable
+    private static FlowMatcher ipProtocols(Set<IpProtocol> ipProtocols, boolean negate) {
+      if (ipProtocols.isEmpty()) {
+        return null;
+      }
+      Set<IpProtocol> bitmap = EnumSet.copyOf(ipProtocols);
+      return (flow, srcInterface) -> bitmap.contains(flow.getIpProtocol()) != negate;
+    }
+
+    /**
+     * Matches the IP protocol and port of {@code protocols} like {@link HeaderSpace#matches}: the
+     * flow must have the protocol of one of them, and the port, if any, as destination port (if
+     * {@code dst}) or source port (if {@code src}).
+     */
+    @Nullable
+    private static FlowMatcher protocols(
+        Set<Protocol> protocols, boolean dst, boolean src, boolean negate) {
+      if (protocols.isEmpty()) {
+        return null;
+      }
+      Protocol[] array = protocols.toArray(new Protocol[0]);
+      return (flow, srcInterface) -> {
+        for (Protocol protocol : array) {
+          if (protocol.getIpProtocol().equals(flow.getIpProtocol())) {
+            Integer port = protocol.getPort();
+            if (port == null
+                || (dst && port.equals(flow.getDstPort()))
+                || (src && port.equals(flow.getSrcPort()))) {
+              return !negate;
+            }
+          }
+        }
+        return negate;
+      };
+    }
+
+    @Nullable
+    private static FlowMatcher ranges(
+        Set<SubRange> subRanges, ToIntFunction<Flow> field, boolean negate) {
+      if (subRanges.isEmpty()) {
+        return null;
+      }
+      Intervals intervals = new Intervals(subRangeSet(subRanges));
+      return (flow, srcInterface) -> intervals.contains(field.applyAsInt(flow)) != negate;
+    }
+
+    @Nullable
+    private FlowMatcher srcOrDstIps(@Nullable IpSpace ipSpace) {
+      if (ipSpace == null) {
+        return null;
+      }
+      IpMatcher matcher = compileIpSpace(ipSpace);
+      return (flow, srcInterface) ->
+          matcher.contains(flow.getSrcIp()) || matcher.contains(flow.getDstIp());
+    }
+
+    @Nullable
+    private static FlowMatcher srcOrDstPorts(Set<SubRange> subRanges) {
+      if (subRanges.isEmpty()) {
+        return null;
+      }
+      Intervals intervals = new Intervals(subRangeSet(subRanges));
+      return (flow, srcInterface) ->
+          intervals.contains(flow.getSrcPort()) || intervals.contains(flow.getDstPort());
+    }
+
+    @Nullable
+    private static FlowMatcher states(Set<State> states) {
+      if (states.isEmpty()) {
+        return null;
+      }
+      Set<State> bitmap = EnumSet.copyOf(states);
+      return (flow, srcInterface) -> bitmap.contains(flow.getState());
+    }
+
+    private static RangeSet<Long> subRangeSet(Set<SubRange> subRanges) {
+      RangeSet<Long> ranges = TreeRangeSet.create();
+      for (SubRange subRange : subRanges) {
+        if (subRange.getStart() <= subRange.getEnd()) {
+          ranges.add(Range.closed((long) subRange.getStart(), (long) subRange.getEnd()));
+        }
+      }
+      return ranges;
+    }
+
+    @Nullable
+    private static FlowMatcher tcpFlags(List<TcpFlags> tcpFlags) {
+      if (tcpFlags.isEmpty()) {
+        return null;
+      }
+      TcpFlags[] array = tcpFlags.toArray(new TcpFlags[0]);
+      return (flow, srcInterface) -> {
+        for (TcpFlags flags : array) {
+          if (flags.match(flow)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+  }
+
+  /** Upper bound on the size of the destination IP index, in line indices */
+  private static final int MAX_INDEX_SIZE = 1 << 20;
+
+  /**
+   * Compiles {@code acl}, resolving the ACLs and IP spaces it refers to in {@code availableAcls}
+   * and {@code namedIpSpaces}.
+   */
+  public static CompiledIpAccessList compile(
+      @Nonnull IpAccessList acl,
+      @Nonnull Map<String, IpAccessList> availableAcls,
+      @Nonnull Map<String, IpSpace> namedIpSpaces) {
+    return new Compiler(availableAcls, namedIpSpaces).compileAcl(acl);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RangeSet<Long>[] newRangeSetArray(int size) {
+    return (RangeSet<Long>[]) new RangeSet<?>[size];
+  }
+
+  private boolean[] _accept;
+
+  private FlowMatcher[] _lines;
+
+  /**
+   * For each segment of the destination IP index, the indices of the lines that may match flows
+   * with a destination IP in the segment, in increasing order; or {@code null} if there is no index
+   */
+  @Nullable private int[][] _segmentLines;
+
+  /** The first destination IP of each segment of the index, in increasing order */
+  @Nullable private long[] _segmentStarts;
+
+  private CompiledIpAccessList() {}
+
+  private LineAction action(Flow flow, @Nullable String srcInterface, LineAction defaultAction) {
+    int line = firstMatchingLine(flow, srcInterface);
+    return line < 0 ? defaultAction : _accept[line] ? LineAction.ACCEPT : LineAction.REJECT;
+  }
+
+  /**
+   * Equivalent to {@link IpAccessList#filter(Flow, String, Map, Map)} with the ACLs and IP spaces
+   * this ACL was compiled with.
+   */
+  public FilterResult filter(Flow flow, @Nullable String srcInterface) {
+    return filter(flow, srcInterface, LineAction.REJECT);
+  }
+
+  /**
+   * Equivalent to {@link IpAccessList#filter(Flow, String, Map, Map, LineAction)} with the ACLs and
+   * IP spaces this ACL was compiled with.
+   */
+  public FilterResult filter(Flow flow, @Nullable String srcInterface, LineAction defaultAction) {
+    int line = firstMatchingLine(flow, srcInterface);
+    return line < 0
+        ? new FilterResult(null, defaultAction)
+        : new FilterResult(line, _accept[line] ? LineAction.ACCEPT : LineAction.REJECT);
+  }
+
+  /** Returns the index of the first line matching the flow, or -1 if no line matches. */
+  private int firstMatchingLine(Flow flow, @Nullable String srcInterface) {
+    if (_segmentStarts == null) {
+      for (int i = 0; i < _lines.length; i++) {
+        if (_lines[i].matches(flow, srcInterface)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int segment = Arrays.binarySearch(_segmentStarts, flow.getDstIp().asLong());
+    if (segment < 0) {
+      segment = -segment - 2;
+    }
+    for (int i : _segmentLines[segment]) {
+      if (_lines[i].matches(flow, srcInterface)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Builds the destination IP index from the destination IPs each line may match ({@code null} for
+   * any), unless no line restricts its destination IPs or the index would be too large.
+   */
+  private void indexDstIps(RangeSet<Long>[] dstIps) {
+    TreeSet<Long> cuts = new TreeSet<>();
+    cuts.add(Ip.ZERO.asLong());
+    Intervals[] lineIntervals = new Intervals[dstIps.length];
+    for (int i = 0; i < dstIps.length; i++) {
+      if (dstIps[i] != null) {
+        lineIntervals[i] = new Intervals(dstIps[i]);
+        for (int j = 0; j < lineIntervals[i]._lows.length; j++) {
+          cuts.add(lineIntervals[i]._lows[j]);
+          cuts.add(lineIntervals[i]._highs[j] + 1);
+        }
+      }
+    }
+    cuts.remove(Ip.MAX.asLong() + 1);
+    if (cuts.size() == 1) {
+      return;
+    }
+    long[] starts = cuts.stream().mapToLong(Long::longValue).toArray();
+    int segments = starts.length;
+    long total = 0;
+    for (Intervals intervals : lineIntervals) {
+      if (intervals == null) {
+        total += segments;
+        continue;
+      }
+      for (int j = 0; j < intervals._lows.length; j++) {
+        int first = Arrays.binarySearch(starts, intervals._lows[j]);
+        int last = segmentOf(starts, intervals._highs[j]);
+        total += last - first + 1;
+      }
+    }
+    if (total > MAX_INDEX_SIZE) {
+      return;
+    }
+    int[] counts = new int[segments];
+    for (int i = 0; i < lineIntervals.length; i++) {
+      addLine(starts, counts, null, lineIntervals[i], i);
+    }
+    int[][] segmentLines = new int[segments][];
+    for (int s = 0; s < segments; s++) {
+      segmentLines[s] = new int[counts[s]];
+    }
+    Arrays.fill(counts, 0);
+    for (int i = 0; i < lineIntervals.length; i++) {
+      addLine(starts, counts, segmentLines, lineIntervals[i], i);
+    }
+    _segmentStarts = starts;
+    _segmentLines = segmentLines;
+  }
+
+  /**
+   * Adds {@code line} to the segments its intervals cover (all segments if {@code null}), or only
+   * counts it if {@code segmentLines} is {@code null}.
+   */
+  private static void addLine(
+      long[] starts,
+      int[] counts,
+      @Nullable int[][] segmentLines,
+      @Nullable Intervals intervals,
+      int line) {
+    if (intervals == null) {
+      for (int s = 0; s < starts.length; s++) {
+        addToSegment(counts, segmentLines, s, line);
+      }
+      return;
+    }
+    for (int j = 0; j < intervals._lows.length; j++) {
+      int first = Arrays.binarySearch(starts, intervals._lows[j]);
+      int last = segmentOf(starts, intervals._highs[j]);
+      for (int s = first; s <= last; s++) {
+        addToSegment(counts, segmentLines, s, line);
+      }
+    }
+  }
+
+  private static void addToSegment(
+      int[] counts, @Nullable int[][] segmentLines, int segment, int line) {
+    if (segmentLines != null) {
+      segmentLines[segment][counts[segment]] = line;
+    }
+    counts[segment]++;
+  }
+
+  private static int segmentOf(long[] starts, long value) {
+    int i = Arrays.binarySearch(starts, value);
+    return i >= 0 ? i : -i - 2;
+  }
+}
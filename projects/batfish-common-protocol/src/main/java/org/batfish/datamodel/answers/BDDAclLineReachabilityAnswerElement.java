@@ -0,0 +1,3 @@
+package org.batfish.datamodel.answers;
+
+public class BDDAclLineReachabilityAnswerElement extends AnswerElement {}
@@ -53,6 +53,8 @@ public class Environment {
 
   @Nullable private final Prefix _peerPrefix;
 
+  private boolean _peerRead;
+
   private boolean _readFromIntermediateBgpAttributes;
 
   private final boolean _useOutputAttributes;
@@ -162,14 +164,24 @@ public class Environment {
 
   @Nullable
   public Ip getPeerAddress() {
+    _peerRead = true;
     return _peerAddress;
   }
 
   @Nullable
   public Prefix getPeerPrefix() {
+    _peerRead = true;
     return _peerPrefix;
   }
 
+  /**
+   * Whether the peer address or peer prefix has been read since this environment was built. If not,
+   * evaluating a policy in this environment gave a result that is the same for every peer.
+   */
+  public boolean getPeerRead() {
+    return _peerRead;
+  }
+
   public boolean getReadFromIntermediateBgpAttributes() {
     return _readFromIntermediateBgpAttributes;
   }
@@ -0,0 +1,117 @@
+package org.batfish.datamodel.routing_policy;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.LineAction;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.RouteFilterLine;
+import org.batfish.datamodel.RouteFilterList;
+import org.batfish.datamodel.SubRange;
+
+/**
+ * Matches prefixes against a {@link RouteFilterList} whose lines all match on a prefix, using a
+ * binary trie of the line prefixes. Gives the same result as {@link RouteFilterList#permits}
+ * without scanning the lines.
+ */
+final class RouteFilterListMatcher {
+
+  private static final int[] NO_LINES = new int[0];
+
+  private static final class Node {
+
+    @Nullable private Node _left;
+
+    /** Indices of the lines whose prefix ends at this node, in increasing order */
+    private int[] _lines = NO_LINES;
+
+    @Nullable private Node _right;
+  }
+
+  /**
+   * Returns a matcher for {@code list}, or {@code null} if some line of {@code list} matches on a
+   * wildcard that is not a prefix.
+   */
+  @Nullable
+  static RouteFilterListMatcher create(RouteFilterList list) {
+    List<RouteFilterLine> lines = list.getLines();
+    int size = lines.size();
+    boolean[] accept = new boolean[size];
+    int[] minLength = new int[size];
+    int[] maxLength = new int[size];
+    Node root = new Node();
+    for (int i = 0; i < size; i++) {
+      RouteFilterLine line = lines.get(i);
+      if (!line.getIpWildcard().isPrefix()) {
+        return null;
+      }
+      Prefix prefix = line.getIpWildcard().toPrefix();
+      SubRange lengthRange = line.getLengthRange();
+      accept[i] = line.getAction() == LineAction.ACCEPT;
+      minLength[i] = lengthRange.getStart();
+      maxLength[i] = lengthRange.getEnd();
+      long bits = prefix.getStartIp().asLong();
+      Node node = root;
+      for (int depth = 0; depth < prefix.getPrefixLength(); depth++) {
+        if (Ip.getBitAtPosition(bits, depth)) {
+          if (node._right == null) {
+            node._right = new Node();
+          }
+          node = node._right;
+        } else {
+          if (node._left == null) {
+            node._left = new Node();
+          }
+          node = node._left;
+        }
+      }
+      int[] nodeLines = new int[node._lines.length + 1];
+      System.arraycopy(node._lines, 0, nodeLines, 0, node._lines.length);
+      nodeLines[node._lines.length] = i;
+      node._lines = nodeLines;
+    }
+    return new RouteFilterListMatcher(root, accept, minLength, maxLength);
+  }
+
+  private final boolean[] _accept;
+
+  private final int[] _maxLength;
+
+  private final int[] _minLength;
+
+  private final Node _root;
+
+  private RouteFilterListMatcher(Node root, boolean[] accept, int[] minLength, int[] maxLength) {
+    _accept = accept;
+    _maxLength = maxLength;
+    _minLength = minLength;
+    _root = root;
+  }
+
+  /** Whether the first line of the list matching {@code prefix} accepts it. */
+  boolean permits(Prefix prefix) {
+    long bits = prefix.getStartIp().asLong();
+    int prefixLength = prefix.getPrefixLength();
+    int firstMatch = Integer.MAX_VALUE;
+    Node node = _root;
+    int depth = 0;
+    while (node != null) {
+      // Lines at this node contain the start IP of the prefix
+      for (int line : node._lines) {
+        if (line >= firstMatch) {
+          break;
+        }
+        if (prefixLength >= _minLength[line] && prefixLength <= _maxLength[line]) {
+          firstMatch = line;
+          break;
+        }
+      }
+      if (depth == Prefix.MAX_PREFIX_LENGTH) {
+        break;
+      }
+      node = Ip.getBitAtPosition(bits, depth) ? node._right : node._left;
+      depth++;
+    }
+    return firstMatch != Integer.MAX_VALUE && _accept[firstMatch];
+  }
+}
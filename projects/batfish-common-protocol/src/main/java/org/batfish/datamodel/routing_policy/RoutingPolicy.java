@@ -198,6 +198,11 @@ public class RoutingPolicy implements Serializable {
             .setDirection(direction)
             .setPeerPrefix(peerPrefix)
             .build();
+    return process(environment);
+  }
+
+  /** Returns whether this policy accepts the route in the given {@link Environment}. */
+  boolean process(Environment environment) {
     Result result = call(environment);
     return result.getBooleanValue() && !(Boolean.TRUE.equals(environment.getSuppressed()));
   }
@@ -0,0 +1,229 @@
+package org.batfish.datamodel.routing_policy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.batfish.datamodel.AbstractRoute;
+import org.batfish.datamodel.BgpRoute;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.routing_policy.Environment.Direction;
+
+/**
+ * Memoizes the BGP routes produced by {@link RoutingPolicy#process}, so that a route sent to many
+ * peers with the same policy is only evaluated once.
+ *
+ * <p>A result is keyed on the policy and input route (by identity), the direction and VRF, and the
+ * attributes of the output route before the policy runs. The peer address and peer prefix are only
+ * part of the key when the policy read them while computing the result, so the result of a policy
+ * that does not depend on the peer is shared by all peers.
+ *
+ * <p>Input routes are held by the cache, so it should be discarded or {@link #clear() cleared} once
+ * the routes it was used for are no longer needed, e.g. at the end of a data plane iteration.
+ */
+public final class RoutingPolicyResultCache {
+
+  private static final class Key {
+
+    private final List<Object> _attributes;
+
+    private final Direction _direction;
+
+    private final int _hashCode;
+
+    private final AbstractRoute _inputRoute;
+
+    @Nullable private final Ip _peerAddress;
+
+    @Nullable private final Prefix _peerPrefix;
+
+    private final boolean _peerRead;
+
+    private final RoutingPolicy _policy;
+
+    private final String _vrf;
+
+    private Key(
+        RoutingPolicy policy,
+        AbstractRoute inputRoute,
+        List<Object> attributes,
+        boolean peerRead,
+        @Nullable Ip peerAddress,
+        @Nullable Prefix peerPrefix,
+        String vrf,
+        Direction direction) {
+      _attributes = attributes;
+      _direction = direction;
+      _inputRoute = inputRoute;
+      _peerAddress = peerAddress;
+      _peerPrefix = peerPrefix;
+      _peerRead = peerRead;
+      _policy = policy;
+      _vrf = vrf;
+      _hashCode =
+          Objects.hash(
+              System.identityHashCode(policy),
+              System.identityHashCode(inputRoute),
+              attributes,
+              peerRead,
+              peerAddress,
+              peerPrefix,
+              vrf,
+              direction);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return _hashCode == other._hashCode
+          && _policy == other._policy
+          && _inputRoute == other._inputRoute
+          && _peerRead == other._peerRead
+          && _direction == other._direction
+          && _attributes.equals(other._attributes)
+          && Objects.equals(_peerAddress, other._peerAddress)
+          && Objects.equals(_peerPrefix, other._peerPrefix)
+          && _vrf.equals(other._vrf);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /** The attributes of {@code route}, copied so that later changes to the builder are not seen. */
+  private static List<Object> attributes(BgpRoute.Builder route) {
+    return Arrays.asList(
+        route.getAdmin(),
+        route
+            .getAsPath()
+            .stream()
+            .map(ImmutableSortedSet::copyOf)
+            .collect(ImmutableList.toImmutableList()),
+        ImmutableSortedSet.copyOf(route.getClusterList()),
+        ImmutableSortedSet.copyOf(route.getCommunities()),
+        route.getDiscard(),
+        route.getLocalPreference(),
+        route.getMetric(),
+        route.getNetwork(),
+        route.getNextHopIp(),
+        route.getOriginatorIp(),
+        route.getOriginType(),
+        route.getProtocol(),
+        route.getReceivedFromIp(),
+        route.getReceivedFromRouteReflectorClient(),
+        route.getSrcProtocol(),
+        route.getTag(),
+        route.getWeight());
+  }
+
+  /** Compiled forms of the policies evaluated so far, or {@code null} to interpret policies */
+  @Nullable private final Map<RoutingPolicy, CompiledRoutingPolicy> _compiledPolicies;
+
+  private final LongAdder _hits;
+
+  private final LongAdder _misses;
+
+  private final Map<Key, Optional<BgpRoute>> _results;
+
+  public RoutingPolicyResultCache() {
+    this(false);
+  }
+
+  /**
+   * @param compilePolicies Whether to evaluate each policy by its {@link CompiledRoutingPolicy
+   *     compiled form} instead of interpreting it
+   */
+  public RoutingPolicyResultCache(boolean compilePolicies) {
+    _compiledPolicies =
+        compilePolicies ? Collections.synchronizedMap(new IdentityHashMap<>()) : null;
+    _hits = new LongAdder();
+    _misses = new LongAdder();
+    _results = new ConcurrentHashMap<>();
+  }
+
+  /** Discards all memoized results. The hit and miss counts and compiled policies are kept. */
+  public void clear() {
+    _results.clear();
+  }
+
+  /** Number of calls to {@link #process} answered from the cache. */
+  public long getHits() {
+    return _hits.sum();
+  }
+
+  /** Number of calls to {@link #process} that evaluated the policy. */
+  public long getMisses() {
+    return _misses.sum();
+  }
+
+  /**
+   * Equivalent to {@code policy.process(inputRoute, outputRoute, peerAddress, peerPrefix, vrf,
+   * direction) ? outputRoute.build() : null}, except that {@code outputRoute} is left unchanged
+   * when the result is memoized.
+   *
+   * @return The route produced by the policy, or {@code null} if the policy rejects the route.
+   */
+  @Nullable
+  public BgpRoute process(
+      @Nonnull RoutingPolicy policy,
+      @Nonnull AbstractRoute inputRoute,
+      @Nonnull BgpRoute.Builder outputRoute,
+      @Nullable Ip peerAddress,
+      @Nullable Prefix peerPrefix,
+      @Nonnull String vrf,
+      @Nonnull Direction direction) {
+    List<Object> attributes = attributes(outputRoute);
+    Optional<BgpRoute> result =
+        _results.get(new Key(policy, inputRoute, attributes, false, null, null, vrf, direction));
+    if (result == null) {
+      result =
+          _results.get(
+              new Key(
+                  policy, inputRoute, attributes, true, peerAddress, peerPrefix, vrf, direction));
+    }
+    if (result != null) {
+      _hits.increment();
+      return result.orElse(null);
+    }
+    _misses.increment();
+    Environment environment =
+        Environment.builder(policy.getOwner())
+            .setVrf(vrf)
+            .setOriginalRoute(inputRoute)
+            .setOutputRoute(outputRoute)
+            .setPeerAddress(peerAddress)
+            .setDirection(direction)
+            .setPeerPrefix(peerPrefix)
+            .build();
+    boolean accepted =
+        _compiledPolicies == null
+            ? policy.process(environment)
+            : _compiledPolicies
+                .computeIfAbsent(policy, CompiledRoutingPolicy::compile)
+                .process(environment);
+    result = accepted ? Optional.of(outputRoute.build()) : Optional.empty();
+    Key key =
+        environment.getPeerRead()
+            ? new Key(policy, inputRoute, attributes, true, peerAddress, peerPrefix, vrf, direction)
+            : new Key(policy, inputRoute, attributes, false, null, null, vrf, direction);
+    _results.put(key, result);
+    return result.orElse(null);
+  }
+}
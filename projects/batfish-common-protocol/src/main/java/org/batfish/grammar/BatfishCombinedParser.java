@@ -75,6 +75,7 @@ public abstract class BatfishCombinedParser<P extends BatfishParser, L extends B
     }
     _parser.initErrorListener(this);
     _parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    _parser.setInterpreter(new CountingParserATNSimulator(_parser.getInterpreter()));
   }
 
   public BatfishCombinedParser(
@@ -13,7 +13,7 @@ import org.batfish.grammar.BatfishANTLRErrorStrategy.BatfishRecognitionException
  * {@link #adaptivePredict} function with a recovery mechanism. Intended for use with a {@link
  * BatfishParser} employing a {@link BatfishANTLRErrorStrategy} as its error recovery strategy.
  */
-public class BatfishParserATNSimulator extends ParserATNSimulator {
+public class BatfishParserATNSimulator extends CountingParserATNSimulator {
 
   private BatfishParser _parser;
 
@@ -23,8 +23,7 @@ public class BatfishParserATNSimulator extends ParserATNSimulator {
    * @param parent The {@link ParserATNSimulator} to emulate modulo {@link #adaptivePredict}.
    */
   public BatfishParserATNSimulator(ParserATNSimulator parent) {
-    super(parent.getParser(), parent.atn, parent.decisionToDFA, parent.getSharedContextCache());
-    this.setPredictionMode(parent.getPredictionMode());
+    super(parent);
     _parser = (BatfishParser) parser;
   }
 
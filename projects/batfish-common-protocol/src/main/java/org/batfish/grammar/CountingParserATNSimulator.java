@@ -0,0 +1,83 @@
+package org.batfish.grammar;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+/**
+ * A {@link ParserATNSimulator} that counts how often adaptive prediction is answered by the shared
+ * DFA cache, how often it has to fall back on ATN simulation, and how often SLL prediction reaches
+ * a conflict that full-context (LL) prediction would have to resolve. The counts belong to a single
+ * parser instance and are added to {@link ParserPredictionStatistics} once it is done.
+ */
+public class CountingParserATNSimulator extends ParserATNSimulator {
+
+  private long _dfaMisses;
+
+  private long _llFallbacks;
+
+  private long _predictions;
+
+  public CountingParserATNSimulator(
+      Parser parser, ATN atn, DFA[] decisionToDFA, PredictionContextCache sharedContextCache) {
+    super(parser, atn, decisionToDFA, sharedContextCache);
+  }
+
+  /**
+   * Construct a {@link CountingParserATNSimulator} sharing the DFA and prediction context caches of
+   * a {@link ParserATNSimulator}.
+   */
+  public CountingParserATNSimulator(ParserATNSimulator parent) {
+    this(parent.getParser(), parent.atn, parent.decisionToDFA, parent.getSharedContextCache());
+    setPredictionMode(parent.getPredictionMode());
+  }
+
+  @Override
+  public int adaptivePredict(TokenStream input, int decision, ParserRuleContext outerContext) {
+    _predictions++;
+    return super.adaptivePredict(input, decision, outerContext);
+  }
+
+  @Override
+  protected DFAState computeTargetState(DFA dfa, DFAState previousD, int t) {
+    _dfaMisses++;
+    DFAState target = super.computeTargetState(dfa, previousD, t);
+    if (target.requiresFullContext) {
+      _llFallbacks++;
+    }
+    return target;
+  }
+
+  @Override
+  protected DFAState getExistingTargetState(DFAState previousD, int t) {
+    DFAState target = super.getExistingTargetState(previousD, t);
+    if (target != null && target.requiresFullContext) {
+      _llFallbacks++;
+    }
+    return target;
+  }
+
+  /** Number of DFA transitions that had to be computed by ATN simulation. */
+  public long getDfaMisses() {
+    return _dfaMisses;
+  }
+
+  /**
+   * Number of SLL conflicts requiring full-context prediction. In {@link PredictionMode#SLL} mode,
+   * which Batfish parsers use, these are resolved in favor of the minimum alternative instead.
+   */
+  public long getLlFallbacks() {
+    return _llFallbacks;
+  }
+
+  /** Number of adaptive predictions made. */
+  public long getPredictions() {
+    return _predictions;
+  }
+}
@@ -0,0 +1,91 @@
+package org.batfish.grammar;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.dfa.DFA;
+
+/**
+ * Per-grammar totals of the prediction counts of finished parses, for judging how warm the DFA
+ * caches that ANTLR shares between all parsers of a grammar in this JVM are.
+ */
+public final class ParserPredictionStatistics {
+
+  private static final class GrammarStatistics {
+
+    private final DFA[] _decisionToDFA;
+
+    private final LongAdder _dfaMisses = new LongAdder();
+
+    private final LongAdder _llFallbacks = new LongAdder();
+
+    private final LongAdder _parses = new LongAdder();
+
+    private final LongAdder _predictions = new LongAdder();
+
+    private GrammarStatistics(DFA[] decisionToDFA) {
+      _decisionToDFA = decisionToDFA;
+    }
+
+    private long getDfaStates() {
+      long states = 0L;
+      for (DFA dfa : _decisionToDFA) {
+        synchronized (dfa.states) {
+          states += dfa.states.size();
+        }
+      }
+      return states;
+    }
+
+    private Map<String, Long> toMap() {
+      return ImmutableMap.<String, Long>builder()
+          .put("dfaMisses", _dfaMisses.sum())
+          .put("dfaStates", getDfaStates())
+          .put("llFallbacks", _llFallbacks.sum())
+          .put("parses", _parses.sum())
+          .put("predictions", _predictions.sum())
+          .build();
+    }
+  }
+
+  private static final ConcurrentMap<String, GrammarStatistics> STATISTICS =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns, for each grammar that has been used to parse, the number of parses, adaptive
+   * predictions, DFA misses and SLL conflicts requiring full-context prediction, as well as the
+   * current number of cached DFA states.
+   */
+  public static SortedMap<String, Map<String, Long>> getStatistics() {
+    return STATISTICS
+        .entrySet()
+        .stream()
+        .collect(
+            ImmutableSortedMap.toImmutableSortedMap(
+                String::compareTo, e -> e.getKey(), e -> e.getValue().toMap()));
+  }
+
+  /** Adds the prediction counts of a finished parse to the totals of its grammar. */
+  public static void record(BatfishCombinedParser<?, ?> combinedParser) {
+    BatfishParser parser = combinedParser.getParser();
+    ParserATNSimulator interpreter = parser.getInterpreter();
+    if (!(interpreter instanceof CountingParserATNSimulator)) {
+      return;
+    }
+    CountingParserATNSimulator counts = (CountingParserATNSimulator) interpreter;
+    GrammarStatistics statistics =
+        STATISTICS.computeIfAbsent(
+            parser.getGrammarFileName(), g -> new GrammarStatistics(interpreter.decisionToDFA));
+    statistics._dfaMisses.add(counts.getDfaMisses());
+    statistics._llFallbacks.add(counts.getLlFallbacks());
+    statistics._parses.increment();
+    statistics._predictions.add(counts.getPredictions());
+  }
+
+  private ParserPredictionStatistics() {}
+}
@@ -0,0 +1,73 @@
+package org.batfish.grammar;
+
+import java.util.Set;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+/**
+ * A {@link LexerATNSimulator} that caches DFA transitions computed through semantic predicates.
+ * ANTLR never caches those, since a predicate may give a different answer next time, so a lexer
+ * with predicates in frequently used rules falls back on ATN simulation for most characters.
+ *
+ * <p>Caching is only correct for predicates that read lexer state which is fixed while a token is
+ * matched (e.g. a flag set by the action of an earlier token), and only if each combination of that
+ * state gets its own {@link DFA DFAs}: the lexer should keep one simulator per combination and
+ * switch between them, using {@link #copyState(LexerATNSimulator)}, before matching each token.
+ * Transitions through predicates in rules that look at the input itself are never cached.
+ */
+public class PredicateCachingLexerATNSimulator extends LexerATNSimulator {
+
+  /** Returns empty DFAs for the decisions of {@code atn}. */
+  public static DFA[] newDecisionToDFA(ATN atn) {
+    DFA[] decisionToDFA = new DFA[atn.getNumberOfDecisions()];
+    for (int i = 0; i < decisionToDFA.length; i++) {
+      decisionToDFA[i] = new DFA(atn.getDecisionState(i), i);
+    }
+    return decisionToDFA;
+  }
+
+  private boolean _inputDependentPredicateEvaluated;
+
+  private final Set<Integer> _inputDependentRules;
+
+  /** @param inputDependentRules Indices of the rules whose predicates look at the input */
+  public PredicateCachingLexerATNSimulator(
+      Lexer recog,
+      ATN atn,
+      DFA[] decisionToDFA,
+      PredictionContextCache sharedContextCache,
+      Set<Integer> inputDependentRules) {
+    super(recog, atn, decisionToDFA, sharedContextCache);
+    _inputDependentRules = inputDependentRules;
+  }
+
+  @Override
+  protected DFAState addDFAEdge(DFAState from, int t, ATNConfigSet q) {
+    if (!_inputDependentPredicateEvaluated) {
+      // any predicates evaluated for q give the same answer whenever this DFA is used
+      q.hasSemanticContext = false;
+    }
+    return super.addDFAEdge(from, t, q);
+  }
+
+  @Override
+  protected DFAState computeTargetState(CharStream input, DFAState s, int t) {
+    _inputDependentPredicateEvaluated = false;
+    return super.computeTargetState(input, s, t);
+  }
+
+  @Override
+  protected boolean evaluatePredicate(
+      CharStream input, int ruleIndex, int predIndex, boolean speculative) {
+    if (_inputDependentRules.contains(ruleIndex)) {
+      _inputDependentPredicateEvaluated = true;
+    }
+    return super.evaluatePredicate(input, ruleIndex, predIndex, speculative);
+  }
+}
@@ -3,6 +3,7 @@ package org.batfish.common.plugin;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
 import java.nio.file.Path;
 import org.batfish.common.BatfishLogger;
 import org.junit.Rule;
@@ -16,8 +17,8 @@ public class PluginConsumerTest {
   @Rule public TemporaryFolder _folder = new TemporaryFolder();
 
   private static class TestPluginConsumer extends PluginConsumer {
-    private TestPluginConsumer(boolean serializeToText) {
-      super(serializeToText);
+    private TestPluginConsumer(boolean serializeToText, boolean compactSerialization) {
+      super(serializeToText, compactSerialization);
     }
 
     @Override
@@ -31,24 +32,47 @@ public class PluginConsumerTest {
     }
   }
 
-  private void runSerializationTest(boolean serializeToText) throws Exception {
+  private void runSerializationTest(boolean serializeToText, boolean compactSerialization)
+      throws Exception {
     Path serializeFile = _folder.newFile().toPath();
-    TestPluginConsumer consumer = new TestPluginConsumer(serializeToText);
+    TestPluginConsumer consumer = new TestPluginConsumer(serializeToText, compactSerialization);
 
     int[] ints = new int[] {1, 2, 3};
     consumer.serializeObject(ints, serializeFile);
 
-    int[] value = consumer.deserializeObject(serializeFile, int[].class);
+    // Files are readable regardless of the format the reader is configured to write
+    int[] value =
+        new TestPluginConsumer(false, !compactSerialization)
+            .deserializeObject(serializeFile, int[].class);
     assertThat(value, equalTo(ints));
   }
 
   @Test
   public void testSerializingAndDeserializingJava() throws Exception {
-    runSerializationTest(false);
+    runSerializationTest(false, false);
+  }
+
+  @Test
+  public void testSerializingAndDeserializingCompact() throws Exception {
+    runSerializationTest(false, true);
   }
 
   @Test
   public void testSerializingAndDeserializingText() throws Exception {
-    runSerializationTest(true);
+    runSerializationTest(true, false);
+  }
+
+  @Test
+  public void testSerializeObjectReplacesFile() throws Exception {
+    File folder = _folder.newFolder();
+    Path serializeFile = folder.toPath().resolve("object");
+    TestPluginConsumer consumer = new TestPluginConsumer(false, true);
+
+    consumer.serializeObject(new int[] {1, 2, 3}, serializeFile);
+    consumer.serializeObject(new int[] {4}, serializeFile);
+
+    assertThat(consumer.deserializeObject(serializeFile, int[].class), equalTo(new int[] {4}));
+    // the temporary file the object was written to is gone
+    assertThat(folder.list(), equalTo(new String[] {"object"}));
   }
 }
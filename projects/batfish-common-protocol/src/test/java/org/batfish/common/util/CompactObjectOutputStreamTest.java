@@ -0,0 +1,133 @@
+package org.batfish.common.util;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Bytes;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.Prefix;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/** Tests of {@link CompactObjectOutputStream} and {@link CompactObjectInputStream} */
+public class CompactObjectOutputStreamTest {
+
+  @Rule public final ExpectedException _thrown = ExpectedException.none();
+
+  private static final class LayoutA implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @SuppressWarnings("unused")
+    private int _value;
+  }
+
+  /** Same serialVersionUID as {@link LayoutA}, but a field of a different type */
+  private static final class LayoutB implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @SuppressWarnings("unused")
+    private long _value;
+  }
+
+  /** Same fields as {@link LayoutA}, but a different serialVersionUID */
+  private static final class LayoutC implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    @SuppressWarnings("unused")
+    private int _value;
+  }
+
+  /**
+   * Writes {@code object} compactly, then renames its class in the stream to {@code newClass}, as
+   * if it had been written by a build where that class had the layout of the object's class.
+   */
+  private static byte[] writeAs(Object object, Class<?> newClass) throws IOException {
+    byte[] data = write(object, true);
+    byte[] oldName = object.getClass().getName().getBytes(StandardCharsets.UTF_8);
+    byte[] newName = newClass.getName().getBytes(StandardCharsets.UTF_8);
+    int index = Bytes.indexOf(data, oldName);
+    System.arraycopy(newName, 0, data, index, newName.length);
+    return data;
+  }
+
+  private static byte[] write(Object object, boolean compact) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos =
+        compact ? new CompactObjectOutputStream(bytes) : new ObjectOutputStream(bytes)) {
+      oos.writeObject(object);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object read(byte[] data) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream ois =
+        new CompactObjectInputStream(
+            new ByteArrayInputStream(data), Thread.currentThread().getContextClassLoader())) {
+      return ois.readObject();
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<Object> list =
+        ImmutableList.of("foo", new Ip("1.2.3.4"), Prefix.parse("10.0.0.0/8"), new int[] {1, 2});
+    @SuppressWarnings("unchecked")
+    List<Object> read = (List<Object>) read(write(new ArrayList<>(list), true));
+    assertThat(read.subList(0, 3), equalTo(list.subList(0, 3)));
+    assertThat((int[]) read.get(3), equalTo(new int[] {1, 2}));
+  }
+
+  @Test
+  public void testEqualValuesAreShared() throws Exception {
+    List<Object> list = new ArrayList<>();
+    list.add(new String("foo"));
+    list.add(new String("foo"));
+    list.add(Prefix.parse("10.0.0.0/8"));
+    list.add(Prefix.parse("10.0.0.0/8"));
+    @SuppressWarnings("unchecked")
+    List<Object> read = (List<Object>) read(write(list, true));
+    assertThat(read.get(0), sameInstance(read.get(1)));
+    assertThat(read.get(2), sameInstance(read.get(3)));
+  }
+
+  @Test
+  public void testMatchingClassIsRead() throws Exception {
+    assertThat(read(writeAs(new LayoutA(), LayoutA.class)), instanceOf(LayoutA.class));
+  }
+
+  @Test
+  public void testChangedFieldsAreRejected() throws Exception {
+    _thrown.expect(InvalidClassException.class);
+    read(writeAs(new LayoutA(), LayoutB.class));
+  }
+
+  @Test
+  public void testChangedSerialVersionUIDIsRejected() throws Exception {
+    _thrown.expect(InvalidClassException.class);
+    read(writeAs(new LayoutA(), LayoutC.class));
+  }
+
+  @Test
+  public void testSmallerThanJavaSerialization() throws Exception {
+    List<Prefix> prefixes = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      prefixes.add(Prefix.parse(String.format("10.%d.0.0/16", i % 10)));
+    }
+    assertThat(write(prefixes, true).length, lessThan(write(prefixes, false).length));
+  }
+}
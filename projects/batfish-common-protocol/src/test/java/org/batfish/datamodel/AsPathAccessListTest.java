@@ -0,0 +1,52 @@
+package org.batfish.datamodel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import org.junit.Test;
+
+/** Tests of {@link AsPathAccessList} */
+public class AsPathAccessListTest {
+
+  private static AsPathAccessListLine line(LineAction action, String regex) {
+    AsPathAccessListLine line = new AsPathAccessListLine();
+    line.setAction(action);
+    line.setRegex(regex);
+    return line;
+  }
+
+  @Test
+  public void testFirstMatchingLine() {
+    AsPathAccessList list =
+        new AsPathAccessList(
+            "list",
+            ImmutableList.of(
+                line(LineAction.REJECT, "^65000 "),
+                line(LineAction.ACCEPT, "(,|\\{|\\}|^|$| )2(,|\\{|\\}|^|$| )"),
+                line(LineAction.ACCEPT, "^$")));
+
+    assertThat(list.permits(AsPath.ofSingletonAsSets(65000L, 2L)), equalTo(false));
+    assertThat(list.permits(AsPath.ofSingletonAsSets(1L, 2L)), equalTo(true));
+    assertThat(list.permits(AsPath.ofSingletonAsSets(1L, 22L)), equalTo(false));
+    assertThat(list.permits(AsPath.ofSingletonAsSets()), equalTo(true));
+    assertThat(
+        list.permits(
+            new AsPath(ImmutableList.of(ImmutableSortedSet.of(1L), ImmutableSortedSet.of(2L, 3L)))),
+        equalTo(true));
+  }
+
+  @Test
+  public void testListsWithSameRegexes() {
+    AsPathAccessList permit =
+        new AsPathAccessList("permit", ImmutableList.of(line(LineAction.ACCEPT, " 1$")));
+    AsPathAccessList deny =
+        new AsPathAccessList("deny", ImmutableList.of(line(LineAction.REJECT, " 1$")));
+    AsPath asPath = AsPath.ofSingletonAsSets(2L, 1L);
+
+    assertThat(permit.permits(asPath), equalTo(true));
+    assertThat(deny.permits(asPath), equalTo(false));
+    assertThat(permit.permits(AsPath.ofSingletonAsSets(1L)), equalTo(false));
+  }
+}
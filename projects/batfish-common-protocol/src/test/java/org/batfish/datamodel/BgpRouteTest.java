@@ -0,0 +1,90 @@
+package org.batfish.datamodel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.TreeSet;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Test;
+
+/** Tests of {@link BgpRoute} */
+public class BgpRouteTest {
+
+  private static BgpRoute.Builder builder() {
+    return new BgpRoute.Builder()
+        .setNetwork(Prefix.parse("1.1.1.0/24"))
+        .setOriginatorIp(new Ip("2.2.2.2"))
+        .setOriginType(OriginType.IGP)
+        .setProtocol(RoutingProtocol.BGP)
+        .setReceivedFromIp(new Ip("3.3.3.3"));
+  }
+
+  @Test
+  public void testAttributesShared() {
+    BgpRoute route1 =
+        builder()
+            .setAsPath(ImmutableList.of(ImmutableSortedSet.of(1L), ImmutableSortedSet.of(2L, 3L)))
+            .setCommunities(new TreeSet<>(ImmutableList.of(5L, 6L)))
+            .setClusterList(new TreeSet<>(ImmutableList.of(7L)))
+            .build();
+    BgpRoute route2 =
+        builder()
+            .setAsPath(
+                ImmutableList.of(
+                    new TreeSet<>(ImmutableList.of(1L)), new TreeSet<>(ImmutableList.of(3L, 2L))))
+            .setCommunities(ImmutableSortedSet.of(6L, 5L))
+            .setClusterList(ImmutableSortedSet.of(7L))
+            .setNextHopIp(new Ip("4.4.4.4"))
+            .build();
+
+    assertThat(route2.getAsPath(), sameInstance(route1.getAsPath()));
+    assertThat(route2.getCommunities(), sameInstance(route1.getCommunities()));
+    assertThat(route2.getClusterList(), sameInstance(route1.getClusterList()));
+    assertThat(route2, not(equalTo(route1)));
+    assertThat(
+        route2,
+        equalTo(
+            builder()
+                .setAsPath(route1.getAsPath().getAsSets())
+                .setCommunities(ImmutableSortedSet.of(5L, 6L))
+                .setClusterList(ImmutableSortedSet.of(7L))
+                .setNextHopIp(new Ip("4.4.4.4"))
+                .build()));
+  }
+
+  @Test
+  public void testDeserializedAttributesShared() {
+    BgpRoute route =
+        builder()
+            .setAsPath(ImmutableList.of(ImmutableSortedSet.of(1L)))
+            .setCommunities(ImmutableSortedSet.of(5L))
+            .build();
+
+    BgpRoute deserialized = SerializationUtils.clone(route);
+
+    assertThat(deserialized, equalTo(route));
+    assertThat(deserialized.hashCode(), equalTo(route.hashCode()));
+    assertThat(deserialized.getAsPath(), sameInstance(route.getAsPath()));
+    assertThat(deserialized.getCommunities(), sameInstance(route.getCommunities()));
+  }
+
+  @Test
+  public void testDeserializedAbstractRouteState() {
+    BgpRoute route = builder().build();
+    route.setNextHop("nextHop");
+    route.setNode("node");
+    route.setNonRouting(true);
+    route.setVrf("vrf");
+
+    BgpRoute deserialized = SerializationUtils.clone(route);
+
+    assertThat(deserialized.getNextHop(), equalTo("nextHop"));
+    assertThat(deserialized.getNode(), equalTo("node"));
+    assertThat(deserialized.getNonRouting(), equalTo(true));
+    assertThat(deserialized.getVrf(), equalTo("vrf"));
+  }
+}
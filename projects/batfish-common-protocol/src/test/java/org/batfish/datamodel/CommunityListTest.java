@@ -40,4 +40,36 @@ public class CommunityListTest {
     assertThat(cl.permits(communityStringToLong("65111:34")), equalTo(false));
     assertThat(cl.permits(communityStringToLong("64111:34")), equalTo(false));
   }
+
+  @Test
+  public void testFirstMatchingLine() {
+    CommunityList cl =
+        new CommunityList(
+            "name",
+            ImmutableList.of(
+                new CommunityListLine(LineAction.REJECT, "^65000:100$"),
+                new CommunityListLine(LineAction.ACCEPT, "^65000:"),
+                new CommunityListLine(LineAction.ACCEPT, ":1(0|2)$")),
+            false);
+
+    assertThat(cl.permits(communityStringToLong("65000:100")), equalTo(false));
+    assertThat(cl.permits(communityStringToLong("65000:1000")), equalTo(true));
+    assertThat(cl.permits(communityStringToLong("1:12")), equalTo(true));
+    assertThat(cl.permits(communityStringToLong("1:11")), equalTo(false));
+  }
+
+  @Test
+  public void testInvertMatchFirstMatchingLine() {
+    CommunityList cl =
+        new CommunityList(
+            "name",
+            ImmutableList.of(
+                new CommunityListLine(LineAction.REJECT, "^1:"),
+                new CommunityListLine(LineAction.ACCEPT, "^2:")),
+            true);
+
+    assertThat(cl.permits(communityStringToLong("1:1")), equalTo(true));
+    assertThat(cl.permits(communityStringToLong("2:1")), equalTo(false));
+    assertThat(cl.permits(communityStringToLong("3:1")), equalTo(false));
+  }
 }
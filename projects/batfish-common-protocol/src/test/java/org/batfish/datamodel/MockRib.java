@@ -2,6 +2,7 @@ package org.batfish.datamodel;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.Set;
@@ -142,11 +143,23 @@ public class MockRib implements GenericRib<AbstractRoute> {
     return _routes;
   }
 
+  @Override
+  public int getNumRoutes() {
+    return _routes.size();
+  }
+
   @Override
   public Set<AbstractRoute> longestPrefixMatch(Ip address) {
     return _longestPrefixMatchResults.get(address);
   }
 
+  @Override
+  public int longestPrefixMatch(Ip address, Collection<? super AbstractRoute> buffer) {
+    Set<AbstractRoute> matches = _longestPrefixMatchResults.get(address);
+    buffer.addAll(matches);
+    return matches.size();
+  }
+
   @Override
   public Set<AbstractRoute> longestPrefixMatch(Ip address, int maxPrefixLength) {
     throw new UnsupportedOperationException();
@@ -0,0 +1,89 @@
+package org.batfish.datamodel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+/** Tests of {@link RegexLineAutomaton} */
+public class RegexLineAutomatonTest {
+
+  private static final List<String> REGEXES =
+      ImmutableList.of(
+          "^$",
+          "_65000_",
+          "(,|\\{|\\}|^|$| )1(,|\\{|\\}|^|$| )",
+          "\\$|\\^",
+          "^2 [0-9]+$",
+          "^(3 )*4",
+          "\\{[^}]*5",
+          ".*6?:1{2,3}",
+          "^[\\d,]+$",
+          "(?:7|8)\\s\\S",
+          "9.?$",
+          "12|21",
+          "[a-c-]",
+          "x+?y");
+
+  private static int firstMatchByPatterns(List<String> regexes, String text) {
+    for (int i = 0; i < regexes.size(); i++) {
+      if (Pattern.compile(regexes.get(i)).matcher(text).find()) {
+        return i;
+      }
+    }
+    return RegexLineAutomaton.NO_MATCH;
+  }
+
+  private static String randomText(Random random) {
+    String alphabet = "0123456789 {},:-abxy$^_";
+    StringBuilder sb = new StringBuilder();
+    for (int i = random.nextInt(12); i > 0; i--) {
+      sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testSameAsPatterns() {
+    Random random = new Random(0);
+    for (int l = 0; l < 50; l++) {
+      List<String> regexes =
+          REGEXES
+              .stream()
+              .filter(regex -> random.nextInt(3) == 0)
+              .collect(ImmutableList.toImmutableList());
+      RegexLineAutomaton automaton = RegexLineAutomaton.forRegexes(regexes);
+      assertThat(automaton.isDeterministic(), equalTo(true));
+      for (int i = 0; i < 200; i++) {
+        String text = randomText(random);
+        assertThat(text, automaton.firstMatch(text), equalTo(firstMatchByPatterns(regexes, text)));
+      }
+    }
+  }
+
+  @Test
+  public void testUnsupportedRegexes() {
+    List<String> regexes = ImmutableList.of("^1 2", "(1) \\1", "\\b3");
+    RegexLineAutomaton automaton = RegexLineAutomaton.forRegexes(regexes);
+
+    assertThat(automaton.isDeterministic(), equalTo(false));
+    assertThat(automaton.firstMatch("4 1 1"), equalTo(1));
+    assertThat(automaton.firstMatch("1 2 3"), equalTo(0));
+    assertThat(automaton.firstMatch("4 3"), equalTo(2));
+    assertThat(automaton.firstMatch("43"), equalTo(RegexLineAutomaton.NO_MATCH));
+  }
+
+  @Test
+  public void testAppendNumber() {
+    RegexLineAutomaton automaton = RegexLineAutomaton.forRegexes(ImmutableList.of("^0:65535$"));
+
+    assertThat(automaton.scan().append(0L).append(':').append(65535L).finish(), equalTo(0));
+    assertThat(
+        automaton.scan().append(0L).append(':').append(6553L).finish(),
+        equalTo(RegexLineAutomaton.NO_MATCH));
+  }
+}
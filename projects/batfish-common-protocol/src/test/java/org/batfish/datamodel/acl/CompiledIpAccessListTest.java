@@ -0,0 +1,230 @@
+package org.batfish.datamodel.acl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.batfish.datamodel.AclIpSpace;
+import org.batfish.datamodel.Flow;
+import org.batfish.datamodel.HeaderSpace;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpAccessListLine;
+import org.batfish.datamodel.IpProtocol;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.IpSpaceReference;
+import org.batfish.datamodel.IpWildcard;
+import org.batfish.datamodel.LineAction;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.Protocol;
+import org.batfish.datamodel.State;
+import org.batfish.datamodel.SubRange;
+import org.batfish.datamodel.TcpFlags;
+import org.junit.Test;
+
+/** Checks that {@link CompiledIpAccessList} gives the same results as the interpreter. */
+public class CompiledIpAccessListTest {
+
+  private static final int FLOWS = 2000;
+
+  private static final List<IpProtocol> IP_PROTOCOLS =
+      ImmutableList.of(IpProtocol.TCP, IpProtocol.UDP, IpProtocol.ICMP);
+
+  private static final List<String> SRC_INTERFACES = ImmutableList.of("i1", "i2");
+
+  private static Ip randomIp(Random random) {
+    return new Ip((10L << 24) + random.nextInt(1 << 12));
+  }
+
+  private static IpSpace randomIpSpace(Random random) {
+    switch (random.nextInt(5)) {
+      case 0:
+        return new Prefix(randomIp(random), 20 + random.nextInt(13)).toIpSpace();
+      case 1:
+        // not a prefix, so left to the interpreter
+        return new IpWildcard(randomIp(random), new Ip(0x101L)).toIpSpace();
+      case 2:
+        return AclIpSpace.builder()
+            .thenRejecting(new Prefix(randomIp(random), 28).toIpSpace())
+            .thenPermitting(new Prefix(randomIp(random), 22).toIpSpace())
+            .build();
+      case 3:
+        return new IpSpaceReference(random.nextBoolean() ? "named" : "undefined");
+      default:
+        return randomIp(random).toIpSpace();
+    }
+  }
+
+  private static List<SubRange> randomRanges(Random random) {
+    int start = random.nextInt(8);
+    return ImmutableList.of(
+        new SubRange(start, start + random.nextInt(3)), new SubRange(random.nextInt(8)));
+  }
+
+  private static HeaderSpace randomHeaderSpace(Random random) {
+    HeaderSpace.Builder hs = HeaderSpace.builder();
+    for (int i = 1 + random.nextInt(3); i > 0; i--) {
+      switch (random.nextInt(14)) {
+        case 0:
+          hs.setDstIps(randomIpSpace(random));
+          break;
+        case 1:
+          hs.setNotDstIps(randomIpSpace(random));
+          break;
+        case 2:
+          hs.setSrcIps(randomIpSpace(random));
+          break;
+        case 3:
+          hs.setSrcOrDstIps(randomIpSpace(random));
+          break;
+        case 4:
+          hs.setDstPorts(randomRanges(random));
+          break;
+        case 5:
+          hs.setNotSrcPorts(randomRanges(random));
+          break;
+        case 6:
+          hs.setSrcOrDstPorts(randomRanges(random));
+          break;
+        case 7:
+          hs.setIpProtocols(ImmutableSet.of(IP_PROTOCOLS.get(random.nextInt(3))));
+          break;
+        case 8:
+          hs.setNotIpProtocols(ImmutableSet.of(IP_PROTOCOLS.get(random.nextInt(3))));
+          break;
+        case 9:
+          hs.setIcmpTypes(randomRanges(random)).setNotIcmpCodes(randomRanges(random));
+          break;
+        case 10:
+          hs.setDstProtocols(ImmutableSet.of(Protocol.SSH))
+              .setNotSrcProtocols(ImmutableSet.of(Protocol.DNS));
+          break;
+        case 11:
+          hs.setStates(ImmutableSet.of(random.nextBoolean() ? State.NEW : State.ESTABLISHED));
+          break;
+        case 12:
+          hs.setTcpFlags(ImmutableList.of(TcpFlags.builder().setUseSyn(true).setSyn(true).build()));
+          break;
+        default:
+          hs.setDscps(ImmutableSet.of(random.nextInt(2)));
+          break;
+      }
+    }
+    return hs.build();
+  }
+
+  private static AclLineMatchExpr randomExpr(Random random, int depth) {
+    int choice = depth > 1 ? 3 + random.nextInt(7) : random.nextInt(10);
+    switch (choice) {
+      case 0:
+        return new AndMatchExpr(
+            ImmutableList.of(randomExpr(random, depth + 1), randomExpr(random, depth + 1)));
+      case 1:
+        return new OrMatchExpr(
+            ImmutableList.of(randomExpr(random, depth + 1), randomExpr(random, depth + 1)));
+      case 2:
+        return new NotMatchExpr(randomExpr(random, depth + 1));
+      case 4:
+        return new MatchSrcInterface(ImmutableList.of(SRC_INTERFACES.get(random.nextInt(2))));
+      case 5:
+        return OriginatingFromDevice.INSTANCE;
+      case 6:
+        return new PermittedByAcl("referenced", random.nextBoolean());
+      default:
+        return new MatchHeaderSpace(randomHeaderSpace(random));
+    }
+  }
+
+  /** A random ACL, whose lines may refer to the ACL named referenced unless it is that ACL */
+  private static IpAccessList randomAcl(Random random, String name, int size) {
+    List<IpAccessListLine> lines = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      lines.add(
+          IpAccessListLine.builder()
+              .setAction(random.nextBoolean() ? LineAction.ACCEPT : LineAction.REJECT)
+              .setMatchCondition(
+                  name.equals("referenced")
+                      ? new MatchHeaderSpace(randomHeaderSpace(random))
+                      : randomExpr(random, 0))
+              .build());
+    }
+    return IpAccessList.builder().setName(name).setLines(lines).build();
+  }
+
+  private static Flow randomFlow(Random random) {
+    return Flow.builder()
+        .setIngressNode("node")
+        .setTag("tag")
+        .setDstIp(randomIp(random))
+        .setSrcIp(randomIp(random))
+        .setDstPort(random.nextInt(10))
+        .setSrcPort(random.nextInt(10))
+        .setIcmpType(random.nextInt(10))
+        .setIcmpCode(random.nextInt(10))
+        .setFragmentOffset(random.nextInt(10))
+        .setIpProtocol(IP_PROTOCOLS.get(random.nextInt(3)))
+        .setDscp(random.nextInt(2))
+        .setState(random.nextBoolean() ? State.NEW : State.ESTABLISHED)
+        .setTcpFlagsSyn(random.nextInt(2))
+        .build();
+  }
+
+  @Test
+  public void testSameAsInterpreter() {
+    Random random = new Random(0);
+    for (int l = 0; l < 50; l++) {
+      IpAccessList acl = randomAcl(random, "acl", 1 + random.nextInt(20));
+      Map<String, IpAccessList> acls =
+          ImmutableMap.of("acl", acl, "referenced", randomAcl(random, "referenced", 3));
+      Map<String, IpSpace> namedIpSpaces = ImmutableMap.of("named", randomIpSpace(random));
+      CompiledIpAccessList compiled = CompiledIpAccessList.compile(acl, acls, namedIpSpaces);
+      for (int i = 0; i < FLOWS; i++) {
+        Flow flow = randomFlow(random);
+        String srcInterface = random.nextInt(3) == 0 ? null : SRC_INTERFACES.get(i % 2);
+        assertThat(
+            flow.toString(),
+            compiled.filter(flow, srcInterface),
+            equalTo(acl.filter(flow, srcInterface, acls, namedIpSpaces)));
+      }
+    }
+  }
+
+  /** Lines are found through the destination IP index, in order. */
+  @Test
+  public void testDstIpIndex() {
+    IpAccessList acl =
+        IpAccessList.builder()
+            .setName("acl")
+            .setLines(
+                ImmutableList.of(
+                    IpAccessListLine.rejecting()
+                        .setMatchCondition(AclLineMatchExprs.matchDst(Prefix.parse("1.0.0.0/24")))
+                        .build(),
+                    IpAccessListLine.accepting()
+                        .setMatchCondition(AclLineMatchExprs.matchDst(Prefix.parse("1.0.0.0/8")))
+                        .build(),
+                    IpAccessListLine.rejecting()
+                        .setMatchCondition(new MatchSrcInterface(ImmutableList.of("i1")))
+                        .build()))
+            .build();
+    CompiledIpAccessList compiled =
+        CompiledIpAccessList.compile(acl, ImmutableMap.of(), ImmutableMap.of());
+    Flow.Builder fb = Flow.builder().setIngressNode("node").setTag("tag");
+
+    assertThat(
+        compiled.filter(fb.setDstIp(new Ip("1.0.0.1")).build(), null).getMatchLine(), equalTo(0));
+    assertThat(
+        compiled.filter(fb.setDstIp(new Ip("1.2.0.1")).build(), null).getMatchLine(), equalTo(1));
+    assertThat(
+        compiled.filter(fb.setDstIp(new Ip("2.0.0.0")).build(), "i1").getMatchLine(), equalTo(2));
+    assertThat(
+        compiled.filter(fb.setDstIp(new Ip("2.0.0.0")).build(), null).getMatchLine(),
+        equalTo(null));
+  }
+}
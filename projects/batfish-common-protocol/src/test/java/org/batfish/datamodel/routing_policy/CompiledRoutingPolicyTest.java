@@ -0,0 +1,248 @@
+package org.batfish.datamodel.routing_policy;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.batfish.datamodel.BgpRoute;
+import org.batfish.datamodel.CommunityList;
+import org.batfish.datamodel.CommunityListLine;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.LineAction;
+import org.batfish.datamodel.NetworkFactory;
+import org.batfish.datamodel.OriginType;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.RouteFilterLine;
+import org.batfish.datamodel.RouteFilterList;
+import org.batfish.datamodel.RoutingProtocol;
+import org.batfish.datamodel.SubRange;
+import org.batfish.datamodel.routing_policy.Environment.Direction;
+import org.batfish.datamodel.routing_policy.expr.BooleanExprs;
+import org.batfish.datamodel.routing_policy.expr.CallExpr;
+import org.batfish.datamodel.routing_policy.expr.Conjunction;
+import org.batfish.datamodel.routing_policy.expr.DestinationNetwork;
+import org.batfish.datamodel.routing_policy.expr.Disjunction;
+import org.batfish.datamodel.routing_policy.expr.InlineCommunitySet;
+import org.batfish.datamodel.routing_policy.expr.LiteralInt;
+import org.batfish.datamodel.routing_policy.expr.MatchCommunitySet;
+import org.batfish.datamodel.routing_policy.expr.MatchPrefixSet;
+import org.batfish.datamodel.routing_policy.expr.MatchProtocol;
+import org.batfish.datamodel.routing_policy.expr.NamedCommunitySet;
+import org.batfish.datamodel.routing_policy.expr.NamedPrefixSet;
+import org.batfish.datamodel.routing_policy.expr.Not;
+import org.batfish.datamodel.routing_policy.statement.AddCommunity;
+import org.batfish.datamodel.routing_policy.statement.CallStatement;
+import org.batfish.datamodel.routing_policy.statement.Comment;
+import org.batfish.datamodel.routing_policy.statement.If;
+import org.batfish.datamodel.routing_policy.statement.SetLocalPreference;
+import org.batfish.datamodel.routing_policy.statement.Statement;
+import org.batfish.datamodel.routing_policy.statement.Statements;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Checks that {@link CompiledRoutingPolicy} gives the same results as the interpreter. */
+public class CompiledRoutingPolicyTest {
+
+  private static final int ROUTES = 2000;
+
+  private Configuration _c;
+
+  private RoutingPolicy.Builder _rpb;
+
+  /** Evaluates {@code policy} on random routes, both compiled and interpreted. */
+  private void assertSameResults(RoutingPolicy policy) {
+    CompiledRoutingPolicy compiled = CompiledRoutingPolicy.compile(policy);
+    Random random = new Random(0);
+    for (int i = 0; i < ROUTES; i++) {
+      BgpRoute inputRoute = randomRoute(random);
+      BgpRoute.Builder interpretedOutput = outputRoute(inputRoute);
+      BgpRoute.Builder compiledOutput = outputRoute(inputRoute);
+      boolean interpreted = policy.process(environment(inputRoute, interpretedOutput));
+      boolean compiledResult = compiled.process(environment(inputRoute, compiledOutput));
+
+      assertThat(inputRoute.toString(), compiledResult, equalTo(interpreted));
+      BgpRoute interpretedRoute = interpretedOutput.build();
+      BgpRoute compiledRoute = compiledOutput.build();
+      assertThat(compiledRoute, equalTo(interpretedRoute));
+      assertThat(compiledRoute.getCommunities(), equalTo(interpretedRoute.getCommunities()));
+    }
+  }
+
+  private Environment environment(BgpRoute inputRoute, BgpRoute.Builder outputRoute) {
+    return Environment.builder(_c)
+        .setVrf(Configuration.DEFAULT_VRF_NAME)
+        .setOriginalRoute(inputRoute)
+        .setOutputRoute(outputRoute)
+        .setDirection(Direction.IN)
+        .build();
+  }
+
+  private static BgpRoute.Builder outputRoute(BgpRoute inputRoute) {
+    return new BgpRoute.Builder()
+        .setNetwork(inputRoute.getNetwork())
+        .setCommunities(new TreeSet<>(inputRoute.getCommunities()))
+        .setLocalPreference(inputRoute.getLocalPreference())
+        .setOriginatorIp(inputRoute.getOriginatorIp())
+        .setOriginType(inputRoute.getOriginType())
+        .setProtocol(inputRoute.getProtocol())
+        .setReceivedFromIp(inputRoute.getReceivedFromIp());
+  }
+
+  private static BgpRoute randomRoute(Random random) {
+    int prefixLength = 8 + random.nextInt(25);
+    Ip ip = new Ip((10L << 24) + random.nextInt(1 << 24));
+    SortedSet<Long> communities = new TreeSet<>();
+    for (int i = random.nextInt(3); i > 0; i--) {
+      communities.add((long) (1 + random.nextInt(3)) << 16 | random.nextInt(4));
+    }
+    return new BgpRoute.Builder()
+        .setNetwork(new Prefix(ip, prefixLength))
+        .setCommunities(communities)
+        .setLocalPreference(BgpRoute.DEFAULT_LOCAL_PREFERENCE)
+        .setOriginatorIp(new Ip("1.1.1.1"))
+        .setOriginType(OriginType.IGP)
+        .setProtocol(random.nextBoolean() ? RoutingProtocol.BGP : RoutingProtocol.IBGP)
+        .setReceivedFromIp(new Ip("2.2.2.2"))
+        .build();
+  }
+
+  private RoutingPolicy policy(String name, Statement... statements) {
+    return _rpb.setName(name).setStatements(ImmutableList.copyOf(statements)).build();
+  }
+
+  @Before
+  public void setup() {
+    NetworkFactory nf = new NetworkFactory();
+    _c = nf.configurationBuilder().setConfigurationFormat(ConfigurationFormat.CISCO_IOS).build();
+    nf.vrfBuilder().setOwner(_c).setName(Configuration.DEFAULT_VRF_NAME).build();
+    _rpb = nf.routingPolicyBuilder().setOwner(_c);
+
+    RouteFilterList prefixList = new RouteFilterList("pl");
+    prefixList.addLine(
+        new RouteFilterLine(LineAction.REJECT, Prefix.parse("10.1.0.0/16"), new SubRange(16, 32)));
+    prefixList.addLine(
+        new RouteFilterLine(LineAction.ACCEPT, Prefix.parse("10.0.0.0/8"), new SubRange(8, 20)));
+    prefixList.addLine(
+        new RouteFilterLine(LineAction.ACCEPT, Prefix.parse("10.128.0.0/9"), new SubRange(24, 28)));
+    _c.getRouteFilterLists().put(prefixList.getName(), prefixList);
+
+    CommunityList communityList =
+        new CommunityList(
+            "cl",
+            ImmutableList.of(
+                new CommunityListLine(LineAction.REJECT, "^2:0$"),
+                new CommunityListLine(LineAction.ACCEPT, "^2:")),
+            false);
+    _c.getCommunityLists().put(communityList.getName(), communityList);
+  }
+
+  /** A Cisco-style route-map with prefix and community list matches. */
+  @Test
+  public void testRouteMap() {
+    assertSameResults(
+        policy(
+            "rm",
+            new Comment("route-map rm"),
+            new If(
+                new MatchPrefixSet(new DestinationNetwork(), new NamedPrefixSet("pl")),
+                ImmutableList.of(
+                    new SetLocalPreference(new LiteralInt(300)),
+                    Statements.ExitAccept.toStaticStatement()),
+                ImmutableList.of(
+                    new If(
+                        new MatchCommunitySet(new NamedCommunitySet("cl")),
+                        ImmutableList.of(
+                            new AddCommunity(new InlineCommunitySet(ImmutableSortedSet.of(7L))),
+                            Statements.ExitAccept.toStaticStatement()),
+                        ImmutableList.of(Statements.ExitReject.toStaticStatement()))))));
+  }
+
+  /** A Juniper-style policy chain calling other policies. */
+  @Test
+  public void testCalledPolicies() {
+    policy(
+        "term1",
+        new If(
+            new Conjunction(
+                ImmutableList.of(
+                    new MatchProtocol(RoutingProtocol.BGP),
+                    new Not(new MatchCommunitySet(new NamedCommunitySet("cl"))))),
+            ImmutableList.of(
+                new SetLocalPreference(new LiteralInt(50)),
+                Statements.ReturnTrue.toStaticStatement())),
+        Statements.ReturnLocalDefaultAction.toStaticStatement());
+    policy(
+        "term2",
+        new If(
+            new Disjunction(
+                ImmutableList.of(
+                    new MatchPrefixSet(new DestinationNetwork(), new NamedPrefixSet("pl")),
+                    new MatchPrefixSet(new DestinationNetwork(), new NamedPrefixSet("undefined")))),
+            ImmutableList.of(Statements.ReturnFalse.toStaticStatement())),
+        new CallStatement("term1"));
+    assertSameResults(
+        policy(
+            "chain",
+            Statements.SetDefaultActionReject.toStaticStatement(),
+            new If(
+                BooleanExprs.TRUE,
+                ImmutableList.of(Statements.SetLocalDefaultActionAccept.toStaticStatement())),
+            new If(
+                new Not(BooleanExprs.TRUE),
+                ImmutableList.of(Statements.ExitReject.toStaticStatement()),
+                ImmutableList.of(new Comment("always"))),
+            new If(
+                new CallExpr("term2"),
+                ImmutableList.of(Statements.ExitAccept.toStaticStatement()),
+                ImmutableList.of(new CallStatement("missing")))));
+  }
+
+  /** A policy that calls itself falls back to the interpreter for the recursive call. */
+  @Test
+  public void testRecursivePolicy() {
+    assertSameResults(
+        policy(
+            "recursive",
+            new If(
+                new Conjunction(
+                    ImmutableList.of(
+                        BooleanExprs.CALL_EXPR_CONTEXT, new MatchProtocol(RoutingProtocol.BGP))),
+                ImmutableList.of(Statements.ReturnTrue.toStaticStatement())),
+            new If(
+                BooleanExprs.CALL_EXPR_CONTEXT,
+                ImmutableList.of(Statements.ReturnFalse.toStaticStatement())),
+            new If(
+                new CallExpr("recursive"),
+                ImmutableList.of(Statements.ExitAccept.toStaticStatement()),
+                ImmutableList.of(Statements.ExitReject.toStaticStatement()))));
+  }
+
+  @Test
+  public void testRouteFilterListMatcher() {
+    Random random = new Random(0);
+    for (int l = 0; l < 20; l++) {
+      RouteFilterList list = new RouteFilterList("random");
+      for (int i = random.nextInt(20); i > 0; i--) {
+        int length = random.nextInt(25);
+        int min = length + random.nextInt(33 - length);
+        int max = min + random.nextInt(33 - min);
+        list.addLine(
+            new RouteFilterLine(
+                random.nextBoolean() ? LineAction.ACCEPT : LineAction.REJECT,
+                new Prefix(new Ip((10L << 24) + random.nextInt(1 << 24)), length),
+                new SubRange(min, max)));
+      }
+      RouteFilterListMatcher matcher = RouteFilterListMatcher.create(list);
+      for (int i = 0; i < ROUTES; i++) {
+        Prefix prefix = randomRoute(random).getNetwork();
+        assertThat(prefix.toString(), matcher.permits(prefix), equalTo(list.permits(prefix)));
+      }
+    }
+  }
+}
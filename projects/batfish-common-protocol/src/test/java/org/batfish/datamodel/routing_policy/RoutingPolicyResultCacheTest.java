@@ -0,0 +1,136 @@
+package org.batfish.datamodel.routing_policy;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.batfish.datamodel.BgpRoute;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.NetworkFactory;
+import org.batfish.datamodel.OriginType;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.RoutingProtocol;
+import org.batfish.datamodel.routing_policy.Environment.Direction;
+import org.batfish.datamodel.routing_policy.expr.LiteralInt;
+import org.batfish.datamodel.routing_policy.expr.PeerAddressNextHop;
+import org.batfish.datamodel.routing_policy.statement.SetLocalPreference;
+import org.batfish.datamodel.routing_policy.statement.SetNextHop;
+import org.batfish.datamodel.routing_policy.statement.Statement;
+import org.batfish.datamodel.routing_policy.statement.Statements;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link RoutingPolicyResultCache}. */
+public class RoutingPolicyResultCacheTest {
+
+  private static final Ip PEER1 = new Ip("10.0.0.1");
+
+  private static final Ip PEER2 = new Ip("10.0.0.2");
+
+  private RoutingPolicyResultCache _cache;
+
+  private BgpRoute _inputRoute;
+
+  private RoutingPolicy.Builder _rpb;
+
+  private static BgpRoute.Builder outputRoute() {
+    return new BgpRoute.Builder()
+        .setNetwork(Prefix.parse("1.1.1.0/24"))
+        .setOriginatorIp(new Ip("2.2.2.2"))
+        .setOriginType(OriginType.IGP)
+        .setProtocol(RoutingProtocol.BGP)
+        .setReceivedFromIp(new Ip("3.3.3.3"));
+  }
+
+  private BgpRoute process(RoutingPolicy policy, BgpRoute.Builder outputRoute, Ip peerAddress) {
+    return _cache.process(
+        policy,
+        _inputRoute,
+        outputRoute,
+        peerAddress,
+        null,
+        Configuration.DEFAULT_VRF_NAME,
+        Direction.OUT);
+  }
+
+  private RoutingPolicy policy(Statement... statements) {
+    return _rpb.setStatements(ImmutableList.copyOf(statements)).build();
+  }
+
+  @Before
+  public void setup() {
+    NetworkFactory nf = new NetworkFactory();
+    Configuration c =
+        nf.configurationBuilder().setConfigurationFormat(ConfigurationFormat.CISCO_IOS).build();
+    nf.vrfBuilder().setOwner(c).setName(Configuration.DEFAULT_VRF_NAME).build();
+    _rpb = nf.routingPolicyBuilder().setOwner(c);
+    _cache = new RoutingPolicyResultCache();
+    _inputRoute = outputRoute().build();
+  }
+
+  @Test
+  public void testPeerIndependentResultSharedByPeers() {
+    RoutingPolicy policy =
+        policy(
+            new SetLocalPreference(new LiteralInt(200)), Statements.ExitAccept.toStaticStatement());
+
+    BgpRoute route1 = process(policy, outputRoute(), PEER1);
+    BgpRoute route2 = process(policy, outputRoute(), PEER2);
+
+    assertThat(route1.getLocalPreference(), equalTo(200));
+    assertThat(route2, equalTo(route1));
+    assertThat(_cache.getMisses(), equalTo(1L));
+    assertThat(_cache.getHits(), equalTo(1L));
+  }
+
+  @Test
+  public void testPeerDependentResultNotShared() {
+    RoutingPolicy policy =
+        policy(
+            new SetNextHop(PeerAddressNextHop.getInstance(), false),
+            Statements.ExitAccept.toStaticStatement());
+
+    assertThat(process(policy, outputRoute(), PEER1).getNextHopIp(), equalTo(PEER1));
+    assertThat(process(policy, outputRoute(), PEER2).getNextHopIp(), equalTo(PEER2));
+    assertThat(process(policy, outputRoute(), PEER1).getNextHopIp(), equalTo(PEER1));
+    assertThat(_cache.getMisses(), equalTo(2L));
+    assertThat(_cache.getHits(), equalTo(1L));
+  }
+
+  @Test
+  public void testRejectionMemoized() {
+    RoutingPolicy policy = policy(Statements.ExitReject.toStaticStatement());
+
+    assertThat(process(policy, outputRoute(), PEER1), nullValue());
+    assertThat(process(policy, outputRoute(), PEER2), nullValue());
+    assertThat(_cache.getHits(), equalTo(1L));
+  }
+
+  @Test
+  public void testDifferentOutputAttributesEvaluated() {
+    RoutingPolicy policy =
+        policy(
+            new SetLocalPreference(new LiteralInt(200)), Statements.ExitAccept.toStaticStatement());
+
+    process(policy, outputRoute(), PEER1);
+    BgpRoute route = process(policy, outputRoute().setMetric(5L), PEER1);
+
+    assertThat(route.getMetric(), equalTo(5L));
+    assertThat(_cache.getMisses(), equalTo(2L));
+  }
+
+  @Test
+  public void testClear() {
+    RoutingPolicy policy = policy(Statements.ExitAccept.toStaticStatement());
+
+    process(policy, outputRoute(), PEER1);
+    _cache.clear();
+    process(policy, outputRoute(), PEER1);
+
+    assertThat(_cache.getMisses(), equalTo(2L));
+    assertThat(_cache.getHits(), equalTo(0L));
+  }
+}
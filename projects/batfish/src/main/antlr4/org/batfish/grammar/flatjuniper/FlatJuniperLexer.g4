@@ -6,10 +6,47 @@ options {
 
 @members {
 boolean enableIPV6_ADDRESS = true;
-boolean enableIP_ADDRESS = true;
-boolean enableDEC = true;
+// final, since the DFA caching below assumes predicates on these never change
+final boolean enableIP_ADDRESS = true;
+final boolean enableDEC = true;
 boolean _markWildcards = false;
 
+/*
+ * ANTLR does not cache DFA transitions computed through predicates, and nearly every token here
+ * passes one. Apart from isPrefix(), which reads the input, the predicates only read
+ * enableIP_ADDRESS, which is final, and enableIPV6_ADDRESS, which is changed by actions and so is
+ * fixed while a token is matched. So transitions are cached in a separate DFA for each value of
+ * enableIPV6_ADDRESS, except those through IP_PREFIX.
+ */
+private static final class Dfas {
+   private static final java.util.Set<Integer> INPUT_DEPENDENT_RULES =
+      java.util.Collections.singleton(java.util.Arrays.asList(ruleNames).indexOf("IP_PREFIX"));
+   private static final DFA[] IPV6_ENABLED =
+      org.batfish.grammar.PredicateCachingLexerATNSimulator.newDecisionToDFA(_ATN);
+   private static final DFA[] IPV6_DISABLED =
+      org.batfish.grammar.PredicateCachingLexerATNSimulator.newDecisionToDFA(_ATN);
+}
+
+private LexerATNSimulator _ipv6EnabledInterpreter;
+private LexerATNSimulator _ipv6DisabledInterpreter;
+
+@Override
+public Token nextToken() {
+   if (_ipv6EnabledInterpreter == null) {
+      _ipv6EnabledInterpreter = new org.batfish.grammar.PredicateCachingLexerATNSimulator(
+         this, _ATN, Dfas.IPV6_ENABLED, _sharedContextCache, Dfas.INPUT_DEPENDENT_RULES);
+      _ipv6DisabledInterpreter = new org.batfish.grammar.PredicateCachingLexerATNSimulator(
+         this, _ATN, Dfas.IPV6_DISABLED, _sharedContextCache, Dfas.INPUT_DEPENDENT_RULES);
+   }
+   LexerATNSimulator interpreter =
+      enableIPV6_ADDRESS ? _ipv6EnabledInterpreter : _ipv6DisabledInterpreter;
+   if (interpreter != getInterpreter()) {
+      interpreter.copyState(getInterpreter());
+      setInterpreter(interpreter);
+   }
+   return super.nextToken();
+}
+
 public boolean isPrefix() {
    char nextChar = (char)this.getInputStream().LA(1);
    if(Character.isDigit(nextChar) || nextChar == '.'){
@@ -0,0 +1,288 @@
+package org.batfish.bddreachability;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.math.LongMath;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import org.batfish.common.BatfishException;
+import org.batfish.common.util.CommonUtil;
+import org.batfish.common.util.NonRecursiveSupplier;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.HeaderSpace;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpAccessListLine;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.LineAction;
+import org.batfish.datamodel.Protocol;
+import org.batfish.datamodel.SubRange;
+import org.batfish.datamodel.acl.MatchHeaderSpace;
+import org.batfish.datamodel.acl.MatchSrcInterface;
+import org.batfish.datamodel.acl.OriginatingFromDevice;
+import org.batfish.job.BatfishJob;
+import org.batfish.symbolic.bdd.AclLineMatchExprToBDD;
+import org.batfish.symbolic.bdd.BDDInteger;
+import org.batfish.symbolic.bdd.BDDOps;
+import org.batfish.symbolic.bdd.BDDPacket;
+import org.batfish.z3.AclIdentifier;
+import org.batfish.z3.AclLine;
+import org.batfish.z3.AclLineMatchExprToBooleanExpr;
+import org.batfish.z3.Field;
+import org.batfish.z3.state.visitors.DefaultTransitionGenerator;
+
+/**
+ * Finds the unreachable lines of one or more ACLs with BDDs, walking each ACL once. A line is
+ * unreachable if every packet it matches is matched by an earlier line. For each unreachable line,
+ * the job also finds whether it matches any packet at all and, if so, the earliest line that
+ * matches all of its packets. Packets are encoded as in the NoD queries that answer the same
+ * questions, so both give the same answers.
+ *
+ * <p>Each job has a {@link BDDPacket} of its own, so jobs can run in parallel.
+ */
+public class BDDAclLineReachabilityJob extends BatfishJob<BDDAclLineReachabilityResult> {
+
+  /**
+   * Converts match conditions to BDDs the way {@link AclLineMatchExprToBooleanExpr} converts them
+   * for NoD, including the source interface and the header space fields that {@link
+   * AclLineMatchExprToBDD} leaves out.
+   */
+  private static final class LineMatchExprToBDD extends AclLineMatchExprToBDD {
+
+    private final BDDOps _bddOps;
+
+    private final BDDPacket _packet;
+
+    private final BDDInteger _packetLength;
+
+    private final BDDInteger _srcInterface;
+
+    private final Map<String, Integer> _srcInterfaceValues;
+
+    private LineMatchExprToBDD(
+        BDDPacket packet,
+        Map<String, Supplier<BDD>> aclEnv,
+        Map<String, IpSpace> namedIpSpaces,
+        BDDInteger srcInterface,
+        Map<String, Integer> srcInterfaceValues,
+        BDDInteger packetLength) {
+      super(packet.getFactory(), packet, aclEnv, namedIpSpaces);
+      _bddOps = new BDDOps(packet.getFactory());
+      _packet = packet;
+      _packetLength = packetLength;
+      _srcInterface = srcInterface;
+      _srcInterfaceValues = srcInterfaceValues;
+    }
+
+    private @Nullable BDD toBDD(Set<Protocol> protocols, boolean useSrc, boolean useDst) {
+      if (protocols == null || protocols.isEmpty()) {
+        return null;
+      }
+      return _bddOps.or(
+          protocols
+              .stream()
+              .map(
+                  protocol -> {
+                    BDD ipProtocol =
+                        _packet.getIpProtocol().value(protocol.getIpProtocol().number());
+                    Integer port = protocol.getPort();
+                    if (port == null) {
+                      return ipProtocol;
+                    }
+                    return ipProtocol.and(
+                        _bddOps.or(
+                            useSrc ? _packet.getSrcPort().value(port) : null,
+                            useDst ? _packet.getDstPort().value(port) : null));
+                  })
+              .collect(ImmutableList.toImmutableList()));
+    }
+
+    private @Nullable BDD toBDD(Set<SubRange> packetLengths) {
+      if (packetLengths == null || packetLengths.isEmpty()) {
+        return null;
+      }
+      return _bddOps.or(
+          packetLengths
+              .stream()
+              .map(
+                  range ->
+                      _packetLength.geq(range.getStart()).and(_packetLength.leq(range.getEnd())))
+              .collect(ImmutableList.toImmutableList()));
+    }
+
+    @Override
+    public BDD visitMatchHeaderSpace(MatchHeaderSpace matchHeaderSpace) {
+      HeaderSpace headerSpace = matchHeaderSpace.getHeaderspace();
+      BDD match =
+          _bddOps.and(
+              super.visitMatchHeaderSpace(matchHeaderSpace),
+              toBDD(headerSpace.getDstProtocols(), false, true),
+              BDDOps.negateIfNonNull(toBDD(headerSpace.getNotDstProtocols(), false, true)),
+              toBDD(headerSpace.getSrcProtocols(), true, false),
+              BDDOps.negateIfNonNull(toBDD(headerSpace.getNotSrcProtocols(), true, false)),
+              toBDD(headerSpace.getSrcOrDstProtocols(), true, true),
+              toBDD(headerSpace.getPacketLengths()),
+              BDDOps.negateIfNonNull(toBDD(headerSpace.getNotPacketLengths())));
+      return headerSpace.getNegate() ? match.not() : match;
+    }
+
+    @Override
+    public BDD visitMatchSrcInterface(MatchSrcInterface matchSrcInterface) {
+      return _bddOps.or(
+          matchSrcInterface
+              .getSrcInterfaces()
+              .stream()
+              .map(_srcInterfaceValues::get)
+              .filter(Objects::nonNull)
+              .map(_srcInterface::value)
+              .collect(ImmutableList.toImmutableList()));
+    }
+
+    @Override
+    public BDD visitOriginatingFromDevice(OriginatingFromDevice originatingFromDevice) {
+      return _srcInterface.value(DefaultTransitionGenerator.NO_SOURCE_INTERFACE);
+    }
+  }
+
+  private final Map<AclIdentifier, Configuration> _configs;
+
+  /**
+   * @param configs For each ACL to check, a configuration holding it and all the ACLs it refers to.
+   *     Each configuration has exactly the interfaces the ACL may see packets from.
+   */
+  public BDDAclLineReachabilityJob(Settings settings, Map<AclIdentifier, Configuration> configs) {
+    super(settings);
+    _configs = ImmutableSortedMap.copyOf(configs);
+  }
+
+  /** Returns the size of the source interface field NoD uses for {@code numInterfaces}. */
+  private static int sourceInterfaceBits(int numInterfaces) {
+    return Math.max(LongMath.log2(numInterfaces + 1, RoundingMode.CEILING), 1);
+  }
+
+  /** Returns the BDD of the packets {@code acl} permits. */
+  private static BDD permits(IpAccessList acl, BDDFactory factory, AclLineMatchExprToBDD toBDD) {
+    BDD bdd = factory.zero();
+    List<IpAccessListLine> lines = new ArrayList<>(acl.getLines());
+    Collections.reverse(lines);
+    for (IpAccessListLine line : lines) {
+      BDD actionBDD = line.getAction() == LineAction.ACCEPT ? factory.one() : factory.zero();
+      bdd = toBDD.visit(line.getMatchCondition()).ite(actionBDD, bdd);
+    }
+    return bdd;
+  }
+
+  @Override
+  public BDDAclLineReachabilityResult call() {
+    long startTime = System.currentTimeMillis();
+    try {
+      BDDPacket packet = new BDDPacket();
+      int maxInterfaces =
+          _configs.values().stream().mapToInt(c -> c.getInterfaces().size()).max().orElse(0);
+      BDDInteger srcInterface =
+          packet.allocateBDDInteger("srcInterface", sourceInterfaceBits(maxInterfaces), false);
+      BDDInteger packetLength =
+          packet.allocateBDDInteger("packetLength", Field.PACKET_LENGTH.getSize(), false);
+      Map<AclLine, UnreachableAclLine> unreachableLines = new TreeMap<>();
+      _configs.forEach(
+          (aclIdentifier, c) ->
+              findUnreachableLines(
+                  aclIdentifier, c, packet, srcInterface, packetLength, unreachableLines));
+      return new BDDAclLineReachabilityResult(unreachableLines, _logger.getHistory(), startTime);
+    } catch (BatfishException e) {
+      return new BDDAclLineReachabilityResult(
+          startTime,
+          _logger.getHistory(),
+          new BatfishException("Error finding unreachable ACL lines with BDDs", e));
+    }
+  }
+
+  private void findUnreachableLines(
+      AclIdentifier aclIdentifier,
+      Configuration c,
+      BDDPacket packet,
+      BDDInteger srcInterface,
+      BDDInteger packetLength,
+      Map<AclLine, UnreachableAclLine> unreachableLines) {
+    String hostname = aclIdentifier.getHostname();
+    String aclName = aclIdentifier.getAclName();
+    List<String> interfaces = ImmutableList.sortedCopyOf(c.getInterfaces().keySet());
+    ImmutableMap.Builder<String, Integer> srcInterfaceValues = ImmutableMap.builder();
+    CommonUtil.forEachWithIndex(
+        interfaces, (index, iface) -> srcInterfaceValues.put(iface, index + 1));
+    Map<String, Integer> srcInterfaceValuesMap = srcInterfaceValues.build();
+
+    // use laziness to tie the recursive knot, as BDDAcl does.
+    Map<String, Supplier<BDD>> aclEnv = new HashMap<>();
+    Supplier<AclLineMatchExprToBDD> toBDD =
+        () ->
+            new LineMatchExprToBDD(
+                packet, aclEnv, c.getIpSpaces(), srcInterface, srcInterfaceValuesMap, packetLength);
+    c.getIpAccessLists()
+        .forEach(
+            (name, acl) ->
+                aclEnv.put(
+                    name,
+                    Suppliers.memoize(
+                        new NonRecursiveSupplier<>(
+                            () -> permits(acl, packet.getFactory(), toBDD.get())))));
+    AclLineMatchExprToBDD lineToBDD = toBDD.get();
+
+    // the source interface values NoD can represent for this ACL, which may be fewer than ours
+    BDD packets = srcInterface.leq((1L << sourceInterfaceBits(interfaces.size())) - 1);
+
+    List<IpAccessListLine> lines = c.getIpAccessLists().get(aclName).getLines();
+    List<BDD> lineBDDs = new ArrayList<>(lines.size());
+    BDD unmatched = packets.id();
+    for (int lineNum = 0; lineNum < lines.size(); lineNum++) {
+      BDD lineBDD = lineToBDD.visit(lines.get(lineNum).getMatchCondition()).and(packets);
+      // BDDs are canonical, so the line is unreachable iff it leaves the unmatched packets as they
+      // are
+      BDD notLineBDD = lineBDD.not();
+      BDD stillUnmatched = unmatched.and(notLineBDD);
+      notLineBDD.free();
+      if (stillUnmatched.equals(unmatched)) {
+        stillUnmatched.free();
+        UnreachableAclLine unreachableLine;
+        if (lineBDD.isZero()) {
+          unreachableLine = UnreachableAclLine.unmatchable();
+        } else {
+          Integer blockingLine = null;
+          for (int earlierLineNum = 0; earlierLineNum < lineNum; earlierLineNum++) {
+            BDD covered = lineBDD.imp(lineBDDs.get(earlierLineNum));
+            boolean blocking = covered.isOne();
+            covered.free();
+            if (blocking) {
+              blockingLine = earlierLineNum;
+              break;
+            }
+          }
+          unreachableLine = UnreachableAclLine.blocked(blockingLine);
+        }
+        unreachableLines.put(new AclLine(hostname, aclName, lineNum), unreachableLine);
+      } else {
+        unmatched.free();
+        unmatched = stillUnmatched;
+      }
+      lineBDDs.add(lineBDD);
+    }
+
+    // the packet is shared by the other ACLs of the job, so let go of this one's nodes now
+    lineBDDs.forEach(BDD::free);
+    packets.free();
+    unmatched.free();
+  }
+}
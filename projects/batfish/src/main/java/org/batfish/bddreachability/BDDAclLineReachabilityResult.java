@@ -0,0 +1,51 @@
+package org.batfish.bddreachability;
+
+import java.util.Map;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.BatfishLogger.BatfishLoggerHistory;
+import org.batfish.datamodel.answers.BDDAclLineReachabilityAnswerElement;
+import org.batfish.job.BatfishJobResult;
+import org.batfish.z3.AclLine;
+
+public class BDDAclLineReachabilityResult
+    extends BatfishJobResult<
+        Map<AclLine, UnreachableAclLine>, BDDAclLineReachabilityAnswerElement> {
+
+  private final Map<AclLine, UnreachableAclLine> _unreachableLines;
+
+  public BDDAclLineReachabilityResult(
+      long startTime, BatfishLoggerHistory history, Throwable failureCause) {
+    super(System.currentTimeMillis() - startTime, history, failureCause);
+    _unreachableLines = null;
+  }
+
+  public BDDAclLineReachabilityResult(
+      Map<AclLine, UnreachableAclLine> unreachableLines,
+      BatfishLoggerHistory history,
+      long startTime) {
+    super(System.currentTimeMillis() - startTime, history);
+    _unreachableLines = unreachableLines;
+  }
+
+  @Override
+  public void appendHistory(BatfishLogger logger) {
+    logger.append(_history);
+  }
+
+  @Override
+  public void applyTo(
+      Map<AclLine, UnreachableAclLine> output,
+      BatfishLogger logger,
+      BDDAclLineReachabilityAnswerElement answerElement) {
+    output.putAll(_unreachableLines);
+  }
+
+  @Override
+  public String toString() {
+    if (_unreachableLines == null) {
+      return "<FAILED>";
+    } else {
+      return "<UNREACHABLE: " + _unreachableLines.size() + ">";
+    }
+  }
+}
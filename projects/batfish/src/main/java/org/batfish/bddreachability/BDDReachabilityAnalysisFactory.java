@@ -3,6 +3,7 @@ package org.batfish.bddreachability;
 import static org.batfish.common.util.CommonUtil.toImmutableMap;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Streams;
 import java.util.Collection;
 import java.util.HashMap;
@@ -24,6 +25,7 @@ import org.batfish.specifier.IpSpaceAssignment;
 import org.batfish.specifier.Location;
 import org.batfish.specifier.LocationVisitor;
 import org.batfish.symbolic.bdd.BDDAcl;
+import org.batfish.symbolic.bdd.BDDInteger;
 import org.batfish.symbolic.bdd.BDDPacket;
 import org.batfish.symbolic.bdd.IpSpaceToBDD;
 import org.batfish.z3.expr.StateExpr;
@@ -113,7 +115,7 @@ public final class BDDReachabilityAnalysisFactory {
     _bddPacket = packet;
     _configs = configs;
     _forwardingAnalysis = forwardingAnalysis;
-    _dstIpSpaceToBDD = new IpSpaceToBDD(_bddPacket.getFactory(), _bddPacket.getDstIp());
+    _dstIpSpaceToBDD = ipSpaceToBDD(_bddPacket.getDstIp());
 
     Map<String, Map<String, BDDAcl>> bddAcls = computeBDDAcls(_bddPacket, configs);
     _aclDenyBDDs = computeAclDenyBDDs(bddAcls);
@@ -137,6 +139,14 @@ public final class BDDReachabilityAnalysisFactory {
                     postStateEntry -> postStateEntry.getValue().getConstraint()));
   }
 
+  /*
+   * The forwarding analysis and its IpSpaces are shared by all questions on a snapshot, so their
+   * BDDs are cached for later analyses that use the same packet.
+   */
+  private IpSpaceToBDD ipSpaceToBDD(BDDInteger var) {
+    return new IpSpaceToBDD(_bddPacket.getFactory(), var, ImmutableMap.of(), _bddPacket.getCache());
+  }
+
   private static Map<String, Map<String, BDDAcl>> computeBDDAcls(
       BDDPacket bddPacket, Map<String, Configuration> configs) {
     return toImmutableMap(
@@ -663,8 +673,8 @@ public final class BDDReachabilityAnalysisFactory {
   public BDDReachabilityAnalysis bddReachabilityAnalysis(
       IpSpaceAssignment srcIpSpaceAssignment, IpSpace dstIpSpace) {
     Map<StateExpr, BDD> roots = new HashMap<>();
-    IpSpaceToBDD srcIpSpaceToBDD = new IpSpaceToBDD(_bddPacket.getFactory(), _bddPacket.getSrcIp());
-    IpSpaceToBDD dstIpSpaceToBDD = new IpSpaceToBDD(_bddPacket.getFactory(), _bddPacket.getDstIp());
+    IpSpaceToBDD srcIpSpaceToBDD = ipSpaceToBDD(_bddPacket.getSrcIp());
+    IpSpaceToBDD dstIpSpaceToBDD = ipSpaceToBDD(_bddPacket.getDstIp());
     BDD dstIpSpaceBDD = dstIpSpace.accept(dstIpSpaceToBDD);
 
     for (IpSpaceAssignment.Entry entry : srcIpSpaceAssignment.getEntries()) {
@@ -0,0 +1,63 @@
+package org.batfish.bddreachability;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/** Why a line of an ACL is never the first to match a packet. */
+public final class UnreachableAclLine {
+
+  @Nullable private final Integer _blockingLine;
+
+  private final boolean _unmatchable;
+
+  private UnreachableAclLine(boolean unmatchable, @Nullable Integer blockingLine) {
+    _blockingLine = blockingLine;
+    _unmatchable = unmatchable;
+  }
+
+  /**
+   * A line that matches some packet, each of which is matched by an earlier line.
+   *
+   * @param blockingLine The earliest line that matches every packet the line matches, or {@code
+   *     null} if it takes more than one earlier line to cover it
+   */
+  public static UnreachableAclLine blocked(@Nullable Integer blockingLine) {
+    return new UnreachableAclLine(false, blockingLine);
+  }
+
+  /** A line that matches no packet at all. */
+  public static UnreachableAclLine unmatchable() {
+    return new UnreachableAclLine(true, null);
+  }
+
+  @Nullable
+  public Integer getBlockingLine() {
+    return _blockingLine;
+  }
+
+  public boolean isUnmatchable() {
+    return _unmatchable;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof UnreachableAclLine)) {
+      return false;
+    }
+    UnreachableAclLine other = (UnreachableAclLine) o;
+    return _unmatchable == other._unmatchable && Objects.equals(_blockingLine, other._blockingLine);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(_blockingLine, _unmatchable);
+  }
+
+  @Override
+  public String toString() {
+    return _unmatchable ? "<UNMATCHABLE>" : "<BLOCKED BY: " + _blockingLine + ">";
+  }
+}
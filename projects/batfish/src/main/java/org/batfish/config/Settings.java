@@ -414,8 +414,20 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     }
   }
 
+  private static final String ARG_BDD_NODE_CACHE_SIZE = "bddnodecachesize";
+
+  private static final String ARG_BDD_NODE_TABLE_SIZE = "bddnodetablesize";
+
+  private static final String ARG_CACHE_BUDGET_MB = "cachebudgetmb";
+
+  private static final String ARG_CACHE_SPILL_DIR = "cachespilldir";
+
   public static final String ARG_CHECK_BGP_REACHABILITY = "checkbgpsessionreachability";
 
+  private static final String ARG_COMPACT_SERIALIZATION = "compactserialization";
+
+  public static final String ARG_COMPILE_ROUTING_POLICIES = "compileroutingpolicies";
+
   public static final String ARG_COORDINATOR_HOST = "coordinatorhost";
 
   public static final String ARG_COORDINATOR_POOL_PORT = "coordinatorpoolport";
@@ -454,8 +466,12 @@ public final class Settings extends BaseSettings implements GrammarSettings {
 
   private static final String ARG_JOBS = "jobs";
 
+  private static final String ARG_LAZY_CONFIGURATIONS = "lazyconfigurations";
+
   private static final String ARG_LOG_TEE = "logtee";
 
+  private static final String ARG_MAX_CONCURRENT_TASKS = "maxconcurrenttasks";
+
   private static final String ARG_MAX_PARSER_CONTEXT_LINES = "maxparsercontextlines";
 
   private static final String ARG_MAX_PARSER_CONTEXT_TOKENS = "maxparsercontexttokens";
@@ -464,10 +480,18 @@ public final class Settings extends BaseSettings implements GrammarSettings {
 
   private static final String ARG_MAX_RUNTIME_MS = "maxruntime";
 
+  private static final String ARG_MIN_FREE_HEAP_PER_TASK_MB = "minfreeheappertaskmb";
+
+  private static final String ARG_NOD_ACL_REACHABILITY = "nodaclreachability";
+
   private static final String ARG_NO_SHUFFLE = "noshuffle";
 
   public static final String ARG_PARENT_PID = "parentpid";
 
+  private static final String ARG_PARSE_CACHE_DIR = "parsecachedir";
+
+  private static final String ARG_PARSER_WARM_UP_DIR = "parserwarmupdir";
+
   private static final String ARG_PRINT_PARSE_TREES = "ppt";
 
   private static final String ARG_PRINT_PARSE_TREE_LINE_NUMS = "printparsetreelinenums";
@@ -621,10 +645,31 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     return _baseTestrigSettings;
   }
 
+  public int getBddNodeCacheSize() {
+    return _config.getInt(ARG_BDD_NODE_CACHE_SIZE);
+  }
+
+  public int getBddNodeTableSize() {
+    return _config.getInt(ARG_BDD_NODE_TABLE_SIZE);
+  }
+
+  public int getCacheBudgetMb() {
+    return _config.getInt(ARG_CACHE_BUDGET_MB);
+  }
+
+  @Nullable
+  public Path getCacheSpillDir() {
+    return nullablePath(_config.getString(ARG_CACHE_SPILL_DIR));
+  }
+
   public boolean getCompileEnvironment() {
     return _config.getBoolean(BfConsts.COMMAND_COMPILE_DIFF_ENVIRONMENT);
   }
 
+  public boolean getCompactSerialization() {
+    return _config.getBoolean(ARG_COMPACT_SERIALIZATION);
+  }
+
   public String getContainer() {
     return _config.getString(BfConsts.ARG_CONTAINER);
   }
@@ -734,6 +779,10 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     return _config.getInt(ARG_JOBS);
   }
 
+  public boolean getLazyConfigurations() {
+    return _config.getBoolean(ARG_LAZY_CONFIGURATIONS);
+  }
+
   @Nullable
   public String getLogFile() {
     if (getTaskId() == null) {
@@ -767,6 +816,20 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     return _config.getInt(ARG_PARENT_PID);
   }
 
+  @Nullable
+  public Path getParseCacheDir() {
+    return nullablePath(_config.getString(ARG_PARSE_CACHE_DIR));
+  }
+
+  @Nullable
+  public Path getParserWarmUpDir() {
+    return nullablePath(_config.getString(ARG_PARSER_WARM_UP_DIR));
+  }
+
+  public int getMaxConcurrentTasks() {
+    return _config.getInt(ARG_MAX_CONCURRENT_TASKS);
+  }
+
   @Override
   public int getMaxParserContextLines() {
     return _config.getInt(ARG_MAX_PARSER_CONTEXT_LINES);
@@ -786,6 +849,15 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     return _config.getInt(ARG_MAX_RUNTIME_MS);
   }
 
+  public int getMinFreeHeapPerTaskMb() {
+    return _config.getInt(ARG_MIN_FREE_HEAP_PER_TASK_MB);
+  }
+
+  /** Whether to find unreachable ACL lines with NoD (Z3) rather than with BDDs. */
+  public boolean getNodAclReachability() {
+    return _config.getBoolean(ARG_NOD_ACL_REACHABILITY);
+  }
+
   public String getOutputEnvironmentName() {
     return _config.getString(BfConsts.ARG_OUTPUT_ENV);
   }
@@ -1022,18 +1094,30 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     setDefaultProperty(ARG_IGNORE_UNSUPPORTED, true);
     setDefaultProperty(ARG_IGNORE_UNKNOWN, true);
     setDefaultProperty(ARG_JOBS, Integer.MAX_VALUE);
+    setDefaultProperty(ARG_LAZY_CONFIGURATIONS, false);
     setDefaultProperty(ARG_LOG_TEE, false);
     setDefaultProperty(BfConsts.ARG_LOG_LEVEL, "debug");
+    setDefaultProperty(ARG_MAX_CONCURRENT_TASKS, 1);
     setDefaultProperty(ARG_MAX_PARSER_CONTEXT_LINES, 10);
     setDefaultProperty(ARG_MAX_PARSER_CONTEXT_TOKENS, 10);
     setDefaultProperty(ARG_MAX_PARSE_TREE_PRINT_LENGTH, 0);
     setDefaultProperty(ARG_MAX_RUNTIME_MS, 0);
+    setDefaultProperty(ARG_MIN_FREE_HEAP_PER_TASK_MB, 0);
+    setDefaultProperty(ARG_BDD_NODE_CACHE_SIZE, 16000);
+    setDefaultProperty(ARG_BDD_NODE_TABLE_SIZE, 1000000);
+    setDefaultProperty(ARG_CACHE_BUDGET_MB, 0);
+    setDefaultProperty(ARG_CACHE_SPILL_DIR, null);
     setDefaultProperty(ARG_CHECK_BGP_REACHABILITY, true);
+    setDefaultProperty(ARG_COMPACT_SERIALIZATION, false);
+    setDefaultProperty(ARG_COMPILE_ROUTING_POLICIES, false);
+    setDefaultProperty(ARG_NOD_ACL_REACHABILITY, false);
     setDefaultProperty(ARG_NO_SHUFFLE, false);
     setDefaultProperty(BfConsts.ARG_OUTPUT_ENV, null);
     setDefaultProperty(BfConsts.ARG_PEDANTIC_SUPPRESS, false);
     setDefaultProperty(BfConsts.ARG_PRETTY_PRINT_ANSWER, false);
     setDefaultProperty(ARG_PARENT_PID, -1);
+    setDefaultProperty(ARG_PARSE_CACHE_DIR, null);
+    setDefaultProperty(ARG_PARSER_WARM_UP_DIR, null);
     setDefaultProperty(ARG_PRINT_PARSE_TREES, false);
     setDefaultProperty(ARG_PRINT_PARSE_TREE_LINE_NUMS, false);
     setDefaultProperty(ARG_PRINT_SYMMETRIC_EDGES, false);
@@ -1114,10 +1198,40 @@ public final class Settings extends BaseSettings implements GrammarSettings {
         "Set to true to record all iterations, including during oscillation. Ignores max recorded "
             + "iterations value.");
 
+    addOption(
+        ARG_BDD_NODE_CACHE_SIZE,
+        "initial size of the operation cache of the BDD packet kept for each snapshot",
+        ARGNAME_NUMBER);
+
+    addOption(
+        ARG_BDD_NODE_TABLE_SIZE,
+        "initial number of nodes in the node table of the BDD packet kept for each snapshot",
+        ARGNAME_NUMBER);
+
+    addOption(
+        ARG_CACHE_BUDGET_MB,
+        "estimated heap in MB that cached data planes and configurations may retain (default: "
+            + "half of max heap)",
+        ARGNAME_NUMBER);
+
+    addOption(
+        ARG_CACHE_SPILL_DIR,
+        "directory to which data planes and configurations evicted from the cache are spilled",
+        ARGNAME_PATH);
+
     addBooleanOption(
         ARG_CHECK_BGP_REACHABILITY,
         "whether to check BGP session reachability during data plane computation");
 
+    addBooleanOption(
+        ARG_COMPACT_SERIALIZATION,
+        "store serialized objects in compact binary format instead of standard java serialization");
+
+    addBooleanOption(
+        ARG_COMPILE_ROUTING_POLICIES,
+        "whether to compile routing policies instead of interpreting them during data plane "
+            + "computation");
+
     addOption(BfConsts.ARG_CONTAINER, "name of container", ARGNAME_NAME);
 
     addOption(
@@ -1213,6 +1327,10 @@ public final class Settings extends BaseSettings implements GrammarSettings {
 
     addOption(ARG_JOBS, "number of threads used by parallel jobs executor", ARGNAME_NUMBER);
 
+    addBooleanOption(
+        ARG_LAZY_CONFIGURATIONS,
+        "load each serialized configuration from disk only when it is first accessed");
+
     addOption(BfConsts.ARG_LOG_LEVEL, "log level", ARGNAME_LOG_LEVEL);
 
     addBooleanOption(ARG_HISTOGRAM, "build histogram of unimplemented features");
@@ -1237,12 +1355,36 @@ public final class Settings extends BaseSettings implements GrammarSettings {
 
     addOption(ARG_MAX_RUNTIME_MS, "maximum time (in ms) to allow a task to run", ARGNAME_NUMBER);
 
+    addOption(
+        ARG_MAX_CONCURRENT_TASKS,
+        "maximum number of tasks a worker service runs at the same time",
+        ARGNAME_NUMBER);
+
+    addOption(
+        ARG_MIN_FREE_HEAP_PER_TASK_MB,
+        "free heap (in MB) a worker service requires before accepting another task",
+        ARGNAME_NUMBER);
+
+    addBooleanOption(
+        ARG_NOD_ACL_REACHABILITY, "use NoD (Z3) rather than BDDs to find unreachable ACL lines");
+
     addBooleanOption(ARG_NO_SHUFFLE, "do not shuffle parallel jobs");
 
     addOption(BfConsts.ARG_OUTPUT_ENV, "name of output environment", ARGNAME_NAME);
 
     addOption(ARG_PARENT_PID, "name of parent PID", ARGNAME_NUMBER);
 
+    addOption(
+        ARG_PARSE_CACHE_DIR,
+        "directory in which parsed configurations are cached by content, so that unchanged files "
+            + "are not parsed again",
+        ARGNAME_PATH);
+
+    addOption(
+        ARG_PARSER_WARM_UP_DIR,
+        "directory of configuration files a worker service parses on startup to warm up parsers",
+        ARGNAME_PATH);
+
     addBooleanOption(BfConsts.ARG_PEDANTIC_SUPPRESS, "suppresses pedantic warnings");
 
     addBooleanOption(BfConsts.ARG_PRETTY_PRINT_ANSWER, "pretty print answer");
@@ -1382,8 +1524,14 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     getIntOptionValue(BfConsts.ARG_BDP_MAX_RECORDED_ITERATIONS);
     getBooleanOptionValue(BfConsts.ARG_BDP_PRINT_ALL_ITERATIONS);
     getBooleanOptionValue(BfConsts.ARG_BDP_PRINT_OSCILLATING_ITERATIONS);
+    getIntOptionValue(ARG_BDD_NODE_CACHE_SIZE);
+    getIntOptionValue(ARG_BDD_NODE_TABLE_SIZE);
+    getIntOptionValue(ARG_CACHE_BUDGET_MB);
+    getPathOptionValue(ARG_CACHE_SPILL_DIR);
     getBooleanOptionValue(ARG_CHECK_BGP_REACHABILITY);
     getBooleanOptionValue(BfConsts.COMMAND_COMPILE_DIFF_ENVIRONMENT);
+    getBooleanOptionValue(ARG_COMPACT_SERIALIZATION);
+    getBooleanOptionValue(ARG_COMPILE_ROUTING_POLICIES);
     getStringOptionValue(BfConsts.ARG_CONTAINER);
     getStringOptionValue(ARG_COORDINATOR_HOST);
     getIntOptionValue(ARG_COORDINATOR_POOL_PORT);
@@ -1412,13 +1560,18 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     getBooleanOptionValue(ARG_IGNORE_UNSUPPORTED);
     getBooleanOptionValue(BfConsts.COMMAND_INIT_INFO);
     getIntOptionValue(ARG_JOBS);
+    getBooleanOptionValue(ARG_LAZY_CONFIGURATIONS);
     getBooleanOptionValue(ARG_LOG_TEE);
+    getIntOptionValue(ARG_MAX_CONCURRENT_TASKS);
     getIntOptionValue(ARG_MAX_PARSER_CONTEXT_LINES);
     getIntOptionValue(ARG_MAX_PARSER_CONTEXT_TOKENS);
     getIntOptionValue(ARG_MAX_PARSE_TREE_PRINT_LENGTH);
     getIntOptionValue(ARG_MAX_RUNTIME_MS);
+    getIntOptionValue(ARG_MIN_FREE_HEAP_PER_TASK_MB);
     getStringOptionValue(BfConsts.ARG_OUTPUT_ENV);
     getIntOptionValue(ARG_PARENT_PID);
+    getPathOptionValue(ARG_PARSE_CACHE_DIR);
+    getPathOptionValue(ARG_PARSER_WARM_UP_DIR);
     getBooleanOptionValue(BfConsts.ARG_PEDANTIC_SUPPRESS);
     getBooleanOptionValue(BfConsts.ARG_PRETTY_PRINT_ANSWER);
     getBooleanOptionValue(ARG_PRINT_PARSE_TREES);
@@ -1436,6 +1589,7 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     getStringOptionValue(ARG_SERVICE_HOST);
     getStringOptionValue(ARG_SERVICE_NAME);
     getIntOptionValue(ARG_SERVICE_PORT);
+    getBooleanOptionValue(ARG_NOD_ACL_REACHABILITY);
     getBooleanOptionValue(ARG_NO_SHUFFLE);
     getBooleanOptionValue(ARG_DISABLE_Z3_SIMPLIFICATION);
     getBooleanOptionValue(BfConsts.ARG_SSL_DISABLE);
@@ -1519,6 +1673,10 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     _config.setProperty(BfConsts.COMMAND_INIT_INFO, initInfo);
   }
 
+  public void setLazyConfigurations(boolean lazyConfigurations) {
+    _config.setProperty(ARG_LAZY_CONFIGURATIONS, lazyConfigurations);
+  }
+
   public void setLogger(BatfishLogger logger) {
     _logger = logger;
   }
@@ -1539,6 +1697,15 @@ public final class Settings extends BaseSettings implements GrammarSettings {
     _config.setProperty(ARG_MAX_RUNTIME_MS, runtimeMs);
   }
 
+  public void setNodAclReachability(boolean nodAclReachability) {
+    _config.setProperty(ARG_NOD_ACL_REACHABILITY, nodAclReachability);
+  }
+
+  public void setParseCacheDir(@Nullable Path parseCacheDir) {
+    _config.setProperty(
+        ARG_PARSE_CACHE_DIR, parseCacheDir == null ? null : parseCacheDir.toString());
+  }
+
   @Override
   public void setPrintParseTree(boolean printParseTree) {
     _config.setProperty(ARG_PRINT_PARSE_TREES, printParseTree);
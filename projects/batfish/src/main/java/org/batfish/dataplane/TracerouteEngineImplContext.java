@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
@@ -42,6 +43,7 @@ import org.batfish.datamodel.IpSpace;
 import org.batfish.datamodel.LineAction;
 import org.batfish.datamodel.Route;
 import org.batfish.datamodel.SourceNat;
+import org.batfish.datamodel.acl.CompiledIpAccessList;
 import org.batfish.datamodel.collections.NodeInterfacePair;
 
 class TracerouteEngineImplContext {
@@ -92,6 +94,169 @@ class TracerouteEngineImplContext {
     }
   }
 
+  /** A filter with the ACLs and IP spaces it is evaluated with */
+  private static final class AclKey {
+
+    private final Map<String, IpAccessList> _aclDefinitions;
+    private final IpAccessList _filter;
+    private final int _hashCode;
+    private final NavigableMap<String, IpSpace> _namedIpSpaces;
+
+    private AclKey(
+        IpAccessList filter,
+        Map<String, IpAccessList> aclDefinitions,
+        NavigableMap<String, IpSpace> namedIpSpaces) {
+      _aclDefinitions = aclDefinitions;
+      _filter = filter;
+      _namedIpSpaces = namedIpSpaces;
+      _hashCode =
+          Objects.hash(
+              System.identityHashCode(filter),
+              System.identityHashCode(aclDefinitions),
+              System.identityHashCode(namedIpSpaces));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof AclKey)) {
+        return false;
+      }
+      AclKey other = (AclKey) o;
+      return _filter == other._filter
+          && _aclDefinitions == other._aclDefinitions
+          && _namedIpSpaces == other._namedIpSpaces;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /** The result of a filter for the packet headers of a flow, shared by all flows in the batch */
+  private static final class FilterKey {
+
+    private final AclKey _acl;
+    private final int _hashCode;
+    private final Flow _headers;
+    @Nullable private final String _srcInterface;
+
+    private FilterKey(AclKey acl, Flow flow, @Nullable String srcInterface) {
+      _acl = acl;
+      // filters only match packet headers, so flows that differ elsewhere share results
+      _headers = new Flow.Builder(flow).setIngressNode("").setIngressVrf("").setTag("").build();
+      _srcInterface = srcInterface;
+      _hashCode = Objects.hash(acl, _headers, srcInterface);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof FilterKey)) {
+        return false;
+      }
+      FilterKey other = (FilterKey) o;
+      return _hashCode == other._hashCode
+          && _acl.equals(other._acl)
+          && Objects.equals(_srcInterface, other._srcInterface)
+          && _headers.equals(other._headers);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /** A FIB lookup of a destination IP in a VRF of a node */
+  private static final class ForwardingKey {
+
+    private final Ip _dstIp;
+    private final int _hashCode;
+    private final String _node;
+    private final String _vrf;
+
+    private ForwardingKey(String node, String vrf, Ip dstIp) {
+      _dstIp = dstIp;
+      _node = node;
+      _vrf = vrf;
+      _hashCode = Objects.hash(node, vrf, dstIp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof ForwardingKey)) {
+        return false;
+      }
+      ForwardingKey other = (ForwardingKey) o;
+      return _hashCode == other._hashCode
+          && _dstIp.equals(other._dstIp)
+          && _node.equals(other._node)
+          && _vrf.equals(other._vrf);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /** An IP space containment check, keyed by the identity of the IP spaces */
+  private static final class IpSpaceKey {
+
+    private final int _hashCode;
+    private final Ip _ip;
+    private final IpSpace _ipSpace;
+    private final Map<String, IpSpace> _namedIpSpaces;
+
+    private IpSpaceKey(IpSpace ipSpace, Ip ip, Map<String, IpSpace> namedIpSpaces) {
+      _ip = ip;
+      _ipSpace = ipSpace;
+      _namedIpSpaces = namedIpSpaces;
+      _hashCode =
+          Objects.hash(
+              System.identityHashCode(ipSpace), ip, System.identityHashCode(namedIpSpaces));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof IpSpaceKey)) {
+        return false;
+      }
+      IpSpaceKey other = (IpSpaceKey) o;
+      return _hashCode == other._hashCode
+          && _ipSpace == other._ipSpace
+          && _namedIpSpaces == other._namedIpSpaces
+          && _ip.equals(other._ip);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /** A next-hop interface chosen by the FIB, with the routes that lead to it */
+  private static final class NextHop {
+
+    @Nullable private final Ip _finalNextHopIp;
+    private final String _interfaceName;
+    private final SortedSet<String> _routes;
+
+    private NextHop(String interfaceName, SortedSet<String> routes, @Nullable Ip finalNextHopIp) {
+      _finalNextHopIp = finalNextHopIp;
+      _interfaceName = interfaceName;
+      _routes = routes;
+    }
+  }
+
   private static final String TRACEROUTE_INGRESS_NODE_INTERFACE_NAME =
       "traceroute_source_interface";
 
@@ -169,11 +334,15 @@ class TracerouteEngineImplContext {
 
   private final Map<String, Configuration> _configurations;
   private final DataPlane _dataPlane;
+  private final Map<AclKey, CompiledIpAccessList> _compiledFilters;
   private final Map<String, Map<String, Fib>> _fibs;
+  private final Map<FilterKey, FilterResult> _filterResults;
   private final Set<Flow> _flows;
   private final Map<Flow, Set<FlowTrace>> _flowTraces;
   private final ForwardingAnalysis _forwardingAnalysis;
   private final boolean _ignoreAcls;
+  private final Map<IpSpaceKey, Boolean> _ipSpaceContains;
+  private final Map<ForwardingKey, List<NextHop>> _nextHops;
 
   TracerouteEngineImplContext(
       DataPlane dataPlane,
@@ -184,9 +353,13 @@ class TracerouteEngineImplContext {
     _dataPlane = dataPlane;
     _flows = flows;
     _flowTraces = new ConcurrentHashMap<>();
+    _compiledFilters = new ConcurrentHashMap<>();
     _fibs = fibs;
+    _filterResults = new ConcurrentHashMap<>();
     _ignoreAcls = ignoreAcls;
     _forwardingAnalysis = _dataPlane.getForwardingAnalysis();
+    _ipSpaceContains = new ConcurrentHashMap<>();
+    _nextHops = new ConcurrentHashMap<>();
   }
 
   private void collectFlowTraces(
@@ -225,44 +398,14 @@ class TracerouteEngineImplContext {
         srcInterface = lastHop.getEdge().getInt2();
         vrfName = currentConfiguration.getInterfaces().get(srcInterface).getVrf().getName();
       }
-      Map<AbstractRoute, Map<String, Map<Ip, Set<AbstractRoute>>>> nextHopInterfacesByRoute =
-          _fibs.get(currentNodeName).get(vrfName).getNextHopInterfacesByRoute(dstIp);
-      Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfacesWithRoutes =
-          _fibs.get(currentNodeName).get(vrfName).getNextHopInterfaces(dstIp);
-      if (!nextHopInterfacesWithRoutes.isEmpty()) {
-        for (String nextHopInterfaceName : nextHopInterfacesWithRoutes.keySet()) {
-          // SortedSet<String> routesForThisNextHopInterface = new
-          // TreeSet<>(
-          // nextHopInterfacesWithRoutes.get(nextHopInterfaceName)
-          // .stream().map(ar -> ar.toString())
-          // .collect(Collectors.toSet()));
-          SortedSet<String> routesForThisNextHopInterface = new TreeSet<>();
-          Ip finalNextHopIp = null;
-          for (Entry<AbstractRoute, Map<String, Map<Ip, Set<AbstractRoute>>>> e :
-              nextHopInterfacesByRoute.entrySet()) {
-            AbstractRoute routeCandidate = e.getKey();
-            Map<String, Map<Ip, Set<AbstractRoute>>> routeCandidateNextHopInterfaces = e.getValue();
-            if (routeCandidateNextHopInterfaces.containsKey(nextHopInterfaceName)) {
-              Ip nextHopIp = routeCandidate.getNextHopIp();
-              if (!nextHopIp.equals(Route.UNSET_ROUTE_NEXT_HOP_IP)) {
-                Set<Ip> finalNextHopIps =
-                    routeCandidateNextHopInterfaces.get(nextHopInterfaceName).keySet();
-                if (finalNextHopIps.size() > 1) {
-                  throw new BatfishException(
-                      "Can not currently handle multiple final next hop ips across multiple "
-                          + "routes leading to one next hop interface");
-                }
-                Ip newFinalNextHopIp = finalNextHopIps.iterator().next();
-                if (finalNextHopIp != null && !newFinalNextHopIp.equals(finalNextHopIp)) {
-                  throw new BatfishException(
-                      "Can not currently handle multiple final next hop ips for same next hop "
-                          + "interface");
-                }
-                finalNextHopIp = newFinalNextHopIp;
-              }
-              routesForThisNextHopInterface.add(routeCandidate + "_fnhip:" + finalNextHopIp);
-            }
-          }
+      List<NextHop> nextHops =
+          _nextHops.computeIfAbsent(
+              new ForwardingKey(currentNodeName, vrfName, dstIp), this::computeNextHops);
+      if (!nextHops.isEmpty()) {
+        for (NextHop nextHop : nextHops) {
+          String nextHopInterfaceName = nextHop._interfaceName;
+          SortedSet<String> routesForThisNextHopInterface = nextHop._routes;
+          Ip finalNextHopIp = nextHop._finalNextHopIp;
           NodeInterfacePair nextHopInterface =
               new NodeInterfacePair(currentNodeName, nextHopInterfaceName);
           if (nextHopInterfaceName.equals(Interface.NULL_INTERFACE_NAME)) {
@@ -372,6 +515,80 @@ class TracerouteEngineImplContext {
     }
   }
 
+  /**
+   * Computes the next-hop interfaces of the FIB lookup for {@code key}, in FIB order, with the
+   * routes leading to each interface and the final next-hop IP they resolve to.
+   */
+  private List<NextHop> computeNextHops(ForwardingKey key) {
+    Fib fib = _fibs.get(key._node).get(key._vrf);
+    Map<AbstractRoute, Map<String, Map<Ip, Set<AbstractRoute>>>> nextHopInterfacesByRoute =
+        fib.getNextHopInterfacesByRoute(key._dstIp);
+    Map<String, Map<Ip, Set<AbstractRoute>>> nextHopInterfacesWithRoutes =
+        fib.getNextHopInterfaces(key._dstIp);
+    ImmutableList.Builder<NextHop> nextHops = ImmutableList.builder();
+    for (String nextHopInterfaceName : nextHopInterfacesWithRoutes.keySet()) {
+      SortedSet<String> routesForThisNextHopInterface = new TreeSet<>();
+      Ip finalNextHopIp = null;
+      for (Entry<AbstractRoute, Map<String, Map<Ip, Set<AbstractRoute>>>> e :
+          nextHopInterfacesByRoute.entrySet()) {
+        AbstractRoute routeCandidate = e.getKey();
+        Map<String, Map<Ip, Set<AbstractRoute>>> routeCandidateNextHopInterfaces = e.getValue();
+        if (routeCandidateNextHopInterfaces.containsKey(nextHopInterfaceName)) {
+          Ip nextHopIp = routeCandidate.getNextHopIp();
+          if (!nextHopIp.equals(Route.UNSET_ROUTE_NEXT_HOP_IP)) {
+            Set<Ip> finalNextHopIps =
+                routeCandidateNextHopInterfaces.get(nextHopInterfaceName).keySet();
+            if (finalNextHopIps.size() > 1) {
+              throw new BatfishException(
+                  "Can not currently handle multiple final next hop ips across multiple "
+                      + "routes leading to one next hop interface");
+            }
+            Ip newFinalNextHopIp = finalNextHopIps.iterator().next();
+            if (finalNextHopIp != null && !newFinalNextHopIp.equals(finalNextHopIp)) {
+              throw new BatfishException(
+                  "Can not currently handle multiple final next hop ips for same next hop "
+                      + "interface");
+            }
+            finalNextHopIp = newFinalNextHopIp;
+          }
+          routesForThisNextHopInterface.add(routeCandidate + "_fnhip:" + finalNextHopIp);
+        }
+      }
+      nextHops.add(
+          new NextHop(
+              nextHopInterfaceName,
+              Collections.unmodifiableSortedSet(routesForThisNextHopInterface),
+              finalNextHopIp));
+    }
+    return nextHops.build();
+  }
+
+  /** Whether {@code ipSpace} contains {@code ip}, memoized for all flows */
+  private boolean containsIp(IpSpace ipSpace, Ip ip, Map<String, IpSpace> namedIpSpaces) {
+    return _ipSpaceContains.computeIfAbsent(
+        new IpSpaceKey(ipSpace, ip, namedIpSpaces), key -> ipSpace.containsIp(ip, namedIpSpaces));
+  }
+
+  /**
+   * Applies {@code filter} to {@code flow}, memoized for all flows with the same headers. Each
+   * filter is compiled once per batch.
+   */
+  private FilterResult filter(
+      IpAccessList filter,
+      Flow flow,
+      @Nullable String srcInterface,
+      Map<String, IpAccessList> aclDefinitions,
+      NavigableMap<String, IpSpace> namedIpSpaces) {
+    AclKey acl = new AclKey(filter, aclDefinitions, namedIpSpaces);
+    return _filterResults.computeIfAbsent(
+        new FilterKey(acl, flow, srcInterface),
+        key ->
+            _compiledFilters
+                .computeIfAbsent(
+                    acl, k -> CompiledIpAccessList.compile(filter, aclDefinitions, namedIpSpaces))
+                .filter(flow, srcInterface));
+  }
+
   private boolean flowTraceFilterHelper(
       @Nullable String srcInterface,
       IpAccessList filter,
@@ -380,7 +597,8 @@ class TracerouteEngineImplContext {
       TransmissionContext transmissionContext) {
     boolean out = disposition == FlowDisposition.DENIED_OUT;
     FilterResult outResult =
-        filter.filter(
+        filter(
+            filter,
             transmissionContext._transformedFlow,
             srcInterface,
             transmissionContext._aclDefinitions,
@@ -498,11 +716,10 @@ class TracerouteEngineImplContext {
       @Nullable Ip arpIp) {
     // do nothing if this neighbor would not have replied to ARP (excluding injection case)
     if (arpIp != null
-        && !_forwardingAnalysis
-            .getArpReplies()
-            .get(edge.getNode2())
-            .get(edge.getInt2())
-            .containsIp(arpIp, _configurations.get(edge.getNode2()).getIpSpaces())) {
+        && !containsIp(
+            _forwardingAnalysis.getArpReplies().get(edge.getNode2()).get(edge.getInt2()),
+            arpIp,
+            _configurations.get(edge.getNode2()).getIpSpaces())) {
       return;
     }
 
@@ -633,12 +850,14 @@ class TracerouteEngineImplContext {
     Ip arpIp = finalNextHopIp != null ? finalNextHopIp : dstIp;
     Configuration c = _configurations.get(transmissionContext._currentNodeName);
     // halt processing and add neighbor-unreachable trace if no one would respond
-    if (_forwardingAnalysis
-        .getNeighborUnreachable()
-        .get(transmissionContext._currentNodeName)
-        .get(c.getInterfaces().get(nextHopInterfaceName).getVrfName())
-        .get(nextHopInterfaceName)
-        .containsIp(arpIp, c.getIpSpaces())) {
+    if (containsIp(
+        _forwardingAnalysis
+            .getNeighborUnreachable()
+            .get(transmissionContext._currentNodeName)
+            .get(c.getInterfaces().get(nextHopInterfaceName).getVrfName())
+            .get(nextHopInterfaceName),
+        arpIp,
+        c.getIpSpaces())) {
       FlowTrace trace = neighborUnreachableTrace(nextHopInterface, transmissionContext);
       transmissionContext._flowTraces.add(trace);
       return false;
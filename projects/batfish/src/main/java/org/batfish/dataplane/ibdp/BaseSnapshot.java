@@ -0,0 +1,312 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.common.util.CommonUtil.computeIpNodeOwners;
+import static org.batfish.common.util.CommonUtil.initBgpTopology;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.graph.EndpointPair;
+import com.google.common.graph.Graph;
+import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.MutableGraph;
+import com.google.common.graph.ValueGraph;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import javax.annotation.Nonnull;
+import org.batfish.common.BatfishException;
+import org.batfish.datamodel.BgpActivePeerConfig;
+import org.batfish.datamodel.BgpAdvertisement;
+import org.batfish.datamodel.BgpPeerConfigId;
+import org.batfish.datamodel.BgpProcess;
+import org.batfish.datamodel.BgpSessionProperties;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.Edge;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.Topology;
+import org.batfish.datamodel.Vrf;
+import org.batfish.dataplane.rib.RibDelta;
+
+/**
+ * The converged state of a base snapshot, used to seed the data plane computation of a snapshot
+ * forked from it.
+ *
+ * <p>Nodes exchange routes during iBDP only across IGP adjacencies and BGP sessions. Any node that
+ * can exchange routes (in either snapshot, directly or transitively) with a modified node may see
+ * its routes change, and must be recomputed; so must the peers of BGP sessions whose reachability a
+ * modified node may affect. All other nodes are guaranteed to converge to the same state as in the
+ * base snapshot, so their converged state can be copied. A change therefore only reaches the part
+ * of a connected network that shares a routing protocol with it: e.g., routers connected by links
+ * but routing only with static routes are never affected by each other's changes.
+ *
+ * <p>Reuse is per node: every node in the routing domain of a change is recomputed from scratch,
+ * even if its routes turn out not to change. So the cost of a fork is proportional to the routing
+ * domains its changes touch, not to the routes that actually change; in a network running one IGP
+ * everywhere, every node is recomputed. Seeding recomputed nodes with their converged base RIBs and
+ * propagating only {@link RibDelta}s would need iBDP to withdraw base routes that are no longer
+ * supported, and to exchange routes with nodes that are not recomputed, neither of which it does.
+ */
+final class BaseSnapshot {
+
+  private final Map<String, Configuration> _configurations;
+
+  private final IncrementalDataPlane _dataPlane;
+
+  private final Set<BgpAdvertisement> _externalAdverts;
+
+  /** Digest of each configuration of the base snapshot, computed once on first use. */
+  private final Supplier<Map<String, HashCode>> _configurationDigests;
+
+  private final Topology _topology;
+
+  BaseSnapshot(
+      @Nonnull Map<String, Configuration> configurations,
+      @Nonnull Topology topology,
+      @Nonnull Set<BgpAdvertisement> externalAdverts,
+      @Nonnull IncrementalDataPlane dataPlane) {
+    _configurations = ImmutableMap.copyOf(configurations);
+    _topology = topology;
+    _externalAdverts = ImmutableSet.copyOf(externalAdverts);
+    _dataPlane = dataPlane;
+    _configurationDigests =
+        Suppliers.memoize(
+            () -> ImmutableMap.copyOf(Maps.transformValues(_configurations, BaseSnapshot::digest)));
+  }
+
+  /**
+   * Returns a digest of the serialized form of {@code configuration}, so that configurations can be
+   * compared without keeping their serialized forms.
+   */
+  @Nonnull
+  private static HashCode digest(Configuration configuration) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    try (ObjectOutputStream out = new ObjectOutputStream(Funnels.asOutputStream(hasher))) {
+      out.writeObject(configuration);
+    } catch (IOException e) {
+      throw new BatfishException(
+          "Failed to digest configuration " + configuration.getHostname(), e);
+    }
+    return hasher.hash();
+  }
+
+  @Nonnull
+  IncrementalDataPlane getDataPlane() {
+    return _dataPlane;
+  }
+
+  /**
+   * Compute the set of nodes in the forked snapshot whose data plane state cannot be copied from
+   * the base snapshot.
+   *
+   * @param configurations configurations of the forked snapshot, keyed by hostname
+   * @param topology layer-3 topology of the forked snapshot
+   * @param externalAdverts external BGP advertisements of the forked snapshot
+   * @param checkBgpSessionReachability whether BGP sessions are only established between peers that
+   *     can reach each other
+   * @return the hostnames of nodes that must be recomputed
+   */
+  @Nonnull
+  SortedSet<String> computeAffectedNodes(
+      Map<String, Configuration> configurations,
+      Topology topology,
+      Set<BgpAdvertisement> externalAdverts,
+      boolean checkBgpSessionReachability) {
+    Map<Ip, Set<String>> ipOwners = computeIpNodeOwners(configurations, true);
+    Map<Ip, Set<String>> baseIpOwners = computeIpNodeOwners(_configurations, true);
+    Set<String> seeds = new HashSet<>();
+
+    // Nodes that are new or whose configuration has changed in any way
+    Map<String, HashCode> baseDigests = _configurationDigests.get();
+    for (Entry<String, Configuration> e : configurations.entrySet()) {
+      Configuration baseConfiguration = _configurations.get(e.getKey());
+      if (baseConfiguration == null
+          || !_dataPlane.getNodes().containsKey(e.getKey())
+          || (baseConfiguration != e.getValue()
+              && !baseDigests.get(e.getKey()).equals(digest(e.getValue())))) {
+        seeds.add(e.getKey());
+      }
+    }
+
+    // Endpoints of added or removed layer-3 edges
+    for (Edge edge : Sets.symmetricDifference(topology.getEdges(), _topology.getEdges())) {
+      seeds.add(edge.getNode1());
+      seeds.add(edge.getNode2());
+    }
+
+    // Receivers of added or removed external BGP advertisements
+    for (BgpAdvertisement advert : Sets.symmetricDifference(externalAdverts, _externalAdverts)) {
+      seeds.add(advert.getDstNode());
+    }
+
+    // Nodes whose BGP peers moved into or out of the network
+    for (Configuration c : configurations.values()) {
+      for (Vrf vrf : c.getVrfs().values()) {
+        BgpProcess proc = vrf.getBgpProcess();
+        if (proc == null) {
+          continue;
+        }
+        for (BgpActivePeerConfig neighbor : proc.getActiveNeighbors().values()) {
+          Ip peerAddress = neighbor.getPeerAddress();
+          if (peerAddress != null
+              && !Objects.equals(ipOwners.get(peerAddress), baseIpOwners.get(peerAddress))) {
+            seeds.add(c.getHostname());
+          }
+        }
+      }
+    }
+
+    /*
+     * Changes propagate only along edges that can carry routes in either snapshot: layer-3 edges
+     * between interfaces that may run an IGP, and candidate BGP sessions. Static, connected,
+     * generated and aggregate routes only depend on the node's own state.
+     */
+    MutableGraph<String> routeExchanges = GraphBuilder.undirected().allowsSelfLoops(true).build();
+    configurations.keySet().forEach(routeExchanges::addNode);
+    addIgpEdges(routeExchanges, topology, configurations);
+    addIgpEdges(routeExchanges, _topology, _configurations);
+    ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgpTopology =
+        initBgpTopology(configurations, ipOwners, false);
+    ValueGraph<BgpPeerConfigId, BgpSessionProperties> baseBgpTopology =
+        initBgpTopology(_configurations, baseIpOwners, false);
+    addBgpEdges(routeExchanges, bgpTopology);
+    addBgpEdges(routeExchanges, baseBgpTopology);
+
+    /*
+     * If BGP sessions are only established when their peers can reach each other, a change to any
+     * node that packets between the peers may cross can change whether the session comes up. Those
+     * nodes are all in the layer-3 component of the peers, so a change anywhere in a component
+     * affects the endpoints of the sessions touching it.
+     */
+    Map<String, Integer> components = ImmutableMap.of();
+    Map<Integer, Set<String>> bgpSpeakersByComponent = new HashMap<>();
+    if (checkBgpSessionReachability) {
+      MutableGraph<String> layer3 = GraphBuilder.undirected().allowsSelfLoops(true).build();
+      configurations.keySet().forEach(layer3::addNode);
+      _configurations.keySet().forEach(layer3::addNode);
+      addLayer3Edges(layer3, topology);
+      addLayer3Edges(layer3, _topology);
+      components = computeComponents(layer3);
+      for (ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgp :
+          Arrays.asList(bgpTopology, baseBgpTopology)) {
+        for (EndpointPair<BgpPeerConfigId> edge : bgp.edges()) {
+          String u = edge.nodeU().getHostname();
+          String v = edge.nodeV().getHostname();
+          for (String endpoint : Arrays.asList(u, v)) {
+            Integer component = components.get(endpoint);
+            if (component != null) {
+              Set<String> speakers =
+                  bgpSpeakersByComponent.computeIfAbsent(component, k -> new HashSet<>());
+              speakers.add(u);
+              speakers.add(v);
+            }
+          }
+        }
+      }
+    }
+
+    Set<String> affected = new HashSet<>();
+    Set<Integer> affectedComponents = new HashSet<>();
+    Queue<String> queue = new ArrayDeque<>();
+    for (String seed : seeds) {
+      if (affected.add(seed)) {
+        queue.add(seed);
+      }
+    }
+    while (!queue.isEmpty()) {
+      String node = queue.remove();
+      Set<String> dependents = new HashSet<>();
+      if (routeExchanges.nodes().contains(node)) {
+        dependents.addAll(routeExchanges.adjacentNodes(node));
+      }
+      Integer component = components.get(node);
+      if (component != null && affectedComponents.add(component)) {
+        dependents.addAll(bgpSpeakersByComponent.getOrDefault(component, ImmutableSet.of()));
+      }
+      for (String dependent : dependents) {
+        if (affected.add(dependent)) {
+          queue.add(dependent);
+        }
+      }
+    }
+    // Nodes that only exist in the base snapshot are not part of the result
+    return affected
+        .stream()
+        .filter(configurations::containsKey)
+        .collect(ImmutableSortedSet.toImmutableSortedSet(String::compareTo));
+  }
+
+  /** Returns the connected components of {@code graph}, as a component index for each node. */
+  private static Map<String, Integer> computeComponents(Graph<String> graph) {
+    Map<String, Integer> components = new HashMap<>();
+    int component = 0;
+    for (String start : graph.nodes()) {
+      if (components.containsKey(start)) {
+        continue;
+      }
+      Queue<String> queue = new ArrayDeque<>();
+      components.put(start, component);
+      queue.add(start);
+      while (!queue.isEmpty()) {
+        for (String neighbor : graph.adjacentNodes(queue.remove())) {
+          if (components.putIfAbsent(neighbor, component) == null) {
+            queue.add(neighbor);
+          }
+        }
+      }
+      component++;
+    }
+    return components;
+  }
+
+  /** Whether routes may be exchanged over {@code iface} of {@code hostname} by some IGP. */
+  private static boolean mayRunIgp(
+      Map<String, Configuration> configurations, String hostname, String iface) {
+    Configuration c = configurations.get(hostname);
+    Interface i = c == null ? null : c.getInterfaces().get(iface);
+    return i != null
+        && (i.getOspfEnabled() || i.getRipEnabled() || i.getEigrp() != null || i.getIsis() != null);
+  }
+
+  /** Adds the edges of {@code topology} over which both ends may run an IGP. */
+  private static void addIgpEdges(
+      MutableGraph<String> graph, Topology topology, Map<String, Configuration> configurations) {
+    for (Edge edge : topology.getEdges()) {
+      if (mayRunIgp(configurations, edge.getNode1(), edge.getInt1())
+          && mayRunIgp(configurations, edge.getNode2(), edge.getInt2())) {
+        graph.putEdge(edge.getNode1(), edge.getNode2());
+      }
+    }
+  }
+
+  private static void addLayer3Edges(MutableGraph<String> graph, Topology topology) {
+    for (Edge edge : topology.getEdges()) {
+      graph.putEdge(edge.getNode1(), edge.getNode2());
+    }
+  }
+
+  private static void addBgpEdges(
+      MutableGraph<String> graph, ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgpTopology) {
+    for (EndpointPair<BgpPeerConfigId> edge : bgpTopology.edges()) {
+      graph.putEdge(edge.nodeU().getHostname(), edge.nodeV().getHostname());
+    }
+  }
+}
@@ -7,9 +7,16 @@ import static org.batfish.common.util.CommonUtil.initBgpTopology;
 import static org.batfish.common.util.CommonUtil.toImmutableSortedMap;
 import static org.batfish.dataplane.rib.AbstractRib.importRib;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
+import com.google.common.graph.EndpointPair;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.MutableValueGraph;
 import com.google.common.graph.Network;
 import com.google.common.graph.ValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -20,6 +27,8 @@ import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.SerializationUtils;
 import org.batfish.common.BatfishLogger;
 import org.batfish.common.BdpOscillationException;
 import org.batfish.common.Version;
@@ -75,6 +84,26 @@ class IncrementalBdpEngine {
       Map<String, Configuration> configurations,
       Topology topology,
       Set<BgpAdvertisement> externalAdverts) {
+    return computeDataPlane(differentialContext, configurations, topology, externalAdverts, null);
+  }
+
+  /**
+   * Compute the data plane for the given network.
+   *
+   * @param differentialContext whether this is the delta snapshot of a differential computation
+   * @param configurations node configurations, keyed by hostname
+   * @param topology layer-3 topology of the network
+   * @param externalAdverts external BGP advertisements
+   * @param baseSnapshot if not {@code null}, the converged snapshot this network was forked from.
+   *     Only nodes affected by the fork (see {@link BaseSnapshot#computeAffectedNodes}) are
+   *     recomputed; the converged state of the rest is copied from the base data plane.
+   */
+  ComputeDataPlaneResult computeDataPlane(
+      boolean differentialContext,
+      Map<String, Configuration> configurations,
+      Topology topology,
+      Set<BgpAdvertisement> externalAdverts,
+      @Nullable BaseSnapshot baseSnapshot) {
     _bfLogger.resetTimer();
     IncrementalDataPlane.Builder dpBuilder = IncrementalDataPlane.builder();
     _bfLogger.info("\nComputing Data Plane using iBDP\n");
@@ -85,11 +114,57 @@ class IncrementalBdpEngine {
     dpBuilder.setIpOwners(ipOwners);
     dpBuilder.setIpVrfOwners(ipVrfOwners);
 
+    // Split off the nodes whose converged state can be copied from the base snapshot
+    Map<String, Configuration> computedConfigurations = configurations;
+    SortedMap<String, Node> reusedNodes = ImmutableSortedMap.of();
+    if (baseSnapshot != null) {
+      SortedSet<String> affectedNodes =
+          baseSnapshot.computeAffectedNodes(
+              configurations,
+              topology,
+              externalAdverts,
+              _settings.getCheckBgpSessionReachability());
+      computedConfigurations =
+          ImmutableMap.copyOf(Maps.filterKeys(configurations, affectedNodes::contains));
+      /*
+       * Copy the reused nodes rather than share them, since the base data plane may be cached and
+       * in use elsewhere. They are copied together so that references between them are kept.
+       */
+      reusedNodes =
+          SerializationUtils.clone(
+              ImmutableSortedMap.copyOf(
+                  Maps.filterKeys(
+                      baseSnapshot.getDataPlane().getNodes(),
+                      hostname ->
+                          configurations.containsKey(hostname)
+                              && !affectedNodes.contains(hostname))));
+      _bfLogger.infof(
+          "Reusing converged state of %d of %d nodes from base snapshot\n",
+          reusedNodes.size(), configurations.size());
+    }
+
     // Generate our nodes, keyed by name, sorted for determinism
     SortedMap<String, Node> nodes =
-        toImmutableSortedMap(configurations.values(), Configuration::getHostname, Node::new);
+        toImmutableSortedMap(
+            computedConfigurations.values(), Configuration::getHostname, Node::new);
     NetworkConfigurations networkConfigurations = NetworkConfigurations.of(configurations);
-    dpBuilder.setNodes(nodes);
+    /*
+     * The data plane holds the reused nodes from the start, so that BGP session reachability is
+     * checked through their converged FIBs.
+     */
+    dpBuilder.setNodes(
+        reusedNodes.isEmpty()
+            ? nodes
+            : ImmutableSortedMap.<String, Node>naturalOrder()
+                .putAll(nodes)
+                .putAll(reusedNodes)
+                .build());
+    if (_settings.getCompileRoutingPolicies()) {
+      nodes
+          .values()
+          .forEach(
+              n -> n.getVirtualRouters().values().forEach(VirtualRouter::compileRoutingPolicies));
+    }
     dpBuilder.setTopology(topology);
 
     Network<EigrpInterface, EigrpEdge> eigrpTopology =
@@ -110,7 +185,7 @@ class IncrementalBdpEngine {
 
     ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgpTopology =
         initBgpTopology(
-            configurations, ipOwners, false, true, TracerouteEngineImpl.getInstance(), dp);
+            computedConfigurations, ipOwners, false, true, TracerouteEngineImpl.getInstance(), dp);
 
     Network<IsisNode, IsisEdge> isisTopology =
         IsisTopology.initIsisTopology(configurations, topology);
@@ -140,7 +215,12 @@ class IncrementalBdpEngine {
       computeFibs(nodes);
       bgpTopology =
           initBgpTopology(
-              configurations, ipOwners, false, true, TracerouteEngineImpl.getInstance(), dp);
+              computedConfigurations,
+              ipOwners,
+              false,
+              true,
+              TracerouteEngineImpl.getInstance(),
+              dp);
       // Update queues (if necessary) based on new neighbor relationships
       final ValueGraph<BgpPeerConfigId, BgpSessionProperties> finalBgpTopology = bgpTopology;
       nodes
@@ -164,11 +244,63 @@ class IncrementalBdpEngine {
     }
     // Generate the answers from the computation, compute final FIBs
     computeFibs(nodes);
+    if (baseSnapshot != null) {
+      dp =
+          dpBuilder
+              .setBgpTopology(
+                  mergeBaseBgpTopology(
+                      dp.getBgpTopology(), baseSnapshot, reusedNodes.keySet(), ipOwners))
+              .build();
+    }
     answerElement.setVersion(Version.getVersion());
     _bfLogger.printElapsedTime();
     return new ComputeDataPlaneResult(answerElement, dp);
   }
 
+  /**
+   * Add the BGP sessions of nodes copied from a base snapshot to the BGP topology computed for the
+   * rest of the network. If the base data plane no longer holds its BGP topology (it is not
+   * serialized), the sessions of the copied nodes are re-established against the base data plane.
+   */
+  private static ValueGraph<BgpPeerConfigId, BgpSessionProperties> mergeBaseBgpTopology(
+      ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgpTopology,
+      BaseSnapshot baseSnapshot,
+      Set<String> reusedHostnames,
+      Map<Ip, Set<String>> ipOwners) {
+    IncrementalDataPlane baseDp = baseSnapshot.getDataPlane();
+    ValueGraph<BgpPeerConfigId, BgpSessionProperties> baseBgpTopology = baseDp.getBgpTopology();
+    if (baseBgpTopology == null) {
+      baseBgpTopology =
+          initBgpTopology(
+              Maps.filterKeys(baseDp.getConfigurations(), reusedHostnames::contains),
+              ipOwners,
+              false,
+              true,
+              TracerouteEngineImpl.getInstance(),
+              baseDp);
+    }
+    MutableValueGraph<BgpPeerConfigId, BgpSessionProperties> merged =
+        ValueGraphBuilder.directed().allowsSelfLoops(false).build();
+    bgpTopology.nodes().forEach(merged::addNode);
+    for (EndpointPair<BgpPeerConfigId> edge : bgpTopology.edges()) {
+      merged.putEdgeValue(
+          edge.source(), edge.target(), bgpTopology.edgeValue(edge.source(), edge.target()));
+    }
+    for (BgpPeerConfigId id : baseBgpTopology.nodes()) {
+      if (reusedHostnames.contains(id.getHostname())) {
+        merged.addNode(id);
+      }
+    }
+    for (EndpointPair<BgpPeerConfigId> edge : baseBgpTopology.edges()) {
+      if (reusedHostnames.contains(edge.source().getHostname())
+          && reusedHostnames.contains(edge.target().getHostname())) {
+        merged.putEdgeValue(
+            edge.source(), edge.target(), baseBgpTopology.edgeValue(edge.source(), edge.target()));
+      }
+    }
+    return ImmutableValueGraph.copyOf(merged);
+  }
+
   /**
    * Perform one iteration of the "dependent routes" dataplane computation. Dependent routes refers
    * to routes that could change because other routes have changed. For example, this includes:
@@ -624,6 +756,24 @@ class IncrementalBdpEngine {
               computeBgpAdvertisementsToOutsideCompleted.incrementAndGet();
             });
 
+    long policyCacheHits =
+        nodes
+            .values()
+            .stream()
+            .flatMap(n -> n.getVirtualRouters().values().stream())
+            .mapToLong(vr -> vr.getRoutingPolicyResultCache().getHits())
+            .sum();
+    long policyCacheMisses =
+        nodes
+            .values()
+            .stream()
+            .flatMap(n -> n.getVirtualRouters().values().stream())
+            .mapToLong(vr -> vr.getRoutingPolicyResultCache().getMisses())
+            .sum();
+    _bfLogger.debugf(
+        "BGP routing policy results: %d memoized, %d evaluated\n",
+        policyCacheHits, policyCacheMisses);
+
     ae.setDependentRoutesIterations(_numIterations);
     return false; // No oscillations
   }
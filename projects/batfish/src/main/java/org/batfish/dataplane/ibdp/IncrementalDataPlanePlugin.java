@@ -11,6 +11,8 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.batfish.common.BatfishException;
 import org.batfish.common.plugin.DataPlanePlugin;
 import org.batfish.common.plugin.ITracerouteEngine;
 import org.batfish.common.plugin.Plugin;
@@ -34,6 +36,8 @@ public class IncrementalDataPlanePlugin extends DataPlanePlugin {
 
   private IncrementalBdpEngine _engine;
 
+  private IncrementalDataPlaneSettings _settings;
+
   public IncrementalDataPlanePlugin() {
     _flowTraces = new HashMap<>();
   }
@@ -49,8 +53,11 @@ public class IncrementalDataPlanePlugin extends DataPlanePlugin {
   public ComputeDataPlaneResult computeDataPlane(
       boolean differentialContext, Map<String, Configuration> configurations, Topology topology) {
     Set<BgpAdvertisement> externalAdverts = _batfish.loadExternalBgpAnnouncements(configurations);
+    BaseSnapshot baseSnapshot =
+        differentialContext && _settings.getReuseBaseDataPlane() ? loadBaseSnapshot() : null;
     ComputeDataPlaneResult answer =
-        _engine.computeDataPlane(differentialContext, configurations, topology, externalAdverts);
+        _engine.computeDataPlane(
+            differentialContext, configurations, topology, externalAdverts, baseSnapshot);
     double averageRoutes =
         ((IncrementalDataPlane) answer._dataPlane)
             .getNodes()
@@ -70,11 +77,37 @@ public class IncrementalDataPlanePlugin extends DataPlanePlugin {
 
   @Override
   protected void dataPlanePluginInitialize() {
-    _engine =
-        new IncrementalBdpEngine(
-            new IncrementalDataPlaneSettings(_batfish.getSettingsConfiguration()),
-            _batfish.getLogger(),
-            _batfish::newBatch);
+    _settings = new IncrementalDataPlaneSettings(_batfish.getSettingsConfiguration());
+    _engine = new IncrementalBdpEngine(_settings, _batfish.getLogger(), _batfish::newBatch);
+  }
+
+  /**
+   * Load the converged state of the base snapshot, to seed the computation of the delta snapshot.
+   *
+   * @return the {@link BaseSnapshot}, or {@code null} if the base snapshot has no usable iBDP data
+   *     plane
+   */
+  @Nullable
+  private BaseSnapshot loadBaseSnapshot() {
+    _batfish.pushBaseEnvironment();
+    try {
+      DataPlane dp = _batfish.loadDataPlane();
+      if (!(dp instanceof IncrementalDataPlane)) {
+        return null;
+      }
+      Map<String, Configuration> configurations = _batfish.loadConfigurations();
+      return new BaseSnapshot(
+          configurations,
+          _batfish.getEnvironmentTopology(),
+          _batfish.loadExternalBgpAnnouncements(configurations),
+          (IncrementalDataPlane) dp);
+    } catch (BatfishException e) {
+      _logger.warnf(
+          "Cannot reuse base snapshot data plane, computing from scratch: %s\n", e.getMessage());
+      return null;
+    } finally {
+      _batfish.popEnvironment();
+    }
   }
 
   @Override
@@ -20,6 +20,8 @@ public class IncrementalDataPlaneSettings {
   public static final String PROP_SCHEDULE = "schedule";
   public static final String PROP_LOG_ROUTES = "logiterationroutes";
   public static final String PROP_CHECK_BGP_REACHABILITY = "checkbgpsessionreachability";
+  public static final String PROP_COMPILE_ROUTING_POLICIES = "compileroutingpolicies";
+  public static final String PROP_REUSE_BASE_DATA_PLANE = "reusebasedataplane";
 
   /**
    * Return the underlying configuration (it will be mutable).
@@ -53,6 +55,8 @@ public class IncrementalDataPlaneSettings {
     _config.setProperty(PROP_SCHEDULE, NODE_COLORED.toString());
     _config.setProperty(PROP_LOG_ROUTES, true);
     _config.setProperty(PROP_CHECK_BGP_REACHABILITY, true);
+    _config.setProperty(PROP_COMPILE_ROUTING_POLICIES, false);
+    _config.setProperty(PROP_REUSE_BASE_DATA_PLANE, false);
   }
 
   /** Return the dataplane computation {@link Schedule} */
@@ -65,6 +69,19 @@ public class IncrementalDataPlaneSettings {
     return _config.getBoolean(PROP_CHECK_BGP_REACHABILITY);
   }
 
+  /** Whether to evaluate routing policies by their compiled form, instead of interpreting them */
+  public boolean getCompileRoutingPolicies() {
+    return _config.getBoolean(PROP_COMPILE_ROUTING_POLICIES);
+  }
+
+  /**
+   * Whether the data plane of a delta snapshot should copy the converged state of nodes unaffected
+   * by the fork from the base snapshot's data plane, instead of recomputing the whole network
+   */
+  public boolean getReuseBaseDataPlane() {
+    return _config.getBoolean(PROP_REUSE_BASE_DATA_PLANE);
+  }
+
   /**
    * Set the dataplane computation {@link Schedule}
    *
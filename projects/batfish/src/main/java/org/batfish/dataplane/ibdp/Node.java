@@ -37,6 +37,14 @@ public final class Node implements Serializable {
     return _c;
   }
 
+  /**
+   * Check if any virtual router at this node must take part in the next dependent-routes iteration
+   * of the data plane computation.
+   */
+  public boolean hasPendingWork() {
+    return _virtualRouters.values().stream().anyMatch(VirtualRouter::hasPendingWork);
+  }
+
   /**
    * Return the virtual routers at this node
    *
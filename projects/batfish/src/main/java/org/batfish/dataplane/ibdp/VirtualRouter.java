@@ -104,6 +104,7 @@ import org.batfish.datamodel.ospf.OspfProcess;
 import org.batfish.datamodel.ospf.StubType;
 import org.batfish.datamodel.routing_policy.Environment.Direction;
 import org.batfish.datamodel.routing_policy.RoutingPolicy;
+import org.batfish.datamodel.routing_policy.RoutingPolicyResultCache;
 import org.batfish.dataplane.exceptions.BgpRoutePropagationException;
 import org.batfish.dataplane.protocols.BgpProtocolHelper;
 import org.batfish.dataplane.protocols.GeneratedRouteHelper;
@@ -230,6 +231,9 @@ public class VirtualRouter implements Serializable {
   /** Keeps track of changes to the main RIB */
   private transient RibDelta.Builder<AbstractRoute> _mainRibRouteDeltaBuiler;
 
+  /** Whether message queues were (re)initialized since the last dependent-routes iteration */
+  private transient boolean _queuesReinitialized;
+
   private final String _name;
 
   transient OspfExternalType1Rib _ospfExternalType1Rib;
@@ -292,7 +296,7 @@ public class VirtualRouter implements Serializable {
   transient StaticRib _staticNextHopRib;
 
   /** FIB (forwarding information base) built from the main RIB */
-  private Fib _fib;
+  private FibImpl _fib;
 
   /** RIB containing generated routes */
   private transient Rib _generatedRib;
@@ -305,6 +309,9 @@ public class VirtualRouter implements Serializable {
   /** Metadata about propagated prefixes to/from neighbors */
   private transient PrefixTracer _prefixTracer;
 
+  /** Results of BGP import and export policies, cleared at the start of each iteration */
+  private transient RoutingPolicyResultCache _routingPolicyResultCache;
+
   /** A {@link Vrf} that this virtual router represents */
   final Vrf _vrf;
 
@@ -324,6 +331,7 @@ public class VirtualRouter implements Serializable {
     _receivedBgpRoutes = new TreeMap<>();
     _bgpIncomingRoutes = new TreeMap<BgpEdgeId, Queue<RouteAdvertisement<BgpRoute>>>();
     _prefixTracer = new PrefixTracer();
+    _routingPolicyResultCache = new RoutingPolicyResultCache();
   }
 
   /**
@@ -533,6 +541,7 @@ public class VirtualRouter implements Serializable {
    * @param bgpTopology source of truth for which sessions get established.
    */
   void initBgpQueues(ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgpTopology) {
+    _queuesReinitialized = true;
     if (_vrf.getBgpProcess() == null) {
       _bgpIncomingRoutes = ImmutableSortedMap.of();
     } else {
@@ -682,9 +691,20 @@ public class VirtualRouter implements Serializable {
     }
   }
 
-  /** Compute the FIB from the main RIB */
+  /**
+   * Compute the FIB from the main RIB. After the first call, only the routes affected by changes to
+   * the main RIB since the previous call are resolved again.
+   */
   public void computeFib() {
-    _fib = new FibImpl(_mainRib);
+    if (_fib == null || !_mainRib.isTrackingChanges()) {
+      _mainRib.takeChanges();
+      _fib = new FibImpl(_mainRib);
+      return;
+    }
+    RibDelta<AbstractRoute> changes = _mainRib.takeChanges();
+    if (changes != null) {
+      _fib = FibImpl.update(_fib, _mainRib, changes.getPrefixes());
+    }
   }
 
   boolean computeInterAreaSummaries() {
@@ -1822,22 +1842,21 @@ public class VirtualRouter implements Serializable {
 
         // Process route through import policy, if one exists
         String importPolicyName = ourBgpConfig.getImportPolicy();
-        boolean acceptIncoming = true;
         // TODO: ensure there is always an import policy
-        if (importPolicyName != null) {
-          RoutingPolicy importPolicy = _c.getRoutingPolicies().get(importPolicyName);
-          if (importPolicy != null) {
-            acceptIncoming =
-                importPolicy.process(
+        RoutingPolicy importPolicy =
+            importPolicyName == null ? null : _c.getRoutingPolicies().get(importPolicyName);
+        BgpRoute transformedIncomingRoute =
+            importPolicy == null
+                ? transformedIncomingRouteBuilder.build()
+                : _routingPolicyResultCache.process(
+                    importPolicy,
                     remoteRoute,
                     transformedIncomingRouteBuilder,
                     remoteBgpConfig.getLocalIp(),
                     ourConfigId.getRemotePeerPrefix(),
                     _name,
                     Direction.IN);
-          }
-        }
-        if (!acceptIncoming) {
+        if (transformedIncomingRoute == null) {
           // Route could not be imported due to routing policy
           _prefixTracer.filtered(
               remoteRoute.getNetwork(),
@@ -1848,7 +1867,6 @@ public class VirtualRouter implements Serializable {
               Direction.IN);
           continue;
         }
-        BgpRoute transformedIncomingRoute = transformedIncomingRouteBuilder.build();
 
         if (remoteRouteAdvert.isWithdrawn()) {
           // Note this route was removed
@@ -2954,6 +2972,8 @@ public class VirtualRouter implements Serializable {
 
   /** Re-initialize RIBs (at the start of each iteration). */
   void reinitForNewIteration() {
+    _queuesReinitialized = false;
+    _routingPolicyResultCache.clear();
     _mainRibRouteDeltaBuiler = new Builder<>(_mainRib);
     _bgpBestPathDeltaBuilder = new RibDelta.Builder<>(_bgpBestPathRib);
     _bgpMultiPathDeltaBuilder = new RibDelta.Builder<>(_bgpMultipathRib);
@@ -3023,10 +3043,10 @@ public class VirtualRouter implements Serializable {
    * @return true if there are any routes remaining, in need of merging in to the RIBs
    */
   boolean hasOutstandingRoutes() {
-    return _ospfExternalDeltaBuiler.build() != null
-        || _mainRibRouteDeltaBuiler.build() != null
-        || _bgpBestPathDeltaBuilder.build() != null
-        || _bgpMultiPathDeltaBuilder.build() != null;
+    return !_ospfExternalDeltaBuiler.isEmpty()
+        || !_mainRibRouteDeltaBuiler.isEmpty()
+        || !_bgpBestPathDeltaBuilder.isEmpty()
+        || !_bgpMultiPathDeltaBuilder.isEmpty();
   }
 
   /**
@@ -3065,6 +3085,32 @@ public class VirtualRouter implements Serializable {
     return processedAll;
   }
 
+  /**
+   * Check if this router must take part in the next dependent-routes iteration. A router that has
+   * no incoming messages and whose RIBs did not change the last time it was processed would not
+   * change any state if processed again.
+   *
+   * @return true if the router was not processed since its queues were (re)initialized, has
+   *     unprocessed incoming messages, or had changes to its RIBs in the last iteration it took
+   *     part in
+   */
+  boolean hasPendingWork() {
+    if (_mainRibRouteDeltaBuiler == null
+        || _queuesReinitialized
+        || !hasProcessedAllMessages()
+        || hasOutstandingRoutes()) {
+      return true;
+    }
+    if (_eigrpIncomingRoutes != null) {
+      for (Queue<RouteAdvertisement<EigrpExternalRoute>> queue : _eigrpIncomingRoutes.values()) {
+        if (!queue.isEmpty()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * Queues initial round of outgoing BGP messages based on the state of the RIBs prior to any data
    * plane iterations.
@@ -3363,12 +3409,15 @@ public class VirtualRouter implements Serializable {
    *   <li>message queues ({@link #_bgpIncomingRoutes} and {@link #_ospfExternalIncomingRoutes})
    * </ul>
    *
+   * <p>The hash codes of the RIBs are maintained as routes are added and removed, so this only
+   * visits the queued messages, i.e. the changes still to be processed.
+   *
    * @return integer hashcode
    */
   int computeIterationHashCode() {
-    return _mainRib.getRoutes().hashCode()
-        + _ospfExternalType1Rib.getRoutes().hashCode()
-        + _ospfExternalType2Rib.getRoutes().hashCode()
+    return _mainRib.getRoutesHashCode()
+        + _ospfExternalType1Rib.getRoutesHashCode()
+        + _ospfExternalType2Rib.getRoutesHashCode()
         + _bgpIncomingRoutes
             .values()
             .stream()
@@ -3381,7 +3430,7 @@ public class VirtualRouter implements Serializable {
             .flatMap(Queue::stream)
             .mapToInt(RouteAdvertisement::hashCode)
             .sum()
-        + _eigrpExternalRib.getRoutes().hashCode()
+        + _eigrpExternalRib.getRoutesHashCode()
         + _eigrpIncomingRoutes
             .values()
             .stream()
@@ -3400,6 +3449,17 @@ public class VirtualRouter implements Serializable {
     return _prefixTracer;
   }
 
+  RoutingPolicyResultCache getRoutingPolicyResultCache() {
+    return _routingPolicyResultCache;
+  }
+
+  /**
+   * Evaluate BGP import and export policies by their compiled form, instead of interpreting them
+   */
+  void compileRoutingPolicies() {
+    _routingPolicyResultCache = new RoutingPolicyResultCache(true);
+  }
+
   /**
    * Given an {@link AbstractRoute}, run it through the BGP outbound transformations and export
    * routing policy.
@@ -3442,8 +3502,9 @@ public class VirtualRouter implements Serializable {
     }
 
     // Process transformed outgoing route by the export policy
-    boolean shouldExport =
-        exportPolicy.process(
+    BgpRoute transformedOutgoingRoute =
+        _routingPolicyResultCache.process(
+            exportPolicy,
             exportCandidate,
             transformedOutgoingRouteBuilder,
             remoteConfig.getLocalIp(),
@@ -3452,7 +3513,7 @@ public class VirtualRouter implements Serializable {
             Direction.OUT);
 
     VirtualRouter remoteVr = getRemoteBgpNeighborVR(remoteConfigId, allNodes);
-    if (!shouldExport) {
+    if (transformedOutgoingRoute == null) {
       // This route could not be exported due to export policy
       _prefixTracer.filtered(
           exportCandidate.getNetwork(),
@@ -3465,7 +3526,6 @@ public class VirtualRouter implements Serializable {
     }
 
     // Successfully exported route
-    BgpRoute transformedOutgoingRoute = transformedOutgoingRouteBuilder.build();
     _prefixTracer.sentTo(
         transformedOutgoingRoute.getNetwork(),
         requireNonNull(remoteVr).getHostname(),
@@ -23,6 +23,7 @@ public abstract class IbdpSchedule implements Iterator<Map<String, Node>> {
     ALL,
     NODE_COLORED,
     NODE_SERIALIZED,
+    WORK_LIST,
   }
 
   protected ImmutableMap<String, Node> _nodes;
@@ -88,6 +89,8 @@ public abstract class IbdpSchedule implements Iterator<Map<String, Node>> {
       case NODE_COLORED:
         Coloring coloring = settings.getColoringType();
         return new NodeColoredSchedule(allNodes, coloring, bgpTopology);
+      case WORK_LIST:
+        return new WorkListSchedule(allNodes, settings.getColoringType(), bgpTopology);
       default:
         throw new BatfishException(String.format("Unsupported ibdp schedule: %s", schedule));
     }
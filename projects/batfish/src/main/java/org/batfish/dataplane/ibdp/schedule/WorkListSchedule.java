@@ -0,0 +1,72 @@
+package org.batfish.dataplane.ibdp.schedule;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.graph.ValueGraph;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.batfish.datamodel.BgpPeerConfigId;
+import org.batfish.datamodel.BgpSessionProperties;
+import org.batfish.dataplane.ibdp.Node;
+import org.batfish.dataplane.ibdp.schedule.NodeColoredSchedule.Coloring;
+
+/**
+ * A dataplane computation schedule that only activates nodes with pending work (see {@link
+ * Node#hasPendingWork()}). Nodes are visited in the same color classes as {@link
+ * NodeColoredSchedule}, but each class is filtered right before it is processed, so nodes that
+ * receive messages from an earlier class in the same iteration are still activated.
+ */
+public class WorkListSchedule extends IbdpSchedule {
+
+  private final NodeColoredSchedule _colorClasses;
+
+  /** The next set of active nodes, or {@code null} if it has not been computed yet */
+  private Map<String, Node> _next;
+
+  /**
+   * Create a new schedule based on existing nodes and topology
+   *
+   * @param nodes all nodes in the network
+   * @param coloring the coloring algorithm used to group nodes that can run in parallel
+   * @param bgpTopology the bgp peering relationships
+   */
+  public WorkListSchedule(
+      Map<String, Node> nodes,
+      Coloring coloring,
+      ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgpTopology) {
+    super(nodes);
+    _colorClasses = new NodeColoredSchedule(nodes, coloring, bgpTopology);
+  }
+
+  /**
+   * Checks if any remaining color class contains a node with pending work
+   *
+   * @return true if more nodes need to be processed
+   */
+  @Override
+  public boolean hasNext() {
+    while (_next == null && _colorClasses.hasNext()) {
+      Map<String, Node> active =
+          ImmutableMap.copyOf(Maps.filterValues(_colorClasses.next(), Node::hasPendingWork));
+      if (!active.isEmpty()) {
+        _next = active;
+      }
+    }
+    return _next != null;
+  }
+
+  /**
+   * Get the next set of nodes with pending work that are allowed to be run in parallel
+   *
+   * @return a map of nodes keyed by name, containing a subset of all network nodes
+   */
+  @Override
+  public Map<String, Node> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map<String, Node> next = _next;
+    _next = null;
+    return next;
+  }
+}
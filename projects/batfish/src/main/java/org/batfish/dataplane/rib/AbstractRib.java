@@ -2,6 +2,7 @@ package org.batfish.dataplane.rib;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -42,6 +43,15 @@ public abstract class AbstractRib<R extends AbstractRoute> implements GenericRib
 
   @Nullable private Set<R> _allRoutes;
 
+  /** Number of routes in this RIB, maintained as routes are added and removed */
+  private int _numRoutes;
+
+  /** Sum of the hash codes of the routes in this RIB, maintained as routes are added and removed */
+  private int _routesHashCode;
+
+  /** Routes added and removed since the last call to {@link #takeChanges()}, if tracking */
+  @Nullable private transient RibDelta.Builder<R> _changes;
+
   /**
    * Keep a Sorted Set of alternative routes. Used to update the RIB if best routes are withdrawn
    */
@@ -96,6 +106,19 @@ public abstract class AbstractRib<R extends AbstractRoute> implements GenericRib
     return _allRoutes;
   }
 
+  /**
+   * Returns the hash code of {@link #getRoutes()}, i.e. the sum of the hash codes of the routes in
+   * this RIB, without visiting the routes.
+   */
+  public final int getRoutesHashCode() {
+    return _routesHashCode;
+  }
+
+  @Override
+  public final int getNumRoutes() {
+    return _numRoutes;
+  }
+
   public final Set<R> getRoutes(Prefix p) {
     // Collect routes that match the prefix
     return getRoutes()
@@ -117,6 +140,24 @@ public abstract class AbstractRib<R extends AbstractRoute> implements GenericRib
     return _tree.getLongestPrefixMatch(address, maxPrefixLength);
   }
 
+  @Override
+  public int longestPrefixMatch(Ip address, Collection<? super R> buffer) {
+    return longestPrefixMatch(address, Prefix.MAX_PREFIX_LENGTH, buffer);
+  }
+
+  /**
+   * Execute a constrained longest prefix match for a given IP address, adding the matching routes
+   * to a caller-provided buffer. Does not allocate.
+   *
+   * @param address the IP address to match
+   * @param maxPrefixLength the maximum prefix length allowed (inclusive)
+   * @param buffer the collection to which matching routes are added
+   * @return the number of routes added to {@code buffer}
+   */
+  public int longestPrefixMatch(Ip address, int maxPrefixLength, Collection<? super R> buffer) {
+    return _tree.getLongestPrefixMatch(address.asLong(), maxPrefixLength, buffer);
+  }
+
   /**
    * Add a new route to the RIB.
    *
@@ -207,6 +248,40 @@ public abstract class AbstractRib<R extends AbstractRoute> implements GenericRib
     return d;
   }
 
+  /** Whether routes added and removed are being recorded for {@link #takeChanges()} */
+  public final boolean isTrackingChanges() {
+    return _changes != null;
+  }
+
+  /**
+   * Returns the routes added to and removed from the RIB tree since the last call, or {@code null}
+   * if there were none. The first call starts recording changes and returns {@code null}.
+   */
+  @Nullable
+  public final RibDelta<R> takeChanges() {
+    RibDelta.Builder<R> changes = _changes;
+    _changes = new RibDelta.Builder<>(this);
+    return changes == null ? null : changes.build();
+  }
+
+  /** Called when {@code route} is stored in the RIB tree */
+  final void routeAdded(R route) {
+    _numRoutes++;
+    _routesHashCode += route.hashCode();
+    if (_changes != null) {
+      _changes.add(route);
+    }
+  }
+
+  /** Called when {@code route} is removed from the RIB tree */
+  final void routeRemoved(R route) {
+    _numRoutes--;
+    _routesHashCode -= route.hashCode();
+    if (_changes != null) {
+      _changes.remove(route, Reason.WITHDRAW);
+    }
+  }
+
   /**
    * Check if two RIBs have exactly same sets of routes.
    *
@@ -153,6 +153,11 @@ public class RibDelta<R extends AbstractRoute> {
       return this;
     }
 
+    /** Whether no changes were recorded, i.e. whether {@link #build} would return {@code null} */
+    public boolean isEmpty() {
+      return _actions.isEmpty();
+    }
+
     /**
      * Create a new RIB delta. Returns {@code null} if no changes were made
      *
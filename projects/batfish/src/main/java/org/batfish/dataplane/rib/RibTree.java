@@ -3,6 +3,7 @@ package org.batfish.dataplane.rib;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -58,8 +59,32 @@ class RibTree<R extends AbstractRoute> implements Serializable {
   }
 
   Set<R> getLongestPrefixMatch(Ip address, int maxPrefixLength) {
-    long addressBits = address.asLong();
-    return _root.getLongestPrefixMatch(address, addressBits, 0, maxPrefixLength);
+    RibTreeNode<R> node = _root.findLongestPrefixMatchNode(address.asLong(), maxPrefixLength);
+    if (node == null) {
+      return ImmutableSet.of();
+    }
+    ImmutableSet.Builder<R> routes = ImmutableSet.builder();
+    node.collectNodeRoutes(routes);
+    return routes.build();
+  }
+
+  /**
+   * Add the routes with the longest prefix match for a given IP address to a caller-provided
+   * buffer. Unlike {@link #getLongestPrefixMatch(Ip, int)}, this does not allocate.
+   *
+   * @param address IP address represented as bits
+   * @param maxPrefixLength only match routes with prefix length less than or equal to given value
+   * @param buffer collection to which matching routes are added
+   * @return the number of routes added
+   */
+  int getLongestPrefixMatch(long address, int maxPrefixLength, Collection<? super R> buffer) {
+    RibTreeNode<R> node = _root.findLongestPrefixMatchNode(address, maxPrefixLength);
+    if (node == null) {
+      return 0;
+    }
+    int sizeBefore = buffer.size();
+    node.collectNodeRoutes(buffer);
+    return buffer.size() - sizeBefore;
   }
 
   /**
@@ -4,11 +4,10 @@ import static org.batfish.dataplane.rib.RouteAdvertisement.Reason.REPLACE;
 
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.SortedSet;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -24,24 +23,36 @@ import org.batfish.dataplane.rib.RouteAdvertisement.Reason;
  * RibTree is constructed from nodes of this type. A node has a prefix, a set of routes that match
  * the prefix (and it's length) and two children. The children's prefixes must always be more
  * specific (i.e., their prefix length is larger).
+ *
+ * <p>To keep the tree compact, the prefix is stored as primitive bits and length, and routes are
+ * packed into an array that is only as large as needed (most nodes hold a single route).
  */
 class RibTreeNode<R extends AbstractRoute> implements Serializable {
 
   private static final long serialVersionUID = 1L;
 
-  private RibTreeNode<R> _left;
+  private static final Object[] NO_ROUTES = new Object[0];
 
-  private Prefix _prefix;
+  /** Bits of the node's prefix network address */
+  private final long _bits;
 
-  private RibTreeNode<R> _right;
+  private RibTreeNode<R> _left;
 
-  private final Set<R> _routes;
+  private int _numRoutes;
 
   private AbstractRib<R> _owner;
 
+  private final int _prefixLength;
+
+  private RibTreeNode<R> _right;
+
+  /** Routes stored in this node. Only the first {@link #_numRoutes} slots are in use. */
+  private Object[] _routes;
+
   RibTreeNode(Prefix prefix, @Nonnull AbstractRib<R> owner) {
-    _routes = new HashSet<>();
-    _prefix = prefix;
+    _bits = prefix.getStartIp().asLong();
+    _prefixLength = prefix.getPrefixLength();
+    _routes = NO_ROUTES;
     _owner = owner;
   }
 
@@ -52,13 +63,104 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
     if (_right != null) {
       _right.collectRoutes(routes);
     }
-    routes.addAll(_routes);
+    collectNodeRoutes(routes);
+  }
+
+  /** Add the routes stored in this node (but not its children) to a given builder */
+  void collectNodeRoutes(ImmutableCollection.Builder<? super R> routes) {
+    for (int i = 0; i < _numRoutes; i++) {
+      routes.add(getRoute(i));
+    }
+  }
+
+  /** Add the routes stored in this node (but not its children) to a given collection */
+  void collectNodeRoutes(Collection<? super R> routes) {
+    for (int i = 0; i < _numRoutes; i++) {
+      routes.add(getRoute(i));
+    }
+  }
+
+  /** Check whether the prefix of this node contains the given address */
+  private boolean containsAddress(long address) {
+    return _prefixLength == 0
+        || ((address ^ _bits) >>> (Prefix.MAX_PREFIX_LENGTH - _prefixLength)) == 0;
+  }
+
+  private Prefix getPrefix() {
+    return new Prefix(new Ip(_bits), _prefixLength);
+  }
+
+  @SuppressWarnings("unchecked")
+  private R getRoute(int index) {
+    return (R) _routes[index];
+  }
+
+  private int indexOfRoute(Object route) {
+    for (int i = 0; i < _numRoutes; i++) {
+      if (_routes[i].equals(route)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Add a route to this node, unless it is already present. Returns true if it was added. */
+  private boolean addRoute(R route) {
+    if (indexOfRoute(route) >= 0) {
+      return false;
+    }
+    if (_numRoutes == _routes.length) {
+      _routes = Arrays.copyOf(_routes, Math.max(1, _numRoutes * 2));
+    }
+    _routes[_numRoutes++] = route;
+    _owner.routeAdded(route);
+    return true;
+  }
+
+  /** Remove a route from this node. Returns true if it was present. */
+  private boolean removeNodeRoute(R route) {
+    int index = indexOfRoute(route);
+    if (index < 0) {
+      return false;
+    }
+    _numRoutes--;
+    System.arraycopy(_routes, index + 1, _routes, index, _numRoutes - index);
+    _routes[_numRoutes] = null;
+    _owner.routeRemoved(route);
+    return true;
+  }
+
+  private void clearNodeRoutes() {
+    for (int i = 0; i < _numRoutes; i++) {
+      _owner.routeRemoved(getRoute(i));
+    }
+    _routes = NO_ROUTES;
+    _numRoutes = 0;
+  }
+
+  /** Record removal of all routes stored in this node with the given reason */
+  private void removeAllInto(Builder<R> builder, Reason reason) {
+    for (int i = 0; i < _numRoutes; i++) {
+      builder.remove(getRoute(i), reason);
+    }
+  }
+
+  private boolean sameRoutes(RibTreeNode<?> other) {
+    if (_numRoutes != other._numRoutes) {
+      return false;
+    }
+    for (int i = 0; i < _numRoutes; i++) {
+      if (other.indexOfRoute(_routes[i]) < 0) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Nullable
   private RibTreeNode<R> findRouteNode(long bits, int prefixLength, int firstUnmatchedBitIndex) {
     // If prefix lengths match, this is the node where such route would be stored.
-    if (prefixLength == _prefix.getPrefixLength()) {
+    if (prefixLength == _prefixLength) {
       return this;
     }
 
@@ -77,12 +179,10 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
      */
     if (currentBit) {
       return (_right != null)
-          ? _right.findRouteNode(bits, prefixLength, _right._prefix.getPrefixLength())
+          ? _right.findRouteNode(bits, prefixLength, _right._prefixLength)
           : null;
     } else {
-      return (_left != null)
-          ? _left.findRouteNode(bits, prefixLength, _left._prefix.getPrefixLength())
-          : null;
+      return (_left != null) ? _left.findRouteNode(bits, prefixLength, _left._prefixLength) : null;
     }
   }
 
@@ -96,60 +196,37 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
    */
   boolean containsRoute(R route, long bits, int prefixLength) {
     RibTreeNode<R> node = findRouteNode(bits, prefixLength, 0);
-    return node != null && node._routes.contains(route);
-  }
-
-  private Set<R> getLongestPrefixMatch(Ip address) {
-    return _routes
-        .stream()
-        .filter(r -> r.getNetwork().containsIp(address))
-        .collect(ImmutableSet.toImmutableSet());
+    return node != null && node.indexOfRoute(route) >= 0;
   }
 
   /**
-   * Returns a set of routes with the longest prefix match for a given IP address
+   * Find the node holding the routes with the longest prefix match for a given IP address. Walks
+   * down the tree iteratively without allocating.
    *
-   * @param address IP address
-   * @param bits IP address represented as a set of bits
-   * @param index the position of the bit up to which the match has already been found
-   *     (tail-recursion way of keeping track how deep we are)
-   * @param maxPrefixLength only return routes with prefix length less than or equal to given value
-   * @return a set of routes
+   * @param address IP address represented as bits
+   * @param maxPrefixLength only consider routes with prefix length less than or equal to given
+   *     value
+   * @return the deepest non-empty node whose prefix contains {@code address}, or {@code null} if
+   *     there is none
    */
-  Set<R> getLongestPrefixMatch(Ip address, long bits, int index, int maxPrefixLength) {
-    // Get the list of routes stored in our node that contain the IP address
-    Set<R> longestPrefixMatches = getLongestPrefixMatch(address);
-    // If we reached the max prefix length (e.g., 32 for for IPv4) then return routes
-    // from the current node
-    if (index >= maxPrefixLength) {
-      return longestPrefixMatches;
-    }
-
-    // Examine the bit at the given index
-    boolean currentBit = Ip.getBitAtPosition(bits, index);
-    RibTreeNode<R> child;
-
-    // the current bit is 1, go right recursively
-    if (currentBit) {
-      child = _right;
-    } else {
-      child = _left;
-    }
-    if (child == null) {
-      return longestPrefixMatches;
-    }
-
-    // Represents any potentially longer route matches (than ones stored at this node)
-    Set<R> longerMatches =
-        child.getLongestPrefixMatch(
-            address, bits, child._prefix.getPrefixLength(), maxPrefixLength);
-
-    // If we found no better matches, return the ones from this node
-    if (longerMatches == null || longerMatches.isEmpty()) {
-      return longestPrefixMatches;
-    } else { // otherwise return longer matches
-      return longerMatches;
+  @Nullable
+  RibTreeNode<R> findLongestPrefixMatchNode(long address, int maxPrefixLength) {
+    RibTreeNode<R> match = null;
+    RibTreeNode<R> node = this;
+    while (node != null && node._prefixLength <= maxPrefixLength) {
+      if (!node.containsAddress(address)) {
+        // Prefixes only get more specific deeper down, so nothing below can match either
+        break;
+      }
+      if (node._numRoutes > 0) {
+        match = node;
+      }
+      if (node._prefixLength == Prefix.MAX_PREFIX_LENGTH) {
+        break;
+      }
+      node = Ip.getBitAtPosition(address, node._prefixLength) ? node._right : node._left;
     }
+    return match;
   }
 
   private void assignChild(RibTreeNode<R> parent, RibTreeNode<R> child, boolean branchRight) {
@@ -193,17 +270,15 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
     // for the given route
     if (node == null) {
       node = new RibTreeNode<>(route.getNetwork(), _owner);
-      node._routes.add(route);
+      node.addRoute(route);
       // don't forget to assign new node object to parent node
       assignChild(parent, node, rightBranch);
       return new RibDelta.Builder<>(_owner).add(route).build();
     }
 
     // Node exists, get some helper data out of the current node we are examining
-    Prefix nodePrefix = node._prefix;
-    int nodePrefixLength = nodePrefix.getPrefixLength();
-    Ip nodeAddress = nodePrefix.getStartIp();
-    long nodeAddressBits = nodeAddress.asLong();
+    int nodePrefixLength = node._prefixLength;
+    long nodeAddressBits = node._bits;
     int nextUnmatchedBit;
     // Set up two "pointers" as we scan through the route's and the node's prefixes
     boolean currentAddressBit = false;
@@ -243,7 +318,7 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
       currentNodeAddressBit = Ip.getBitAtPosition(nodeAddressBits, nextUnmatchedBit);
       RibTreeNode<R> oldNode = node;
       node = new RibTreeNode<>(route.getNetwork(), _owner);
-      node._routes.add(route);
+      node.addRoute(route);
       assignChild(parent, node, rightBranch);
       assignChild(node, oldNode, currentNodeAddressBit);
       return new RibDelta.Builder<>(_owner).add(route).build();
@@ -263,7 +338,7 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
     Prefix newNetwork = new Prefix(route.getNetwork().getStartIp(), nextUnmatchedBit);
     node = new RibTreeNode<>(newNetwork, _owner); // node is the node we are inserting in the middle
     RibTreeNode<R> child = new RibTreeNode<>(route.getNetwork(), _owner);
-    child._routes.add(route);
+    child.addRoute(route);
     assignChild(parent, node, rightBranch);
     // child and old node become siblings, children of the newly inserted node
     assignChild(node, child, currentAddressBit);
@@ -279,11 +354,11 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
      * 1) the prefix length of this node matches the prefix length of the route exactly, and
      * 2) going deeper can only gets us longer matches
      */
-    if (routePrefixLength == _prefix.getPrefixLength()) {
+    if (routePrefixLength == _prefixLength) {
 
       // No routes with this prefix, so just add it. No comparison necessary
-      if (_routes.isEmpty()) {
-        _routes.add(route);
+      if (_numRoutes == 0) {
+        addRoute(route);
         return new RibDelta.Builder<>(_owner).add(route).build();
       }
 
@@ -293,18 +368,14 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
        * same preference level. Hence, the route we are checking will be better than all,
        * worse than all, or at the same preference level.
        */
-      R oldRoute = _routes.iterator().next();
+      R oldRoute = getRoute(0);
       int preferenceComparison = _owner.comparePreference(route, oldRoute);
       if (preferenceComparison < 0) { // less preferable, so route doesn't get added
         return null;
       }
       if (preferenceComparison == 0) { // equal preference, so add for multipath routing
-        if (_routes.contains(route)) {
-          // route is already here, so nothing to do
-          return null;
-        }
-        // Otherwise add the route
-        if (_routes.add(route)) {
+        // Add the route, unless it is already here
+        if (addRoute(route)) {
           return new RibDelta.Builder<>(_owner).add(route).build();
         } else {
           return null;
@@ -315,9 +386,11 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
        * Better than all pre-existing routes for this prefix, so
        * replace them with this one.
        */
-      RibDelta<R> delta = new Builder<>(_owner).remove(_routes, REPLACE).add(route).build();
-      _routes.clear();
-      _routes.add(route);
+      Builder<R> builder = new Builder<>(_owner);
+      removeAllInto(builder, REPLACE);
+      RibDelta<R> delta = builder.add(route).build();
+      clearNodeRoutes();
+      addRoute(route);
       return delta;
     }
     /*
@@ -331,7 +404,7 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
 
   @Override
   public String toString() {
-    return _prefix.toString();
+    return getPrefix().toString();
   }
 
   @Nullable
@@ -343,13 +416,13 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
       return null;
     }
     Builder<R> b = new Builder<>(_owner);
-    if (node._routes.remove(route)) {
+    if (node.removeNodeRoute(route)) {
       b.remove(route, reason);
-      if (node._routes.isEmpty() && _owner._backupRoutes != null) {
+      if (node._numRoutes == 0 && _owner._backupRoutes != null) {
         SortedSet<? extends R> backups =
             _owner._backupRoutes.getOrDefault(route.getNetwork(), Collections.emptySortedSet());
         if (!backups.isEmpty()) {
-          node._routes.add(backups.first());
+          node.addRoute(backups.first());
           b.add(backups.first());
         }
       }
@@ -360,7 +433,11 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
 
   @Override
   public int hashCode() {
-    int hashCode = _routes.hashCode();
+    // Same as the hash code of a set of the routes in this node
+    int hashCode = 0;
+    for (int i = 0; i < _numRoutes; i++) {
+      hashCode += _routes[i].hashCode();
+    }
     if (_left != null) {
       hashCode += _left.hashCode();
     }
@@ -375,7 +452,7 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
     return (this == obj)
         // Given that obj is not null, check route equality recursively
         || (obj instanceof RibTreeNode
-            && _routes.equals(((RibTreeNode<?>) obj)._routes)
+            && sameRoutes((RibTreeNode<?>) obj)
             && (_left == null
                 ? ((RibTreeNode<?>) obj)._left == null
                 : _left.equals(((RibTreeNode<?>) obj)._left))
@@ -390,9 +467,10 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
     if (node == null) {
       return null;
     }
-    RibDelta<R> delta = new Builder<>(_owner).remove(node._routes, REPLACE).build();
-    node._routes.clear();
-    return delta;
+    Builder<R> builder = new Builder<>(_owner);
+    node.removeAllInto(builder, REPLACE);
+    node.clearNodeRoutes();
+    return builder.build();
   }
 
   public void addMatchingIps(ImmutableMap.Builder<Prefix, IpWildcardSetIpSpace> builder) {
@@ -402,7 +480,8 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
     if (_right != null) {
       _right.addMatchingIps(builder);
     }
-    if (!_routes.isEmpty()) {
+    if (_numRoutes > 0) {
+      Prefix prefix = getPrefix();
       IpWildcardSetIpSpace.Builder matchingIps = IpWildcardSetIpSpace.builder();
       if (_left != null) {
         _left.excludeRoutableIps(matchingIps);
@@ -410,14 +489,14 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
       if (_right != null) {
         _right.excludeRoutableIps(matchingIps);
       }
-      matchingIps.including(new IpWildcard(_prefix));
-      builder.put(_prefix, matchingIps.build());
+      matchingIps.including(new IpWildcard(prefix));
+      builder.put(prefix, matchingIps.build());
     }
   }
 
   public void addRoutableIps(IpWildcardSetIpSpace.Builder builder) {
-    if (!_routes.isEmpty()) {
-      builder.including(new IpWildcard(_prefix));
+    if (_numRoutes > 0) {
+      builder.including(new IpWildcard(getPrefix()));
     } else {
       if (_left != null) {
         _left.addRoutableIps(builder);
@@ -429,8 +508,8 @@ class RibTreeNode<R extends AbstractRoute> implements Serializable {
   }
 
   public void excludeRoutableIps(IpWildcardSetIpSpace.Builder builder) {
-    if (!_routes.isEmpty()) {
-      builder.excluding(new IpWildcard(_prefix));
+    if (_numRoutes > 0) {
+      builder.excluding(new IpWildcard(getPrefix()));
     } else {
       if (_left != null) {
         _left.excludeRoutableIps(builder);
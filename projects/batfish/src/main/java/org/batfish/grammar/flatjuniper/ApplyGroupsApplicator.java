@@ -4,7 +4,11 @@ import static org.batfish.grammar.flatjuniper.ConfigurationBuilder.unquote;
 
 import com.google.common.base.Throwables;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.batfish.common.BatfishException;
@@ -36,10 +40,17 @@ public class ApplyGroupsApplicator extends FlatJuniperParserBaseListener {
 
   private boolean _inGroup;
 
-  private List<ParseTree> _newConfigurationLines;
+  /**
+   * Lines to insert before each line of the configuration, in order. Lines are inserted and removed
+   * all at once when the walk is done, so that each apply-groups line costs no more than its own
+   * expansion.
+   */
+  private Map<ParseTree, List<ParseTree>> _insertedLines;
 
   private boolean _reenablePathRecording;
 
+  private Set<ParseTree> _removedLines;
+
   private final Warnings _w;
 
   public ApplyGroupsApplicator(Hierarchy hierarchy, Warnings warnings) {
@@ -72,8 +83,9 @@ public class ApplyGroupsApplicator extends FlatJuniperParserBaseListener {
       List<ParseTree> applyGroupsLines =
           _hierarchy.getApplyGroupsLines(
               groupName, _currentPath, _configurationContext, clusterGroup);
-      int insertionIndex = _newConfigurationLines.indexOf(_currentSetLine);
-      _newConfigurationLines.addAll(insertionIndex, applyGroupsLines);
+      _insertedLines
+          .computeIfAbsent(_currentSetLine, l -> new ArrayList<>())
+          .addAll(applyGroupsLines);
     } catch (PartialGroupMatchException e) {
       _w.pedantic(applyGroupsExceptionMessage(groupName, e));
     } catch (UndefinedGroupBatfishException e) {
@@ -87,7 +99,7 @@ public class ApplyGroupsApplicator extends FlatJuniperParserBaseListener {
       _w.redFlag(applyGroupsExceptionMessage(groupName, e));
     }
     if (removeApplyLine) {
-      _newConfigurationLines.remove(_currentSetLine);
+      _removedLines.add(_currentSetLine);
     }
     _changed = true;
   }
@@ -97,14 +109,14 @@ public class ApplyGroupsApplicator extends FlatJuniperParserBaseListener {
     if (_inGroup) {
       _w.redFlag("Do not know how to handle apply-groups-except occcurring within group statement");
     }
-    _newConfigurationLines.remove(_currentSetLine);
+    _removedLines.add(_currentSetLine);
   }
 
   @Override
   public void enterFlat_juniper_configuration(Flat_juniper_configurationContext ctx) {
     _configurationContext = ctx;
-    _newConfigurationLines = new ArrayList<>();
-    _newConfigurationLines.addAll(ctx.children);
+    _insertedLines = new IdentityHashMap<>();
+    _removedLines = Collections.newSetFromMap(new IdentityHashMap<>());
   }
 
   @Override
@@ -135,7 +147,17 @@ public class ApplyGroupsApplicator extends FlatJuniperParserBaseListener {
 
   @Override
   public void exitFlat_juniper_configuration(Flat_juniper_configurationContext ctx) {
-    _configurationContext.children = _newConfigurationLines;
+    List<ParseTree> newConfigurationLines = new ArrayList<>();
+    for (ParseTree line : _configurationContext.children) {
+      List<ParseTree> insertedLines = _insertedLines.get(line);
+      if (insertedLines != null) {
+        newConfigurationLines.addAll(insertedLines);
+      }
+      if (!_removedLines.contains(line)) {
+        newConfigurationLines.add(line);
+      }
+    }
+    _configurationContext.children = newConfigurationLines;
   }
 
   @Override
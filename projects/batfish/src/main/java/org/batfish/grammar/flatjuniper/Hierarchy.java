@@ -8,6 +8,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import org.antlr.v4.runtime.CommonToken;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -59,6 +60,9 @@ public class Hierarchy {
 
     private abstract static class HierarchyChildNode extends HierarchyNode {
 
+      /** Position among the children of its parent, in the order they were added */
+      private int _childIndex;
+
       private Set_lineContext _line;
       protected String _sourceGroup;
       public List<String> _sourceWildcards;
@@ -95,8 +99,7 @@ public class Hierarchy {
 
       @Override
       public boolean isMatchedBy(HierarchyWildcardNode node) {
-        String regex = node._wildcard.replaceAll("\\*", ".*");
-        return _text.matches(regex);
+        return node.getPattern().matcher(_text).matches();
       }
 
       @Override
@@ -123,18 +126,30 @@ public class Hierarchy {
 
       protected Set<String> _blacklistedGroups;
       private Map<String, HierarchyChildNode> _children;
+      private List<HierarchyChildNode> _wildcardChildren;
 
       public HierarchyNode() {
         _children = new LinkedHashMap<>();
         _blacklistedGroups = new HashSet<>();
+        _wildcardChildren = new ArrayList<>();
       }
 
       public void addBlacklistedGroup(String groupName) {
         _blacklistedGroups.add(groupName);
       }
 
+      /** Adds {@code node}, which must not have the same text as an existing child. */
       public void addChildNode(HierarchyChildNode node) {
+        node._childIndex = _children.size();
         _children.put(node._text, node);
+        if (node.isWildcard()) {
+          _wildcardChildren.add(node);
+        }
+      }
+
+      public void clearChildren() {
+        _children.clear();
+        _wildcardChildren.clear();
       }
 
       public HierarchyChildNode getChildNode(String text) {
@@ -145,14 +160,28 @@ public class Hierarchy {
         return _children;
       }
 
+      /**
+       * Returns the earliest-added child that matches {@code node}. Only a child with the same text
+       * or, for a literal node, a wildcard child can match, so the other children are not looked
+       * at.
+       */
       @Nullable
       public HierarchyChildNode getFirstMatchingChildNode(HierarchyChildNode node) {
-        for (HierarchyChildNode child : _children.values()) {
-          if (child.matches(node)) {
-            return child;
+        HierarchyChildNode sameText = _children.get(node._text);
+        if (sameText != null && !sameText.matches(node)) {
+          sameText = null;
+        }
+        if (!node.isWildcard()) {
+          for (HierarchyChildNode wildcardChild : _wildcardChildren) {
+            if (sameText != null && wildcardChild._childIndex >= sameText._childIndex) {
+              break;
+            }
+            if (wildcardChild.matches(node)) {
+              return wildcardChild;
+            }
           }
         }
-        return null;
+        return sameText;
       }
 
       public boolean isWildcard() {
@@ -208,6 +237,8 @@ public class Hierarchy {
 
     private static final class HierarchyWildcardNode extends HierarchyChildNode {
 
+      @Nullable private Pattern _pattern;
+
       private String _wildcard;
 
       private HierarchyWildcardNode(String text) {
@@ -223,6 +254,14 @@ public class Hierarchy {
         return new HierarchyWildcardNode(_text);
       }
 
+      /** Returns the pattern matched by literal nodes matching this wildcard, compiled once. */
+      private Pattern getPattern() {
+        if (_pattern == null) {
+          _pattern = Pattern.compile(_wildcard.replaceAll("\\*", ".*"));
+        }
+        return _pattern;
+      }
+
       @Override
       public boolean isMatchedBy(HierarchyLiteralNode node) {
         return false;
@@ -250,15 +289,10 @@ public class Hierarchy {
       }
     }
 
-    private static Settings parserSettings() {
-      Settings settings = new Settings();
-      settings.setThrowOnLexerError(true);
-      settings.setThrowOnParserError(true);
-      return settings;
-    }
-
     private String _groupName;
 
+    @Nullable private Settings _parserSettings;
+
     private HierarchyRootNode _root;
 
     private HierarchyTree(@Nullable String groupName) {
@@ -402,7 +436,7 @@ public class Hierarchy {
             return;
           }
           newDestinationTreeRoot = currentPathNode.copy();
-          destinationTreeRoot._children.put(newDestinationTreeRoot._text, newDestinationTreeRoot);
+          destinationTreeRoot.addChildNode(newDestinationTreeRoot);
         }
         newPath._nodes.add(newDestinationTreeRoot);
         if (startingIndex == path._nodes.size() - 1) {
@@ -626,9 +660,23 @@ public class Hierarchy {
       return _groupName;
     }
 
+    /**
+     * Returns the settings for parsing generated lines. They are created once per tree, since
+     * creating {@link Settings} reads the default configuration.
+     */
+    private Settings parserSettings() {
+      if (_parserSettings == null) {
+        Settings settings = new Settings();
+        settings.setThrowOnLexerError(true);
+        settings.setThrowOnParserError(true);
+        _parserSettings = settings;
+      }
+      return _parserSettings;
+    }
+
     public void pruneAfterPath(HierarchyPath path) {
       HierarchyChildNode pathEnd = findExactPathMatchNode(path);
-      pathEnd.getChildren().clear();
+      pathEnd.clearChildren();
     }
 
     public void setApplyGroupsExcept(HierarchyPath path, String groupName) {
@@ -1,7 +1,9 @@
 package org.batfish.grammar.flatjuniper;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.batfish.grammar.flatjuniper.FlatJuniperParser.Flat_juniper_configurationContext;
@@ -20,7 +22,8 @@ public class WildcardApplicator extends FlatJuniperParserBaseListener {
 
   private Hierarchy _hierarchy;
 
-  private List<ParseTree> _newConfigurationLines;
+  /** Lines to insert before each line of the configuration once the walk is done */
+  private Map<ParseTree, List<ParseTree>> _insertedLines;
 
   private boolean _reenablePathRecording;
 
@@ -31,8 +34,7 @@ public class WildcardApplicator extends FlatJuniperParserBaseListener {
   @Override
   public void enterFlat_juniper_configuration(Flat_juniper_configurationContext ctx) {
     _configurationContext = ctx;
-    _newConfigurationLines = new ArrayList<>();
-    _newConfigurationLines.addAll(ctx.children);
+    _insertedLines = new IdentityHashMap<>();
   }
 
   @Override
@@ -53,7 +55,15 @@ public class WildcardApplicator extends FlatJuniperParserBaseListener {
 
   @Override
   public void exitFlat_juniper_configuration(Flat_juniper_configurationContext ctx) {
-    _configurationContext.children = _newConfigurationLines;
+    List<ParseTree> newConfigurationLines = new ArrayList<>();
+    for (ParseTree line : _configurationContext.children) {
+      List<ParseTree> insertedLines = _insertedLines.get(line);
+      if (insertedLines != null) {
+        newConfigurationLines.addAll(insertedLines);
+      }
+      newConfigurationLines.add(line);
+    }
+    _configurationContext.children = newConfigurationLines;
   }
 
   @Override
@@ -69,8 +79,7 @@ public class WildcardApplicator extends FlatJuniperParserBaseListener {
     if (_currentPath.containsWildcard()) {
       List<ParseTree> lines =
           _hierarchy.getMasterTree().applyWildcardPath(_currentPath, _configurationContext);
-      int insertionIndex = _newConfigurationLines.indexOf(ctx);
-      _newConfigurationLines.addAll(insertionIndex, lines);
+      _insertedLines.computeIfAbsent(ctx, l -> new ArrayList<>()).addAll(lines);
     }
     _currentPath = null;
   }
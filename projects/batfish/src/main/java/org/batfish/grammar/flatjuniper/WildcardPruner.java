@@ -1,7 +1,9 @@
 package org.batfish.grammar.flatjuniper;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.batfish.grammar.flatjuniper.FlatJuniperParser.Flat_juniper_configurationContext;
@@ -17,13 +19,12 @@ public class WildcardPruner extends FlatJuniperParserBaseListener {
 
   private boolean _enablePathRecording;
 
-  private List<ParseTree> _newConfigurationLines;
+  private Set<ParseTree> _prunedLines;
 
   @Override
   public void enterFlat_juniper_configuration(Flat_juniper_configurationContext ctx) {
     _configurationContext = ctx;
-    _newConfigurationLines = new ArrayList<>();
-    _newConfigurationLines.addAll(ctx.children);
+    _prunedLines = Collections.newSetFromMap(new IdentityHashMap<>());
   }
 
   @Override
@@ -34,13 +35,18 @@ public class WildcardPruner extends FlatJuniperParserBaseListener {
 
   @Override
   public void exitFlat_juniper_configuration(Flat_juniper_configurationContext ctx) {
-    _configurationContext.children = _newConfigurationLines;
+    _configurationContext.children =
+        _configurationContext
+            .children
+            .stream()
+            .filter(line -> !_prunedLines.contains(line))
+            .collect(Collectors.toList());
   }
 
   @Override
   public void exitSet_line(Set_lineContext ctx) {
     if (_currentPath.containsWildcard()) {
-      _newConfigurationLines.remove(ctx);
+      _prunedLines.add(ctx);
     }
     _currentPath = null;
   }
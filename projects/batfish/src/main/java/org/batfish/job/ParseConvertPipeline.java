@@ -0,0 +1,329 @@
+package org.batfish.job;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+import org.batfish.common.BatfishException;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.Warning;
+import org.batfish.common.util.CommonUtil;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
+import org.batfish.datamodel.answers.ParseVendorConfigurationAnswerElement;
+import org.batfish.main.Batfish;
+import org.batfish.vendor.VendorConfiguration;
+
+/**
+ * Reads, parses, serializes and converts network configuration files one device at a time, so that
+ * only the file texts, parse trees and vendor configurations of the devices in flight are in memory
+ * at once rather than those of the whole snapshot. Each device goes through the same {@link
+ * ParseVendorConfigurationJob} and {@link ConvertConfigurationJob} as in the separate parse and
+ * convert stages, and their results are applied in the same way.
+ *
+ * <p>Hosts with duplicate hostnames are renamed by comparing all of their configurations, which
+ * cannot be done once the first of them has been serialized and converted. On the first duplicate,
+ * the pipeline therefore stops, deletes what it serialized, and reports that the caller should
+ * parse the whole snapshot before serializing instead.
+ */
+public final class ParseConvertPipeline {
+
+  /** What became of one file. */
+  private static final class Item {
+
+    @Nullable private final ConvertConfigurationResult _convertResult;
+
+    private final boolean _duplicateHostname;
+
+    private final ParseVendorConfigurationResult _parseResult;
+
+    private Item(
+        ParseVendorConfigurationResult parseResult,
+        @Nullable ConvertConfigurationResult convertResult,
+        boolean duplicateHostname) {
+      _convertResult = convertResult;
+      _duplicateHostname = duplicateHostname;
+      _parseResult = parseResult;
+    }
+  }
+
+  /** Devices in flight per thread, so that no thread waits on the results being applied. */
+  private static final int IN_FLIGHT_PER_THREAD = 2;
+
+  private final ConcurrentMap<String, String> _claimedHostnames;
+
+  private Map<String, Configuration> _configurations;
+
+  private ConvertConfigurationAnswerElement _convertAnswerElement;
+
+  private final BatfishLogger _logger;
+
+  private final Set<String> _overlaidHostnames;
+
+  private ParseVendorConfigurationAnswerElement _parseAnswerElement;
+
+  private final BiConsumer<Serializable, Path> _serializer;
+
+  private final Settings _settings;
+
+  private int _vendorConfigurationCount;
+
+  private final Queue<Path> _written;
+
+  /** @param serializer Writes a vendor configuration to the given path */
+  public ParseConvertPipeline(
+      Settings settings, BatfishLogger logger, BiConsumer<Serializable, Path> serializer) {
+    _claimedHostnames = new ConcurrentHashMap<>();
+    _configurations = new TreeMap<>();
+    _convertAnswerElement = new ConvertConfigurationAnswerElement();
+    _logger = logger;
+    _overlaidHostnames = ConcurrentHashMap.newKeySet();
+    _parseAnswerElement = new ParseVendorConfigurationAnswerElement();
+    _serializer = serializer;
+    _settings = settings;
+    _written = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Processes {@code files}, serializing each vendor configuration under {@code outputPath} with
+   * the overlay of the same name in {@code overlayConfigurations}, if any.
+   *
+   * @param baseDir Directory relative to which file names are reported
+   * @param parseCache Cache consulted before parsing each file, or {@code null} to always parse
+   * @return {@code false} if a duplicate hostname was found, in which case nothing was serialized
+   *     and no results were recorded
+   */
+  public boolean run(
+      List<Path> files,
+      Path baseDir,
+      Path outputPath,
+      Map<String, VendorConfiguration> overlayConfigurations,
+      @Nullable ParseResultCache parseCache) {
+    BatfishJobExecutor parseExecutor = BatfishJobExecutor.getBatfishJobExecutor(_settings, _logger);
+    BatfishJobExecutor convertExecutor =
+        BatfishJobExecutor.getBatfishJobExecutor(_settings, _logger);
+    parseExecutor.initializeJobsStats(files, "Parse, serialize, and convert configurations");
+    List<BatfishException> parseFailures = new ArrayList<>();
+    List<BatfishException> convertFailures = new ArrayList<>();
+    List<Object> convertJobs = new ArrayList<>();
+
+    ExecutorService pool =
+        _settings.getSequential()
+            ? Executors.newSingleThreadExecutor()
+            : Executors.newFixedThreadPool(_settings.getAvailableThreads());
+    ExecutorCompletionService<Item> completionService = new ExecutorCompletionService<>(pool);
+    int maxInFlight =
+        _settings.getSequential() ? 1 : IN_FLIGHT_PER_THREAD * _settings.getAvailableThreads();
+    Iterator<Path> remaining = files.iterator();
+    int inFlight = 0;
+    boolean completed = false;
+    try {
+      while (inFlight < maxInFlight && remaining.hasNext()) {
+        Path file = remaining.next();
+        completionService.submit(
+            () -> process(file, baseDir, outputPath, overlayConfigurations, parseCache));
+        inFlight++;
+      }
+      while (inFlight > 0) {
+        Item item;
+        try {
+          item = completionService.take().get();
+        } catch (InterruptedException e) {
+          throw new BatfishException("Job didn't finish", e);
+        } catch (ExecutionException e) {
+          throw new BatfishException(
+              String.format("Error executing job: %s", e.getCause().getMessage()), e);
+        }
+        inFlight--;
+        if (item._duplicateHostname) {
+          _logger.warnf(
+              "Duplicate hostname %s, so configurations cannot be converted as they are parsed\n",
+              item._parseResult.getVendorConfiguration().getHostname());
+          return false;
+        }
+        parseExecutor.markJobCompleted();
+        apply(item, parseExecutor, convertExecutor, parseFailures, convertFailures, convertJobs);
+        if (remaining.hasNext()) {
+          Path file = remaining.next();
+          completionService.submit(
+              () -> process(file, baseDir, outputPath, overlayConfigurations, parseCache));
+          inFlight++;
+        }
+      }
+      completed = true;
+    } finally {
+      if (!completed) {
+        abort(pool);
+      }
+      pool.shutdown();
+    }
+
+    if (!parseFailures.isEmpty()) {
+      if (_settings.getHaltOnParseError()) {
+        // as if parsing had stopped before anything was serialized
+        _written.forEach(CommonUtil::deleteIfExists);
+      }
+      parseExecutor.handleProcessingError(files, parseFailures, _settings.getHaltOnParseError());
+    }
+    if (!convertFailures.isEmpty()) {
+      convertExecutor.handleProcessingError(
+          convertJobs, convertFailures, _settings.getHaltOnConvertError());
+    }
+    return true;
+  }
+
+  /** Stops all jobs and forgets everything they did. */
+  private void abort(ExecutorService pool) {
+    pool.shutdownNow();
+    try {
+      // nothing may be written after the written files are deleted
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    _written.forEach(CommonUtil::deleteIfExists);
+    _written.clear();
+    _claimedHostnames.clear();
+    _configurations = new TreeMap<>();
+    _convertAnswerElement = new ConvertConfigurationAnswerElement();
+    _overlaidHostnames.clear();
+    _parseAnswerElement = new ParseVendorConfigurationAnswerElement();
+    _vendorConfigurationCount = 0;
+  }
+
+  /** Applies the results for one file, as {@link BatfishJobExecutor} would. */
+  private void apply(
+      Item item,
+      BatfishJobExecutor parseExecutor,
+      BatfishJobExecutor convertExecutor,
+      List<BatfishException> parseFailures,
+      List<BatfishException> convertFailures,
+      List<Object> convertJobs) {
+    ParseVendorConfigurationResult parseResult = item._parseResult;
+    /*
+     * The vendor configuration is put in a map of its own, since the others have been serialized
+     * and let go of. Duplicate hostnames, which the parse result would rename using the full map,
+     * have been ruled out already.
+     */
+    parseExecutor.handleJobResult(
+        parseResult,
+        new HashMap<>(),
+        _parseAnswerElement,
+        parseFailures,
+        _settings.getHaltOnParseError());
+    VendorConfiguration vc = parseResult.getVendorConfiguration();
+    if (vc == null) {
+      return;
+    }
+    _vendorConfigurationCount++;
+    String name = vc.getHostname();
+    if (item._convertResult == null) {
+      // iptables will get a hostname like configs/iptables-save if they
+      // are not set up correctly using host files
+      _logger.errorf("Cannot serialize configuration with hostname %s\n", name);
+      _parseAnswerElement.addRedFlagWarning(
+          name,
+          new Warning(
+              "Cannot serialize network config. Bad hostname " + name.replace("\\", "/"),
+              "MISCELLANEOUS"));
+      return;
+    }
+    convertJobs.add(name);
+    convertExecutor.handleJobResult(
+        item._convertResult,
+        _configurations,
+        _convertAnswerElement,
+        convertFailures,
+        _settings.getHaltOnConvertError());
+  }
+
+  /** Reads, parses, serializes and converts one file. Runs in a worker thread. */
+  private Item process(
+      Path file,
+      Path baseDir,
+      Path outputPath,
+      Map<String, VendorConfiguration> overlayConfigurations,
+      @Nullable ParseResultCache parseCache)
+      throws Exception {
+    _logger.debugf("Reading: \"%s\"\n", file);
+    String fileTextRaw = CommonUtil.readFile(file.toAbsolutePath());
+    String fileText = fileTextRaw + ((fileTextRaw.length() != 0) ? "\n" : "");
+    String filename = baseDir.relativize(file).toString();
+    ParseVendorConfigurationResult parseResult =
+        new ParseVendorConfigurationJob(
+                _settings,
+                fileText,
+                filename,
+                Batfish.buildWarnings(_settings),
+                ConfigurationFormat.UNKNOWN,
+                parseCache)
+            .call();
+    VendorConfiguration vc = parseResult.getVendorConfiguration();
+    if (vc == null || vc.getHostname().contains(File.separator)) {
+      return new Item(parseResult, null, false);
+    }
+    String name = vc.getHostname();
+    if (_claimedHostnames.putIfAbsent(name, filename) != null) {
+      return new Item(parseResult, null, true);
+    }
+    VendorConfiguration overlayConfig = overlayConfigurations.get(name);
+    if (overlayConfig != null) {
+      vc.setOverlayConfiguration(overlayConfig);
+      _overlaidHostnames.add(name);
+    }
+    Path currentOutputPath = outputPath.resolve(name);
+    _written.add(currentOutputPath);
+    _serializer.accept(vc, currentOutputPath);
+    ConvertConfigurationResult convertResult =
+        new ConvertConfigurationJob(_settings, vc, name).call();
+    return new Item(parseResult, convertResult, false);
+  }
+
+  /** Returns the vendor-independent configurations, by hostname. */
+  public Map<String, Configuration> getConfigurations() {
+    return _configurations;
+  }
+
+  public ConvertConfigurationAnswerElement getConvertAnswerElement() {
+    return _convertAnswerElement;
+  }
+
+  /** Returns the hostnames of the configurations to which an overlay was applied. */
+  public Set<String> getOverlaidHostnames() {
+    return Collections.unmodifiableSet(_overlaidHostnames);
+  }
+
+  public ParseVendorConfigurationAnswerElement getParseAnswerElement() {
+    return _parseAnswerElement;
+  }
+
+  /** Returns the names under which vendor configurations were serialized. */
+  public Set<String> getSerializedNames() {
+    return Collections.unmodifiableSet(_claimedHostnames.keySet());
+  }
+
+  /** Returns the number of files that parsed into a vendor configuration. */
+  public int getVendorConfigurationCount() {
+    return _vendorConfigurationCount;
+  }
+}
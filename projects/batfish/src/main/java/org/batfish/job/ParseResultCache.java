@@ -0,0 +1,245 @@
+package org.batfish.job;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.batfish.common.ParseTreeSentences;
+import org.batfish.common.Version;
+import org.batfish.common.Warnings;
+import org.batfish.common.util.CompactObjectInputStream;
+import org.batfish.common.util.CompactObjectOutputStream;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.vendor.VendorConfiguration;
+
+/**
+ * A content-addressed on-disk cache of successful vendor configuration parses, so that files that
+ * are byte-identical to ones parsed for an earlier snapshot are not parsed again.
+ *
+ * <p>Entries are keyed by a hash of the file text and name together with the Batfish version, a
+ * fingerprint of the build (see {@link #computeBuildFingerprint()}), and every setting that
+ * influences parsing or extraction, so a cached parse is only reused where parsing the file again
+ * would produce the same result. Entries whose classes no longer match the local ones are rejected
+ * when read (see {@link CompactObjectInputStream}). Entries are never evicted by Batfish; their
+ * modification time is refreshed on each hit so that stale entries can be pruned by age.
+ */
+public final class ParseResultCache {
+
+  /** A cached parse: the extracted configuration along with what was recorded while parsing it. */
+  static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ParseTreeSentences _parseTree;
+
+    /** Kept separately, since the flag is transient in {@link VendorConfiguration}. */
+    private final boolean _unrecognized;
+
+    private final VendorConfiguration _vendorConfiguration;
+
+    private final Warnings _warnings;
+
+    Entry(
+        VendorConfiguration vendorConfiguration, Warnings warnings, ParseTreeSentences parseTree) {
+      _parseTree = parseTree;
+      _unrecognized = vendorConfiguration.getUnrecognized();
+      _vendorConfiguration = vendorConfiguration;
+      _warnings = warnings;
+    }
+
+    ParseTreeSentences getParseTree() {
+      return _parseTree;
+    }
+
+    VendorConfiguration getVendorConfiguration() {
+      _vendorConfiguration.setUnrecognized(_unrecognized);
+      return _vendorConfiguration;
+    }
+
+    Warnings getWarnings() {
+      return _warnings;
+    }
+  }
+
+  /** Bump to invalidate all existing entries when the entry format changes. */
+  private static final int ENTRY_FORMAT_VERSION = 1;
+
+  private static final Supplier<String> BUILD_FINGERPRINT =
+      Suppliers.memoize(ParseResultCache::computeBuildFingerprint);
+
+  private final Path _cacheDir;
+
+  private final AtomicInteger _hits;
+
+  private final AtomicInteger _misses;
+
+  public ParseResultCache(Path cacheDir) {
+    _cacheDir = cacheDir;
+    _hits = new AtomicInteger();
+    _misses = new AtomicInteger();
+  }
+
+  /**
+   * Returns a hash of the jars holding the parsers, the vendor configuration classes and the data
+   * model, so that entries written by a different build are not reused even if it reports the same
+   * version. Jars are hashed by content; class directories, as in development builds, by the name,
+   * size and modification time of each file. If the code cannot be located, returns a random
+   * fingerprint, so that entries are only reused within this process.
+   */
+  @VisibleForTesting
+  static String computeBuildFingerprint() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    try {
+      SortedSet<Path> locations = new TreeSet<>();
+      for (Class<?> clazz : ImmutableList.of(ParseResultCache.class, VendorConfiguration.class)) {
+        CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+          return UUID.randomUUID().toString();
+        }
+        locations.add(Paths.get(codeSource.getLocation().toURI()));
+      }
+      for (Path location : locations) {
+        hasher.putString(location.toString(), StandardCharsets.UTF_8);
+        if (Files.isDirectory(location)) {
+          try (Stream<Path> files = Files.walk(location)) {
+            for (Path file :
+                files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+              hasher
+                  .putString(location.relativize(file).toString(), StandardCharsets.UTF_8)
+                  .putLong(Files.size(file))
+                  .putLong(Files.getLastModifiedTime(file).toMillis());
+            }
+          }
+        } else {
+          try (InputStream in = Files.newInputStream(location)) {
+            ByteStreams.copy(in, Funnels.asOutputStream(hasher));
+          }
+        }
+      }
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      return UUID.randomUUID().toString();
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Computes the key under which the parse of the given file with the given settings is cached. */
+  static String computeKey(
+      String fileText, String filename, ConfigurationFormat format, Settings settings) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher
+        .putInt(ENTRY_FORMAT_VERSION)
+        .putString(Version.getVersion(), StandardCharsets.UTF_8)
+        .putString(BUILD_FINGERPRINT.get(), StandardCharsets.UTF_8)
+        .putString(filename, StandardCharsets.UTF_8)
+        .putString(format.name(), StandardCharsets.UTF_8)
+        // settings read while parsing and extracting
+        .putBoolean(settings.getDisableUnrecognized())
+        .putBoolean(settings.flattenOnTheFly())
+        .putBoolean(settings.ignoreUnknown())
+        .putBoolean(settings.ignoreUnsupported())
+        .putInt(settings.getMaxParserContextLines())
+        .putInt(settings.getMaxParserContextTokens())
+        .putInt(settings.getMaxParseTreePrintLength())
+        .putBoolean(settings.getPrintParseTree())
+        .putBoolean(settings.getPrintParseTreeLineNums())
+        .putBoolean(settings.getThrowOnLexerError())
+        .putBoolean(settings.getThrowOnParserError())
+        .putBoolean(settings.getUnrecognizedAsRedFlag())
+        // settings deciding which warnings are recorded
+        .putString(settings.getLogLevel(), StandardCharsets.UTF_8)
+        .putBoolean(settings.getPedanticRecord())
+        .putBoolean(settings.getRedFlagRecord())
+        .putBoolean(settings.getUnimplementedRecord());
+    for (String ignored : settings.ignoreFilesWithStrings()) {
+      hasher.putString(ignored, StandardCharsets.UTF_8);
+    }
+    return hasher.putString(fileText, StandardCharsets.UTF_8).hash().toString();
+  }
+
+  public int getHits() {
+    return _hits.get();
+  }
+
+  public int getMisses() {
+    return _misses.get();
+  }
+
+  /** Returns the entry cached under {@code key}, or {@code null} if there is no usable entry. */
+  @Nullable
+  Entry load(String key) {
+    Path file = _cacheDir.resolve(key);
+    if (!Files.exists(file)) {
+      _misses.incrementAndGet();
+      return null;
+    }
+    try (InputStream in =
+            new LZ4FrameInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        ObjectInputStream ois =
+            new CompactObjectInputStream(in, Thread.currentThread().getContextClassLoader())) {
+      Entry entry = (Entry) ois.readObject();
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      _hits.incrementAndGet();
+      return entry;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      // Unreadable entries, e.g. whose classes changed since they were written, are replaced on the
+      // next store.
+      _misses.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Caches an entry under {@code key}. The entry is written to a temporary file first and then
+   * moved into place, so concurrent readers never see a partially written entry.
+   */
+  void store(String key, Entry entry) throws IOException {
+    Files.createDirectories(_cacheDir);
+    Path tmp = Files.createTempFile(_cacheDir, key, ".tmp");
+    try {
+      try (OutputStream out =
+              new LZ4FrameOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+          ObjectOutputStream oos = new CompactObjectOutputStream(out)) {
+        oos.writeObject(entry);
+      }
+      Path file = _cacheDir.resolve(key);
+      try {
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+}
@@ -1,8 +1,12 @@
 package org.batfish.job;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.batfish.common.BatfishException;
 import org.batfish.common.ParseTreeSentences;
@@ -65,6 +69,8 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
     }
   }
 
+  private final Multimap<String, String> _duplicateHostnames;
+
   /** The name of the parsed file, relative to the testrig base. */
   private String _filename;
 
@@ -72,6 +78,8 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
 
   private ConfigurationFormat _format;
 
+  @Nullable private final ParseResultCache _parseCache;
+
   private ParseTreeSentences _ptSentences;
 
   private Warnings _warnings;
@@ -82,17 +90,94 @@ public class ParseVendorConfigurationJob extends BatfishJob<ParseVendorConfigura
       String filename,
       Warnings warnings,
       ConfigurationFormat configurationFormat) {
+    this(settings, fileText, filename, warnings, configurationFormat, null);
+  }
+
+  /**
+   * @param parseCache Cache consulted before parsing and updated after a successful parse, or
+   *     {@code null} to always parse
+   */
+  public ParseVendorConfigurationJob(
+      Settings settings,
+      String fileText,
+      String filename,
+      Warnings warnings,
+      ConfigurationFormat configurationFormat,
+      @Nullable ParseResultCache parseCache) {
+    this(
+        settings,
+        fileText,
+        filename,
+        warnings,
+        configurationFormat,
+        parseCache,
+        HashMultimap.create());
+  }
+
+  /**
+   * @param parseCache Cache consulted before parsing and updated after a successful parse, or
+   *     {@code null} to always parse
+   * @param duplicateHostnames Registry of renamed duplicate hostnames, shared by the jobs of one
+   *     parse run whose results are applied to the same map
+   */
+  public ParseVendorConfigurationJob(
+      Settings settings,
+      String fileText,
+      String filename,
+      Warnings warnings,
+      ConfigurationFormat configurationFormat,
+      @Nullable ParseResultCache parseCache,
+      Multimap<String, String> duplicateHostnames) {
     super(settings);
+    _duplicateHostnames = duplicateHostnames;
     _fileText = fileText;
     _filename = filename;
+    _parseCache = parseCache;
     _ptSentences = new ParseTreeSentences();
     _warnings = warnings;
     _format = configurationFormat;
   }
 
-  @SuppressWarnings("fallthrough")
   @Override
   public ParseVendorConfigurationResult call() throws Exception {
+    ParseVendorConfigurationResult result = parseOrLoad();
+    result.setDuplicateHostnames(_duplicateHostnames);
+    return result;
+  }
+
+  private ParseVendorConfigurationResult parseOrLoad() throws Exception {
+    if (_parseCache == null) {
+      return parse();
+    }
+    long startTime = System.currentTimeMillis();
+    String key = ParseResultCache.computeKey(_fileText, _filename, _format, _settings);
+    ParseResultCache.Entry cached = _parseCache.load(key);
+    if (cached != null) {
+      _logger.infof("Processing: '%s'\n\tLoaded from parse cache\n", _filename);
+      Batfish.logWarnings(_logger, cached.getWarnings());
+      return new ParseVendorConfigurationResult(
+          System.currentTimeMillis() - startTime,
+          _logger.getHistory(),
+          _filename,
+          cached.getVendorConfiguration(),
+          cached.getWarnings(),
+          cached.getParseTree());
+    }
+    ParseVendorConfigurationResult result = parse();
+    VendorConfiguration vc = result.getVendorConfiguration();
+    if (vc != null) {
+      // store before the result is applied, which may rename the host
+      try {
+        _parseCache.store(key, new ParseResultCache.Entry(vc, _warnings, _ptSentences));
+      } catch (IOException e) {
+        _logger.warnf("Could not cache parse of '%s': %s\n", _filename, e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  @SuppressWarnings("fallthrough")
+  private ParseVendorConfigurationResult parse() throws Exception {
     long startTime = System.currentTimeMillis();
     long elapsedTime;
     VendorConfiguration vc = null;
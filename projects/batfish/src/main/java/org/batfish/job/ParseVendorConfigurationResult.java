@@ -27,7 +27,11 @@ public class ParseVendorConfigurationResult
 
   private Warnings _warnings;
 
-  private static Multimap<String, String> _duplicateHostnames = HashMultimap.create();
+  /**
+   * For each hostname shared by several files, the names its hosts were renamed to. Shared by the
+   * results of one parse run, which are applied one at a time.
+   */
+  private Multimap<String, String> _duplicateHostnames;
 
   public ParseVendorConfigurationResult(
       long elapsedTime,
@@ -35,6 +39,7 @@ public class ParseVendorConfigurationResult
       String filename,
       @Nonnull Throwable failureCause) {
     super(elapsedTime, history, failureCause);
+    _duplicateHostnames = HashMultimap.create();
     _filename = filename;
     _status = ParseStatus.FAILED;
   }
@@ -47,6 +52,7 @@ public class ParseVendorConfigurationResult
       Warnings warnings,
       ParseTreeSentences parseTree) {
     super(elapsedTime, history);
+    _duplicateHostnames = HashMultimap.create();
     _filename = filename;
     _parseTree = parseTree;
     _vc = vc;
@@ -62,6 +68,7 @@ public class ParseVendorConfigurationResult
       Warnings warnings,
       ParseStatus status) {
     super(elapsedTime, history);
+    _duplicateHostnames = HashMultimap.create();
     _filename = filename;
     _status = status;
     _warnings = warnings;
@@ -142,7 +149,7 @@ public class ParseVendorConfigurationResult
     return _history;
   }
 
-  private static String getModifiedName(String baseName, String filename) {
+  private String getModifiedName(String baseName, String filename) {
     String modifiedName = baseName + "__file__" + filename;
     int index = 0;
     while (_duplicateHostnames.containsEntry(baseName, modifiedName)) {
@@ -152,6 +159,15 @@ public class ParseVendorConfigurationResult
     return modifiedName;
   }
 
+  /**
+   * Sets the registry of renamed duplicate hostnames consulted and updated when this result is
+   * applied. The results of one parse run must share a registry, so that each hostname is only
+   * renamed among the files of that run.
+   */
+  void setDuplicateHostnames(Multimap<String, String> duplicateHostnames) {
+    _duplicateHostnames = duplicateHostnames;
+  }
+
   public VendorConfiguration getVendorConfiguration() {
     return _vc;
   }
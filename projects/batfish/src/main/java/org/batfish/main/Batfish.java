@@ -9,21 +9,33 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.base.Verify;
 import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
+import com.google.common.math.IntMath;
 import io.opentracing.ActiveSpan;
 import io.opentracing.util.GlobalTracer;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.math.RoundingMode;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
@@ -51,6 +63,8 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -64,8 +78,10 @@ import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.apache.commons.configuration2.ImmutableConfiguration;
 import org.apache.commons.lang3.SerializationUtils;
+import org.batfish.bddreachability.BDDAclLineReachabilityJob;
 import org.batfish.bddreachability.BDDReachabilityAnalysis;
 import org.batfish.bddreachability.BDDReachabilityAnalysisFactory;
+import org.batfish.bddreachability.UnreachableAclLine;
 import org.batfish.common.Answerer;
 import org.batfish.common.BatfishException;
 import org.batfish.common.BatfishException.BatfishStackTrace;
@@ -130,6 +146,7 @@ import org.batfish.datamodel.answers.Answer;
 import org.batfish.datamodel.answers.AnswerElement;
 import org.batfish.datamodel.answers.AnswerStatus;
 import org.batfish.datamodel.answers.AnswerSummary;
+import org.batfish.datamodel.answers.BDDAclLineReachabilityAnswerElement;
 import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
 import org.batfish.datamodel.answers.DataPlaneAnswerElement;
 import org.batfish.datamodel.answers.FlattenVendorConfigurationAnswerElement;
@@ -161,6 +178,7 @@ import org.batfish.grammar.BatfishCombinedParser;
 import org.batfish.grammar.BgpTableFormat;
 import org.batfish.grammar.GrammarSettings;
 import org.batfish.grammar.ParseTreePrettyPrinter;
+import org.batfish.grammar.ParserPredictionStatistics;
 import org.batfish.grammar.flattener.Flattener;
 import org.batfish.grammar.juniper.JuniperCombinedParser;
 import org.batfish.grammar.juniper.JuniperFlattener;
@@ -169,8 +187,10 @@ import org.batfish.grammar.vyos.VyosFlattener;
 import org.batfish.job.BatfishJobExecutor;
 import org.batfish.job.ConvertConfigurationJob;
 import org.batfish.job.FlattenVendorConfigurationJob;
+import org.batfish.job.ParseConvertPipeline;
 import org.batfish.job.ParseEnvironmentBgpTableJob;
 import org.batfish.job.ParseEnvironmentRoutingTableJob;
+import org.batfish.job.ParseResultCache;
 import org.batfish.job.ParseVendorConfigurationJob;
 import org.batfish.question.ReachabilityParameters;
 import org.batfish.question.ResolvedReachabilityParameters;
@@ -212,6 +232,7 @@ import org.batfish.z3.NodSatJob;
 import org.batfish.z3.QuerySynthesizer;
 import org.batfish.z3.ReachEdgeQuerySynthesizer;
 import org.batfish.z3.ReachabilityQuerySynthesizer;
+import org.batfish.z3.SatQuerySynthesizer;
 import org.batfish.z3.StandardReachabilityQuerySynthesizer;
 import org.batfish.z3.Synthesizer;
 import org.batfish.z3.SynthesizerInputImpl;
@@ -235,6 +256,22 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
   public static final String DIFFERENTIAL_FLOW_TAG = "DIFFERENTIAL";
 
+  /**
+   * Jobs per thread when batching NoD satisfiability queries or BDD ACL checks, so that the threads
+   * stay busy
+   */
+  private static final int BATCHED_JOBS_PER_THREAD = 4;
+
+  /**
+   * Lock of each snapshot, held while its data plane is computed and written, so that concurrent
+   * tasks on one snapshot do not compute it twice or overwrite each other's files. A lock is
+   * discarded once no task holds it.
+   */
+  private static final LoadingCache<NetworkSnapshot, Lock> DATA_PLANE_LOCKS =
+      CacheBuilder.newBuilder()
+          .weakValues()
+          .build(CacheLoader.from(snapshot -> new ReentrantLock()));
+
   /** The name of the [optional] topology file within a test-rig */
   public static void applyBaseDir(
       TestrigSettings settings, Path containerDir, String testrig, String envName) {
@@ -428,6 +465,34 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return configFilePaths;
   }
 
+  /**
+   * Parses every file under {@code corpusDir} and discards the results. Since ANTLR shares the DFA
+   * caches of a grammar between all of its parsers in a JVM, this moves the cost of building them
+   * out of the first snapshots parsed afterwards.
+   *
+   * @return The number of files parsed successfully
+   */
+  public static int warmUpParsers(Settings settings, Path corpusDir) {
+    int parsed = 0;
+    for (Path file : listAllFiles(corpusDir)) {
+      ParseVendorConfigurationJob job =
+          new ParseVendorConfigurationJob(
+              settings,
+              CommonUtil.readFile(file),
+              file.toString(),
+              buildWarnings(settings),
+              ConfigurationFormat.UNKNOWN);
+      try {
+        if (job.call().getFailureCause() == null) {
+          parsed++;
+        }
+      } catch (Exception e) {
+        settings.getLogger().debugf("Parser warm-up failed on %s: %s\n", file, e.getMessage());
+      }
+    }
+    return parsed;
+  }
+
   public static void logWarnings(BatfishLogger logger, Warnings warnings) {
     for (Warning warning : warnings.getRedFlagWarnings()) {
       logger.redflag(logWarningsHelper(warning));
@@ -451,6 +516,8 @@ public class Batfish extends PluginConsumer implements IBatfish {
       tree = parser.parse();
     } catch (BatfishException e) {
       throw new ParserBatfishException("Parser error", e);
+    } finally {
+      ParserPredictionStatistics.record(parser);
     }
     List<String> errors = parser.getErrors();
     int numErrors = errors.size();
@@ -480,6 +547,8 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
   private SortedMap<BgpTableFormat, BgpTablePlugin> _bgpTablePlugins;
 
+  private final Map<NetworkSnapshot, BDDPacket> _cachedBddPackets;
+
   private final Cache<NetworkSnapshot, SortedMap<String, Configuration>>
       _cachedCompressedConfigurations;
 
@@ -522,10 +591,12 @@ public class Batfish extends PluginConsumer implements IBatfish {
       Cache<NetworkSnapshot, DataPlane> cachedCompressedDataPlanes,
       Cache<NetworkSnapshot, DataPlane> cachedDataPlanes,
       Map<NetworkSnapshot, SortedMap<String, BgpAdvertisementsByVrf>> cachedEnvironmentBgpTables,
-      Map<NetworkSnapshot, SortedMap<String, RoutesByVrf>> cachedEnvironmentRoutingTables) {
-    super(settings.getSerializeToText());
+      Map<NetworkSnapshot, SortedMap<String, RoutesByVrf>> cachedEnvironmentRoutingTables,
+      Map<NetworkSnapshot, BDDPacket> cachedBddPackets) {
+    super(settings.getSerializeToText(), settings.getCompactSerialization());
     _settings = settings;
     _bgpTablePlugins = new TreeMap<>();
+    _cachedBddPackets = cachedBddPackets;
     _cachedCompressedConfigurations = cachedCompressedConfigurations;
     _cachedConfigurations = cachedConfigurations;
     _cachedCompressedDataPlanes = cachedCompressedDataPlanes;
@@ -543,7 +614,10 @@ public class Batfish extends PluginConsumer implements IBatfish {
     _dataPlanePlugins = new HashMap<>();
     _storage =
         new BatfishStorage(
-            _settings.getStorageBase().resolve(_settings.getContainer()), _logger, this::newBatch);
+            _settings.getStorageBase().resolve(_settings.getContainer()),
+            _logger,
+            this::newBatch,
+            _settings.getCompactSerialization());
   }
 
   private Answer analyze() {
@@ -721,17 +795,36 @@ public class Batfish extends PluginConsumer implements IBatfish {
   @VisibleForTesting
   public List<NodSatJob<AclLine>> generateUnmatchableAclLineJobs(
       Configuration c, String aclName, Set<Integer> linesToCheck) {
-    List<NodSatJob<AclLine>> jobs = new ArrayList<>();
-
     String hostname = c.getHostname();
     Synthesizer aclSynthesizer = synthesizeAcls(hostname, c, aclName);
+    List<SatQuerySynthesizer<AclLine>> queries = new ArrayList<>();
     for (int lineNumber : linesToCheck) {
-      AclLineIndependentSatisfiabilityQuerySynthesizer query =
-          new AclLineIndependentSatisfiabilityQuerySynthesizer(hostname, aclName, lineNumber);
-      NodSatJob<AclLine> job = new NodSatJob<>(_settings, aclSynthesizer, query, true);
-      jobs.add(job);
+      queries.add(
+          new AclLineIndependentSatisfiabilityQuerySynthesizer(hostname, aclName, lineNumber));
     }
-    return jobs;
+    return batchNodSatJobs(aclSynthesizer, queries, batchSize(queries.size()));
+  }
+
+  /**
+   * Groups {@code queries} into jobs of at most {@code batchSize} queries each. The queries of a
+   * job are answered in one Z3 context, so the base program is translated once per job rather than
+   * once per query.
+   */
+  private <KeyT> List<NodSatJob<KeyT>> batchNodSatJobs(
+      Synthesizer synthesizer, List<SatQuerySynthesizer<KeyT>> queries, int batchSize) {
+    return Lists.partition(queries, batchSize)
+        .stream()
+        .map(batch -> new NodSatJob<>(_settings, synthesizer, batch, true))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns how many of {@code numItems} queries or ACLs to put in each {@link NodSatJob} or {@link
+   * BDDAclLineReachabilityJob}.
+   */
+  private int batchSize(int numItems) {
+    int numJobs = _settings.getAvailableThreads() * BATCHED_JOBS_PER_THREAD;
+    return Math.max(1, IntMath.divide(numItems, numJobs, RoundingMode.CEILING));
   }
 
   @Override
@@ -750,6 +843,58 @@ public class Batfish extends PluginConsumer implements IBatfish {
         toImmutableSortedMap(
             aclSpecsMap.entrySet(), Entry::getKey, e -> buildConfiguration(e.getValue()));
 
+    if (_settings.getNodAclReachability()) {
+      answerAclReachabilityWithNod(aclSpecsMap, configs, answerRows);
+      return;
+    }
+
+    // Walk each ACL once, many ACLs to a job
+    List<BDDAclLineReachabilityJob> jobs =
+        Lists.partition(ImmutableList.copyOf(configs.entrySet()), batchSize(configs.size()))
+            .stream()
+            .map(
+                batch ->
+                    new BDDAclLineReachabilityJob(
+                        _settings,
+                        batch
+                            .stream()
+                            .collect(ImmutableMap.toImmutableMap(Entry::getKey, Entry::getValue))))
+            .collect(Collectors.toList());
+    Map<AclLine, UnreachableAclLine> unreachableLines = new TreeMap<>();
+    _logger.info("\n*** EXECUTING BDD ACL LINE REACHABILITY JOBS ***\n");
+    _logger.resetTimer();
+    BatfishJobExecutor.runJobsInExecutor(
+        _settings,
+        _logger,
+        jobs,
+        unreachableLines,
+        new BDDAclLineReachabilityAnswerElement(),
+        true,
+        "BDD ACL line reachability");
+    _logger.printElapsedTime();
+
+    // Report lines
+    unreachableLines.forEach(
+        (line, unreachableLine) -> {
+          AclSpecs aclSpec =
+              aclSpecsMap.get(new AclIdentifier(line.getHostname(), line.getAclName()));
+          if (unreachableLine.isUnmatchable()) {
+            answerRows.addUnreachableLine(aclSpec, line.getLine(), true, new TreeSet<>());
+          } else {
+            Integer blockingLineNum = unreachableLine.getBlockingLine();
+            SortedSet<Integer> blockingLineNums =
+                blockingLineNum == null
+                    ? ImmutableSortedSet.of()
+                    : ImmutableSortedSet.of(blockingLineNum);
+            answerRows.addUnreachableLine(aclSpec, line.getLine(), false, blockingLineNums);
+          }
+        });
+  }
+
+  private void answerAclReachabilityWithNod(
+      Map<AclIdentifier, AclSpecs> aclSpecsMap,
+      Map<AclIdentifier, Configuration> configs,
+      AclLinesAnswerElementInterface answerRows) {
     // Find all unreachable lines
     List<NodSatJob<AclLine>> lineReachabilityJobs =
         generateUnreachableAclLineJobs(aclSpecsMap, configs);
@@ -856,6 +1001,13 @@ public class Batfish extends PluginConsumer implements IBatfish {
   private List<NodSatJob<AclLine>> generateUnreachableAclLineJobs(
       Map<AclIdentifier, AclSpecs> aclSpecsMap, Map<AclIdentifier, Configuration> configs) {
     List<NodSatJob<AclLine>> lineReachabilityJobs = new ArrayList<>();
+    int batchSize =
+        batchSize(
+            aclSpecsMap
+                .values()
+                .stream()
+                .mapToInt(aclSpec -> aclSpec.acl.getSanitizedAcl().getLines().size())
+                .sum());
     for (AclIdentifier reprPair : aclSpecsMap.keySet()) {
       Configuration c = configs.get(reprPair);
       IpAccessList sanitizedAcl = aclSpecsMap.get(reprPair).acl.getSanitizedAcl();
@@ -863,21 +1015,21 @@ public class Batfish extends PluginConsumer implements IBatfish {
       String hostname = c.getHostname();
       Synthesizer aclSynthesizer = synthesizeAcls(hostname, c, aclName);
 
-      // Create job for each line to see if it's unreachable
+      // Create a query for each line to see if it's unreachable. They all share the same rules.
+      List<RuleStatement> rules =
+          IntStream.range(0, sanitizedAcl.getLines().size())
+              .mapToObj(
+                  i ->
+                      new BasicRuleStatement(
+                          TrueExpr.INSTANCE,
+                          ImmutableSet.of(new AclLineMatch(hostname, aclName, i)),
+                          new NumberedQuery(i)))
+              .collect(ImmutableList.toImmutableList());
+      List<SatQuerySynthesizer<AclLine>> queries = new ArrayList<>();
       for (int lineNum = 0; lineNum < sanitizedAcl.getLines().size(); lineNum++) {
-        List<RuleStatement> rules =
-            IntStream.range(0, sanitizedAcl.getLines().size())
-                .mapToObj(
-                    i ->
-                        new BasicRuleStatement(
-                            TrueExpr.INSTANCE,
-                            ImmutableSet.of(new AclLineMatch(hostname, aclName, i)),
-                            new NumberedQuery(i)))
-                .collect(Collectors.toList());
-        AclReachabilityQuerySynthesizer query =
-            new AclReachabilityQuerySynthesizer(rules, hostname, aclName, lineNum);
-        lineReachabilityJobs.add(new NodSatJob<>(_settings, aclSynthesizer, query, true));
+        queries.add(new AclReachabilityQuerySynthesizer(rules, hostname, aclName, lineNum));
       }
+      lineReachabilityJobs.addAll(batchNodSatJobs(aclSynthesizer, queries, batchSize));
     }
     return lineReachabilityJobs;
   }
@@ -1012,8 +1164,8 @@ public class Batfish extends PluginConsumer implements IBatfish {
     Path vendorConfigsDir = envSettings.getDeltaVendorConfigurationsDir();
     if (deltaConfigurationsDir != null) {
       if (Files.exists(deltaConfigurationsDir)) {
-        answer.append(serializeVendorConfigs(envSettings.getEnvPath(), vendorConfigsDir));
-        answer.append(serializeIndependentConfigs(vendorConfigsDir));
+        answer.append(
+            serializeVendorAndIndependentConfigs(envSettings.getEnvPath(), vendorConfigsDir));
       }
       return answer;
     } else {
@@ -1033,11 +1185,17 @@ public class Batfish extends PluginConsumer implements IBatfish {
   }
 
   private CompressDataPlaneResult computeCompressedDataPlane() {
-    CompressDataPlaneResult result = computeCompressedDataPlane(new HeaderSpace());
-    _cachedCompressedConfigurations.put(
-        getNetworkSnapshot(), new TreeMap<>(result._compressedConfigs));
-    saveDataPlane(result._compressedDataPlane, result._answerElement, true);
-    return result;
+    Lock lock = getDataPlaneLock();
+    lock.lock();
+    try {
+      CompressDataPlaneResult result = computeCompressedDataPlane(new HeaderSpace());
+      _cachedCompressedConfigurations.put(
+          getNetworkSnapshot(), new TreeMap<>(result._compressedConfigs));
+      saveDataPlane(result._compressedDataPlane, result._answerElement, true);
+      return result;
+    } finally {
+      lock.unlock();
+    }
   }
 
   public class CompressDataPlaneResult {
@@ -1078,9 +1236,15 @@ public class Batfish extends PluginConsumer implements IBatfish {
   @Override
   public DataPlaneAnswerElement computeDataPlane(boolean differentialContext) {
     checkEnvironmentExists();
-    ComputeDataPlaneResult result = getDataPlanePlugin().computeDataPlane(differentialContext);
-    saveDataPlane(result._dataPlane, result._answerElement, false);
-    return result._answerElement;
+    Lock lock = getDataPlaneLock();
+    lock.lock();
+    try {
+      ComputeDataPlaneResult result = getDataPlanePlugin().computeDataPlane(differentialContext);
+      saveDataPlane(result._dataPlane, result._answerElement, false);
+      return result._answerElement;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /* Write the dataplane to disk and cache, and write the answer element to disk.
@@ -1312,6 +1476,15 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
   public Map<String, GenericConfigObject> deserializeVendorConfigurations(
       Path serializedVendorConfigPath) {
+    return deserializeVendorConfigurations(serializedVendorConfigPath, ImmutableSet.of());
+  }
+
+  /**
+   * Deserializes the vendor configurations in {@code serializedVendorConfigPath}, except those
+   * named in {@code excludedNames}.
+   */
+  private Map<String, GenericConfigObject> deserializeVendorConfigurations(
+      Path serializedVendorConfigPath, Set<String> excludedNames) {
     _logger.info("\n*** DESERIALIZING VENDOR CONFIGURATION STRUCTURES ***\n");
     _logger.resetTimer();
     Map<Path, String> namesByPath = new TreeMap<>();
@@ -1319,7 +1492,9 @@ public class Batfish extends PluginConsumer implements IBatfish {
         Files.newDirectoryStream(serializedVendorConfigPath)) {
       for (Path serializedConfig : serializedConfigs) {
         String name = serializedConfig.getFileName().toString();
-        namesByPath.put(serializedConfig, name);
+        if (!excludedNames.contains(name)) {
+          namesByPath.put(serializedConfig, name);
+        }
       }
     } catch (IOException e) {
       throw new BatfishException("Error reading vendor configs directory", e);
@@ -1968,6 +2143,11 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return _settings.getImmutableConfiguration();
   }
 
+  /** Returns the lock of the current snapshot's data plane. */
+  private Lock getDataPlaneLock() {
+    return DATA_PLANE_LOCKS.getUnchecked(getNetworkSnapshot());
+  }
+
   NetworkSnapshot getNetworkSnapshot() {
     return new NetworkSnapshot(
         _settings.getContainer(),
@@ -2231,7 +2411,17 @@ public class Batfish extends PluginConsumer implements IBatfish {
     }
     if (dp) {
       if (!dataPlaneDependenciesExist(_testrigSettings)) {
-        computeDataPlane(differentialContext);
+        // another task on this snapshot may be computing the data plane, so check again once it
+        // is done
+        Lock lock = getDataPlaneLock();
+        lock.lock();
+        try {
+          if (!dataPlaneDependenciesExist(_testrigSettings)) {
+            computeDataPlane(differentialContext);
+          }
+        } finally {
+          lock.unlock();
+        }
       }
 
       if (!compressedDataPlaneDependenciesExist(_testrigSettings)) {
@@ -2373,10 +2563,16 @@ public class Batfish extends PluginConsumer implements IBatfish {
     _logger.debugf("Loading configurations for %s, cache miss", snapshot);
 
     // Next, see if we have an up-to-date, environment-specific configurations on disk.
-    configurations = _storage.loadConfigurations(snapshot.getSnapshot().getTestrig());
+    if (_settings.getLazyConfigurations()) {
+      configurations = loadConfigurationsLazily(snapshot.getSnapshot().getTestrig());
+    } else {
+      configurations = _storage.loadConfigurations(snapshot.getSnapshot().getTestrig());
+      if (configurations != null) {
+        applyEnvironment(configurations);
+      }
+    }
     if (configurations != null) {
       _logger.debugf("Loaded configurations for %s off disk", snapshot);
-      applyEnvironment(configurations);
     } else {
       // Otherwise, we have to parse the configurations. Fall back to old, hacky code.
       configurations = parseConfigurationsAndApplyEnvironment();
@@ -2386,6 +2582,100 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return configurations;
   }
 
+  /**
+   * Returns the configurations of the given testrig with the environment applied, like {@link
+   * BatfishStorage#loadConfigurations(String)} followed by {@link #applyEnvironment(Map)}, except
+   * that each configuration is only read from disk when it is first accessed.
+   *
+   * <p>The environment is applied to each configuration as it is read. The only cross-device step
+   * is disabling unusable IPsec VPN interfaces; it runs once, over the configurations indexed as
+   * IPsec VPN peers, the first time a configuration with an IPsec VPN is accessed.
+   */
+  @Nullable
+  private SortedMap<String, Configuration> loadConfigurationsLazily(String testrig) {
+    // Capture the environment now, since configurations may be read after the active testrig
+    // settings have changed.
+    SortedSet<String> nodeBlacklist = getNodeBlacklist();
+    ListMultimap<String, NodeInterfacePair> interfaceBlacklist =
+        Multimaps.index(getInterfaceBlacklist(), NodeInterfacePair::getHostname);
+    ValidateEnvironmentAnswerElement veae = new ValidateEnvironmentAnswerElement();
+    SortedMap<String, Supplier<Configuration>> suppliers =
+        _storage.loadConfigurationsLazily(
+            testrig,
+            c -> {
+              Map<String, Configuration> configuration = ImmutableMap.of(c.getHostname(), c);
+              if (nodeBlacklist.contains(c.getHostname())) {
+                for (Interface iface : c.getInterfaces().values()) {
+                  iface.setActive(false);
+                  iface.setBlacklisted(true);
+                }
+              }
+              for (NodeInterfacePair iface : interfaceBlacklist.get(c.getHostname())) {
+                blacklistInterface(configuration, veae, iface);
+              }
+              disableUnusableVlanInterfaces(configuration);
+              if (c.getIpsecVpns().isEmpty()) {
+                postProcessForEnvironment(configuration);
+              }
+            });
+    if (suppliers == null) {
+      return null;
+    }
+
+    SortedMap<String, Boolean> ipsecPeers = _storage.loadIpsecPeers(testrig);
+    if (ipsecPeers == null) {
+      _logger.warnf(
+          "No index of IPsec VPN peers for testrig %s: reading all configurations on first access "
+              + "to any of them\n",
+          testrig);
+      ipsecPeers = new TreeMap<>(Maps.toMap(suppliers.keySet(), hostname -> true));
+    }
+    Set<String> peerHostnames = Sets.intersection(ipsecPeers.keySet(), suppliers.keySet());
+    Supplier<Boolean> vpnEnvironment =
+        Suppliers.memoize(
+            () -> {
+              Map<String, Configuration> peers =
+                  new TreeMap<>(
+                      Maps.toMap(peerHostnames, hostname -> suppliers.get(hostname).get()));
+              disableUnusableVpnInterfaces(peers);
+              postProcessForEnvironment(Maps.filterValues(peers, c -> !c.getIpsecVpns().isEmpty()));
+              return true;
+            });
+    SortedMap<String, Supplier<Configuration>> configurations = new TreeMap<>(suppliers);
+    ipsecPeers.forEach(
+        (hostname, hasIpsecVpns) -> {
+          Supplier<Configuration> configuration = suppliers.get(hostname);
+          if (hasIpsecVpns && configuration != null) {
+            configurations.put(
+                hostname,
+                () -> {
+                  vpnEnvironment.get();
+                  return configuration.get();
+                });
+          }
+        });
+
+    // Validate the blacklists, reading all blacklisted nodes so that veae is complete.
+    for (String hostname : nodeBlacklist) {
+      if (!configurations.containsKey(hostname)) {
+        veae.setValid(false);
+        veae.getUndefinedNodeBlacklistNodes().add(hostname);
+      }
+    }
+    for (String hostname : interfaceBlacklist.keySet()) {
+      if (configurations.containsKey(hostname)) {
+        configurations.get(hostname).get();
+      } else {
+        veae.setValid(false);
+        veae.getUndefinedInterfaceBlacklistNodes().add(hostname);
+      }
+    }
+    serializeObject(
+        veae, _testrigSettings.getEnvironmentSettings().getValidateEnvironmentAnswerPath());
+
+    return new LazyConfigurationMap(configurations);
+  }
+
   @Nonnull
   private SortedMap<String, Configuration> parseConfigurationsAndApplyEnvironment() {
     _logger.infof("Repairing configurations for testrig %s", _testrigSettings.getName());
@@ -2875,6 +3165,10 @@ public class Batfish extends PluginConsumer implements IBatfish {
     _logger.resetTimer();
     SortedMap<String, VendorConfiguration> vendorConfigurations = new TreeMap<>();
     List<ParseVendorConfigurationJob> jobs = new ArrayList<>();
+    Multimap<String, String> duplicateHostnames = HashMultimap.create();
+    Path parseCacheDir = _settings.getParseCacheDir();
+    ParseResultCache parseCache =
+        parseCacheDir == null ? null : new ParseResultCache(parseCacheDir);
     for (Entry<Path, String> vendorFile : configurationData.entrySet()) {
       Path currentFile = vendorFile.getKey();
       String fileText = vendorFile.getValue();
@@ -2884,7 +3178,13 @@ public class Batfish extends PluginConsumer implements IBatfish {
           _settings.getActiveTestrigSettings().getTestRigPath().relativize(currentFile).toString();
       ParseVendorConfigurationJob job =
           new ParseVendorConfigurationJob(
-              _settings, fileText, filename, warnings, configurationFormat);
+              _settings,
+              fileText,
+              filename,
+              warnings,
+              configurationFormat,
+              parseCache,
+              duplicateHostnames);
       jobs.add(job);
     }
     BatfishJobExecutor.runJobsInExecutor(
@@ -2896,6 +3196,12 @@ public class Batfish extends PluginConsumer implements IBatfish {
         _settings.getHaltOnParseError(),
         "Parse configurations");
     _logger.printElapsedTime();
+    if (parseCache != null) {
+      _logger.infof(
+          "Parse cache: %d hits, %d misses\n", parseCache.getHits(), parseCache.getMisses());
+    }
+    _logger.debugf(
+        "Parser prediction statistics: %s\n", ParserPredictionStatistics.getStatistics());
     return vendorConfigurations;
   }
 
@@ -3605,9 +3911,18 @@ public class Batfish extends PluginConsumer implements IBatfish {
   }
 
   private void repairConfigurations() {
-    ParseVendorConfigurationAnswerElement pvcae = loadParseVendorConfigurationAnswerElement();
-    if (!Version.isCompatibleVersion("Service", "Old parsed configurations", pvcae.getVersion())) {
-      repairVendorConfigurations();
+    Path parseAnswerPath = _testrigSettings.getParseAnswerPath();
+    if (!Files.exists(parseAnswerPath)
+        || !Version.isCompatibleVersion(
+            "Service",
+            "Old parsed configurations",
+            deserializeObject(parseAnswerPath, ParseVendorConfigurationAnswerElement.class)
+                .getVersion())) {
+      // vendor configurations must be parsed again, so convert them at the same time
+      Path outputPath = _testrigSettings.getSerializeVendorPath();
+      CommonUtil.deleteDirectory(outputPath);
+      serializeVendorAndIndependentConfigs(_testrigSettings.getTestRigPath(), outputPath);
+      return;
     }
     Path inputPath = _testrigSettings.getSerializeVendorPath();
     serializeIndependentConfigs(inputPath);
@@ -3624,13 +3939,19 @@ public class Batfish extends PluginConsumer implements IBatfish {
             ? _testrigSettings.getEnvironmentSettings().getCompressedDataPlaneAnswerPath()
             : _testrigSettings.getEnvironmentSettings().getDataPlaneAnswerPath();
 
-    CommonUtil.deleteIfExists(dataPlanePath);
-    CommonUtil.deleteIfExists(dataPlaneAnswerPath);
+    Lock lock = getDataPlaneLock();
+    lock.lock();
+    try {
+      CommonUtil.deleteIfExists(dataPlanePath);
+      CommonUtil.deleteIfExists(dataPlaneAnswerPath);
 
-    if (compressed) {
-      computeCompressedDataPlane();
-    } else {
-      computeDataPlane(false);
+      if (compressed) {
+        computeCompressedDataPlane();
+      } else {
+        computeDataPlane(false);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -3787,14 +4108,17 @@ public class Batfish extends PluginConsumer implements IBatfish {
     // return answer;
     // }
 
-    if (_settings.getSerializeVendor()) {
+    if (_settings.getSerializeVendor() && _settings.getSerializeIndependent()) {
+      Path testRigPath = _testrigSettings.getTestRigPath();
+      Path outputPath = _testrigSettings.getSerializeVendorPath();
+      answer.append(serializeVendorAndIndependentConfigs(testRigPath, outputPath));
+      action = true;
+    } else if (_settings.getSerializeVendor()) {
       Path testRigPath = _testrigSettings.getTestRigPath();
       Path outputPath = _testrigSettings.getSerializeVendorPath();
       answer.append(serializeVendorConfigs(testRigPath, outputPath));
       action = true;
-    }
-
-    if (_settings.getSerializeIndependent()) {
+    } else if (_settings.getSerializeIndependent()) {
       Path inputPath = _testrigSettings.getSerializeVendorPath();
       answer.append(serializeIndependentConfigs(inputPath));
       action = true;
@@ -4017,6 +4341,12 @@ public class Batfish extends PluginConsumer implements IBatfish {
       answer.addAnswerElement(answerElement);
     }
     Map<String, Configuration> configurations = getConfigurations(vendorConfigPath, answerElement);
+    serializeIndependentConfigs(configurations, answerElement);
+    return answer;
+  }
+
+  private void serializeIndependentConfigs(
+      Map<String, Configuration> configurations, ConvertConfigurationAnswerElement answerElement) {
     Topology testrigTopology = computeTestrigTopology(configurations);
     serializeAsJson(_testrigSettings.getTopologyPath(), testrigTopology, "testrig topology");
     checkTopology(configurations, testrigTopology);
@@ -4046,15 +4376,19 @@ public class Batfish extends PluginConsumer implements IBatfish {
     } catch (IOException e) {
       _logger.warnf("Could not update node roles in %s: %s", nodeRoleDataPath, e);
     }
-
-    return answer;
   }
 
   private void serializeNetworkConfigs(
       Path testRigPath,
       Path outputPath,
       ParseVendorConfigurationAnswerElement answerElement,
-      SortedMap<String, VendorConfiguration> overlayHostConfigurations) {
+      SortedMap<String, VendorConfiguration> overlayHostConfigurations,
+      @Nullable ParseConvertPipeline pipeline) {
+    if (pipeline != null
+        && streamNetworkConfigs(
+            testRigPath, outputPath, answerElement, overlayHostConfigurations, pipeline)) {
+      return;
+    }
     Map<Path, String> configurationData =
         readConfigurationFiles(testRigPath, BfConsts.RELPATH_CONFIGURATIONS_DIR);
     Map<String, VendorConfiguration> vendorConfigurations;
@@ -4106,6 +4440,63 @@ public class Batfish extends PluginConsumer implements IBatfish {
     _logger.printElapsedTime();
   }
 
+  /**
+   * Parses, serializes, and converts the network configurations with {@code pipeline}, holding only
+   * those in flight in memory.
+   *
+   * @return {@code false} if the pipeline could not be used, in which case nothing was serialized
+   */
+  private boolean streamNetworkConfigs(
+      Path testRigPath,
+      Path outputPath,
+      ParseVendorConfigurationAnswerElement answerElement,
+      SortedMap<String, VendorConfiguration> overlayHostConfigurations,
+      ParseConvertPipeline pipeline) {
+    _logger.info("\n*** PARSING, SERIALIZING, AND CONVERTING NETWORK CONFIGURATIONS ***\n");
+    _logger.resetTimer();
+    CommonUtil.createDirectories(outputPath);
+    Path parseCacheDir = _settings.getParseCacheDir();
+    ParseResultCache parseCache =
+        parseCacheDir == null ? null : new ParseResultCache(parseCacheDir);
+    boolean streamed;
+    try (ActiveSpan parseNetworkConfigsSpan =
+        GlobalTracer.get().buildSpan("Parse and convert network configs").startActive()) {
+      assert parseNetworkConfigsSpan != null; // avoid unused warning
+      streamed =
+          pipeline.run(
+              listAllFiles(testRigPath.resolve(BfConsts.RELPATH_CONFIGURATIONS_DIR)),
+              _settings.getActiveTestrigSettings().getTestRigPath(),
+              outputPath,
+              overlayHostConfigurations,
+              parseCache);
+    }
+    _logger.printElapsedTime();
+    if (!streamed) {
+      return false;
+    }
+    ParseVendorConfigurationAnswerElement pipelineAnswerElement = pipeline.getParseAnswerElement();
+    answerElement.getErrors().putAll(pipelineAnswerElement.getErrors());
+    answerElement.getFileMap().putAll(pipelineAnswerElement.getFileMap());
+    answerElement.getParseStatus().putAll(pipelineAnswerElement.getParseStatus());
+    answerElement.getParseTrees().putAll(pipelineAnswerElement.getParseTrees());
+    answerElement.getWarnings().putAll(pipelineAnswerElement.getWarnings());
+    _logger.infof(
+        "Testrig:%s in container:%s has total number of network configs:%d",
+        getTestrigName(), getContainerName(), pipeline.getVendorConfigurationCount());
+    if (parseCache != null) {
+      _logger.infof(
+          "Parse cache: %d hits, %d misses\n", parseCache.getHits(), parseCache.getMisses());
+    }
+    _logger.debugf(
+        "Parser prediction statistics: %s\n", ParserPredictionStatistics.getStatistics());
+
+    // warn about unused overlays
+    overlayHostConfigurations.keySet().removeAll(pipeline.getOverlaidHostnames());
+    overlayHostConfigurations.forEach(
+        (name, overlay) -> answerElement.getParseStatus().put(name, ParseStatus.ORPHANED));
+    return true;
+  }
+
   public <S extends Serializable> void serializeObjects(Map<Path, S> objectsByPath) {
     if (objectsByPath.isEmpty()) {
       return;
@@ -4128,6 +4519,16 @@ public class Batfish extends PluginConsumer implements IBatfish {
   }
 
   Answer serializeVendorConfigs(Path testRigPath, Path outputPath) {
+    return serializeVendorConfigs(testRigPath, outputPath, null);
+  }
+
+  /**
+   * Serializes the vendor configurations in {@code testRigPath} to {@code outputPath}, converting
+   * the network configurations with {@code pipeline} as they are serialized if it is not {@code
+   * null}.
+   */
+  private Answer serializeVendorConfigs(
+      Path testRigPath, Path outputPath, @Nullable ParseConvertPipeline pipeline) {
     Answer answer = new Answer();
     boolean configsFound = false;
 
@@ -4149,7 +4550,8 @@ public class Batfish extends PluginConsumer implements IBatfish {
     }
 
     if (Files.exists(networkConfigsPath)) {
-      serializeNetworkConfigs(testRigPath, outputPath, answerElement, overlayHostConfigurations);
+      serializeNetworkConfigs(
+          testRigPath, outputPath, answerElement, overlayHostConfigurations, pipeline);
       configsFound = true;
     }
 
@@ -4170,6 +4572,32 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return answer;
   }
 
+  /**
+   * Serializes the vendor configurations in {@code testRigPath} to {@code vendorConfigPath}, and
+   * their vendor-independent forms. Equivalent to {@link #serializeVendorConfigs} followed by
+   * {@link #serializeIndependentConfigs(Path)}, except that network configurations are converted as
+   * they are parsed rather than deserialized again afterwards.
+   */
+  Answer serializeVendorAndIndependentConfigs(Path testRigPath, Path vendorConfigPath) {
+    ParseConvertPipeline pipeline =
+        new ParseConvertPipeline(_settings, _logger, this::serializeObject);
+    Answer answer = serializeVendorConfigs(testRigPath, vendorConfigPath, pipeline);
+    ConvertConfigurationAnswerElement answerElement = pipeline.getConvertAnswerElement();
+    answerElement.setVersion(Version.getVersion());
+    if (_settings.getVerboseParse()) {
+      answer.addAnswerElement(answerElement);
+    }
+    // host, AWS, and network configurations the pipeline could not handle
+    Map<String, Configuration> configurations = new TreeMap<>(pipeline.getConfigurations());
+    configurations.putAll(
+        convertConfigurations(
+            deserializeVendorConfigurations(vendorConfigPath, pipeline.getSerializedNames()),
+            answerElement));
+    postProcessConfigurations(configurations.values());
+    serializeIndependentConfigs(configurations, answerElement);
+    return answer;
+  }
+
   @Override
   public void registerDataPlanePlugin(DataPlanePlugin plugin, String name) {
     _dataPlanePlugins.put(name, plugin);
@@ -4267,12 +4695,14 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
   @Override
   public Optional<Flow> reachFilter(String nodeName, IpAccessList acl) {
-    BDDPacket bddPacket = new BDDPacket();
-    BDDAcl bddAcl = BDDAcl.create(bddPacket, acl);
-    return bddAcl
-        .getPkt()
-        .getFlow(bddAcl.getBdd())
-        .map(flowBuilder -> flowBuilder.setTag(getFlowTag()).setIngressNode(nodeName).build());
+    BDDPacket bddPacket = getBddPacket();
+    synchronized (bddPacket) {
+      BDDAcl bddAcl = BDDAcl.create(bddPacket, acl);
+      return bddAcl
+          .getPkt()
+          .getFlow(bddAcl.getBdd())
+          .map(flowBuilder -> flowBuilder.setTag(getFlowTag()).setIngressNode(nodeName).build());
+    }
   }
 
   @Override
@@ -4399,8 +4829,26 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
   @Override
   public Set<Flow> bddMultipathConsistency() {
-    BDDReachabilityAnalysis bddReachabilityAnalysis = getBddReachabilityAnalysis(new BDDPacket());
-    return bddReachabilityAnalysis.multipathInconsistencies(getFlowTag());
+    BDDPacket pkt = getBddPacket();
+    synchronized (pkt) {
+      BDDReachabilityAnalysis bddReachabilityAnalysis = getBddReachabilityAnalysis(pkt);
+      return bddReachabilityAnalysis.multipathInconsistencies(getFlowTag());
+    }
+  }
+
+  /**
+   * Returns the {@link BDDPacket} shared by the BDD-based questions on the current snapshot, so
+   * that the ACL and IpSpace BDDs built for one question are reused by the next. BDD factories are
+   * not thread-safe, so callers must hold the packet's lock while using it.
+   */
+  @Nonnull
+  private BDDPacket getBddPacket() {
+    return _cachedBddPackets.computeIfAbsent(getNetworkSnapshot(), snapshot -> newBddPacket());
+  }
+
+  @Nonnull
+  private BDDPacket newBddPacket() {
+    return new BDDPacket(_settings.getBddNodeTableSize(), _settings.getBddNodeCacheSize());
   }
 
   @Nonnull
@@ -4428,7 +4876,8 @@ public class Batfish extends PluginConsumer implements IBatfish {
    */
   @Override
   public Set<Flow> bddReducedReachability() {
-    BDDPacket pkt = new BDDPacket();
+    // compares two snapshots, so uses a packet of its own rather than either snapshot's
+    BDDPacket pkt = newBddPacket();
 
     pushBaseEnvironment();
     BDDReachabilityAnalysis baseReachabilityAnalysis = getBddReachabilityAnalysis(pkt);
@@ -3,25 +3,34 @@ package org.batfish.main;
 import static org.batfish.common.plugin.PluginConsumer.DEFAULT_HEADER_LENGTH_BYTES;
 import static org.batfish.common.plugin.PluginConsumer.detectFormat;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.io.Closer;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 import javax.annotation.Nonnull;
@@ -36,12 +45,15 @@ import org.batfish.common.plugin.PluginConsumer.Format;
 import org.batfish.common.topology.Layer1Topology;
 import org.batfish.common.util.BatfishObjectMapper;
 import org.batfish.common.util.CommonUtil;
+import org.batfish.common.util.CompactObjectInputStream;
+import org.batfish.common.util.CompactObjectOutputStream;
 import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.Topology;
 import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
 
 /** A utility class that abstracts the underlying file system storage used by {@link Batfish}. */
 final class BatfishStorage {
+  private final boolean _compactSerialization;
   private final BatfishLogger _logger;
   private final Path _containerDir;
   private final BiFunction<String, Integer, AtomicInteger> _newBatch;
@@ -51,9 +63,23 @@ final class BatfishStorage {
       Path containerDir,
       BatfishLogger logger,
       BiFunction<String, Integer, AtomicInteger> newBatch) {
+    this(containerDir, logger, newBatch, false);
+  }
+
+  /**
+   * Create a new {@link BatfishStorage} instance that uses the given root path as a container.
+   * Objects are stored using {@link CompactObjectOutputStream} if {@code compactSerialization} is
+   * set, and standard Java serialization otherwise. Either format can be loaded regardless.
+   */
+  public BatfishStorage(
+      Path containerDir,
+      BatfishLogger logger,
+      BiFunction<String, Integer, AtomicInteger> newBatch,
+      boolean compactSerialization) {
     _containerDir = containerDir;
     _logger = logger;
     _newBatch = newBatch;
+    _compactSerialization = compactSerialization;
   }
 
   /**
@@ -79,6 +105,92 @@ final class BatfishStorage {
   }
 
   private SortedMap<String, Configuration> loadConfigurations(String testrig, Path indepDir) {
+    Map<Path, String> namesByPath = indexConfigurations(testrig, indepDir);
+    if (namesByPath == null) {
+      return null;
+    }
+    _logger.info("\n*** DESERIALIZING VENDOR-INDEPENDENT CONFIGURATION STRUCTURES ***\n");
+    try {
+      return deserializeObjects(namesByPath, Configuration.class);
+    } catch (BatfishException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns a supplier of each configuration of the given testrig, keyed by hostname, without
+   * deserializing them. Each configuration is read from a memory-mapped file the first time its
+   * supplier is called, after which {@code initializer} is applied to it exactly once. If a
+   * serialized copy of these configurations is not already present, then this function returns
+   * {@code null}.
+   *
+   * <p>Errors deserializing a configuration are thrown as {@link BatfishException} when its
+   * supplier is first called.
+   */
+  @Nullable
+  public SortedMap<String, Supplier<Configuration>> loadConfigurationsLazily(
+      String testrig, Consumer<Configuration> initializer) {
+    Path indepDir = getTestrigDir(testrig).resolve(BfConsts.RELPATH_VENDOR_INDEPENDENT_CONFIG_DIR);
+    Map<Path, String> namesByPath = indexConfigurations(testrig, indepDir);
+    if (namesByPath == null) {
+      return null;
+    }
+    SortedMap<String, Supplier<Configuration>> configurations = new TreeMap<>();
+    namesByPath.forEach(
+        (path, name) ->
+            configurations.put(
+                name,
+                Suppliers.memoize(
+                    () -> {
+                      _logger.debugf("Reading configuration '%s' from '%s'\n", name, path);
+                      Configuration c = deserializeMappedObject(path, Configuration.class);
+                      initializer.accept(c);
+                      return c;
+                    })));
+    return configurations;
+  }
+
+  /**
+   * Returns the hostnames of the given testrig whose configurations take part in resolving IPsec
+   * VPN peers (see {@link CommonUtil#initRemoteIpsecVpns}), each mapped to whether it has IPsec
+   * VPNs of its own. Returns {@code null} if the testrig's configurations were stored without this
+   * index.
+   */
+  @Nullable
+  public SortedMap<String, Boolean> loadIpsecPeers(String testrig) {
+    Path path = getTestrigDir(testrig).resolve(BfConsts.RELPATH_IPSEC_PEERS_PATH);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    SortedMap<String, Boolean> ipsecPeers = deserializeObject(path, TreeMap.class);
+    return ipsecPeers;
+  }
+
+  /**
+   * Returns the configurations that take part in resolving IPsec VPN peers: those with IPsec VPNs,
+   * and those with source NATs, which may hide the private addresses of a peer.
+   */
+  private static TreeMap<String, Boolean> indexIpsecPeers(
+      Map<String, Configuration> configurations) {
+    TreeMap<String, Boolean> ipsecPeers = new TreeMap<>();
+    configurations.forEach(
+        (hostname, c) -> {
+          boolean hasIpsecVpns = !c.getIpsecVpns().isEmpty();
+          if (hasIpsecVpns
+              || c.getInterfaces().values().stream().anyMatch(i -> !i.getSourceNats().isEmpty())) {
+            ipsecPeers.put(hostname, hasIpsecVpns);
+          }
+        });
+    return ipsecPeers;
+  }
+
+  /**
+   * Returns the serialized configuration files in the given directory, keyed by path. Returns
+   * {@code null} if there are no compatible serialized configurations.
+   */
+  @Nullable
+  private Map<Path, String> indexConfigurations(String testrig, Path indepDir) {
     // If the directory that would contain these configs does not even exist, no cache exists.
     if (!Files.exists(indepDir)) {
       _logger.debugf("Unable to load configs for %s from disk: no cache directory", testrig);
@@ -93,7 +205,6 @@ final class BatfishStorage {
       return null;
     }
 
-    _logger.info("\n*** DESERIALIZING VENDOR-INDEPENDENT CONFIGURATION STRUCTURES ***\n");
     Map<Path, String> namesByPath = new TreeMap<>();
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(indepDir)) {
       for (Path serializedConfig : stream) {
@@ -104,11 +215,7 @@ final class BatfishStorage {
       throw new BatfishException(
           "Error reading vendor-independent configs directory: '" + indepDir + "'", e);
     }
-    try {
-      return deserializeObjects(namesByPath, Configuration.class);
-    } catch (BatfishException e) {
-      return null;
-    }
+    return namesByPath;
   }
 
   @Nullable
@@ -214,6 +321,12 @@ final class BatfishStorage {
     CommonUtil.deleteIfExists(ccaePath);
     serializeObject(convertAnswerElement, ccaePath);
 
+    // Save the index of IPsec VPN peers, so that they can be resolved without reading every
+    // configuration.
+    Path ipsecPeersPath = testrigDir.resolve(BfConsts.RELPATH_IPSEC_PEERS_PATH);
+    CommonUtil.deleteIfExists(ipsecPeersPath);
+    serializeObject(indexIpsecPeers(configurations), ipsecPeersPath);
+
     Path outputDir = testrigDir.resolve(BfConsts.RELPATH_VENDOR_INDEPENDENT_CONFIG_DIR);
 
     String batchName =
@@ -253,18 +366,65 @@ final class BatfishStorage {
    */
   private static <S extends Serializable> S deserializeObject(Path inputFile, Class<S> outputClass)
       throws BatfishException {
+    try {
+      return deserializeObject(new FileInputStream(inputFile.toFile()), inputFile, outputClass);
+    } catch (IOException e) {
+      throw new BatfishException(
+          String.format(
+              "Failed to deserialize object of type %s from file %s",
+              outputClass.getCanonicalName(), inputFile),
+          e);
+    }
+  }
+
+  /**
+   * Like {@link #deserializeObject(Path, Class)}, but reads the file through a memory mapping
+   * rather than a stream. The mapping is released when the buffer is garbage-collected.
+   */
+  private static <S extends Serializable> S deserializeMappedObject(
+      Path inputFile, Class<S> outputClass) throws BatfishException {
+    try {
+      MappedByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+        buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      }
+      return deserializeObject(new ByteBufferInputStream(buffer), inputFile, outputClass);
+    } catch (IOException e) {
+      throw new BatfishException(
+          String.format(
+              "Failed to deserialize object of type %s from file %s",
+              outputClass.getCanonicalName(), inputFile),
+          e);
+    }
+  }
+
+  /**
+   * Returns a single object of the given class deserialized from the given stream, which is closed
+   * afterwards. {@code inputFile} is only used for error messages.
+   */
+  private static <S extends Serializable> S deserializeObject(
+      InputStream input, Path inputFile, Class<S> outputClass) throws BatfishException {
     try (Closer closer = Closer.create()) {
-      FileInputStream fis = closer.register(new FileInputStream(inputFile.toFile()));
-      PushbackInputStream pbstream = new PushbackInputStream(fis, DEFAULT_HEADER_LENGTH_BYTES);
+      PushbackInputStream pbstream =
+          new PushbackInputStream(closer.register(input), DEFAULT_HEADER_LENGTH_BYTES);
       Format f = detectFormat(pbstream);
-      ObjectInputStream ois;
+      InputStream decompressed;
       if (f == Format.GZIP) {
-        GZIPInputStream gis =
-            closer.register(new GZIPInputStream(pbstream, 8192 /* enlarge buffer */));
-        ois = new ObjectInputStream(gis);
+        decompressed = closer.register(new GZIPInputStream(pbstream, 8192 /* enlarge buffer */));
       } else if (f == Format.LZ4) {
-        LZ4FrameInputStream lis = closer.register(new LZ4FrameInputStream(pbstream));
-        ois = new ObjectInputStream(lis);
+        decompressed = closer.register(new LZ4FrameInputStream(pbstream));
+      } else {
+        decompressed = null;
+      }
+      if (decompressed != null) {
+        // Update format after decompression
+        pbstream = new PushbackInputStream(decompressed, DEFAULT_HEADER_LENGTH_BYTES);
+        f = detectFormat(pbstream);
+      }
+      ObjectInputStream ois;
+      if (f == Format.COMPACT_SERIALIZED) {
+        ois =
+            new CompactObjectInputStream(pbstream, Thread.currentThread().getContextClassLoader());
       } else if (f == Format.JAVA_SERIALIZED) {
         ois = new ObjectInputStream(pbstream);
       } else {
@@ -311,11 +471,14 @@ final class BatfishStorage {
    * Writes a single object of the given class to the given file. Uses the {@link BatfishStorage}
    * default file encoding including serialization format and compression.
    */
-  private static void serializeObject(Serializable object, Path outputFile) {
+  private void serializeObject(Serializable object, Path outputFile) {
     try {
       try (OutputStream out = Files.newOutputStream(outputFile);
           LZ4FrameOutputStream gos = new LZ4FrameOutputStream(out);
-          ObjectOutputStream oos = new ObjectOutputStream(gos)) {
+          ObjectOutputStream oos =
+              _compactSerialization
+                  ? new CompactObjectOutputStream(gos)
+                  : new ObjectOutputStream(gos)) {
         oos.writeObject(object);
       }
     } catch (IOException e) {
@@ -323,6 +486,39 @@ final class BatfishStorage {
     }
   }
 
+  /** An {@link InputStream} over the remaining contents of a {@link ByteBuffer}. */
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer _buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      _buffer = buffer;
+    }
+
+    @Override
+    public int available() {
+      return _buffer.remaining();
+    }
+
+    @Override
+    public int read() {
+      return _buffer.hasRemaining() ? _buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!_buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, _buffer.remaining());
+      _buffer.get(b, off, n);
+      return n;
+    }
+  }
+
   private boolean cachedConfigsAreCompatible(String testrig) {
     try {
       ConvertConfigurationAnswerElement ccae = loadConvertConfigurationAnswerElement(testrig);
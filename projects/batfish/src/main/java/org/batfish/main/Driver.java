@@ -1,9 +1,8 @@
 package org.batfish.main;
 
 import com.google.common.base.Throwables;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.uber.jaeger.Configuration.ReporterConfiguration;
 import com.uber.jaeger.Configuration.SamplerConfiguration;
 import com.uber.jaeger.samplers.ConstSampler;
@@ -19,6 +18,7 @@ import java.lang.ProcessBuilder.Redirect;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.net.URI;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -64,6 +65,7 @@ import org.batfish.datamodel.answers.Answer;
 import org.batfish.datamodel.answers.AnswerStatus;
 import org.batfish.datamodel.collections.BgpAdvertisementsByVrf;
 import org.batfish.datamodel.collections.RoutesByVrf;
+import org.batfish.symbolic.bdd.BDDPacket;
 import org.codehaus.jettison.json.JSONArray;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
@@ -105,8 +107,6 @@ public class Driver {
     }
   }
 
-  private static boolean _idle = true;
-
   private static Date _lastPollFromCoordinator = new Date();
 
   private static String[] _mainArgs = null;
@@ -115,12 +115,20 @@ public class Driver {
 
   private static Settings _mainSettings = null;
 
+  private static int _runningTasks = 0;
+
   private static ConcurrentMap<String, Task> _taskLog;
 
-  private static final Cache<NetworkSnapshot, DataPlane> CACHED_COMPRESSED_DATA_PLANES =
-      buildDataPlaneCache();
+  private static SpillingCache<NetworkSnapshot, DataPlane> _cachedCompressedDataPlanes;
+
+  private static SpillingCache<NetworkSnapshot, SortedMap<String, Configuration>>
+      _cachedCompressedTestrigs;
+
+  private static SpillingCache<NetworkSnapshot, DataPlane> _cachedDataPlanes;
 
-  private static final Cache<NetworkSnapshot, DataPlane> CACHED_DATA_PLANES = buildDataPlaneCache();
+  private static SpillingCache<NetworkSnapshot, SortedMap<String, Configuration>> _cachedTestrigs;
+
+  private static final Map<NetworkSnapshot, BDDPacket> CACHED_BDD_PACKETS = buildBddPacketCache();
 
   private static final Map<NetworkSnapshot, SortedMap<String, BgpAdvertisementsByVrf>>
       CACHED_ENVIRONMENT_BGP_TABLES = buildEnvironmentBgpTablesCache();
@@ -128,12 +136,6 @@ public class Driver {
   private static final Map<NetworkSnapshot, SortedMap<String, RoutesByVrf>>
       CACHED_ENVIRONMENT_ROUTING_TABLES = buildEnvironmentRoutingTablesCache();
 
-  private static final Cache<NetworkSnapshot, SortedMap<String, Configuration>> CACHED_TESTRIGS =
-      buildTestrigCache();
-
-  private static final Cache<NetworkSnapshot, SortedMap<String, Configuration>>
-      CACHED_COMPRESSED_TESTRIGS = buildTestrigCache();
-
   private static final int COORDINATOR_CHECK_INTERVAL_MS = 1 * 60 * 1000; // 1 min
 
   private static final int COORDINATOR_POLL_TIMEOUT_MS = 30 * 1000; // 30 secs
@@ -144,19 +146,36 @@ public class Driver {
 
   static Logger httpServerLogger = Logger.getLogger(HttpServer.class.getName());
 
-  private static final int MAX_CACHED_DATA_PLANES = 2;
+  /** Share of the cache budget given to each of the two data plane caches. */
+  private static final double DATA_PLANE_CACHE_BUDGET_FRACTION = 0.3;
+
+  /*
+   * A BDD packet holds on to the node table of its factory and to every ACL and IpSpace BDD it has
+   * cached, so only keep those of the most recently queried snapshots.
+   */
+  private static final int MAX_CACHED_BDD_PACKETS = 2;
 
   private static final int MAX_CACHED_ENVIRONMENT_BGP_TABLES = 4;
 
   private static final int MAX_CACHED_ENVIRONMENT_ROUTING_TABLES = 4;
 
-  private static final int MAX_CACHED_TESTRIGS = 5;
+  /** Share of the cache budget given to each of the two configuration caches. */
+  private static final double TESTRIG_CACHE_BUDGET_FRACTION = 0.2;
 
   static Logger networkListenerLogger =
       Logger.getLogger("org.glassfish.grizzly.http.server.NetworkListener");
 
-  private static Cache<NetworkSnapshot, DataPlane> buildDataPlaneCache() {
-    return CacheBuilder.newBuilder().maximumSize(MAX_CACHED_DATA_PLANES).weakValues().build();
+  private static SpillingCache<NetworkSnapshot, DataPlane> buildDataPlaneCache(
+      long budgetKb, @Nullable Path spillDir) {
+    return new SpillingCache<>(
+        (long) (budgetKb * DATA_PLANE_CACHE_BUDGET_FRACTION),
+        (snapshot, dataPlane) ->
+            RetainedSizeEstimator.weighKb(RetainedSizeEstimator.estimateBytes(dataPlane)),
+        spillDir == null ? null : spillDir.resolve("dataplanes"));
+  }
+
+  private static Map<NetworkSnapshot, BDDPacket> buildBddPacketCache() {
+    return Collections.synchronizedMap(new LRUMap<>(MAX_CACHED_BDD_PACKETS));
   }
 
   private static Map<NetworkSnapshot, SortedMap<String, BgpAdvertisementsByVrf>>
@@ -169,22 +188,79 @@ public class Driver {
     return Collections.synchronizedMap(new LRUMap<>(MAX_CACHED_ENVIRONMENT_ROUTING_TABLES));
   }
 
-  private static Cache<NetworkSnapshot, SortedMap<String, Configuration>> buildTestrigCache() {
-    return CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TESTRIGS).build();
+  private static SpillingCache<NetworkSnapshot, SortedMap<String, Configuration>> buildTestrigCache(
+      long budgetKb, @Nullable Path spillDir) {
+    return new SpillingCache<>(
+        (long) (budgetKb * TESTRIG_CACHE_BUDGET_FRACTION),
+        (snapshot, configurations) ->
+            RetainedSizeEstimator.weighKb(RetainedSizeEstimator.estimateBytes(configurations)),
+        spillDir == null ? null : spillDir.resolve("testrigs"));
   }
 
-  private static synchronized boolean claimIdle() {
-    if (_idle) {
-      _idle = false;
+  /**
+   * Builds the data plane and configuration caches, which share a heap budget of {@link
+   * Settings#getCacheBudgetMb()} MB, or half the maximum heap if none is configured.
+   */
+  private static void initCaches(Settings settings) {
+    long budgetKb =
+        settings.getCacheBudgetMb() > 0
+            ? settings.getCacheBudgetMb() * 1024L
+            : Runtime.getRuntime().maxMemory() / 2048L;
+    Path spillDir = settings.getCacheSpillDir();
+    _cachedCompressedDataPlanes =
+        buildDataPlaneCache(budgetKb, spillDir == null ? null : spillDir.resolve("compressed"));
+    _cachedDataPlanes = buildDataPlaneCache(budgetKb, spillDir);
+    _cachedCompressedTestrigs =
+        buildTestrigCache(budgetKb, spillDir == null ? null : spillDir.resolve("compressed"));
+    _cachedTestrigs = buildTestrigCache(budgetKb, spillDir);
+  }
+
+  /** Reserves a slot for a new task, unless all slots are taken or the heap is too full. */
+  private static synchronized boolean claimTaskSlot() {
+    if (getFreeTaskSlots() > 0) {
+      _runningTasks++;
       return true;
     }
 
     return false;
   }
 
+  /** Returns statistics of each data plane and configuration cache, keyed by cache name. */
+  public static Map<String, Map<String, Long>> getCacheStatistics() {
+    if (_cachedDataPlanes == null) {
+      return ImmutableMap.of();
+    }
+    return ImmutableMap.of(
+        "compressedDataPlanes",
+        _cachedCompressedDataPlanes.getStatistics(),
+        "compressedTestrigs",
+        _cachedCompressedTestrigs.getStatistics(),
+        "dataPlanes",
+        _cachedDataPlanes.getStatistics(),
+        "testrigs",
+        _cachedTestrigs.getStatistics());
+  }
+
+  /**
+   * Returns the number of additional tasks this worker can accept right now. This is zero if {@link
+   * Settings#getMaxConcurrentTasks()} tasks are running, or if the heap not yet in use is less than
+   * {@link Settings#getMinFreeHeapPerTaskMb()} while some task is running.
+   */
+  public static synchronized int getFreeTaskSlots() {
+    int freeSlots = Math.max(0, _mainSettings.getMaxConcurrentTasks() - _runningTasks);
+    if (freeSlots > 0 && _runningTasks > 0) {
+      Runtime runtime = Runtime.getRuntime();
+      long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+      if (freeHeap < _mainSettings.getMinFreeHeapPerTaskMb() * 1024L * 1024L) {
+        return 0;
+      }
+    }
+    return freeSlots;
+  }
+
   public static synchronized boolean getIdle() {
     _lastPollFromCoordinator = new Date();
-    return _idle;
+    return _runningTasks == 0;
   }
 
   public static BatfishLogger getMainLogger() {
@@ -260,6 +336,17 @@ public class Driver {
       task.setTerminated(new Date());
       task.setErrMessage("Terminated by user");
 
+      // the whole process goes down, taking any other running tasks with it
+      for (Entry<String, Task> entry : _taskLog.entrySet()) {
+        Task other = entry.getValue();
+        if (other != task && !other.getStatus().isTerminated()) {
+          other.newBatch("Worker restarting to kill task " + taskId);
+          other.setStatus(TaskStatus.TerminatedAbnormally);
+          other.setTerminated(new Date());
+          other.setErrMessage("Worker restarted to kill concurrent task " + taskId);
+        }
+      }
+
       // we die after a little bit, to allow for the response making it back to the coordinator
       new java.util.Timer()
           .schedule(
@@ -306,6 +393,7 @@ public class Driver {
     _mainArgs = args;
     try {
       _mainSettings = new Settings(args);
+      initCaches(_mainSettings);
       networkListenerLogger.setLevel(Level.WARNING);
       httpServerLogger.setLevel(Level.WARNING);
     } catch (Exception e) {
@@ -418,6 +506,11 @@ public class Driver {
       initTracer();
     }
 
+    Path parserWarmUpDir = _mainSettings.getParserWarmUpDir();
+    if (parserWarmUpDir != null) {
+      warmUpParsers(parserWarmUpDir);
+    }
+
     String protocol = _mainSettings.getSslDisable() ? "http" : "https";
     String baseUrl = String.format("%s://%s", protocol, _mainSettings.getServiceBindHost());
     URI baseUri = UriBuilder.fromUri(baseUrl).port(_mainSettings.getServicePort()).build();
@@ -490,8 +583,29 @@ public class Driver {
     }
   }
 
-  private static synchronized void makeIdle() {
-    _idle = true;
+  /** Warms up the shared parser DFA caches in the background, without delaying task intake. */
+  private static void warmUpParsers(Path corpusDir) {
+    Thread thread =
+        new Thread(
+            () -> {
+              long startTime = System.currentTimeMillis();
+              try {
+                int parsed = Batfish.warmUpParsers(_mainSettings, corpusDir);
+                _mainLogger.infof(
+                    "Warmed up parsers on %d files from %s in %d ms\n",
+                    parsed, corpusDir, System.currentTimeMillis() - startTime);
+              } catch (Exception e) {
+                _mainLogger.errorf(
+                    "Parser warm-up failed: %s\n", Throwables.getStackTraceAsString(e));
+              }
+            },
+            "parser-warm-up");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static synchronized void releaseTaskSlot() {
+    _runningTasks--;
   }
 
   public static synchronized AtomicInteger newBatch(
@@ -547,12 +661,13 @@ public class Driver {
       final Batfish batfish =
           new Batfish(
               settings,
-              CACHED_COMPRESSED_TESTRIGS,
-              CACHED_TESTRIGS,
-              CACHED_COMPRESSED_DATA_PLANES,
-              CACHED_DATA_PLANES,
+              _cachedCompressedTestrigs,
+              _cachedTestrigs,
+              _cachedCompressedDataPlanes,
+              _cachedDataPlanes,
               CACHED_ENVIRONMENT_BGP_TABLES,
-              CACHED_ENVIRONMENT_ROUTING_TABLES);
+              CACHED_ENVIRONMENT_ROUTING_TABLES,
+              CACHED_BDD_PACKETS);
 
       @Nullable
       SpanContext runBatfishSpanContext =
@@ -673,11 +788,11 @@ public class Driver {
       return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "Non-executable command");
     }
 
-    if (!claimIdle()) {
-      return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "Not idle");
+    if (!claimTaskSlot()) {
+      return Arrays.asList(BfConsts.SVC_FAILURE_KEY, "No free task slots");
     }
 
-    // try/catch so that the worker becomes idle again in case of problem submitting thread.
+    // try/catch so that the slot is released again in case of problem submitting thread.
     try {
 
       final BatfishLogger jobLogger =
@@ -699,7 +814,7 @@ public class Driver {
               ? null
               : GlobalTracer.get().activeSpan().context();
 
-      // run batfish on a new thread and set idle to true when done
+      // run batfish on a new thread and release the slot when done
       Thread thread =
           new Thread(
               () -> {
@@ -719,7 +834,7 @@ public class Driver {
                   }
                   task.setTerminated(new Date());
                   jobLogger.close();
-                  makeIdle();
+                  releaseTaskSlot();
                 }
               });
 
@@ -728,7 +843,7 @@ public class Driver {
       return Arrays.asList(BfConsts.SVC_SUCCESS_KEY, "running now");
     } catch (Exception e) {
       _mainLogger.error("Exception while running task: " + e.getMessage());
-      makeIdle();
+      releaseTaskSlot();
       return Arrays.asList(BfConsts.SVC_FAILURE_KEY, e.getMessage());
     }
   }
@@ -0,0 +1,116 @@
+package org.batfish.main;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Maps;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import org.batfish.datamodel.Configuration;
+
+/**
+ * A sorted map of configurations keyed by hostname, in which each configuration is only obtained
+ * from its {@link Supplier} when it is first accessed. Iterating over keys and checking for a key
+ * obtains no configuration.
+ *
+ * <p>The map supports {@link #put} and removal. Entries obtained by iteration do not support {@link
+ * Entry#setValue}. Serializing the map obtains every configuration and writes them as a {@link
+ * TreeMap}.
+ */
+final class LazyConfigurationMap extends AbstractMap<String, Configuration>
+    implements SortedMap<String, Configuration>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient SortedMap<String, Supplier<Configuration>> _configurations;
+
+  /**
+   * @param configurations The supplier of each configuration, keyed by hostname. Each supplier is
+   *     called at most once, and is shared with the maps returned by {@link #subMap}, {@link
+   *     #headMap} and {@link #tailMap}.
+   */
+  LazyConfigurationMap(SortedMap<String, Supplier<Configuration>> configurations) {
+    _configurations = configurations;
+  }
+
+  @Override
+  @Nullable
+  public Comparator<? super String> comparator() {
+    return _configurations.comparator();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return _configurations.containsKey(key);
+  }
+
+  @Override
+  public Set<Entry<String, Configuration>> entrySet() {
+    return Maps.transformValues(_configurations, Supplier::get).entrySet();
+  }
+
+  @Override
+  public String firstKey() {
+    return _configurations.firstKey();
+  }
+
+  @Override
+  @Nullable
+  public Configuration get(Object key) {
+    Supplier<Configuration> configuration = _configurations.get(key);
+    return configuration == null ? null : configuration.get();
+  }
+
+  @Override
+  public SortedMap<String, Configuration> headMap(String toKey) {
+    return new LazyConfigurationMap(_configurations.headMap(toKey));
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return _configurations.keySet();
+  }
+
+  @Override
+  public String lastKey() {
+    return _configurations.lastKey();
+  }
+
+  @Override
+  @Nullable
+  public Configuration put(String key, Configuration value) {
+    Supplier<Configuration> previous = _configurations.put(key, Suppliers.ofInstance(value));
+    return previous == null ? null : previous.get();
+  }
+
+  @Override
+  @Nullable
+  public Configuration remove(Object key) {
+    Supplier<Configuration> previous = _configurations.remove(key);
+    return previous == null ? null : previous.get();
+  }
+
+  @Override
+  public int size() {
+    return _configurations.size();
+  }
+
+  @Override
+  public SortedMap<String, Configuration> subMap(String fromKey, String toKey) {
+    return new LazyConfigurationMap(_configurations.subMap(fromKey, toKey));
+  }
+
+  @Override
+  public SortedMap<String, Configuration> tailMap(String fromKey) {
+    return new LazyConfigurationMap(_configurations.tailMap(fromKey));
+  }
+
+  private Object writeReplace() throws ObjectStreamException {
+    return new TreeMap<>(this);
+  }
+}
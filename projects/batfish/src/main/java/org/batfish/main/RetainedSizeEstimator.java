@@ -0,0 +1,50 @@
+package org.batfish.main;
+
+import com.google.common.primitives.Ints;
+import java.util.Map;
+import org.batfish.datamodel.AbstractRoute;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.DataPlane;
+import org.batfish.datamodel.GenericRib;
+
+/**
+ * Cheap estimates of the heap retained by cached configurations and data planes, used to weigh
+ * entries of the byte-budgeted caches in {@link Driver}.
+ *
+ * <p>Entries are weighed on every cache insertion, so the estimates only read metadata that is
+ * already at hand: the number of devices and the route counts the RIBs maintain. In particular they
+ * never touch the configurations themselves, which may be loaded lazily (see {@link
+ * BatfishStorage#loadConfigurationsLazily}), and never copy routes out of a RIB. They are meant to
+ * budget entries against each other, not to be accurate to the byte.
+ */
+final class RetainedSizeEstimator {
+
+  /** Rough retained size of a typical device's configuration once it is loaded */
+  private static final long BYTES_PER_CONFIGURATION = 256L * 1024L;
+
+  private static final long BYTES_PER_NODE_VRF = 8L * 1024L;
+
+  private static final long BYTES_PER_ROUTE = 384L;
+
+  static long estimateBytes(Map<String, Configuration> configurations) {
+    return BYTES_PER_CONFIGURATION * configurations.size();
+  }
+
+  static long estimateBytes(DataPlane dataPlane) {
+    long bytes = 0L;
+    for (Map<String, GenericRib<AbstractRoute>> ribsByVrf : dataPlane.getRibs().values()) {
+      for (GenericRib<AbstractRoute> rib : ribsByVrf.values()) {
+        /* Each route is held by the main RIB, the protocol RIB it came from and the FIB. */
+        bytes += BYTES_PER_NODE_VRF + BYTES_PER_ROUTE * rib.getNumRoutes();
+      }
+    }
+    return bytes + estimateBytes(dataPlane.getConfigurations());
+  }
+
+  /** Weight in KiB, the unit of the weighed caches, since Guava weights are bounded by an int. */
+  static int weighKb(long bytes) {
+    return Math.max(1, Ints.saturatedCast(bytes / 1024L));
+  }
+
+  private RetainedSizeEstimator() {}
+}
@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -15,7 +17,9 @@ import org.batfish.common.BfConsts;
 import org.batfish.common.BfConsts.TaskStatus;
 import org.batfish.common.Task;
 import org.batfish.common.util.BatfishObjectMapper;
+import org.batfish.grammar.ParserPredictionStatistics;
 import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 
 @Path(BfConsts.SVC_BASE_RSC)
@@ -41,12 +45,34 @@ public class Service {
       return new JSONArray(
           Arrays.asList(
               BfConsts.SVC_SUCCESS_KEY,
-              (new JSONObject().put("idle", Driver.getIdle())).toString()));
+              (new JSONObject()
+                      .put("idle", Driver.getIdle())
+                      .put("freeSlots", Driver.getFreeTaskSlots())
+                      .put("caches", getCacheStatistics())
+                      .put("parsers", getParserStatistics()))
+                  .toString()));
     } catch (Exception e) {
       return new JSONArray(Arrays.asList(BfConsts.SVC_FAILURE_KEY, e.getMessage()));
     }
   }
 
+  private static JSONObject getCacheStatistics() throws JSONException {
+    JSONObject caches = new JSONObject();
+    for (Entry<String, Map<String, Long>> cache : Driver.getCacheStatistics().entrySet()) {
+      caches.put(cache.getKey(), new JSONObject(cache.getValue()));
+    }
+    return caches;
+  }
+
+  private static JSONObject getParserStatistics() throws JSONException {
+    JSONObject parsers = new JSONObject();
+    for (Entry<String, Map<String, Long>> grammar :
+        ParserPredictionStatistics.getStatistics().entrySet()) {
+      parsers.put(grammar.getKey(), new JSONObject(grammar.getValue()));
+    }
+    return parsers;
+  }
+
   @GET
   @Path(BfConsts.SVC_GET_TASKSTATUS_RSC)
   @Produces(MediaType.APPLICATION_JSON)
@@ -0,0 +1,293 @@
+package org.batfish.main;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.ForwardingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.batfish.common.util.CompactObjectInputStream;
+import org.batfish.common.util.CompactObjectOutputStream;
+
+/**
+ * A {@link Cache} bounded by the estimated size of its values rather than by their number.
+ *
+ * <p>When a spill directory is configured, values evicted to stay within the budget are written
+ * there in the compact serialization format, and the next lookup of their key reads them back into
+ * the cache. Spills are written in the background, so that evicting a large value does not stall
+ * the thread whose write caused the eviction; a lookup of a key that is still being spilled waits
+ * for the spill. Spilled files are uncompressed, trading disk space for read speed, and are deleted
+ * once read back or superseded.
+ */
+final class SpillingCache<K, V> extends ForwardingCache<K, V> {
+
+  /** Writes spills, one at a time so that they do not compete for the disk. */
+  private static final Executor SPILL_EXECUTOR =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "cache-spill");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** The weight recorded for a cached value. */
+  private static final class Weight {
+
+    private final Object _value;
+
+    private final int _weightKb;
+
+    private Weight(Object value, int weightKb) {
+      _value = value;
+      _weightKb = weightKb;
+    }
+  }
+
+  private final Cache<K, V> _delegate;
+
+  private final AtomicLong _failedSpills;
+
+  private final AtomicLong _spillHits;
+
+  @Nullable private final Path _spillDir;
+
+  /** For each spilled key, its spill file, or {@code null} if the spill failed. */
+  private final ConcurrentMap<K, CompletableFuture<Path>> _spilled;
+
+  private final AtomicLong _spills;
+
+  private final AtomicLong _weightKb;
+
+  private final Weigher<? super K, ? super V> _weigher;
+
+  /** Weight recorded for each cached key, since a value may change size while cached. */
+  private final ConcurrentMap<K, Weight> _weights;
+
+  /**
+   * @param maximumWeightKb Budget for the estimated size of all cached values, in KiB
+   * @param weigher Estimates the size of a value in KiB
+   * @param spillDir Directory to which evicted values are spilled, or {@code null} to drop them
+   */
+  SpillingCache(
+      long maximumWeightKb, Weigher<? super K, ? super V> weigher, @Nullable Path spillDir) {
+    _failedSpills = new AtomicLong();
+    _spillDir = spillDir;
+    _spillHits = new AtomicLong();
+    _spilled = new ConcurrentHashMap<>();
+    _spills = new AtomicLong();
+    _weigher = weigher;
+    _weightKb = new AtomicLong();
+    _weights = new ConcurrentHashMap<>();
+    _delegate =
+        CacheBuilder.newBuilder()
+            // A single segment, so that one large value may use the whole budget rather than the
+            // share of a segment
+            .concurrencyLevel(1)
+            .maximumWeight(maximumWeightKb)
+            .weigher(this::weigh)
+            .removalListener(this::onRemoval)
+            .recordStats()
+            .build();
+  }
+
+  /** Waits until all spills in progress are written. */
+  @VisibleForTesting
+  void awaitSpills() {
+    _spilled.values().forEach(CompletableFuture::join);
+  }
+
+  @Override
+  protected Cache<K, V> delegate() {
+    return _delegate;
+  }
+
+  @Override
+  public V get(K key, Callable<? extends V> valueLoader) throws ExecutionException {
+    return _delegate.get(
+        key,
+        () -> {
+          V value = unspill(key);
+          return value != null ? value : valueLoader.call();
+        });
+  }
+
+  @Override
+  @Nullable
+  public V getIfPresent(Object key) {
+    V value = _delegate.getIfPresent(key);
+    if (value != null) {
+      return value;
+    }
+    value = unspill(key);
+    if (value == null) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    K k = (K) key;
+    V present = _delegate.asMap().putIfAbsent(k, value);
+    return present != null ? present : value;
+  }
+
+  /**
+   * Returns hit, miss and eviction counts of the in-memory cache, along with the estimated size of
+   * its contents and spill activity.
+   */
+  Map<String, Long> getStatistics() {
+    CacheStats stats = _delegate.stats();
+    return ImmutableMap.<String, Long>builder()
+        .put("entries", _delegate.size())
+        .put("estimatedKb", _weightKb.get())
+        .put("evictions", stats.evictionCount())
+        .put("failedSpills", _failedSpills.get())
+        .put("hits", stats.hitCount())
+        .put("misses", stats.missCount())
+        .put("spilled", (long) _spilled.size())
+        .put("spillHits", _spillHits.get())
+        .put("spills", _spills.get())
+        .build();
+  }
+
+  @Override
+  public void invalidate(Object key) {
+    deleteSpilled(_spilled.remove(key));
+    _delegate.invalidate(key);
+  }
+
+  @Override
+  public void invalidateAll() {
+    _spilled.keySet().forEach(this::invalidate);
+    _delegate.invalidateAll();
+  }
+
+  @Override
+  public void put(K key, V value) {
+    deleteSpilled(_spilled.remove(key));
+    _delegate.put(key, value);
+  }
+
+  /** Deletes the file of {@code spill} once it is written. */
+  private static void deleteSpilled(@Nullable CompletableFuture<Path> spill) {
+    if (spill != null) {
+      spill.thenAccept(SpillingCache::deleteSpilled);
+    }
+  }
+
+  private static void deleteSpilled(@Nullable Path file) {
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // Stale spill files are harmless; they are never read without an index entry.
+      }
+    }
+  }
+
+  private void onRemoval(RemovalNotification<K, V> notification) {
+    K key = notification.getKey();
+    V value = notification.getValue();
+    if (key == null || value == null) {
+      return;
+    }
+    // A replacement was already accounted for when the new value was weighed.
+    if (notification.getCause() != RemovalCause.REPLACED) {
+      _weights.computeIfPresent(
+          key,
+          (k, weight) -> {
+            if (weight._value != value) {
+              // The key was cached again before this notification
+              return weight;
+            }
+            _weightKb.addAndGet(-weight._weightKb);
+            return null;
+          });
+    }
+    if (notification.getCause() == RemovalCause.SIZE && _spillDir != null) {
+      deleteSpilled(
+          _spilled.put(key, CompletableFuture.supplyAsync(() -> spill(value), SPILL_EXECUTOR)));
+    }
+  }
+
+  /** Writes {@code value} to a new spill file, returning the file or {@code null} on failure. */
+  @Nullable
+  private Path spill(V value) {
+    if (!(value instanceof Serializable)) {
+      _failedSpills.incrementAndGet();
+      return null;
+    }
+    assert _spillDir != null;
+    Path file = null;
+    try {
+      Files.createDirectories(_spillDir);
+      file = Files.createTempFile(_spillDir, "cache", ".spill");
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file));
+          ObjectOutputStream oos = new CompactObjectOutputStream(out)) {
+        oos.writeObject(value);
+      }
+      _spills.incrementAndGet();
+      return file;
+    } catch (IOException | RuntimeException e) {
+      deleteSpilled(file);
+      _failedSpills.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Reads back the spilled value of {@code key}, waiting for its spill to be written, or returns
+   * {@code null} if it has none. The value is not put back into the cache.
+   */
+  @Nullable
+  private V unspill(Object key) {
+    CompletableFuture<Path> spill = _spilled.remove(key);
+    if (spill == null) {
+      return null;
+    }
+    Path file = spill.join();
+    if (file == null) {
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+        ObjectInputStream ois =
+            new CompactObjectInputStream(in, Thread.currentThread().getContextClassLoader())) {
+      @SuppressWarnings("unchecked")
+      V value = (V) ois.readObject();
+      _spillHits.incrementAndGet();
+      return value;
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      // Fall back to the caller's own loading path.
+      return null;
+    } finally {
+      deleteSpilled(file);
+    }
+  }
+
+  private int weigh(K key, V value) {
+    int weight = _weigher.weigh(key, value);
+    Weight previous = _weights.put(key, new Weight(value, weight));
+    _weightKb.addAndGet(previous == null ? weight : weight - previous._weightKb);
+    return weight;
+  }
+}
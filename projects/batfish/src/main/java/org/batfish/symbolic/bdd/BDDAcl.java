@@ -54,9 +54,7 @@ public class BDDAcl {
   }
 
   public static BDDAcl create(BDDPacket pkt, IpAccessList acl) {
-    BDDAcl abdd = new BDDAcl(pkt, acl, ImmutableMap.of(), ImmutableMap.of());
-    abdd.computeACL();
-    return abdd;
+    return create(pkt, acl, ImmutableMap.of(), ImmutableMap.of());
   }
 
   public static BDDAcl create(
@@ -65,6 +63,7 @@ public class BDDAcl {
       Map<String, IpAccessList> aclEnv,
       Map<String, IpSpace> ipSpaceEnv) {
     // use laziness to tie the recursive knot.
+    BDDCache cache = pkt.getCache();
     Map<String, Supplier<BDD>> bddAclEnv = new HashMap<>();
     aclEnv.forEach(
         (name, namedAcl) ->
@@ -72,10 +71,18 @@ public class BDDAcl {
                 name,
                 Suppliers.memoize(
                     new NonRecursiveSupplier<>(
-                        () -> createWithBDDAclEnv(pkt, namedAcl, bddAclEnv, ipSpaceEnv)._bdd))));
+                        () ->
+                            cache.aclBDD(
+                                namedAcl,
+                                aclEnv,
+                                ipSpaceEnv,
+                                () ->
+                                    createWithBDDAclEnv(pkt, namedAcl, bddAclEnv, ipSpaceEnv)
+                                        ._bdd)))));
 
     BDDAcl abdd = new BDDAcl(pkt, acl, bddAclEnv, ipSpaceEnv);
-    abdd.computeACL();
+    abdd._bdd =
+        acl == null ? abdd.computeACL() : cache.aclBDD(acl, aclEnv, ipSpaceEnv, abdd::computeACL);
     return abdd;
   }
 
@@ -85,7 +92,7 @@ public class BDDAcl {
       Map<String, Supplier<BDD>> aclEnv,
       Map<String, IpSpace> ipSpaceEnv) {
     BDDAcl abdd = new BDDAcl(pkt, acl, aclEnv, ipSpaceEnv);
-    abdd.computeACL();
+    abdd._bdd = abdd.computeACL();
     return abdd;
   }
 
@@ -93,14 +100,13 @@ public class BDDAcl {
    * Convert an Access Control List (ACL) to a symbolic boolean expression.
    * The default action in an ACL is to deny all traffic.
    */
-  private void computeACL() {
+  private BDD computeACL() {
     // Check if there is an ACL first
     if (_acl == null) {
-      _bdd = _factory.one();
-      return;
+      return _factory.one();
     }
 
-    _bdd = _factory.zero();
+    BDD bdd = _factory.zero();
 
     AclLineMatchExprToBDD aclLineMatchExprToBDD =
         new AclLineMatchExprToBDD(_factory, _pkt, _aclEnv, _ipSpaceEnv);
@@ -111,8 +117,9 @@ public class BDDAcl {
     for (IpAccessListLine line : lines) {
       BDD lineBDD = aclLineMatchExprToBDD.visit(line.getMatchCondition());
       BDD actionBDD = line.getAction() == LineAction.ACCEPT ? _factory.one() : _factory.zero();
-      _bdd = lineBDD.ite(actionBDD, _bdd);
+      bdd = lineBDD.ite(actionBDD, bdd);
     }
+    return bdd;
   }
 
   public IpAccessList getAcl() {
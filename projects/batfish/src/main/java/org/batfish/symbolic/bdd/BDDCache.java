@@ -0,0 +1,112 @@
+package org.batfish.symbolic.bdd;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import net.sf.javabdd.BDD;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpSpace;
+
+/**
+ * BDDs of {@link IpAccessList ACLs} and {@link IpSpace IpSpaces} already encoded with a {@link
+ * BDDPacket}, so that questions sharing the packet need not encode them again. Entries are keyed by
+ * the identity of the encoded object and of the environments its references were resolved in, and
+ * are dropped once the encoded object is no longer reachable.
+ *
+ * <p>Cached BDDs are shared, so callers must not modify them in place (e.g. with {@link
+ * BDD#andWith(BDD)}).
+ */
+public final class BDDCache {
+
+  private static final class AclEntry {
+
+    private final Map<String, IpAccessList> _aclEnv;
+
+    private final BDD _bdd;
+
+    private final Map<String, IpSpace> _ipSpaceEnv;
+
+    private AclEntry(Map<String, IpAccessList> aclEnv, Map<String, IpSpace> ipSpaceEnv, BDD bdd) {
+      _aclEnv = aclEnv;
+      _bdd = bdd;
+      _ipSpaceEnv = ipSpaceEnv;
+    }
+  }
+
+  private static final class IpSpaceEntry {
+
+    private final BDD _bdd;
+
+    private final Map<String, IpSpace> _namedIpSpaces;
+
+    private final BDDInteger _var;
+
+    private IpSpaceEntry(BDDInteger var, Map<String, IpSpace> namedIpSpaces, BDD bdd) {
+      _bdd = bdd;
+      _namedIpSpaces = namedIpSpaces;
+      _var = var;
+    }
+  }
+
+  // weak keys are compared by identity
+  private final Cache<IpAccessList, AclEntry> _aclBDDs;
+
+  private final Cache<IpSpace, List<IpSpaceEntry>> _ipSpaceBDDs;
+
+  BDDCache() {
+    _aclBDDs = CacheBuilder.newBuilder().weakKeys().build();
+    _ipSpaceBDDs = CacheBuilder.newBuilder().weakKeys().build();
+  }
+
+  /**
+   * Returns the BDD of {@code acl} with its references resolved in {@code aclEnv} and {@code
+   * ipSpaceEnv}, computing it with {@code bdd} if it has not been cached.
+   */
+  public BDD aclBDD(
+      IpAccessList acl,
+      Map<String, IpAccessList> aclEnv,
+      Map<String, IpSpace> ipSpaceEnv,
+      Supplier<BDD> bdd) {
+    AclEntry entry = _aclBDDs.getIfPresent(acl);
+    if (entry != null && entry._aclEnv == aclEnv && entry._ipSpaceEnv == ipSpaceEnv) {
+      return entry._bdd;
+    }
+    /*
+     * Not computed inside the cache: the ACL may reference other ACLs, whose BDDs are looked up
+     * here while this one is being computed.
+     */
+    BDD computed = bdd.get();
+    _aclBDDs.put(acl, new AclEntry(aclEnv, ipSpaceEnv, computed));
+    return computed;
+  }
+
+  /**
+   * Returns the BDD constraining {@code var} to {@code ipSpace} with its references resolved in
+   * {@code namedIpSpaces}, computing it with {@code bdd} if it has not been cached.
+   */
+  public BDD ipSpaceBDD(
+      IpSpace ipSpace, BDDInteger var, Map<String, IpSpace> namedIpSpaces, Supplier<BDD> bdd) {
+    @Nullable List<IpSpaceEntry> entries = _ipSpaceBDDs.getIfPresent(ipSpace);
+    if (entries != null) {
+      synchronized (entries) {
+        for (IpSpaceEntry entry : entries) {
+          if (entry._var == var && entry._namedIpSpaces == namedIpSpaces) {
+            return entry._bdd;
+          }
+        }
+      }
+    }
+    BDD computed = bdd.get();
+    entries = _ipSpaceBDDs.asMap().computeIfAbsent(ipSpace, key -> new ArrayList<>());
+    synchronized (entries) {
+      // an IpSpace is typically encoded for only a couple of variables, e.g. source and destination
+      entries.removeIf(entry -> entry._var == var);
+      entries.add(new IpSpaceEntry(var, namedIpSpaces, computed));
+    }
+    return computed;
+  }
+}
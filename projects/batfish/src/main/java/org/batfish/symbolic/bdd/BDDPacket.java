@@ -28,17 +28,17 @@ import org.batfish.datamodel.State;
 public class BDDPacket {
 
   /*
-   * Initial size of the BDD factory node table. Automatically resized as needed. Increasing this
-   * will reduce time spent garbage collecting for large computations, but will waste memory for
-   * smaller ones.
+   * Default initial size of the BDD factory node table. Automatically resized as needed. Increasing
+   * this will reduce time spent garbage collecting for large computations, but will waste memory
+   * for smaller ones.
    */
-  private static final int JFACTORY_INITIAL_NODE_TABLE_SIZE = 10000;
+  public static final int DEFAULT_INITIAL_NODE_TABLE_SIZE = 10000;
 
   /*
-   * Initial size of the BDD factory node cache. Automatically resized when the node table is,
-   * to preserve the cache ratio.
+   * Default initial size of the BDD factory node cache. Automatically resized when the node table
+   * is, to preserve the cache ratio.
    */
-  private static final int JFACTORY_INITIAL_NODE_CACHE_SIZE = 1000;
+  public static final int DEFAULT_INITIAL_NODE_CACHE_SIZE = 1000;
 
   /*
    * The ratio of node table size to node cache size to preserve when resizing. The default
@@ -68,6 +68,8 @@ public class BDDPacket {
 
   private Map<Integer, String> _bitNames;
 
+  private final BDDCache _cache;
+
   private BDDInteger _dscp;
 
   private BDDInteger _dstIp;
@@ -117,7 +119,19 @@ public class BDDPacket {
    * various attributes of a control plane advertisement.
    */
   public BDDPacket() {
-    _factory = JFactory.init(JFACTORY_INITIAL_NODE_TABLE_SIZE, JFACTORY_INITIAL_NODE_CACHE_SIZE);
+    this(DEFAULT_INITIAL_NODE_TABLE_SIZE, DEFAULT_INITIAL_NODE_CACHE_SIZE);
+  }
+
+  /**
+   * Creates a packet whose {@link BDDFactory} starts with the given node table and node cache
+   * sizes. A packet that will be reused for many computations, e.g. across questions on one
+   * snapshot, should start large to avoid repeated resizing and garbage collection.
+   *
+   * @param initialNodeTableSize Initial number of nodes in the factory's node table
+   * @param initialNodeCacheSize Initial size of the factory's operation cache
+   */
+  public BDDPacket(int initialNodeTableSize, int initialNodeCacheSize) {
+    _factory = JFactory.init(initialNodeTableSize, initialNodeCacheSize);
     _factory.enableReorder();
     _factory.setCacheRatio(JFACTORY_CACHE_RATIO);
     // Do not impose a maximum node table increase
@@ -135,6 +149,7 @@ public class BDDPacket {
     }
     */
     _pairing = _factory.makePair();
+    _cache = new BDDCache();
 
     // Make sure we have the right number of variables
     int numVars = _factory.varNum();
@@ -271,6 +286,14 @@ public class BDDPacket {
     dotRec(sb, bdd.high(), visited);
   }
 
+  /**
+   * @return The cache of ACL and IpSpace BDDs encoded with this packet. The variable order of a
+   *     packet never changes, so cached BDDs stay valid for as long as the packet is used.
+   */
+  public BDDCache getCache() {
+    return _cache;
+  }
+
   /** @return The {@link BDDFactory} used by this packet. */
   public BDDFactory getFactory() {
     return _factory;
@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import net.sf.javabdd.BDD;
 import net.sf.javabdd.BDDFactory;
 import org.batfish.common.BatfishException;
@@ -41,21 +42,36 @@ public final class IpSpaceToBDD implements GenericIpSpaceVisitor<BDD> {
 
   private final BDDOps _bddOps;
 
+  @Nullable private final BDDCache _cache;
+
   private final BDDFactory _factory;
 
   private final Map<String, Supplier<BDD>> _namedIpSpaceBDDs;
 
+  private final Map<String, IpSpace> _namedIpSpaces;
+
   public IpSpaceToBDD(BDDFactory factory, BDDInteger var) {
-    _bddInteger = var;
-    _bddOps = new BDDOps(factory);
-    _factory = factory;
-    _namedIpSpaceBDDs = ImmutableMap.of();
+    this(factory, var, ImmutableMap.of(), null);
   }
 
   public IpSpaceToBDD(BDDFactory factory, BDDInteger var, Map<String, IpSpace> namedIpSpaces) {
+    this(factory, var, namedIpSpaces, null);
+  }
+
+  /**
+   * Create a visitor that looks up the BDDs of compound {@link IpSpace IpSpaces} (i.e. {@link
+   * AclIpSpace} and {@link IpWildcardSetIpSpace}) in {@code cache}, and adds them to it.
+   */
+  public IpSpaceToBDD(
+      BDDFactory factory,
+      BDDInteger var,
+      Map<String, IpSpace> namedIpSpaces,
+      @Nullable BDDCache cache) {
     _bddInteger = var;
     _bddOps = new BDDOps(factory);
+    _cache = cache;
     _factory = factory;
+    _namedIpSpaces = namedIpSpaces;
     _namedIpSpaceBDDs =
         toImmutableMap(
             namedIpSpaces,
@@ -128,6 +144,13 @@ public final class IpSpaceToBDD implements GenericIpSpaceVisitor<BDD> {
 
   @Override
   public BDD visitAclIpSpace(AclIpSpace aclIpSpace) {
+    return _cache == null
+        ? aclIpSpaceToBDD(aclIpSpace)
+        : _cache.ipSpaceBDD(
+            aclIpSpace, _bddInteger, _namedIpSpaces, () -> aclIpSpaceToBDD(aclIpSpace));
+  }
+
+  private BDD aclIpSpaceToBDD(AclIpSpace aclIpSpace) {
     BDD bdd = _factory.zero();
     for (AclIpSpaceLine aclIpSpaceLine : Lists.reverse(aclIpSpace.getLines())) {
       bdd =
@@ -170,6 +193,16 @@ public final class IpSpaceToBDD implements GenericIpSpaceVisitor<BDD> {
 
   @Override
   public BDD visitIpWildcardSetIpSpace(IpWildcardSetIpSpace ipWildcardSetIpSpace) {
+    return _cache == null
+        ? ipWildcardSetIpSpaceToBDD(ipWildcardSetIpSpace)
+        : _cache.ipSpaceBDD(
+            ipWildcardSetIpSpace,
+            _bddInteger,
+            _namedIpSpaces,
+            () -> ipWildcardSetIpSpaceToBDD(ipWildcardSetIpSpace));
+  }
+
+  private BDD ipWildcardSetIpSpaceToBDD(IpWildcardSetIpSpace ipWildcardSetIpSpace) {
     BDD whitelist =
         _bddOps.or(
             ipWildcardSetIpSpace
@@ -4,10 +4,12 @@ import com.google.common.collect.ImmutableList;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 import org.apache.commons.lang3.StringUtils;
+import org.batfish.z3.expr.RuleStatement;
 import org.batfish.z3.expr.visitors.BoolExprTransformer;
 import org.batfish.z3.expr.visitors.VariableSizeCollector;
 
@@ -24,7 +26,20 @@ public class NodProgram {
   private final Map<String, Integer> _variableSizes;
 
   public NodProgram(Context ctx, ReachabilityProgram... programs) {
-    _context = new NodContext(ctx, programs);
+    this(new NodContext(ctx, programs), new HashMap<>(), programs);
+  }
+
+  /**
+   * Creates a program in an existing {@link NodContext}, which must know every variable and
+   * relation of {@code programs}. Rules in {@code translatedRules} are not translated again, and
+   * newly translated rules are added to it, so it may only be shared by programs with the same
+   * context and input.
+   */
+  NodProgram(
+      NodContext context,
+      Map<RuleStatement, BoolExpr> translatedRules,
+      ReachabilityProgram... programs) {
+    _context = context;
     _variableSizes = VariableSizeCollector.collectVariableSizes(programs);
     _queries =
         Arrays.stream(programs)
@@ -46,9 +61,12 @@ public class NodProgram {
                         .getRules()
                         .stream()
                         .map(
-                            booleanExpr ->
-                                BoolExprTransformer.toBoolExpr(
-                                    booleanExpr, program.getInput(), _context)))
+                            rule ->
+                                translatedRules.computeIfAbsent(
+                                    rule,
+                                    r ->
+                                        BoolExprTransformer.toBoolExpr(
+                                            r, program.getInput(), _context))))
             .collect(ImmutableList.toImmutableList());
     _smtConstraint =
         _context
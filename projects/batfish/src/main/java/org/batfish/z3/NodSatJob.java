@@ -1,21 +1,31 @@
 package org.batfish.z3;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
 import com.microsoft.z3.Fixedpoint;
 import com.microsoft.z3.Status;
 import com.microsoft.z3.Z3Exception;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
 import org.batfish.common.BatfishException;
 import org.batfish.config.Settings;
+import org.batfish.z3.expr.RuleStatement;
 
+/**
+ * Checks the satisfiability of the queries of one or more {@link SatQuerySynthesizer
+ * SatQuerySynthesizers} against the program of a {@link Synthesizer}. All of them are answered in
+ * the same Z3 context, in which each rule of the base program is translated only once.
+ */
 public class NodSatJob<KeyT> extends Z3ContextJob<NodSatResult<KeyT>> {
 
   private final boolean _optimize;
 
-  private final SatQuerySynthesizer<KeyT> _query;
+  private final List<SatQuerySynthesizer<KeyT>> _queries;
 
   private final Synthesizer _synthesizer;
 
@@ -24,10 +34,18 @@ public class NodSatJob<KeyT> extends Z3ContextJob<NodSatResult<KeyT>> {
       Synthesizer synthesizer,
       SatQuerySynthesizer<KeyT> query,
       boolean optimize) {
+    this(settings, synthesizer, ImmutableList.of(query), optimize);
+  }
+
+  public NodSatJob(
+      Settings settings,
+      Synthesizer synthesizer,
+      List<SatQuerySynthesizer<KeyT>> queries,
+      boolean optimize) {
     super(settings);
     _optimize = optimize;
     _synthesizer = synthesizer;
-    _query = query;
+    _queries = ImmutableList.copyOf(queries);
   }
 
   @Override
@@ -35,27 +53,41 @@ public class NodSatJob<KeyT> extends Z3ContextJob<NodSatResult<KeyT>> {
     Map<KeyT, Boolean> results = new LinkedHashMap<>();
     long startTime = System.currentTimeMillis();
     try (Context ctx = new Context()) {
-      NodProgram program = getNodProgram(ctx);
-      Fixedpoint fix = mkFixedpoint(program, false);
-      for (int queryNum = 0; queryNum < program.getQueries().size(); queryNum++) {
-        BoolExpr query = program.getQueries().get(queryNum);
-        KeyT key = _query.getKeys().get(queryNum);
-        Status status = fix.query(query);
-        switch (status) {
-          case SATISFIABLE:
-            results.put(key, true);
-            break;
-          case UNKNOWN:
-            return new NodSatResult<>(
-                startTime,
-                _logger.getHistory(),
-                new BatfishException("Query satisfiability unknown"));
-          case UNSATISFIABLE:
-            results.put(key, false);
-            break;
-          default:
-            return new NodSatResult<>(
-                startTime, _logger.getHistory(), new BatfishException("invalid status"));
+      ReachabilityProgram baseProgram = _synthesizer.synthesizeNodProgram();
+      ReachabilityProgram[] queryPrograms =
+          _queries
+              .stream()
+              .map(query -> query.getReachabilityProgram(_synthesizer.getInput()))
+              .toArray(ReachabilityProgram[]::new);
+      NodContext nodContext =
+          new NodContext(
+              ctx, Lists.asList(baseProgram, queryPrograms).toArray(new ReachabilityProgram[0]));
+      Map<RuleStatement, BoolExpr> translatedRules = new HashMap<>();
+      for (int i = 0; i < queryPrograms.length; i++) {
+        List<KeyT> keys = _queries.get(i).getKeys();
+        NodProgram program =
+            getNodProgram(nodContext, translatedRules, baseProgram, queryPrograms[i]);
+        Fixedpoint fix = mkFixedpoint(program, false);
+        for (int queryNum = 0; queryNum < program.getQueries().size(); queryNum++) {
+          BoolExpr query = program.getQueries().get(queryNum);
+          KeyT key = keys.get(queryNum);
+          Status status = fix.query(query);
+          switch (status) {
+            case SATISFIABLE:
+              results.put(key, true);
+              break;
+            case UNKNOWN:
+              return new NodSatResult<>(
+                  startTime,
+                  _logger.getHistory(),
+                  new BatfishException("Query satisfiability unknown"));
+            case UNSATISFIABLE:
+              results.put(key, false);
+              break;
+            default:
+              return new NodSatResult<>(
+                  startTime, _logger.getHistory(), new BatfishException("invalid status"));
+          }
         }
       }
       return new NodSatResult<>(results, _logger.getHistory(), startTime);
@@ -68,12 +100,13 @@ public class NodSatJob<KeyT> extends Z3ContextJob<NodSatResult<KeyT>> {
   }
 
   @Nonnull
-  private NodProgram getNodProgram(Context ctx) {
-    ReachabilityProgram baseProgram = _synthesizer.synthesizeNodProgram();
-    ReachabilityProgram queryProgram = _query.getReachabilityProgram(_synthesizer.getInput());
-
+  private NodProgram getNodProgram(
+      NodContext nodContext,
+      Map<RuleStatement, BoolExpr> translatedRules,
+      ReachabilityProgram baseProgram,
+      ReachabilityProgram queryProgram) {
     return _optimize
-        ? optimizedProgram(ctx, baseProgram, queryProgram)
-        : new NodProgram(ctx, baseProgram, queryProgram);
+        ? optimizedProgram(nodContext, translatedRules, baseProgram, queryProgram)
+        : new NodProgram(nodContext, translatedRules, baseProgram, queryProgram);
   }
 }
@@ -230,6 +230,25 @@ public abstract class Z3ContextJob<R extends BatfishJobResult<?, ?>> extends Bat
 
   protected NodProgram optimizedProgram(
       Context ctx, ReachabilityProgram baseProgram, ReachabilityProgram queryProgram) {
+    return new NodProgram(ctx, optimize(baseProgram, queryProgram));
+  }
+
+  /**
+   * Like {@link #optimizedProgram(Context, ReachabilityProgram, ReachabilityProgram)}, but in an
+   * existing {@link NodContext} and reusing {@code translatedRules}, as in {@link
+   * NodProgram#NodProgram(NodContext, Map, ReachabilityProgram...)}.
+   */
+  protected NodProgram optimizedProgram(
+      NodContext nodContext,
+      Map<RuleStatement, BoolExpr> translatedRules,
+      ReachabilityProgram baseProgram,
+      ReachabilityProgram queryProgram) {
+    return new NodProgram(nodContext, translatedRules, optimize(baseProgram, queryProgram));
+  }
+
+  /** Returns the base and query programs without the rules that cannot affect the queries. */
+  private static ReachabilityProgram[] optimize(
+      ReachabilityProgram baseProgram, ReachabilityProgram queryProgram) {
     List<RuleStatement> allRules = new ArrayList<>(baseProgram.getRules());
     allRules.addAll(queryProgram.getRules());
 
@@ -264,6 +283,6 @@ public abstract class Z3ContextJob<R extends BatfishJobResult<?, ?>> extends Bat
             .setSmtConstraint(queryProgram.getSmtConstraint())
             .build();
 
-    return new NodProgram(ctx, optimizedBaseProgram, optimizedQueryProgram);
+    return new ReachabilityProgram[] {optimizedBaseProgram, optimizedQueryProgram};
   }
 }
@@ -0,0 +1,183 @@
+package org.batfish.bddreachability;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.AclIpSpace;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.HeaderSpace;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpAccessListLine;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.SubRange;
+import org.batfish.datamodel.acl.AclLineMatchExpr;
+import org.batfish.datamodel.acl.MatchHeaderSpace;
+import org.batfish.datamodel.acl.MatchSrcInterface;
+import org.batfish.datamodel.acl.OriginatingFromDevice;
+import org.batfish.datamodel.acl.PermittedByAcl;
+import org.batfish.datamodel.acl.TrueExpr;
+import org.batfish.z3.AclIdentifier;
+import org.batfish.z3.AclLine;
+import org.junit.Test;
+
+/** Tests for {@link BDDAclLineReachabilityJob}. */
+public class BDDAclLineReachabilityJobTest {
+
+  private static final String ACL = "acl";
+
+  private static Configuration config(String hostname, String... interfaces) {
+    Configuration c = new Configuration(hostname, ConfigurationFormat.CISCO_IOS);
+    c.setInterfaces(
+        Arrays.stream(interfaces)
+            .collect(
+                ImmutableSortedMap.toImmutableSortedMap(
+                    String::compareTo,
+                    name -> name,
+                    name -> Interface.builder().setName(name).setOwner(c).build())));
+    return c;
+  }
+
+  private static IpAccessList acl(String name, AclLineMatchExpr... lines) {
+    return IpAccessList.builder()
+        .setName(name)
+        .setLines(
+            Arrays.stream(lines)
+                .map(line -> IpAccessListLine.accepting().setMatchCondition(line).build())
+                .collect(ImmutableList.toImmutableList()))
+        .build();
+  }
+
+  private static MatchHeaderSpace dstPrefix(String prefix) {
+    return new MatchHeaderSpace(
+        HeaderSpace.builder().setDstIps(Prefix.parse(prefix).toIpSpace()).build());
+  }
+
+  private static Map<AclLine, UnreachableAclLine> run(Configuration... configs) {
+    Map<AclIdentifier, Configuration> byAcl =
+        Arrays.stream(configs)
+            .collect(
+                ImmutableMap.toImmutableMap(c -> new AclIdentifier(c.getHostname(), ACL), c -> c));
+    Map<AclLine, UnreachableAclLine> unreachableLines = new TreeMap<>();
+    BDDAclLineReachabilityResult result =
+        new BDDAclLineReachabilityJob(new Settings(), byAcl).call();
+    result.applyTo(unreachableLines, null, null);
+    return unreachableLines;
+  }
+
+  @Test
+  public void testBlockedAndUnmatchableLines() {
+    Configuration c = config("c");
+    c.setIpAccessLists(
+        ImmutableSortedMap.of(
+            ACL,
+            acl(
+                ACL,
+                dstPrefix("1.0.0.0/8"),
+                dstPrefix("2.0.0.0/8"),
+                // blocked by line 0
+                dstPrefix("1.1.0.0/16"),
+                // blocked by lines 0 and 1 together
+                new MatchHeaderSpace(
+                    HeaderSpace.builder()
+                        .setDstIps(
+                            AclIpSpace.union(
+                                Prefix.parse("1.0.0.0/8").toIpSpace(),
+                                Prefix.parse("2.0.0.0/8").toIpSpace()))
+                        .build()),
+                // unmatchable
+                new MatchHeaderSpace(
+                    HeaderSpace.builder()
+                        .setPacketLengths(ImmutableSet.of(new SubRange(100, 200)))
+                        .setNotPacketLengths(ImmutableSet.of(new SubRange(0, 300)))
+                        .build()),
+                // reachable, since it matches everything outside 1.0.0.0/8
+                new MatchHeaderSpace(
+                    HeaderSpace.builder()
+                        .setDstIps(Prefix.parse("1.0.0.0/8").toIpSpace())
+                        .setNegate(true)
+                        .build()))));
+
+    assertThat(
+        run(c),
+        equalTo(
+            ImmutableMap.of(
+                new AclLine("c", ACL, 2),
+                UnreachableAclLine.blocked(0),
+                new AclLine("c", ACL, 3),
+                UnreachableAclLine.blocked(null),
+                new AclLine("c", ACL, 4),
+                UnreachableAclLine.unmatchable())));
+  }
+
+  @Test
+  public void testPermittedByAcl() {
+    Configuration c = config("c");
+    c.setIpAccessLists(
+        ImmutableSortedMap.of(
+            ACL,
+            acl(ACL, new PermittedByAcl("other"), dstPrefix("1.1.0.0/16")),
+            "other",
+            acl("other", dstPrefix("1.0.0.0/8"))));
+
+    assertThat(
+        run(c), equalTo(ImmutableMap.of(new AclLine("c", ACL, 1), UnreachableAclLine.blocked(0))));
+  }
+
+  /**
+   * Packets come from one of the configuration's interfaces, from the device, or, when the source
+   * interface field NoD uses has room for more, from an unnamed other interface.
+   */
+  @Test
+  public void testSourceInterfaces() {
+    // three interfaces and the device take all four values of the field
+    Configuration full = config("full", "i1", "i2", "i3");
+    full.setIpAccessLists(
+        ImmutableSortedMap.of(
+            ACL,
+            acl(
+                ACL,
+                new MatchSrcInterface(ImmutableList.of("i1", "i2")),
+                new MatchSrcInterface(ImmutableList.of("i3")),
+                OriginatingFromDevice.INSTANCE,
+                TrueExpr.INSTANCE)));
+    // two interfaces and the device leave one value over
+    Configuration spare = config("spare", "i1", "i2");
+    spare.setIpAccessLists(
+        ImmutableSortedMap.of(
+            ACL,
+            acl(
+                ACL,
+                new MatchSrcInterface(ImmutableList.of("i1", "i2")),
+                OriginatingFromDevice.INSTANCE,
+                TrueExpr.INSTANCE)));
+    // one interface and the device take both values of a smaller field than the others'
+    Configuration small = config("small", "i1");
+    small.setIpAccessLists(
+        ImmutableSortedMap.of(
+            ACL,
+            acl(
+                ACL,
+                new MatchSrcInterface(ImmutableList.of("i1")),
+                OriginatingFromDevice.INSTANCE,
+                TrueExpr.INSTANCE)));
+
+    assertThat(
+        run(full, spare, small),
+        equalTo(
+            ImmutableMap.of(
+                new AclLine("full", ACL, 3),
+                UnreachableAclLine.blocked(null),
+                new AclLine("small", ACL, 2),
+                UnreachableAclLine.blocked(null))));
+  }
+}
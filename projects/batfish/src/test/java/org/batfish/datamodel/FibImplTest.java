@@ -0,0 +1,79 @@
+package org.batfish.datamodel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.batfish.dataplane.rib.Rib;
+import org.batfish.dataplane.rib.RibDelta;
+import org.junit.Test;
+
+/** Tests of {@link FibImpl} */
+public class FibImplTest {
+
+  private static StaticRoute randomRoute(Random random) {
+    int prefixLength = 16 + random.nextInt(17);
+    StaticRoute.Builder sb =
+        StaticRoute.builder()
+            .setNetwork(new Prefix(new Ip((10L << 24) + random.nextInt(1 << 16)), prefixLength))
+            .setAdministrativeCost(random.nextInt(3));
+    if (random.nextInt(4) == 0) {
+      sb.setNextHopInterface("i" + random.nextInt(3));
+    } else {
+      sb.setNextHopIp(new Ip((10L << 24) + random.nextInt(1 << 16)));
+      if (random.nextInt(4) == 0) {
+        sb.setNextHopInterface("i" + random.nextInt(3));
+      }
+    }
+    return sb.build();
+  }
+
+  /** Updating a FIB from RIB changes gives the same FIB as building it from scratch. */
+  @Test
+  public void testUpdate() {
+    Random random = new Random(0);
+    Rib rib = new Rib();
+    List<AbstractRoute> routes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      StaticRoute route = randomRoute(random);
+      rib.mergeRoute(route);
+      routes.add(route);
+    }
+    rib.takeChanges();
+    FibImpl fib = new FibImpl(rib);
+    for (int iteration = 0; iteration < 50; iteration++) {
+      for (int i = random.nextInt(10); i > 0; i--) {
+        if (random.nextBoolean() && !routes.isEmpty()) {
+          rib.removeRoute(routes.remove(random.nextInt(routes.size())));
+        } else {
+          StaticRoute route = randomRoute(random);
+          rib.mergeRoute(route);
+          routes.add(route);
+        }
+      }
+      RibDelta<AbstractRoute> changes = rib.takeChanges();
+      if (changes != null) {
+        fib = FibImpl.update(fib, rib, changes.getPrefixes());
+      }
+      assertThat(fib.getNextHopInterfaces(), equalTo(new FibImpl(rib).getNextHopInterfaces()));
+    }
+  }
+
+  /** A FIB that has been updated from no longer has indexes, so updating it again starts over. */
+  @Test
+  public void testUpdateStaleFib() {
+    Rib rib = new Rib();
+    Prefix network = Prefix.parse("10.0.0.0/24");
+    StaticRoute route = StaticRoute.builder().setNetwork(network).setNextHopInterface("i0").build();
+    FibImpl fib = new FibImpl(rib);
+    rib.mergeRoute(route);
+    FibImpl updated = FibImpl.update(fib, rib, Collections.singleton(network));
+    FibImpl stale = FibImpl.update(fib, rib, Collections.emptySet());
+
+    assertThat(updated.getNextHopInterfaces().keySet().contains(route), equalTo(true));
+    assertThat(stale.getNextHopInterfaces(), equalTo(updated.getNextHopInterfaces()));
+  }
+}
@@ -30,6 +30,7 @@ import org.batfish.datamodel.FlowDisposition;
 import org.batfish.datamodel.FlowHistory;
 import org.batfish.datamodel.FlowHistory.FlowHistoryInfo;
 import org.batfish.datamodel.FlowTrace;
+import org.batfish.datamodel.HeaderSpace;
 import org.batfish.datamodel.Interface;
 import org.batfish.datamodel.InterfaceAddress;
 import org.batfish.datamodel.Ip;
@@ -39,6 +40,7 @@ import org.batfish.datamodel.LineAction;
 import org.batfish.datamodel.MockFib;
 import org.batfish.datamodel.NetworkFactory;
 import org.batfish.datamodel.SourceNat;
+import org.batfish.datamodel.SubRange;
 import org.batfish.datamodel.Vrf;
 import org.batfish.datamodel.acl.TrueExpr;
 import org.batfish.main.Batfish;
@@ -394,6 +396,80 @@ public class TracerouteEngineTest {
     assertThat(trace.getDisposition(), equalTo(FlowDisposition.DENIED_OUT));
   }
 
+  /** Tracing flows together gives the same traces as tracing each flow on its own. */
+  @Test
+  public void testBatchSameAsSingleFlows() throws IOException {
+    NetworkFactory nf = new NetworkFactory();
+    Configuration.Builder cb =
+        nf.configurationBuilder().setConfigurationFormat(ConfigurationFormat.CISCO_IOS);
+    Vrf.Builder vb = nf.vrfBuilder().setName(Configuration.DEFAULT_VRF_NAME);
+    Interface.Builder ib = nf.interfaceBuilder().setActive(true);
+
+    // c1 forwards to c2, which only accepts even destination ports
+    Configuration c1 = cb.build();
+    ib.setOwner(c1).setVrf(vb.setOwner(c1).build()).setAddress(new InterfaceAddress("1.0.0.0/24"));
+    ib.build();
+    Configuration c2 = cb.build();
+    IpAccessList incomingFilter =
+        nf.aclBuilder()
+            .setOwner(c2)
+            .setName("incomingAcl")
+            .setLines(
+                ImmutableList.of(
+                    IpAccessListLine.acceptingHeaderSpace(
+                        HeaderSpace.builder()
+                            .setDstPorts(ImmutableList.of(new SubRange(0, 0), new SubRange(2, 2)))
+                            .build())))
+            .build();
+    ib.setOwner(c2)
+        .setVrf(vb.setOwner(c2).build())
+        .setAddress(new InterfaceAddress("1.0.0.3/24"))
+        .setIncomingFilter(incomingFilter)
+        .build();
+
+    SortedMap<String, Configuration> configurations =
+        ImmutableSortedMap.of(c1.getHostname(), c1, c2.getHostname(), c2);
+    Batfish batfish = BatfishTestUtils.getBatfish(configurations, _tempFolder);
+    batfish.computeDataPlane(false);
+    DataPlane dp = batfish.loadDataPlane();
+    ImmutableSet.Builder<Flow> flows = ImmutableSet.builder();
+    for (String dstIp : ImmutableList.of("1.0.0.1", "1.0.0.2", "1.0.0.3", "2.0.0.1")) {
+      for (int dstPort = 0; dstPort < 4; dstPort++) {
+        for (String tag : ImmutableList.of("tag1", "tag2")) {
+          flows.add(
+              Flow.builder()
+                  .setIngressNode(c1.getHostname())
+                  .setTag(tag)
+                  .setDstIp(new Ip(dstIp))
+                  .setDstPort(dstPort)
+                  .build());
+        }
+      }
+    }
+    Set<Flow> allFlows = flows.build();
+    SortedMap<Flow, Set<FlowTrace>> batch =
+        TracerouteEngineImpl.getInstance().processFlows(dp, allFlows, dp.getFibs(), false);
+
+    for (Flow flow : allFlows) {
+      SortedMap<Flow, Set<FlowTrace>> single =
+          TracerouteEngineImpl.getInstance()
+              .processFlows(dp, ImmutableSet.of(flow), dp.getFibs(), false);
+      assertThat(batch.get(flow), equalTo(single.get(flow)));
+    }
+    assertThat(
+        batch
+            .get(
+                Flow.builder()
+                    .setIngressNode(c1.getHostname())
+                    .setTag("tag1")
+                    .setDstIp(new Ip("1.0.0.3"))
+                    .setDstPort(1)
+                    .build())
+            .iterator()
+            .next(),
+        hasDisposition(FlowDisposition.DENIED_IN));
+  }
+
   /** When ingress node is non-existent, don't crash with null-pointer. */
   @Test(expected = BatfishException.class)
   public void testTracerouteOutsideNetwork() throws IOException {
@@ -0,0 +1,326 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.datamodel.matchers.AbstractRouteMatchers.hasPrefix;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.util.CommonUtil;
+import org.batfish.datamodel.BgpProcess;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.InterfaceAddress;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.NetworkFactory;
+import org.batfish.datamodel.OriginType;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.StaticRoute;
+import org.batfish.datamodel.Topology;
+import org.batfish.datamodel.Vrf;
+import org.batfish.datamodel.routing_policy.RoutingPolicy;
+import org.batfish.datamodel.routing_policy.expr.LiteralOrigin;
+import org.batfish.datamodel.routing_policy.statement.SetOrigin;
+import org.batfish.datamodel.routing_policy.statement.Statements;
+import org.junit.Test;
+
+/** Tests of {@link BaseSnapshot} */
+public class BaseSnapshotTest {
+
+  private static final String R1 = "r1";
+  private static final String R2 = "r2";
+  private static final String R3 = "r3";
+  private static final String R4 = "r4";
+  private static final String R5 = "r5";
+  private static final String T = "t";
+
+  /**
+   * A chain of routers r1-r2-r3-r4. Each of r1-r2 and r3-r4 has a static route to the loopback of
+   * the other, and the link between r2 and r3 carries no routes. If {@code forked}, r4 gets an
+   * additional loopback. If {@code ospf}, r3 and r4 run OSPF on the link between them.
+   */
+  private static SortedMap<String, Configuration> network(boolean forked, boolean ospf) {
+    NetworkFactory nf = new NetworkFactory();
+    ImmutableSortedMap.Builder<String, Configuration> configurations =
+        ImmutableSortedMap.naturalOrder();
+    addRouter(nf, configurations, R1, "10.0.12.1/24", "1.1.1.1/32", "2.2.2.2/32", "10.0.12.2");
+    Configuration r2 =
+        addRouter(nf, configurations, R2, "10.0.12.2/24", "2.2.2.2/32", "1.1.1.1/32", "10.0.12.1");
+    Configuration r3 =
+        addRouter(nf, configurations, R3, "10.0.34.3/24", "3.3.3.3/32", "4.4.4.4/32", "10.0.34.4");
+    Configuration r4 =
+        addRouter(nf, configurations, R4, "10.0.34.4/24", "4.4.4.4/32", "3.3.3.3/32", "10.0.34.3");
+    addInterface(nf, r2, "10.0.23.2/24");
+    addInterface(nf, r3, "10.0.23.3/24");
+    if (forked) {
+      addInterface(nf, r4, "4.4.4.5/32");
+    }
+    if (ospf) {
+      for (Configuration c : ImmutableList.of(r3, r4)) {
+        c.getInterfaces()
+            .values()
+            .stream()
+            .filter(i -> i.getAddress().getPrefix().equals(Prefix.parse("10.0.34.0/24")))
+            .forEach(i -> i.setOspfEnabled(true));
+      }
+    }
+    return configurations.build();
+  }
+
+  private static void addInterface(NetworkFactory nf, Configuration c, String address) {
+    nf.interfaceBuilder()
+        .setOwner(c)
+        .setVrf(c.getDefaultVrf())
+        .setActive(true)
+        .setAddress(new InterfaceAddress(address))
+        .build();
+  }
+
+  private static Configuration addRouter(
+      NetworkFactory nf,
+      ImmutableSortedMap.Builder<String, Configuration> configurations,
+      String hostname,
+      String linkAddress,
+      String loopbackAddress,
+      String remoteLoopback,
+      String nextHopIp) {
+    Configuration c =
+        nf.configurationBuilder()
+            .setHostname(hostname)
+            .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+            .build();
+    Vrf vrf = nf.vrfBuilder().setOwner(c).setName(Configuration.DEFAULT_VRF_NAME).build();
+    Interface.Builder ib = nf.interfaceBuilder().setOwner(c).setVrf(vrf).setActive(true);
+    ib.setAddress(new InterfaceAddress(linkAddress)).build();
+    ib.setAddress(new InterfaceAddress(loopbackAddress)).build();
+    vrf.getStaticRoutes()
+        .add(
+            StaticRoute.builder()
+                .setNetwork(Prefix.parse(remoteLoopback))
+                .setNextHopIp(new Ip(nextHopIp))
+                .setAdministrativeCost(1)
+                .build());
+    configurations.put(hostname, c);
+    return c;
+  }
+
+  private static IncrementalBdpEngine engine() {
+    return new IncrementalBdpEngine(
+        new IncrementalDataPlaneSettings(),
+        new BatfishLogger(BatfishLogger.LEVELSTR_OUTPUT, false),
+        (s, i) -> new AtomicInteger());
+  }
+
+  private static BaseSnapshot baseSnapshot(boolean ospf) {
+    SortedMap<String, Configuration> configurations = network(false, ospf);
+    Topology topology = CommonUtil.synthesizeTopology(configurations);
+    IncrementalDataPlane dp =
+        (IncrementalDataPlane)
+            engine()
+                .computeDataPlane(false, configurations, topology, Collections.emptySet())
+                ._dataPlane;
+    return new BaseSnapshot(configurations, topology, Collections.emptySet(), dp);
+  }
+
+  private static SortedSet<String> computeAffectedNodes(
+      BaseSnapshot base, SortedMap<String, Configuration> configurations, Topology topology) {
+    return base.computeAffectedNodes(configurations, topology, Collections.emptySet(), true);
+  }
+
+  @Test
+  public void testComputeAffectedNodesUnchanged() {
+    SortedMap<String, Configuration> configurations = network(false, false);
+    assertThat(
+        computeAffectedNodes(
+            baseSnapshot(false), configurations, CommonUtil.synthesizeTopology(configurations)),
+        empty());
+  }
+
+  /** Changes do not spread over links that carry no routes, even in a connected network */
+  @Test
+  public void testComputeAffectedNodesChangedConfiguration() {
+    SortedMap<String, Configuration> configurations = network(true, false);
+    assertThat(
+        computeAffectedNodes(
+            baseSnapshot(false), configurations, CommonUtil.synthesizeTopology(configurations)),
+        contains(R4));
+  }
+
+  /** Changes spread to the nodes that exchange routes with the changed node */
+  @Test
+  public void testComputeAffectedNodesChangedConfigurationIgp() {
+    SortedMap<String, Configuration> configurations = network(true, true);
+    assertThat(
+        computeAffectedNodes(
+            baseSnapshot(true), configurations, CommonUtil.synthesizeTopology(configurations)),
+        contains(R3, R4));
+  }
+
+  @Test
+  public void testComputeAffectedNodesRemovedEdge() {
+    SortedMap<String, Configuration> configurations = network(false, false);
+    Topology topology =
+        new Topology(
+            CommonUtil.synthesizeTopology(configurations)
+                .getEdges()
+                .stream()
+                .filter(e -> !e.getNode1().equals(R1) && !e.getNode2().equals(R1))
+                .collect(ImmutableSortedSet.toImmutableSortedSet(Comparator.naturalOrder())));
+    assertThat(
+        computeAffectedNodes(baseSnapshot(false), configurations, topology), contains(R1, R2));
+  }
+
+  @Test
+  public void testComputeDataPlaneReusesUnaffectedNodes() {
+    BaseSnapshot base = baseSnapshot(false);
+    SortedMap<String, Configuration> configurations = network(true, false);
+    Topology topology = CommonUtil.synthesizeTopology(configurations);
+
+    IncrementalDataPlane incremental =
+        (IncrementalDataPlane)
+            engine()
+                .computeDataPlane(true, configurations, topology, Collections.emptySet(), base)
+                ._dataPlane;
+    IncrementalDataPlane full =
+        (IncrementalDataPlane)
+            engine()
+                .computeDataPlane(true, configurations, topology, Collections.emptySet())
+                ._dataPlane;
+
+    // Nodes outside the blast radius are copied, not shared, and the result matches a full run
+    for (String hostname : ImmutableList.of(R1, R2, R3, R4)) {
+      assertThat(
+          incremental.getNodes().get(hostname),
+          not(sameInstance(base.getDataPlane().getNodes().get(hostname))));
+    }
+    assertThat(
+        IncrementalBdpEngine.getRoutes(incremental), equalTo(IncrementalBdpEngine.getRoutes(full)));
+    assertThat(incremental.getFibs().keySet(), equalTo(full.getFibs().keySet()));
+  }
+
+  /**
+   * eBGP peers r1 and r5 reach each other through t, which routes only with connected routes. If
+   * {@code forked}, r1 gets an additional loopback, which it exports to r5.
+   */
+  private static SortedMap<String, Configuration> bgpNetwork(boolean forked) {
+    NetworkFactory nf = new NetworkFactory();
+    ImmutableSortedMap.Builder<String, Configuration> configurations =
+        ImmutableSortedMap.naturalOrder();
+    Configuration r1 =
+        addBgpRouter(nf, configurations, R1, 1L, "10.0.1.1/24", "10.0.5.5", 5L, "10.0.5.0/24");
+    addBgpRouter(nf, configurations, R5, 5L, "10.0.5.5/24", "10.0.1.1", 1L, "10.0.1.0/24");
+    Configuration t =
+        nf.configurationBuilder()
+            .setHostname(T)
+            .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+            .build();
+    nf.vrfBuilder().setOwner(t).setName(Configuration.DEFAULT_VRF_NAME).build();
+    addInterface(nf, t, "10.0.1.3/24");
+    addInterface(nf, t, "10.0.5.3/24");
+    configurations.put(T, t);
+    if (forked) {
+      addInterface(nf, r1, "1.1.1.5/32");
+    }
+    return configurations.build();
+  }
+
+  private static Configuration addBgpRouter(
+      NetworkFactory nf,
+      ImmutableSortedMap.Builder<String, Configuration> configurations,
+      String hostname,
+      long as,
+      String address,
+      String peerAddress,
+      long peerAs,
+      String peerPrefix) {
+    Configuration c =
+        nf.configurationBuilder()
+            .setHostname(hostname)
+            .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+            .build();
+    Vrf vrf = nf.vrfBuilder().setOwner(c).setName(Configuration.DEFAULT_VRF_NAME).build();
+    addInterface(nf, c, address);
+    InterfaceAddress interfaceAddress = new InterfaceAddress(address);
+    vrf.getStaticRoutes()
+        .add(
+            StaticRoute.builder()
+                .setNetwork(Prefix.parse(peerPrefix))
+                .setNextHopIp(new Ip(interfaceAddress.getPrefix().getStartIp().asLong() + 3))
+                .setAdministrativeCost(1)
+                .build());
+    RoutingPolicy exportAll =
+        nf.routingPolicyBuilder()
+            .setOwner(c)
+            .setStatements(
+                ImmutableList.of(
+                    new SetOrigin(new LiteralOrigin(OriginType.INCOMPLETE, null)),
+                    Statements.ExitAccept.toStaticStatement()))
+            .build();
+    BgpProcess proc =
+        nf.bgpProcessBuilder().setRouterId(interfaceAddress.getIp()).setVrf(vrf).build();
+    nf.bgpNeighborBuilder()
+        .setBgpProcess(proc)
+        .setLocalAs(as)
+        .setRemoteAs(peerAs)
+        .setLocalIp(interfaceAddress.getIp())
+        .setPeerAddress(new Ip(peerAddress))
+        .setEbgpMultihop(true)
+        .setExportPolicy(exportAll.getName())
+        .build();
+    configurations.put(hostname, c);
+    return c;
+  }
+
+  /**
+   * A node that is reused but lies on the path of a BGP session between recomputed nodes still
+   * carries the session's reachability check.
+   */
+  @Test
+  public void testComputeDataPlaneChecksBgpSessionsThroughReusedNodes() {
+    SortedMap<String, Configuration> baseConfigurations = bgpNetwork(false);
+    Topology baseTopology = CommonUtil.synthesizeTopology(baseConfigurations);
+    BaseSnapshot base =
+        new BaseSnapshot(
+            baseConfigurations,
+            baseTopology,
+            Collections.emptySet(),
+            (IncrementalDataPlane)
+                engine()
+                    .computeDataPlane(
+                        false, baseConfigurations, baseTopology, Collections.emptySet())
+                    ._dataPlane);
+    SortedMap<String, Configuration> configurations = bgpNetwork(true);
+    Topology topology = CommonUtil.synthesizeTopology(configurations);
+    assertThat(computeAffectedNodes(base, configurations, topology), contains(R1, R5));
+
+    IncrementalDataPlane incremental =
+        (IncrementalDataPlane)
+            engine()
+                .computeDataPlane(true, configurations, topology, Collections.emptySet(), base)
+                ._dataPlane;
+    IncrementalDataPlane full =
+        (IncrementalDataPlane)
+            engine()
+                .computeDataPlane(true, configurations, topology, Collections.emptySet())
+                ._dataPlane;
+
+    assertThat(
+        IncrementalBdpEngine.getRoutes(incremental).get(R5).get(Configuration.DEFAULT_VRF_NAME),
+        hasItem(hasPrefix(Prefix.parse("1.1.1.5/32"))));
+    assertThat(
+        IncrementalBdpEngine.getRoutes(incremental), equalTo(IncrementalBdpEngine.getRoutes(full)));
+  }
+}
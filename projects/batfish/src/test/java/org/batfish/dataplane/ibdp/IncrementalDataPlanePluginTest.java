@@ -19,6 +19,7 @@ import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.graph.ValueGraph;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,9 +33,12 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.SerializationUtils;
 import org.batfish.common.BatfishLogger;
 import org.batfish.common.plugin.DataPlanePlugin;
 import org.batfish.common.plugin.DataPlanePlugin.ComputeDataPlaneResult;
+import org.batfish.common.plugin.ITracerouteEngine;
+import org.batfish.common.util.CommonUtil;
 import org.batfish.datamodel.AbstractRoute;
 import org.batfish.datamodel.AsPath;
 import org.batfish.datamodel.BgpActivePeerConfig;
@@ -63,6 +67,8 @@ import org.batfish.datamodel.Vrf;
 import org.batfish.datamodel.collections.RoutesByVrf;
 import org.batfish.datamodel.routing_policy.RoutingPolicy;
 import org.batfish.datamodel.routing_policy.statement.SetDefaultPolicy;
+import org.batfish.dataplane.TracerouteEngineImpl;
+import org.batfish.dataplane.ibdp.schedule.IbdpSchedule.Schedule;
 import org.batfish.dataplane.rib.BgpBestPathRib;
 import org.batfish.dataplane.rib.BgpMultipathRib;
 import org.batfish.main.Batfish;
@@ -402,6 +408,88 @@ public class IncrementalDataPlanePluginTest {
     dataPlanePlugin.computeDataPlane(false);
   }
 
+  @Test
+  public void testWorkListScheduleMatchesNodeColoredSchedule() throws IOException {
+    String testrigName = "bgp-remove-private-as";
+    List<String> configurationNames = ImmutableList.of("r1", "r2", "r3");
+
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigText(
+            TestrigText.builder()
+                .setConfigurationText(TESTRIGS_PREFIX + testrigName, configurationNames)
+                .build(),
+            _folder);
+    SortedMap<String, Configuration> configurations = batfish.loadConfigurations();
+    Topology topology = CommonUtil.synthesizeTopology(configurations);
+    IncrementalDataPlaneSettings workListSettings = new IncrementalDataPlaneSettings();
+    workListSettings.setScheduleName(Schedule.WORK_LIST);
+
+    DataPlane colored =
+        new IncrementalBdpEngine(
+                new IncrementalDataPlaneSettings(),
+                new BatfishLogger(BatfishLogger.LEVELSTR_OUTPUT, false),
+                (s, i) -> new AtomicInteger())
+            .computeDataPlane(false, configurations, topology, Collections.emptySet())
+            ._dataPlane;
+    DataPlane workList =
+        new IncrementalBdpEngine(
+                workListSettings,
+                new BatfishLogger(BatfishLogger.LEVELSTR_OUTPUT, false),
+                (s, i) -> new AtomicInteger())
+            .computeDataPlane(false, configurations, topology, Collections.emptySet())
+            ._dataPlane;
+
+    // r1's loopback propagates across both sessions, and the result matches the full schedule
+    assertThat(
+        workList.getRibs().get("r3").get(DEFAULT_VRF_NAME).getRoutes(),
+        hasItem(hasPrefix(Prefix.parse("1.1.1.1/32"))));
+    assertThat(
+        IncrementalBdpEngine.getRoutes((IncrementalDataPlane) workList),
+        equalTo(IncrementalBdpEngine.getRoutes((IncrementalDataPlane) colored)));
+  }
+
+  @Test
+  public void testCompiledRoutingPoliciesMatchInterpreter() throws IOException {
+    String testrigName = "bgp-routemap-with-continue";
+    List<String> configurationNames = ImmutableList.of("exporter", "importer");
+
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigText(
+            TestrigText.builder()
+                .setConfigurationText(TESTRIGS_PREFIX + testrigName, configurationNames)
+                .build(),
+            _folder);
+    SortedMap<String, Configuration> configurations = batfish.loadConfigurations();
+    Topology topology = CommonUtil.synthesizeTopology(configurations);
+    IncrementalDataPlaneSettings compiledSettings = new IncrementalDataPlaneSettings();
+    compiledSettings
+        .getConfig()
+        .setProperty(IncrementalDataPlaneSettings.PROP_COMPILE_ROUTING_POLICIES, true);
+
+    DataPlane interpreted =
+        new IncrementalBdpEngine(
+                new IncrementalDataPlaneSettings(),
+                new BatfishLogger(BatfishLogger.LEVELSTR_OUTPUT, false),
+                (s, i) -> new AtomicInteger())
+            .computeDataPlane(false, configurations, topology, Collections.emptySet())
+            ._dataPlane;
+    DataPlane compiled =
+        new IncrementalBdpEngine(
+                compiledSettings,
+                new BatfishLogger(BatfishLogger.LEVELSTR_OUTPUT, false),
+                (s, i) -> new AtomicInteger())
+            .computeDataPlane(false, configurations, topology, Collections.emptySet())
+            ._dataPlane;
+
+    // The export route-map lets the exporter's loopback through
+    assertThat(
+        compiled.getRibs().get("importer").get(DEFAULT_VRF_NAME).getRoutes(),
+        hasItem(hasPrefix(Prefix.parse("1.1.1.1/32"))));
+    assertThat(
+        IncrementalBdpEngine.getRoutes((IncrementalDataPlane) compiled),
+        equalTo(IncrementalBdpEngine.getRoutes((IncrementalDataPlane) interpreted)));
+  }
+
   @Test
   public void testBgpTieBreaker() {
     String hostname = "r1";
@@ -777,6 +865,38 @@ public class IncrementalDataPlanePluginTest {
         equalTo(0));
   }
 
+  @Test
+  public void testBgpNeighborReachabilityTracedInBatches() throws IOException {
+    SortedMap<String, Configuration> configs = generateNetworkWithDuplicates();
+
+    Batfish batfish = BatfishTestUtils.getBatfish(configs, _folder);
+    batfish.getSettings().setDataplaneEngineName(IncrementalDataPlanePlugin.PLUGIN_NAME);
+    DataPlane dp = batfish.getDataPlanePlugin().computeDataPlane(false)._dataPlane;
+    // A copy of the data plane against which no sessions have been checked yet
+    DataPlane copy = (DataPlane) SerializationUtils.clone((Serializable) dp);
+
+    AtomicInteger batches = new AtomicInteger();
+    ITracerouteEngine countingEngine =
+        (dataPlane, flows, fibs, ignoreAcls) -> {
+          batches.incrementAndGet();
+          return TracerouteEngineImpl.getInstance()
+              .processFlows(dataPlane, flows, fibs, ignoreAcls);
+        };
+    Map<Ip, Set<String>> ipOwners = CommonUtil.computeIpNodeOwners(configs, false);
+    ValueGraph<BgpPeerConfigId, BgpSessionProperties> bgpTopology =
+        CommonUtil.initBgpTopology(configs, ipOwners, false, true, countingEngine, copy);
+
+    // One batch of forward flows and one of backward flows, however many sessions there are
+    assertThat(bgpTopology.edges(), equalTo(dp.getBgpTopology().edges()));
+    assertThat(batches.get(), equalTo(2));
+
+    // Checking the same data plane again reuses the traces
+    assertThat(
+        CommonUtil.initBgpTopology(configs, ipOwners, false, true, countingEngine, copy).edges(),
+        equalTo(bgpTopology.edges()));
+    assertThat(batches.get(), equalTo(2));
+  }
+
   @Test
   public void testGeneratedRoutesInMainRib() throws IOException {
     Configuration n1 =
@@ -13,6 +13,7 @@ import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import org.batfish.datamodel.ConfigurationFormat;
@@ -188,6 +189,42 @@ public class AbstractRibTest {
     assertThat(match, contains(routes.get(0)));
   }
 
+  /**
+   * Ensure that the constrained longest prefix match never returns routes more specific than the
+   * given max prefix length, even if only more specific routes lie below the matched node
+   */
+  @Test
+  public void testLongestPrefixMatchConstrainedSkipsLongerPrefixes() {
+    List<StaticRoute> routes = setupOverlappingRoutes();
+
+    // 10.0.0.0/9 is the longest match with length <= 31; 10.1.1.1/32 must not be returned
+    assertThat(_rib.longestPrefixMatch(new Ip("10.1.1.1"), 31), contains(routes.get(1)));
+    assertThat(
+        _rib.longestPrefixMatch(new Ip("10.1.1.1"), 7), is(emptyIterableOf(StaticRoute.class)));
+  }
+
+  /**
+   * Ensure that {@link AbstractRib#longestPrefixMatch(Ip, Collection)} appends the same routes as
+   * {@link AbstractRib#longestPrefixMatch(Ip)} to the buffer, without touching existing entries
+   */
+  @Test
+  public void testLongestPrefixMatchIntoBuffer() {
+    List<StaticRoute> routes = setupOverlappingRoutes();
+    StaticRoute multipath = new StaticRoute(Prefix.parse("10.0.0.0/9"), Ip.ZERO, "eth1", 0, 0L, 0);
+    _rib.mergeRouteGetDelta(multipath);
+
+    List<StaticRoute> buffer = new ArrayList<>();
+    buffer.add(routes.get(0));
+    assertThat(_rib.longestPrefixMatch(new Ip("10.1.1.2"), buffer), equalTo(2));
+    assertThat(buffer, contains(routes.get(0), routes.get(1), multipath));
+
+    assertThat(_rib.longestPrefixMatch(new Ip("11.1.1.1"), buffer), equalTo(0));
+    assertThat(buffer, hasSize(3));
+
+    assertThat(_rib.longestPrefixMatch(new Ip("10.1.1.1"), 8, buffer), equalTo(1));
+    assertThat(buffer, contains(routes.get(0), routes.get(1), multipath, routes.get(0)));
+  }
+
   /** Ensure that a RIB is equal to itself */
   @Test
   public void testSelfHasSameRoutes() {
@@ -370,4 +407,57 @@ public class AbstractRibTest {
     _rib.clearRoutes(Prefix.parse("1.1.1.1/32"));
     assertThat(_rib.getRoutes(), hasSize(0));
   }
+
+  @Test
+  public void testRoutesHashCode() {
+    // Routes replacing, sharing and leaving prefixes in a RIB comparing admin distances
+    Rib rib = new Rib();
+    Prefix prefix = Prefix.parse("1.1.1.0/24");
+    StaticRoute r1 = new StaticRoute(prefix, new Ip("2.2.2.1"), null, 10, 0L, 0);
+    StaticRoute r2 = new StaticRoute(prefix, new Ip("2.2.2.2"), null, 10, 0L, 0);
+    StaticRoute better = new StaticRoute(prefix, new Ip("2.2.2.3"), null, 1, 0L, 0);
+    StaticRoute other = new StaticRoute(Prefix.parse("1.1.0.0/16"), Ip.ZERO, null, 1, 0L, 0);
+
+    rib.mergeRoute(r1);
+    rib.mergeRoute(r2);
+    rib.mergeRoute(r2);
+    rib.mergeRoute(other);
+    assertThat(rib.getRoutesHashCode(), equalTo(rib.getRoutes().hashCode()));
+
+    rib.mergeRoute(better);
+    assertThat(rib.getRoutesHashCode(), equalTo(rib.getRoutes().hashCode()));
+
+    rib.removeRoute(r1);
+    rib.removeRoute(other);
+    assertThat(rib.getRoutesHashCode(), equalTo(rib.getRoutes().hashCode()));
+
+    rib.clearRoutes(prefix);
+    assertThat(rib.getRoutesHashCode(), equalTo(0));
+  }
+
+  @Test
+  public void testNumRoutes() {
+    Rib rib = new Rib();
+    Prefix prefix = Prefix.parse("1.1.1.0/24");
+    StaticRoute r1 = new StaticRoute(prefix, new Ip("2.2.2.1"), null, 10, 0L, 0);
+    StaticRoute r2 = new StaticRoute(prefix, new Ip("2.2.2.2"), null, 10, 0L, 0);
+    StaticRoute better = new StaticRoute(prefix, new Ip("2.2.2.3"), null, 1, 0L, 0);
+    StaticRoute other = new StaticRoute(Prefix.parse("1.1.0.0/16"), Ip.ZERO, null, 1, 0L, 0);
+
+    rib.mergeRoute(r1);
+    rib.mergeRoute(r2);
+    rib.mergeRoute(r2);
+    rib.mergeRoute(other);
+    assertThat(rib.getNumRoutes(), equalTo(3));
+
+    // replaces r1 and r2
+    rib.mergeRoute(better);
+    assertThat(rib.getNumRoutes(), equalTo(rib.getRoutes().size()));
+
+    rib.removeRoute(other);
+    assertThat(rib.getNumRoutes(), equalTo(1));
+
+    rib.clearRoutes(prefix);
+    assertThat(rib.getNumRoutes(), equalTo(0));
+  }
 }
@@ -0,0 +1,57 @@
+package org.batfish.grammar;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasKey;
+import static org.junit.Assert.assertThat;
+
+import org.batfish.common.BatfishLogger;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.grammar.cisco.CiscoCombinedParser;
+import org.junit.Test;
+
+/** Tests for {@link ParserPredictionStatistics} and {@link CountingParserATNSimulator}. */
+public class ParserPredictionStatisticsTest {
+
+  private static final String CONFIG_TEXT =
+      "!\n"
+          + "hostname r1\n"
+          + "!\n"
+          + "interface Ethernet0\n"
+          + " ip address 10.0.0.1 255.255.255.0\n"
+          + "!\n"
+          + "router ospf 1\n"
+          + " network 10.0.0.0 0.0.0.255 area 0\n"
+          + "!\n";
+
+  private static CountingParserATNSimulator parse(Settings settings) {
+    CiscoCombinedParser parser =
+        new CiscoCombinedParser(CONFIG_TEXT, settings, ConfigurationFormat.CISCO_IOS);
+    parser.parse();
+    ParserPredictionStatistics.record(parser);
+    return (CountingParserATNSimulator) parser.getParser().getInterpreter();
+  }
+
+  @Test
+  public void testSharedDfaIsWarmForRepeatedInput() {
+    Settings settings = new Settings(new String[] {});
+    settings.setLogger(new BatfishLogger("output", false));
+
+    CountingParserATNSimulator first = parse(settings);
+    CountingParserATNSimulator second = parse(settings);
+
+    assertThat(first.getPredictions(), greaterThan(0L));
+    assertThat(second.getPredictions(), equalTo(first.getPredictions()));
+    // Everything the second parse needs was cached by the first one
+    assertThat(second.getDfaMisses(), equalTo(0L));
+
+    String grammar =
+        new CiscoCombinedParser("", settings, ConfigurationFormat.CISCO_IOS)
+            .getParser()
+            .getGrammarFileName();
+    assertThat(ParserPredictionStatistics.getStatistics(), hasKey(grammar));
+    assertThat(
+        ParserPredictionStatistics.getStatistics().get(grammar).get("dfaStates"), greaterThan(0L));
+  }
+}
@@ -1906,6 +1906,17 @@ public class FlatJuniperGrammarTest {
         c, hasInterface("lo0.2", hasAllAddresses(contains(new InterfaceAddress("2.2.2.2/32")))));
   }
 
+  @Test
+  public void testJuniperApplyGroupsWildcardOrder() throws IOException {
+    Configuration c = parseConfig("juniper-apply-groups-wildcard-order");
+
+    /* Each interface gets the first interface in the group that matches it, literal or wildcard */
+    assertThat(c, hasInterface("ge-0/0/0.0", hasDescription("wildcard")));
+    assertThat(c, hasInterface("ge-0/0/1.0", hasDescription("wildcard")));
+    assertThat(c, hasInterface("xe-0/0/1.0", hasDescription("literal")));
+    assertThat(c, hasInterface("xe-0/0/2.0", hasDescription("wildcard")));
+  }
+
   @Test
   public void testJuniperApplyGroupsNodeNoHostname() throws IOException {
     String filename = "juniper-apply-groups-node-no-hostname";
@@ -0,0 +1,46 @@
+package org.batfish.grammar.flatjuniper;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.antlr.v4.runtime.Token;
+import org.batfish.config.Settings;
+import org.junit.Test;
+
+/** Tests for {@link FlatJuniperLexer}. */
+public class FlatJuniperLexerTest {
+
+  private static List<Integer> tokenTypes(String text, String... tokenTexts) {
+    FlatJuniperCombinedParser parser = new FlatJuniperCombinedParser(text, new Settings());
+    parser.getTokens().fill();
+    List<String> wanted = Arrays.asList(tokenTexts);
+    return parser
+        .getTokens()
+        .getTokens()
+        .stream()
+        .filter(t -> wanted.contains(t.getText()))
+        .map(Token::getType)
+        .collect(Collectors.toList());
+  }
+
+  /** Tokens are lexed according to enableIPV6_ADDRESS even once its DFAs are warm. */
+  @Test
+  public void testIpv6AddressSwitch() {
+    String lines =
+        "set policy-options policy-statement P term T from community 65000:100\n"
+            + "set routing-options static route 2001:db8::1/128 discard\n";
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(
+          tokenTypes(lines + lines, "65000:100", "2001:db8::1/128"),
+          contains(
+              FlatJuniperLexer.COMMUNITY_LITERAL,
+              FlatJuniperLexer.IPV6_PREFIX,
+              FlatJuniperLexer.COMMUNITY_LITERAL,
+              FlatJuniperLexer.IPV6_PREFIX));
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package org.batfish.job;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.util.CommonUtil;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.answers.ParseStatus;
+import org.batfish.vendor.VendorConfiguration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link ParseConvertPipeline}. */
+public class ParseConvertPipelineTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  private Path _configsDir;
+
+  private Path _outputDir;
+
+  private ParseConvertPipeline _pipeline;
+
+  private Set<Path> _serialized;
+
+  @Before
+  public void setup() throws IOException {
+    Settings settings = new Settings();
+    settings.setLogger(new BatfishLogger("debug", false));
+    _configsDir = _folder.newFolder("configs").toPath();
+    _outputDir = _folder.newFolder("vendor").toPath();
+    _serialized = ConcurrentHashMap.newKeySet();
+    _pipeline =
+        new ParseConvertPipeline(
+            settings,
+            settings.getLogger(),
+            (object, path) -> {
+              CommonUtil.writeFile(path, object.getClass().getName());
+              _serialized.add(path);
+            });
+  }
+
+  private Path writeConfig(String filename, String hostname) {
+    Path file = _configsDir.resolve(filename);
+    CommonUtil.writeFile(file, "!\nhostname " + hostname + "\n!\n");
+    return file;
+  }
+
+  private boolean run(List<Path> files, Map<String, VendorConfiguration> overlays) {
+    return _pipeline.run(files, _folder.getRoot().toPath(), _outputDir, overlays, null);
+  }
+
+  @Test
+  public void testConvertsSerializedConfigurations() {
+    List<Path> files =
+        ImmutableList.of(writeConfig("a", "pipeline-a"), writeConfig("b", "pipeline-b"));
+
+    assertThat(run(files, ImmutableMap.of()), equalTo(true));
+    assertThat(_pipeline.getConfigurations().keySet(), contains("pipeline-a", "pipeline-b"));
+    assertThat(_pipeline.getSerializedNames(), equalTo(_pipeline.getConfigurations().keySet()));
+    assertThat(Files.exists(_outputDir.resolve("pipeline-a")), equalTo(true));
+    assertThat(Files.exists(_outputDir.resolve("pipeline-b")), equalTo(true));
+    assertThat(
+        _pipeline.getParseAnswerElement().getParseStatus().get("pipeline-a"),
+        equalTo(ParseStatus.PASSED));
+    assertThat(
+        _pipeline.getParseAnswerElement().getFileMap().get("pipeline-a"), equalTo("configs/a"));
+    assertThat(_pipeline.getVendorConfigurationCount(), equalTo(2));
+  }
+
+  @Test
+  public void testDuplicateHostnameUndoesEverything() {
+    List<Path> files =
+        ImmutableList.of(
+            writeConfig("a", "pipeline-dup"),
+            writeConfig("b", "pipeline-other"),
+            writeConfig("c", "pipeline-dup"));
+
+    assertThat(run(files, ImmutableMap.of()), equalTo(false));
+    assertThat(_pipeline.getConfigurations().keySet(), empty());
+    assertThat(_pipeline.getSerializedNames(), empty());
+    assertThat(_pipeline.getParseAnswerElement().getParseStatus().keySet(), empty());
+    for (Path path : _serialized) {
+      assertThat(path.toString(), Files.exists(path), equalTo(false));
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package org.batfish.job;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import java.nio.file.Path;
+import org.batfish.common.Warnings;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.vendor.VendorConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link ParseResultCache}. */
+public class ParseResultCacheTest {
+
+  private static final String CONFIG_TEXT = "!\nhostname r1\n!\nnot-a-real-command foo\n!\n";
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  private static ParseVendorConfigurationResult parse(
+      Settings settings, String text, ParseResultCache cache) throws Exception {
+    return new ParseVendorConfigurationJob(
+            settings, text, "configs/r1", new Warnings(), ConfigurationFormat.CISCO_IOS, cache)
+        .call();
+  }
+
+  @Test
+  public void testCachedParseIsReused() throws Exception {
+    Settings settings = new Settings();
+    Path cacheDir = _folder.getRoot().toPath().resolve("parsecache");
+    ParseResultCache cache = new ParseResultCache(cacheDir);
+
+    VendorConfiguration parsed = parse(settings, CONFIG_TEXT, cache).getVendorConfiguration();
+    assertThat(cache.getMisses(), equalTo(1));
+    assertThat(cache.getHits(), equalTo(0));
+
+    // A fresh cache over the same directory, as for the next snapshot
+    ParseResultCache nextCache = new ParseResultCache(cacheDir);
+    VendorConfiguration cached = parse(settings, CONFIG_TEXT, nextCache).getVendorConfiguration();
+    assertThat(nextCache.getHits(), equalTo(1));
+    assertThat(nextCache.getMisses(), equalTo(0));
+    assertThat(cached.getHostname(), equalTo(parsed.getHostname()));
+    assertThat(cached.getUnrecognized(), equalTo(parsed.getUnrecognized()));
+  }
+
+  @Test
+  public void testChangedTextIsParsedAgain() throws Exception {
+    Settings settings = new Settings();
+    ParseResultCache cache = new ParseResultCache(_folder.getRoot().toPath());
+
+    parse(settings, CONFIG_TEXT, cache);
+    VendorConfiguration changed =
+        parse(settings, CONFIG_TEXT.replace("r1", "r2"), cache).getVendorConfiguration();
+    assertThat(cache.getMisses(), equalTo(2));
+    assertThat(changed.getHostname(), equalTo("r2"));
+  }
+
+  @Test
+  public void testKeyDependsOnParseSettings() {
+    Settings settings = new Settings();
+    String key =
+        ParseResultCache.computeKey(
+            CONFIG_TEXT, "configs/r1", ConfigurationFormat.CISCO_IOS, settings);
+    assertThat(
+        ParseResultCache.computeKey(
+            CONFIG_TEXT, "configs/r1", ConfigurationFormat.CISCO_IOS, settings),
+        equalTo(key));
+
+    settings.setDisableUnrecognized(true);
+    assertThat(
+        ParseResultCache.computeKey(
+            CONFIG_TEXT, "configs/r1", ConfigurationFormat.CISCO_IOS, settings),
+        not(equalTo(key)));
+  }
+
+  @Test
+  public void testBuildFingerprintIsStable() {
+    String fingerprint = ParseResultCache.computeBuildFingerprint();
+    // not one of the random fingerprints used when the code cannot be located
+    assertThat(fingerprint.length(), equalTo(64));
+    assertThat(ParseResultCache.computeBuildFingerprint(), equalTo(fingerprint));
+  }
+}
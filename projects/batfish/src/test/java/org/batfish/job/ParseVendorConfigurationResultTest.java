@@ -0,0 +1,55 @@
+package org.batfish.job;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.Warnings;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.answers.ParseVendorConfigurationAnswerElement;
+import org.batfish.vendor.VendorConfiguration;
+import org.junit.Test;
+
+/** Tests for {@link ParseVendorConfigurationResult}. */
+public class ParseVendorConfigurationResultTest {
+
+  private static final String CONFIG_TEXT = "!\nhostname r1\n!\n";
+
+  /** Parses each of {@code filenames}, holding {@link #CONFIG_TEXT}, as one parse run. */
+  private static Map<String, VendorConfiguration> parseRun(String... filenames) throws Exception {
+    Settings settings = new Settings();
+    BatfishLogger logger = new BatfishLogger(BatfishLogger.LEVELSTR_OUTPUT, false);
+    Multimap<String, String> duplicateHostnames = HashMultimap.create();
+    Map<String, VendorConfiguration> vendorConfigurations = new TreeMap<>();
+    ParseVendorConfigurationAnswerElement answerElement =
+        new ParseVendorConfigurationAnswerElement();
+    for (String filename : filenames) {
+      new ParseVendorConfigurationJob(
+              settings,
+              CONFIG_TEXT,
+              filename,
+              new Warnings(),
+              ConfigurationFormat.CISCO_IOS,
+              null,
+              duplicateHostnames)
+          .call()
+          .applyTo(vendorConfigurations, logger, answerElement);
+    }
+    return vendorConfigurations;
+  }
+
+  @Test
+  public void testDuplicateHostnamesAreRenamedPerRun() throws Exception {
+    assertThat(
+        parseRun("configs/a", "configs/b", "configs/c").keySet(),
+        contains("r1__file__configs/a", "r1__file__configs/b", "r1__file__configs/c"));
+
+    // a later run with a single host of that name keeps it
+    assertThat(parseRun("configs/a").keySet(), contains("r1"));
+  }
+}
@@ -1,21 +1,33 @@
 package org.batfish.main;
 
 import static org.batfish.common.Version.INCOMPATIBLE_VERSION;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.batfish.common.BatfishLogger;
 import org.batfish.common.Version;
 import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.IpsecVpn;
+import org.batfish.datamodel.SourceNat;
 import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
 import org.junit.Before;
 import org.junit.Rule;
@@ -50,6 +62,70 @@ public class BatfishStorageTest {
     assertThat(deserialized.keySet(), equalTo(Sets.newHashSet("node1")));
   }
 
+  @Test
+  public void roundTripCompactConfigurationsSucceeds() {
+    Map<String, Configuration> configs = new HashMap<>();
+    configs.put("node1", new Configuration("node1", ConfigurationFormat.CISCO_IOS));
+
+    BatfishStorage compactStorage =
+        new BatfishStorage(_containerDir, _logger, (m, n) -> new AtomicInteger(), true);
+    compactStorage.storeConfigurations(configs, new ConvertConfigurationAnswerElement(), "sometr");
+
+    // Both compact and default storage can read the compact format
+    for (BatfishStorage storage : new BatfishStorage[] {compactStorage, _storage}) {
+      Map<String, Configuration> deserialized = storage.loadConfigurations("sometr");
+      assertThat(deserialized, not(nullValue()));
+      assertThat(deserialized.keySet(), equalTo(Sets.newHashSet("node1")));
+    }
+  }
+
+  @Test
+  public void lazyConfigurationsAreDeserializedOnFirstAccess() {
+    Map<String, Configuration> configs = new HashMap<>();
+    configs.put("node1", new Configuration("node1", ConfigurationFormat.CISCO_IOS));
+    configs.put("node2", new Configuration("node2", ConfigurationFormat.CISCO_IOS));
+    _storage.storeConfigurations(configs, new ConvertConfigurationAnswerElement(), "sometr");
+
+    List<String> initialized = new ArrayList<>();
+    SortedMap<String, Supplier<Configuration>> lazy =
+        _storage.loadConfigurationsLazily("sometr", c -> initialized.add(c.getHostname()));
+    assertThat(lazy, not(nullValue()));
+    assertThat(lazy.keySet(), equalTo(Sets.newHashSet("node1", "node2")));
+    assertThat(initialized, empty());
+
+    Configuration node1 = lazy.get("node1").get();
+    assertThat(node1.getHostname(), equalTo("node1"));
+    assertThat(initialized, contains("node1"));
+
+    // Repeated access returns the same instance without reading it again
+    assertThat(lazy.get("node1").get(), sameInstance(node1));
+    lazy.values().forEach(Supplier::get);
+    assertThat(initialized, contains("node1", "node2"));
+  }
+
+  @Test
+  public void storeConfigurationsIndexesIpsecPeers() {
+    Configuration vpn = new Configuration("vpn", ConfigurationFormat.CISCO_IOS);
+    vpn.getIpsecVpns().put("v", new IpsecVpn("v", vpn));
+    Configuration nat = new Configuration("nat", ConfigurationFormat.CISCO_IOS);
+    Interface iface = new Interface("i", nat);
+    iface.setSourceNats(ImmutableList.of(new SourceNat()));
+    nat.getInterfaces().put("i", iface);
+    Configuration other = new Configuration("other", ConfigurationFormat.CISCO_IOS);
+    _storage.storeConfigurations(
+        ImmutableMap.of("vpn", vpn, "nat", nat, "other", other),
+        new ConvertConfigurationAnswerElement(),
+        "sometr");
+
+    assertThat(
+        _storage.loadIpsecPeers("sometr"), equalTo(ImmutableMap.of("nat", false, "vpn", true)));
+  }
+
+  @Test
+  public void loadMissingConfigurationsLazilyReturnsNull() {
+    assertThat(_storage.loadConfigurationsLazily("nonexistent", c -> {}), nullValue());
+  }
+
   @Test
   public void loadMissingConfigurationsReturnsNull() {
     assertThat(_storage.loadConfigurations("nonexistent"), nullValue());
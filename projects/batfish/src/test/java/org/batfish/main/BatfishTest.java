@@ -12,6 +12,7 @@ import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
@@ -31,11 +32,14 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import org.apache.commons.collections4.map.LRUMap;
 import org.batfish.common.BatfishException;
+import org.batfish.common.BatfishLogger;
 import org.batfish.common.topology.Layer1Edge;
 import org.batfish.common.topology.Layer1Node;
 import org.batfish.common.topology.Layer1Topology;
 import org.batfish.common.util.CommonUtil;
+import org.batfish.config.Settings;
 import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.ConfigurationFormat;
 import org.batfish.datamodel.Edge;
@@ -186,6 +190,56 @@ public class BatfishTest {
                 new Layer1Edge(c2i4, c1i3))));
   }
 
+  @Test
+  public void testLoadConfigurationsLazily() throws IOException {
+    String testrigResourcePrefix = "org/batfish/grammar/cisco/testrigs/ipsec-vpn-ios";
+    List<String> configurationNames = ImmutableList.of("r1", "r2", "r3");
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigText(
+            TestrigText.builder()
+                .setConfigurationText(testrigResourcePrefix, configurationNames)
+                .build(),
+            _folder);
+    SortedMap<String, Configuration> eagerConfigurations = batfish.loadConfigurations();
+
+    // A second instance with empty in-memory caches reads back what the first one serialized
+    Settings settings = batfish.getSettings();
+    settings.setLazyConfigurations(true);
+    Batfish lazyBatfish =
+        new Batfish(
+            settings,
+            CacheBuilder.newBuilder().maximumSize(5).build(),
+            CacheBuilder.newBuilder().maximumSize(5).build(),
+            CacheBuilder.newBuilder().maximumSize(2).build(),
+            CacheBuilder.newBuilder().maximumSize(2).build(),
+            Collections.synchronizedMap(new LRUMap<>(4)),
+            Collections.synchronizedMap(new LRUMap<>(4)),
+            Collections.synchronizedMap(new LRUMap<>(2)));
+    SortedMap<String, Configuration> lazyConfigurations = lazyBatfish.loadConfigurations();
+
+    assertThat(lazyConfigurations.keySet(), equalTo(eagerConfigurations.keySet()));
+    for (Configuration eager : eagerConfigurations.values()) {
+      Configuration lazy = lazyConfigurations.get(eager.getHostname());
+      assertThat(lazy.getInterfaces().keySet(), equalTo(eager.getInterfaces().keySet()));
+      eager
+          .getInterfaces()
+          .forEach(
+              (name, iface) -> {
+                assertThat(lazy.getInterfaces().get(name).getActive(), equalTo(iface.getActive()));
+                assertThat(
+                    lazy.getInterfaces().get(name).getBlacklisted(),
+                    equalTo(iface.getBlacklisted()));
+              });
+      eager
+          .getIpsecVpns()
+          .forEach(
+              (name, vpn) ->
+                  assertThat(
+                      lazy.getIpsecVpns().get(name).getRemoteIpsecVpn() == null,
+                      equalTo(vpn.getRemoteIpsecVpn() == null)));
+    }
+  }
+
   @Test
   public void testMultipleBestVrrpCandidates() throws IOException {
     String testrigResourcePrefix = "org/batfish/grammar/cisco/testrigs/vrrp_multiple_best";
@@ -390,6 +444,20 @@ public class BatfishTest {
     assertThat(answerElement.getErrors().size(), is(0));
   }
 
+  @Test
+  public void testWarmUpParsers() throws IOException {
+    Path corpus = _folder.newFolder("corpus").toPath();
+    Files.write(
+        corpus.resolve("r1.cfg"),
+        "!\nhostname r1\n!\ninterface Ethernet0\n ip address 10.0.0.1 255.255.255.0\n!\n"
+            .getBytes(StandardCharsets.UTF_8));
+    Files.write(corpus.resolve("empty.cfg"), new byte[0]);
+    Settings settings = new Settings(new String[] {});
+    settings.setLogger(new BatfishLogger("output", false));
+
+    assertThat(Batfish.warmUpParsers(settings, corpus), equalTo(2));
+  }
+
   @Test
   public void throwsExceptionWithSpecificType() {
     Path nonExistPath = _folder.getRoot().toPath().resolve("nonExistent");
@@ -27,6 +27,7 @@ import org.batfish.datamodel.Interface;
 import org.batfish.datamodel.collections.BgpAdvertisementsByVrf;
 import org.batfish.datamodel.collections.RoutesByVrf;
 import org.batfish.dataplane.ibdp.IncrementalDataPlanePlugin;
+import org.batfish.symbolic.bdd.BDDPacket;
 import org.junit.rules.TemporaryFolder;
 
 public class BatfishTestUtils {
@@ -35,6 +36,10 @@ public class BatfishTestUtils {
     return CacheBuilder.newBuilder().maximumSize(5).build();
   }
 
+  private static Map<NetworkSnapshot, BDDPacket> makeBddPacketCache() {
+    return Collections.synchronizedMap(new LRUMap<>(2));
+  }
+
   private static Map<NetworkSnapshot, SortedMap<String, BgpAdvertisementsByVrf>> makeEnvBgpCache() {
     return Collections.synchronizedMap(new LRUMap<>(4));
   }
@@ -76,7 +81,8 @@ public class BatfishTestUtils {
             makeDataPlaneCache(),
             makeDataPlaneCache(),
             makeEnvBgpCache(),
-            makeEnvRouteCache());
+            makeEnvRouteCache(),
+            makeBddPacketCache());
     if (!configurations.isEmpty()) {
       Batfish.serializeAsJson(
           settings.getBaseTestrigSettings().getEnvironmentSettings().getSerializedTopologyPath(),
@@ -125,7 +131,8 @@ public class BatfishTestUtils {
             makeDataPlaneCache(),
             makeDataPlaneCache(),
             makeEnvBgpCache(),
-            makeEnvRouteCache());
+            makeEnvRouteCache(),
+            makeBddPacketCache());
     batfish.getSettings().setDiffQuestion(true);
     if (!baseConfigs.isEmpty()) {
       Batfish.serializeAsJson(
@@ -211,7 +218,8 @@ public class BatfishTestUtils {
             makeDataPlaneCache(),
             makeDataPlaneCache(),
             makeEnvBgpCache(),
-            makeEnvRouteCache());
+            makeEnvRouteCache(),
+            makeBddPacketCache());
     registerDataPlanePlugins(batfish);
     return batfish;
   }
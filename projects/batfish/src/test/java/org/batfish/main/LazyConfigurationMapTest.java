@@ -0,0 +1,72 @@
+package org.batfish.main;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.apache.commons.lang3.SerializationUtils;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.junit.Test;
+
+/** Tests for {@link LazyConfigurationMap}. */
+public class LazyConfigurationMapTest {
+
+  private final List<String> _read = new ArrayList<>();
+
+  private LazyConfigurationMap map(String... hostnames) {
+    SortedMap<String, Supplier<Configuration>> configurations = new TreeMap<>();
+    for (String hostname : hostnames) {
+      configurations.put(
+          hostname,
+          Suppliers.memoize(
+              () -> {
+                _read.add(hostname);
+                return new Configuration(hostname, ConfigurationFormat.CISCO_IOS);
+              }));
+    }
+    return new LazyConfigurationMap(configurations);
+  }
+
+  @Test
+  public void testReadsOnlyAccessedConfigurations() {
+    LazyConfigurationMap map = map("a", "b", "c");
+    assertThat(map.keySet(), contains("a", "b", "c"));
+    assertThat(map.containsKey("b"), equalTo(true));
+    assertThat(map.tailMap("b").keySet(), contains("b", "c"));
+    assertThat(_read, empty());
+
+    Configuration b = map.get("b");
+    assertThat(map.tailMap("b").get("b"), sameInstance(b));
+    assertThat(_read, contains("b"));
+  }
+
+  @Test
+  public void testPut() {
+    LazyConfigurationMap map = map("a");
+    Configuration b = new Configuration("b", ConfigurationFormat.CISCO_IOS);
+    map.put("b", b);
+
+    assertThat(map.get("b"), sameInstance(b));
+    assertThat(map.keySet(), contains("a", "b"));
+    assertThat(_read, empty());
+  }
+
+  @Test
+  public void testSerializesAsTreeMap() {
+    LazyConfigurationMap map = map("a", "b");
+    SortedMap<String, Configuration> copy = SerializationUtils.clone(map);
+
+    assertThat(copy.getClass(), equalTo(TreeMap.class));
+    assertThat(copy.keySet(), contains("a", "b"));
+    assertThat(copy.get("a").getHostname(), equalTo("a"));
+  }
+}
@@ -0,0 +1,36 @@
+package org.batfish.main;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import java.util.Map;
+import org.batfish.datamodel.Configuration;
+import org.junit.Test;
+
+/** Tests for {@link RetainedSizeEstimator}. */
+public class RetainedSizeEstimatorTest {
+
+  /** Returns a map of the given devices whose configurations fail the test if they are loaded. */
+  private static Map<String, Configuration> unloadable(String... hostnames) {
+    ImmutableSortedMap.Builder<String, String> names = ImmutableSortedMap.naturalOrder();
+    for (String hostname : hostnames) {
+      names.put(hostname, hostname);
+    }
+    return Maps.transformValues(
+        names.build(),
+        name -> {
+          throw new AssertionError("Loaded configuration " + name);
+        });
+  }
+
+  @Test
+  public void testEstimateConfigurationsDoesNotLoadThem() {
+    long oneDevice = RetainedSizeEstimator.estimateBytes(unloadable("n1"));
+
+    assertThat(oneDevice, greaterThan(0L));
+    assertThat(RetainedSizeEstimator.estimateBytes(unloadable("n1", "n2")), equalTo(2 * oneDevice));
+  }
+}
@@ -0,0 +1,141 @@
+package org.batfish.main;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link SpillingCache}. */
+public class SpillingCacheTest {
+
+  @Rule public TemporaryFolder _folder = new TemporaryFolder();
+
+  /** Weighs each list by its number of elements. */
+  private static SpillingCache<String, ArrayList<String>> cache(long budget, Path spillDir) {
+    return new SpillingCache<>(budget, (key, value) -> value.size(), spillDir);
+  }
+
+  private static long spillFiles(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return 0;
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.collect(Collectors.toList()).size();
+    }
+  }
+
+  @Test
+  public void testEvictsByWeight() {
+    SpillingCache<String, ArrayList<String>> cache = cache(10, null);
+    cache.put("a", Lists.newArrayList("1", "2", "3", "4", "5", "6"));
+    cache.put("b", Lists.newArrayList("1", "2", "3", "4", "5", "6"));
+
+    assertThat(cache.getIfPresent("a"), nullValue());
+    assertThat(cache.getIfPresent("b"), not(nullValue()));
+    assertThat(cache.getStatistics(), hasEntry("evictions", 1L));
+    assertThat(cache.getStatistics(), hasEntry("estimatedKb", 6L));
+  }
+
+  @Test
+  public void testSingleValueMayUseWholeBudget() {
+    SpillingCache<String, ArrayList<String>> cache = cache(10, null);
+    ArrayList<String> value = Lists.newArrayList("1", "2", "3", "4", "5", "6", "7", "8", "9");
+    cache.put("a", value);
+
+    assertThat(cache.getIfPresent("a"), sameInstance(value));
+  }
+
+  @Test
+  public void testSpillsEvictedValues() throws IOException {
+    Path spillDir = _folder.getRoot().toPath().resolve("spill");
+    SpillingCache<String, ArrayList<String>> cache = cache(10, spillDir);
+    ArrayList<String> a = Lists.newArrayList("1", "2", "3", "4", "5", "6");
+    cache.put("a", a);
+    cache.put("b", Lists.newArrayList("1", "2", "3", "4", "5", "6"));
+    cache.awaitSpills();
+    assertThat(spillFiles(spillDir), equalTo(1L));
+    assertThat(cache.getStatistics(), hasEntry("spills", 1L));
+
+    // Reading "a" back evicts and spills "b" in turn
+    List<String> unspilled = cache.getIfPresent("a");
+    assertThat(unspilled, equalTo(a));
+    assertThat(cache.getIfPresent("a"), sameInstance(unspilled));
+    cache.awaitSpills();
+    assertThat(cache.getStatistics(), hasEntry("spillHits", 1L));
+    assertThat(cache.getStatistics(), hasEntry("spills", 2L));
+    assertThat(spillFiles(spillDir), equalTo(1L));
+  }
+
+  @Test
+  public void testPutSupersedesSpilledValue() throws IOException {
+    Path spillDir = _folder.getRoot().toPath().resolve("spill");
+    SpillingCache<String, ArrayList<String>> cache = cache(10, spillDir);
+    cache.put("a", Lists.newArrayList("1", "2", "3", "4", "5", "6"));
+    cache.put("b", Lists.newArrayList("1", "2", "3", "4", "5", "6"));
+    cache.invalidate("b");
+    ArrayList<String> newA = Lists.newArrayList("new");
+    cache.put("a", newA);
+
+    assertThat(cache.getIfPresent("a"), sameInstance(newA));
+    cache.awaitSpills();
+    assertThat(spillFiles(spillDir), equalTo(0L));
+  }
+
+  @Test
+  public void testLoadCountsOneMiss() throws ExecutionException {
+    SpillingCache<String, ArrayList<String>> cache = cache(10, null);
+    cache.get("a", () -> Lists.newArrayList("1"));
+    cache.get("a", () -> Lists.newArrayList("2"));
+
+    assertThat(cache.getStatistics(), hasEntry("misses", 1L));
+    assertThat(cache.getStatistics(), hasEntry("hits", 1L));
+  }
+
+  @Test
+  public void testLoadReadsSpilledValue() throws ExecutionException {
+    Path spillDir = _folder.getRoot().toPath().resolve("spill");
+    SpillingCache<String, ArrayList<String>> cache = cache(10, spillDir);
+    cache.put("a", Lists.newArrayList("1", "2", "3", "4", "5", "6"));
+    cache.put("b", Lists.newArrayList("1", "2", "3", "4", "5", "6"));
+
+    // The lookup waits for "a" to be spilled, rather than calling the loader
+    assertThat(
+        cache.get(
+            "a",
+            () -> {
+              throw new AssertionError("loader called for a spilled value");
+            }),
+        equalTo(Lists.newArrayList("1", "2", "3", "4", "5", "6")));
+    assertThat(cache.getStatistics(), hasEntry("spillHits", 1L));
+    assertThat(cache.getStatistics(), hasEntry("misses", 1L));
+  }
+
+  @Test
+  public void testSameValueUnderTwoKeys() {
+    SpillingCache<String, ArrayList<String>> cache = cache(10, null);
+    ArrayList<String> value = Lists.newArrayList("1", "2");
+    cache.put("a", value);
+    cache.put("b", value);
+    assertThat(cache.getStatistics(), hasEntry("estimatedKb", 4L));
+
+    cache.invalidate("a");
+    assertThat(cache.getStatistics(), hasEntry("estimatedKb", 2L));
+    cache.invalidate("b");
+    assertThat(cache.getStatistics(), hasEntry("estimatedKb", 0L));
+  }
+}
@@ -0,0 +1,105 @@
+package org.batfish.symbolic.bdd;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import net.sf.javabdd.BDD;
+import org.batfish.datamodel.AclIpSpace;
+import org.batfish.datamodel.HeaderSpace;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpAccessListLine;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.IpSpaceReference;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.acl.MatchHeaderSpace;
+import org.batfish.datamodel.acl.PermittedByAcl;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link BDDCache} */
+public class BDDCacheTest {
+
+  private BDDPacket _pkt;
+
+  @Before
+  public void setup() {
+    _pkt = new BDDPacket();
+  }
+
+  private static IpAccessList acl(String name, IpSpace dstIps) {
+    return IpAccessList.builder()
+        .setName(name)
+        .setLines(
+            ImmutableList.of(
+                IpAccessListLine.accepting()
+                    .setMatchCondition(
+                        new MatchHeaderSpace(HeaderSpace.builder().setDstIps(dstIps).build()))
+                    .build()))
+        .build();
+  }
+
+  @Test
+  public void testAclReused() {
+    IpAccessList acl = acl("acl", Prefix.parse("1.0.0.0/8").toIpSpace());
+    BDD bdd = BDDAcl.create(_pkt, acl).getBdd();
+
+    assertThat(BDDAcl.create(_pkt, acl).getBdd(), sameInstance(bdd));
+    // an equal but distinct ACL is encoded again
+    IpAccessList copy = acl("acl", Prefix.parse("1.0.0.0/8").toIpSpace());
+    BDD copyBdd = BDDAcl.create(_pkt, copy).getBdd();
+    assertThat(copyBdd, not(sameInstance(bdd)));
+    assertThat(copyBdd, equalTo(bdd));
+  }
+
+  @Test
+  public void testAclEnvironments() {
+    IpAccessList foo = acl("foo", new IpSpaceReference("ips"));
+    IpAccessList acl =
+        IpAccessList.builder()
+            .setName("acl")
+            .setLines(
+                ImmutableList.of(
+                    IpAccessListLine.accepting()
+                        .setMatchCondition(new PermittedByAcl("foo"))
+                        .build()))
+            .build();
+    Map<String, IpAccessList> acls = ImmutableMap.of("foo", foo, "acl", acl);
+    Map<String, IpSpace> ipSpaces1 = ImmutableMap.of("ips", new Ip("1.1.1.1").toIpSpace());
+    Map<String, IpSpace> ipSpaces2 = ImmutableMap.of("ips", new Ip("2.2.2.2").toIpSpace());
+
+    BDD bdd1 = BDDAcl.create(_pkt, acl, acls, ipSpaces1).getBdd();
+    BDD bdd2 = BDDAcl.create(_pkt, acl, acls, ipSpaces2).getBdd();
+
+    assertThat(bdd1, equalTo(_pkt.getDstIp().value(new Ip("1.1.1.1").asLong())));
+    assertThat(bdd2, equalTo(_pkt.getDstIp().value(new Ip("2.2.2.2").asLong())));
+    assertThat(BDDAcl.create(_pkt, acl, acls, ipSpaces2).getBdd(), sameInstance(bdd2));
+  }
+
+  @Test
+  public void testIpSpacePerVariable() {
+    IpSpace ipSpace =
+        AclIpSpace.builder()
+            .thenRejecting(Prefix.parse("1.1.1.0/24").toIpSpace())
+            .thenPermitting(Prefix.parse("1.0.0.0/8").toIpSpace())
+            .build();
+    IpSpaceToBDD dst =
+        new IpSpaceToBDD(_pkt.getFactory(), _pkt.getDstIp(), ImmutableMap.of(), _pkt.getCache());
+    IpSpaceToBDD src =
+        new IpSpaceToBDD(_pkt.getFactory(), _pkt.getSrcIp(), ImmutableMap.of(), _pkt.getCache());
+
+    BDD dstBdd = ipSpace.accept(dst);
+    BDD srcBdd = ipSpace.accept(src);
+
+    assertThat(srcBdd, not(equalTo(dstBdd)));
+    assertThat(ipSpace.accept(dst), sameInstance(dstBdd));
+    assertThat(ipSpace.accept(src), sameInstance(srcBdd));
+    assertThat(
+        dstBdd, equalTo(ipSpace.accept(new IpSpaceToBDD(_pkt.getFactory(), _pkt.getDstIp()))));
+  }
+}
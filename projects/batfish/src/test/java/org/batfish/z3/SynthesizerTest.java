@@ -0,0 +1,37 @@
+package org.batfish.z3;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.batfish.datamodel.LineAction;
+import org.batfish.z3.expr.BasicRuleStatement;
+import org.batfish.z3.state.AclDeny;
+import org.batfish.z3.state.AclLineMatch;
+import org.junit.Test;
+
+/** Tests of {@link Synthesizer} */
+public class SynthesizerTest {
+
+  @Test
+  public void testSynthesizeNodProgramOnce() {
+    SynthesizerInput input =
+        MockSynthesizerInput.builder()
+            .setAclActions(
+                ImmutableMap.of(
+                    "node", ImmutableMap.of("acl", ImmutableList.of(LineAction.REJECT))))
+            .build();
+    Synthesizer synthesizer = new Synthesizer(input);
+
+    ReachabilityProgram program = synthesizer.synthesizeNodProgram();
+
+    assertThat(
+        program.getRules(),
+        hasItem(
+            new BasicRuleStatement(
+                new AclLineMatch("node", "acl", 0), new AclDeny("node", "acl"))));
+    assertThat(synthesizer.synthesizeNodProgram(), sameInstance(program));
+  }
+}
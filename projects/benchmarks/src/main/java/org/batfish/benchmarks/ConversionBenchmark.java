@@ -0,0 +1,63 @@
+package org.batfish.benchmarks;
+
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.job.ConvertConfigurationJob;
+import org.batfish.job.ParseVendorConfigurationJob;
+import org.batfish.main.Batfish;
+import org.batfish.vendor.VendorConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Conversion of every parsed configuration in the network to the vendor-independent model. */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class ConversionBenchmark {
+
+  private Settings _settings;
+
+  private SortedMap<String, VendorConfiguration> _vendorConfigurations;
+
+  @Setup
+  public void setup(NetworkState network) throws Exception {
+    _settings = NetworkState.newSettings();
+    _vendorConfigurations = new TreeMap<>();
+    for (Entry<String, String> file : network.getConfigurationText().entrySet()) {
+      VendorConfiguration vc =
+          new ParseVendorConfigurationJob(
+                  _settings,
+                  file.getValue(),
+                  file.getKey(),
+                  Batfish.buildWarnings(_settings),
+                  ConfigurationFormat.UNKNOWN)
+              .call()
+              .getVendorConfiguration();
+      if (vc != null) {
+        _vendorConfigurations.put(file.getKey(), vc);
+      }
+    }
+  }
+
+  @Benchmark
+  public void convert(Blackhole blackhole) {
+    _vendorConfigurations.forEach(
+        (name, vc) -> blackhole.consume(new ConvertConfigurationJob(_settings, vc, name).call()));
+  }
+}
@@ -0,0 +1,69 @@
+package org.batfish.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import org.batfish.common.plugin.DataPlanePlugin;
+import org.batfish.datamodel.AbstractRoute;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.DataPlane;
+import org.batfish.datamodel.FibImpl;
+import org.batfish.datamodel.GenericRib;
+import org.batfish.datamodel.Topology;
+import org.batfish.main.Batfish;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Data plane computation by the incremental engine from already converted configurations, and
+ * construction of the FIBs of a computed data plane.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class DataPlaneBenchmark {
+
+  private Map<String, Configuration> _configurations;
+
+  private DataPlane _dataPlane;
+
+  private DataPlanePlugin _plugin;
+
+  private Topology _topology;
+
+  @Setup
+  public void setup(NetworkState network) throws IOException {
+    Batfish batfish = network.newBatfish();
+    _configurations = batfish.loadConfigurations();
+    _topology = batfish.getEnvironmentTopology();
+    _plugin = batfish.getDataPlanePlugin();
+    _dataPlane = computeDataPlane();
+  }
+
+  @Benchmark
+  public DataPlane computeDataPlane() {
+    return _plugin.computeDataPlane(false, _configurations, _topology)._dataPlane;
+  }
+
+  @Benchmark
+  public void buildFibs(Blackhole blackhole) {
+    for (SortedMap<String, GenericRib<AbstractRoute>> ribsByVrf : _dataPlane.getRibs().values()) {
+      for (GenericRib<AbstractRoute> rib : ribsByVrf.values()) {
+        blackhole.consume(new FibImpl(rib));
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package org.batfish.benchmarks;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.BfConsts;
+import org.batfish.common.util.CommonUtil;
+import org.batfish.config.Settings;
+import org.batfish.config.Settings.EnvironmentSettings;
+import org.batfish.dataplane.ibdp.IncrementalDataPlanePlugin;
+import org.batfish.main.Batfish;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The network under benchmark: either a {@link SyntheticNetwork} of the configured size, or the
+ * configurations of an existing test rig when {@code network} is the path to one.
+ */
+@State(Scope.Benchmark)
+public class NetworkState {
+
+  public static final String SYNTHETIC = "synthetic";
+
+  /** {@link #SYNTHETIC}, or the path to a test rig directory containing a configs directory. */
+  @Param({SYNTHETIC})
+  String network;
+
+  /** Lines in the ACL of each synthetic router. */
+  @Param({"100"})
+  int aclLines;
+
+  /** Static prefixes originated by each synthetic router. */
+  @Param({"100"})
+  int prefixes;
+
+  /** Number of synthetic routers. */
+  @Param({"10"})
+  int routers;
+
+  private SortedMap<String, String> _configurationText;
+
+  private Path _storageBase;
+
+  private static <K, V> Cache<K, V> newCache() {
+    return CacheBuilder.newBuilder().maximumSize(1).build();
+  }
+
+  /** Settings as used by a worker, but logging only warnings and above. */
+  public static Settings newSettings() {
+    Settings settings = new Settings(new String[] {});
+    settings.setLogger(new BatfishLogger(BatfishLogger.LEVELSTR_WARN, false));
+    return settings;
+  }
+
+  /** Configuration text keyed by file name. */
+  public SortedMap<String, String> getConfigurationText() {
+    return _configurationText;
+  }
+
+  /**
+   * Returns a {@link Batfish} for a new snapshot of the network, which parses and converts the
+   * configurations when they are first loaded.
+   */
+  public Batfish newBatfish() throws IOException {
+    Settings settings = newSettings();
+    settings.setStorageBase(Files.createTempDirectory(_storageBase, "snapshot"));
+    settings.setContainer("benchmark");
+    settings.setTestrig("benchmark");
+    settings.setEnvironmentName(BfConsts.RELPATH_DEFAULT_ENVIRONMENT_NAME);
+    Batfish.initTestrigSettings(settings);
+    settings.setActiveTestrigSettings(settings.getBaseTestrigSettings());
+    EnvironmentSettings envSettings = settings.getBaseTestrigSettings().getEnvironmentSettings();
+    envSettings.getEnvPath().toFile().mkdirs();
+    Path configsDir =
+        settings
+            .getBaseTestrigSettings()
+            .getTestRigPath()
+            .resolve(BfConsts.RELPATH_CONFIGURATIONS_DIR);
+    configsDir.toFile().mkdirs();
+    _configurationText.forEach(
+        (name, text) -> CommonUtil.writeFile(configsDir.resolve(name), text));
+    Batfish batfish =
+        new Batfish(
+            settings,
+            newCache(),
+            newCache(),
+            newCache(),
+            newCache(),
+            new HashMap<>(),
+            new HashMap<>(),
+            new HashMap<>());
+    new IncrementalDataPlanePlugin().initialize(batfish);
+    return batfish;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    _storageBase = Files.createTempDirectory("batfish-benchmark");
+    if (network.equals(SYNTHETIC)) {
+      _configurationText = SyntheticNetwork.configurations(routers, prefixes, aclLines);
+    } else {
+      _configurationText = new TreeMap<>();
+      for (Path file :
+          CommonUtil.getEntries(Paths.get(network).resolve(BfConsts.RELPATH_CONFIGURATIONS_DIR))) {
+        _configurationText.put(file.getFileName().toString(), CommonUtil.readFile(file));
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    CommonUtil.deleteDirectory(_storageBase);
+  }
+}
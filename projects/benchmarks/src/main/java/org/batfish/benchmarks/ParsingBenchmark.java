@@ -0,0 +1,50 @@
+package org.batfish.benchmarks;
+
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import org.batfish.config.Settings;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.job.ParseVendorConfigurationJob;
+import org.batfish.main.Batfish;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing and extraction of every configuration in the network, one file after another. */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class ParsingBenchmark {
+
+  private Settings _settings;
+
+  @Setup
+  public void setup() {
+    _settings = NetworkState.newSettings();
+  }
+
+  @Benchmark
+  public void parse(NetworkState network, Blackhole blackhole) throws Exception {
+    for (Entry<String, String> file : network.getConfigurationText().entrySet()) {
+      blackhole.consume(
+          new ParseVendorConfigurationJob(
+                  _settings,
+                  file.getValue(),
+                  file.getKey(),
+                  Batfish.buildWarnings(_settings),
+                  ConfigurationFormat.UNKNOWN)
+              .call());
+    }
+  }
+}
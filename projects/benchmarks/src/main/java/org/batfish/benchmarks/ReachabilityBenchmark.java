@@ -0,0 +1,74 @@
+package org.batfish.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.sf.javabdd.BDD;
+import org.batfish.bddreachability.BDDReachabilityAnalysisFactory;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.DataPlane;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.UniverseIpSpace;
+import org.batfish.main.Batfish;
+import org.batfish.specifier.InterfaceLocation;
+import org.batfish.specifier.IpSpaceAssignment;
+import org.batfish.symbolic.bdd.BDDPacket;
+import org.batfish.z3.IngressLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BDD reachability from every active interface of the network, including construction of the
+ * reachability graph from the forwarding analysis of a computed data plane.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class ReachabilityBenchmark {
+
+  private IpSpaceAssignment _assignment;
+
+  private Map<String, Configuration> _configurations;
+
+  private DataPlane _dataPlane;
+
+  @Setup
+  public void setup(NetworkState network) throws IOException {
+    Batfish batfish = network.newBatfish();
+    _configurations = batfish.loadConfigurations();
+    _dataPlane =
+        batfish
+            .getDataPlanePlugin()
+            .computeDataPlane(false, _configurations, batfish.getEnvironmentTopology())
+            ._dataPlane;
+    IpSpaceAssignment.Builder assignment = IpSpaceAssignment.builder();
+    for (Configuration c : _configurations.values()) {
+      for (Interface iface : c.getInterfaces().values()) {
+        if (iface.getActive() && iface.getAddress() != null) {
+          assignment.assign(
+              new InterfaceLocation(c.getHostname(), iface.getName()), UniverseIpSpace.INSTANCE);
+        }
+      }
+    }
+    _assignment = assignment.build();
+  }
+
+  @Benchmark
+  public Map<IngressLocation, BDD> reachability() {
+    return new BDDReachabilityAnalysisFactory(
+            new BDDPacket(), _configurations, _dataPlane.getForwardingAnalysis())
+        .bddReachabilityAnalysis(_assignment)
+        .getIngressLocationAcceptBDDs();
+  }
+}
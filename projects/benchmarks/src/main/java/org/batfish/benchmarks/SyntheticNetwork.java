@@ -0,0 +1,102 @@
+package org.batfish.benchmarks;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.batfish.datamodel.Ip;
+
+/**
+ * Generates Cisco IOS configurations for a synthetic network whose size can be scaled along the
+ * dimensions that dominate parsing, data plane and reachability cost.
+ *
+ * <p>The routers form a chain, each an eBGP neighbor of the next over a /30 link. Every router
+ * originates its own static prefixes into BGP, so every router learns every prefix, and filters
+ * traffic arriving from its upstream neighbor with an extended ACL.
+ */
+public final class SyntheticNetwork {
+
+  private static final long LINK_BASE = new Ip("10.0.0.0").asLong();
+
+  private static final long LOOPBACK_BASE = new Ip("192.168.0.0").asLong();
+
+  private static final long PREFIX_BASE = new Ip("100.0.0.0").asLong();
+
+  private static final long FIRST_AS = 100000L;
+
+  /**
+   * Returns configuration text for each router, keyed by file name.
+   *
+   * @param routers Number of routers
+   * @param prefixes Number of static prefixes originated by each router
+   * @param aclLines Number of lines in the ACL applied on each router
+   */
+  public static SortedMap<String, String> configurations(int routers, int prefixes, int aclLines) {
+    SortedMap<String, String> configurations = new TreeMap<>();
+    for (int i = 0; i < routers; i++) {
+      configurations.put(hostname(i) + ".cfg", configuration(i, routers, prefixes, aclLines));
+    }
+    return configurations;
+  }
+
+  private static String configuration(int i, int routers, int prefixes, int aclLines) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("!\nhostname ").append(hostname(i)).append("\n!\n");
+    sb.append("interface Loopback0\n");
+    sb.append(" ip address ").append(new Ip(LOOPBACK_BASE + i)).append(" 255.255.255.255\n!\n");
+    if (i > 0) {
+      sb.append("interface GigabitEthernet0/0\n");
+      sb.append(" ip address ").append(linkIp(i - 1, 2)).append(" 255.255.255.252\n");
+      sb.append(" ip access-group SYNTHETIC_ACL in\n!\n");
+    }
+    if (i < routers - 1) {
+      sb.append("interface GigabitEthernet0/1\n");
+      sb.append(" ip address ").append(linkIp(i, 1)).append(" 255.255.255.252\n!\n");
+    }
+    sb.append("ip access-list extended SYNTHETIC_ACL\n");
+    for (int k = 0; k < aclLines; k++) {
+      sb.append(" deny tcp any ")
+          .append(prefixIp(k))
+          .append(" 0.0.0.255 eq ")
+          .append(1 + k % 65535)
+          .append('\n');
+    }
+    sb.append(" permit ip any any\n!\n");
+    for (int j = 0; j < prefixes; j++) {
+      sb.append("ip route ")
+          .append(prefixIp((long) i * prefixes + j))
+          .append(" 255.255.255.0 Null0\n");
+    }
+    sb.append("!\nrouter bgp ").append(FIRST_AS + i).append('\n');
+    sb.append(" bgp router-id ").append(new Ip(LOOPBACK_BASE + i)).append('\n');
+    if (i > 0) {
+      sb.append(" neighbor ")
+          .append(linkIp(i - 1, 1))
+          .append(" remote-as ")
+          .append(FIRST_AS + i - 1)
+          .append('\n');
+    }
+    if (i < routers - 1) {
+      sb.append(" neighbor ")
+          .append(linkIp(i, 2))
+          .append(" remote-as ")
+          .append(FIRST_AS + i + 1)
+          .append('\n');
+    }
+    sb.append(" redistribute static\n!\nend\n");
+    return sb.toString();
+  }
+
+  private static String hostname(int i) {
+    return String.format("r%05d", i);
+  }
+
+  /** Address {@code host} (1 or 2) of the link between routers {@code link} and {@code link+1}. */
+  private static Ip linkIp(int link, int host) {
+    return new Ip(LINK_BASE + 4L * link + host);
+  }
+
+  private static Ip prefixIp(long index) {
+    return new Ip(PREFIX_BASE + 256L * index);
+  }
+
+  private SyntheticNetwork() {}
+}
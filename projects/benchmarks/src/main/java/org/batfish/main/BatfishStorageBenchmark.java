@@ -0,0 +1,81 @@
+package org.batfish.main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.batfish.benchmarks.NetworkState;
+import org.batfish.common.BatfishLogger;
+import org.batfish.common.util.CommonUtil;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization and deserialization of the vendor-independent configurations of the network by
+ * {@link BatfishStorage}, in either serialization format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class BatfishStorageBenchmark {
+
+  private static final String LOADED_TESTRIG = "loaded";
+
+  private static final String STORED_TESTRIG = "stored";
+
+  @Param({"false", "true"})
+  boolean compactSerialization;
+
+  private Map<String, Configuration> _configurations;
+
+  private Path _containerDir;
+
+  private BatfishStorage _storage;
+
+  @Setup
+  public void setup(NetworkState network) throws IOException {
+    _configurations = network.newBatfish().loadConfigurations();
+    _containerDir = Files.createTempDirectory("batfish-storage-benchmark");
+    _storage =
+        new BatfishStorage(
+            _containerDir,
+            new BatfishLogger(BatfishLogger.LEVELSTR_WARN, false),
+            (name, size) -> new AtomicInteger(),
+            compactSerialization);
+    _storage.storeConfigurations(
+        _configurations, new ConvertConfigurationAnswerElement(), LOADED_TESTRIG);
+  }
+
+  @TearDown
+  public void tearDown() {
+    CommonUtil.deleteDirectory(_containerDir);
+  }
+
+  @Benchmark
+  public Map<String, Configuration> load() {
+    return _storage.loadConfigurations(LOADED_TESTRIG);
+  }
+
+  @Benchmark
+  public void store() {
+    _storage.storeConfigurations(
+        _configurations, new ConvertConfigurationAnswerElement(), STORED_TESTRIG);
+  }
+}
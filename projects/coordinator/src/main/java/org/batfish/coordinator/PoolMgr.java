@@ -95,9 +95,16 @@ public class PoolMgr {
     return _workerPool.get(worker);
   }
 
-  public void markAssignmentResult(String worker, boolean assignmentSuccessful) {
-    updateWorkerStatus(
-        worker, assignmentSuccessful ? WorkerStatus.StatusCode.BUSY : WorkerStatus.StatusCode.IDLE);
+  public synchronized void markAssignmentResult(String worker, boolean assignmentSuccessful) {
+    WorkerStatus status = _workerPool.get(worker);
+    if (status == null) {
+      return;
+    }
+    if (assignmentSuccessful) {
+      status.markAssigned();
+    } else {
+      status.updateStatus(WorkerStatus.StatusCode.IDLE);
+    }
   }
 
   public void refreshWorkerStatus() {
@@ -160,13 +167,18 @@ public class PoolMgr {
           return;
         }
 
-        boolean status = jObj.getBoolean("idle");
+        // workers that run one task at a time only report whether they are idle
+        int freeSlots;
+        if (jObj.has("freeSlots")) {
+          freeSlots = jObj.getInt("freeSlots");
+        } else {
+          freeSlots = jObj.getBoolean("idle") ? 1 : 0;
+        }
 
         // update the status, except leave the ones with TRYINGTOASSIGN
         // alone
         if (getWorkerStatus(worker).getStatus() != WorkerStatus.StatusCode.TRYINGTOASSIGN) {
-          updateWorkerStatus(
-              worker, status ? WorkerStatus.StatusCode.IDLE : WorkerStatus.StatusCode.BUSY);
+          updateWorkerFreeSlots(worker, freeSlots);
         }
       }
     } catch (ProcessingException e) {
@@ -193,6 +205,12 @@ public class PoolMgr {
             TimeUnit.MILLISECONDS);
   }
 
+  private synchronized void updateWorkerFreeSlots(String worker, int freeSlots) {
+    if (_workerPool.containsKey(worker)) {
+      _workerPool.get(worker).updateStatus(freeSlots);
+    }
+  }
+
   private synchronized void updateWorkerStatus(String worker, WorkerStatus.StatusCode statusCode) {
     if (_workerPool.containsKey(worker)) {
       _workerPool.get(worker).updateStatus(statusCode);
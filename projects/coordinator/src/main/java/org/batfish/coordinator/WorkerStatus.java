@@ -12,14 +12,25 @@ public class WorkerStatus {
     UNREACHABLE
   }
 
+  /**
+   * Number of additional tasks the worker reported it can accept. A worker is {@link
+   * StatusCode#IDLE}, i.e. eligible for assignment, while this is positive.
+   */
+  private int _freeSlots;
+
   private Date _lastUpdated;
   private StatusCode _statusCode;
 
   public WorkerStatus(StatusCode statusCode) {
+    _freeSlots = statusCode == StatusCode.IDLE ? 1 : 0;
     _statusCode = statusCode;
     _lastUpdated = new Date();
   }
 
+  public int getFreeSlots() {
+    return _freeSlots;
+  }
+
   public Date getLastUpdateTime() {
     return _lastUpdated;
   }
@@ -28,13 +39,25 @@ public class WorkerStatus {
     return _statusCode;
   }
 
+  /** Records a successful assignment, which takes up one of the worker's free slots. */
+  public void markAssigned() {
+    _freeSlots = Math.max(0, _freeSlots - 1);
+    updateStatus(_freeSlots > 0 ? StatusCode.IDLE : StatusCode.BUSY);
+  }
+
   @Override
   public String toString() {
-    return String.format("%s (%s)", _statusCode, _lastUpdated);
+    return String.format("%s (%s, %d free slots)", _statusCode, _lastUpdated, _freeSlots);
   }
 
   public void updateStatus(StatusCode statusCode) {
     _statusCode = statusCode;
     _lastUpdated = new Date();
   }
+
+  /** Records the number of free slots reported by the worker, and whether it is assignable. */
+  public void updateStatus(int freeSlots) {
+    _freeSlots = freeSlots;
+    updateStatus(freeSlots > 0 ? StatusCode.IDLE : StatusCode.BUSY);
+  }
 }
@@ -0,0 +1,42 @@
+package org.batfish.coordinator;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.batfish.coordinator.WorkerStatus.StatusCode;
+import org.junit.Test;
+
+/** Tests for {@link WorkerStatus}. */
+public class WorkerStatusTest {
+
+  @Test
+  public void testAssignmentsUseUpFreeSlots() {
+    WorkerStatus status = new WorkerStatus(StatusCode.UNKNOWN);
+    status.updateStatus(2);
+    assertThat(status.getStatus(), equalTo(StatusCode.IDLE));
+
+    status.markAssigned();
+    assertThat(status.getFreeSlots(), equalTo(1));
+    assertThat(status.getStatus(), equalTo(StatusCode.IDLE));
+
+    status.markAssigned();
+    assertThat(status.getFreeSlots(), equalTo(0));
+    assertThat(status.getStatus(), equalTo(StatusCode.BUSY));
+  }
+
+  @Test
+  public void testIdleWorkerHasOneFreeSlot() {
+    WorkerStatus status = new WorkerStatus(StatusCode.IDLE);
+    assertThat(status.getFreeSlots(), equalTo(1));
+
+    status.markAssigned();
+    assertThat(status.getStatus(), equalTo(StatusCode.BUSY));
+  }
+
+  @Test
+  public void testNoFreeSlotsIsBusy() {
+    WorkerStatus status = new WorkerStatus(StatusCode.IDLE);
+    status.updateStatus(0);
+    assertThat(status.getStatus(), equalTo(StatusCode.BUSY));
+  }
+}
@@ -14,9 +14,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.commons.lang3.SerializationUtils;
 import org.batfish.common.Answerer;
 import org.batfish.common.BatfishException;
 import org.batfish.common.plugin.IBatfish;
@@ -560,6 +562,12 @@ public class NeighborsQuestionPlugin extends QuestionPlugin {
       NeighborsAnswerElement answerElement = new NeighborsAnswerElement();
 
       Map<String, Configuration> configurations = _batfish.loadConfigurations();
+      if (question.getNeighborTypes().contains(NeighborType.OSPF)
+          || question.getNeighborTypes().contains(NeighborType.RIP)) {
+        // Remote OSPF and RIP neighbors are set on the configurations themselves, so set them on a
+        // copy rather than on the configurations shared with other questions
+        configurations = SerializationUtils.clone(new TreeMap<>(configurations));
+      }
       Set<String> includeNodes1 = question.getNode1Regex().getMatchingNodes(_batfish);
       Set<String> includeNodes2 = question.getNode2Regex().getMatchingNodes(_batfish);
 
@@ -14,6 +14,7 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import org.apache.commons.lang3.SerializationUtils;
 import org.batfish.common.Answerer;
 import org.batfish.common.plugin.IBatfish;
 import org.batfish.common.plugin.Plugin;
@@ -195,7 +196,10 @@ public class OspfSessionCheckQuestionPlugin extends QuestionPlugin {
 
       OspfSessionCheckQuestion question = (OspfSessionCheckQuestion) _question;
 
-      Map<String, Configuration> configurations = _batfish.loadConfigurations();
+      // Remote OSPF neighbors are set on the configurations themselves, so set them on a copy
+      // rather than on the configurations shared with other questions
+      Map<String, Configuration> configurations =
+          SerializationUtils.clone(new TreeMap<>(_batfish.loadConfigurations()));
       Set<String> includeNodes1 = question.getNode1Regex().getMatchingNodes(_batfish);
       Set<String> includeNodes2 = question.getNode2Regex().getMatchingNodes(_batfish);
 
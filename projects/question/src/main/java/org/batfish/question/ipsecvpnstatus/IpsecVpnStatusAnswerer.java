@@ -7,7 +7,6 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import org.batfish.common.Answerer;
 import org.batfish.common.plugin.IBatfish;
-import org.batfish.common.util.CommonUtil;
 import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.IpsecVpn;
 import org.batfish.datamodel.answers.AnswerElement;
@@ -55,8 +54,7 @@ public class IpsecVpnStatusAnswerer extends Answerer {
     Set<String> includeNodes1 = question.getNode1Regex().getMatchingNodes(_batfish);
     Set<String> includeNodes2 = question.getNode2Regex().getMatchingNodes(_batfish);
 
-    CommonUtil.initRemoteIpsecVpns(configurations);
-
+    // loading the configurations has already paired each IPsec VPN with its remote VPN
     IpsecVpnStatusAnswerElement answerElement = new IpsecVpnStatusAnswerElement();
     for (Configuration c : configurations.values()) {
       if (!includeNodes1.contains(c.getHostname())) {
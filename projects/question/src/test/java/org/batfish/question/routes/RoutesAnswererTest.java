@@ -35,6 +35,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Multiset;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -384,6 +385,11 @@ public class RoutesAnswererTest {
       return _routes;
     }
 
+    @Override
+    public int getNumRoutes() {
+      return _routes.size();
+    }
+
     @Override
     public Set<R> longestPrefixMatch(Ip address) {
       throw new UnsupportedOperationException();
@@ -394,6 +400,11 @@ public class RoutesAnswererTest {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public int longestPrefixMatch(Ip address, Collection<? super R> buffer) {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean mergeRoute(R route) {
       throw new UnsupportedOperationException();